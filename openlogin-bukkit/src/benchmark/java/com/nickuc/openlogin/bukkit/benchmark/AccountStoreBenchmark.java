@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.bukkit.benchmark;
+
+import com.sobble.pleasejustlogin.common.database.AccountStore;
+import com.sobble.pleasejustlogin.common.database.Database;
+import com.sobble.pleasejustlogin.common.database.LogAccountStore;
+import com.sobble.pleasejustlogin.common.database.PluginSettings;
+import com.sobble.pleasejustlogin.common.database.PooledSQLite;
+import com.sobble.pleasejustlogin.common.database.SchemaMigrations;
+import com.sobble.pleasejustlogin.common.database.SqlAccountStore;
+import com.sobble.pleasejustlogin.common.model.Account;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the lookups of a login, {@link AccountStore#find(String)} and {@link AccountStore#countByAddress(String)},
+ * on 100000 accounts, comparing the {@link LogAccountStore} with the {@link SqlAccountStore} over a {@link PooledSQLite}.
+ * <p>
+ * Both stores live in a temporary folder, the SQLite one is warm, so its pages are in the OS cache.
+ * Run it with {@code gradlew benchmark -Pbenchmark=AccountStoreBenchmark}.
+ */
+public class AccountStoreBenchmark {
+
+    private static final int ACCOUNTS = 100_000;
+    // about 4 accounts per address
+    private static final int ADDRESSES = 25_000;
+    private static final int LOOKUPS = 200_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException, SQLException {
+        File folder = Files.createTempDirectory("account-store-benchmark").toFile();
+        try {
+            List<Account> accounts = new ArrayList<>(ACCOUNTS);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accounts.add(new Account("Player" + i, "$2a$10$" + i, address(i % ADDRESSES), now - i, now - i));
+            }
+
+            LogAccountStore log = new LogAccountStore(folder, "accounts");
+            log.open();
+            log.insertAllIfAbsent(accounts);
+
+            Database database = new PooledSQLite(new File(folder, "accounts.db"), 4, 5000, 5000, 32);
+            database.openConnection();
+            // the migrations add the address index
+            SchemaMigrations migrations = new SchemaMigrations(database, new PluginSettings(database));
+            migrations.createTables();
+            migrations.migrate(message -> {
+            });
+            SqlAccountStore sql = new SqlAccountStore(database);
+            sql.insertAllIfAbsent(accounts);
+
+            System.out.println("Store  | find         | find (absent) | countByAddress");
+            for (int round = 0; round < 2; round++) {
+                // the first round only warms up
+                double[] logTimes = run(log);
+                double[] sqlTimes = run(sql);
+                if (round == 1) {
+                    System.out.printf("log    | %7.2f us/op | %8.2f us/op | %9.2f us/op%n", logTimes[0], logTimes[1], logTimes[2]);
+                    System.out.printf("sqlite | %7.2f us/op | %8.2f us/op | %9.2f us/op%n", sqlTimes[0], sqlTimes[1], sqlTimes[2]);
+                }
+            }
+
+            log.close();
+            database.closeConnection();
+        } finally {
+            File[] files = folder.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            folder.delete();
+        }
+    }
+
+    private static double[] run(AccountStore store) throws SQLException {
+        String[] names = new String[4096];
+        String[] absent = new String[names.length];
+        String[] addresses = new String[names.length];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "player" + random.nextInt(ACCOUNTS);
+            absent[i] = "newplayer" + random.nextInt(ACCOUNTS);
+            addresses[i] = address(random.nextInt(ADDRESSES));
+        }
+
+        double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        long found = 0, counted = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                Optional<Account> account = store.find(names[i & (names.length - 1)]);
+                if (account.isPresent()) {
+                    found++;
+                }
+            }
+            best[0] = Math.min(best[0], (System.nanoTime() - start) / 1000D / LOOKUPS);
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                if (store.find(absent[i & (absent.length - 1)]).isPresent()) {
+                    found++;
+                }
+            }
+            best[1] = Math.min(best[1], (System.nanoTime() - start) / 1000D / LOOKUPS);
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                counted += store.countByAddress(addresses[i & (addresses.length - 1)]);
+            }
+            best[2] = Math.min(best[2], (System.nanoTime() - start) / 1000D / LOOKUPS);
+        }
+
+        if (found != (long) ROUNDS * LOOKUPS || counted != (long) ROUNDS * LOOKUPS * (ACCOUNTS / ADDRESSES)) {
+            throw new IllegalStateException("The stores returned wrong results");
+        }
+        return best;
+    }
+
+    private static String address(int index) {
+        return "10." + (index >> 16 & 0xFF) + "." + (index >> 8 & 0xFF) + "." + (index & 0xFF);
+    }
+
+}
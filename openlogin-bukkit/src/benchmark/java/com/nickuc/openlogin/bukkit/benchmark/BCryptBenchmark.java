@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.bukkit.benchmark;
+
+import com.sobble.pleasejustlogin.common.security.hashing.BCrypt;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the time and the memory allocated by a {@link BCrypt#checkpw(String, String)} at several costs.
+ * <p>
+ * At the default cost the Blowfish key schedule dominates, the allocation of each call matters
+ * at low costs and for the garbage produced by many concurrent logins.
+ * Run it with {@code gradlew benchmark -Pbenchmark=BCryptBenchmark}.
+ */
+public class BCryptBenchmark {
+
+    private static final int[] COSTS = {4, 6, 10};
+    // about one second of verifies per round at each cost
+    private static final int[] VERIFIES = {8192, 2048, 12};
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        System.out.println("Cost | time            | allocated");
+        for (int round = 0; round < 2; round++) {
+            // the first round only warms up
+            for (int i = 0; i < COSTS.length; i++) {
+                double[] result = run(COSTS[i], VERIFIES[i]);
+                if (round == 1) {
+                    System.out.printf("%4d | %9.3f ms/op | %7.0f bytes/op%n", COSTS[i], result[0], result[1]);
+                }
+            }
+        }
+    }
+
+    private static double[] run(int cost, int verifies) {
+        String password = "correct horse battery staple";
+        String hashed = BCrypt.hashpw(password, BCrypt.gensalt(cost));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        double bestTime = Double.MAX_VALUE;
+        double bestAllocated = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < verifies; i++) {
+                if (!BCrypt.checkpw(password, hashed)) {
+                    throw new IllegalStateException("The password was not verified");
+                }
+            }
+            bestTime = Math.min(bestTime, (System.nanoTime() - start) / 1_000_000D / verifies);
+            bestAllocated = Math.min(bestAllocated, (threads.getThreadAllocatedBytes(thread) - allocated) / (double) verifies);
+        }
+        return new double[]{bestTime, bestAllocated};
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.bukkit.benchmark;
+
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
+import com.sobble.pleasejustlogin.bukkit.session.Restriction;
+import com.sobble.pleasejustlogin.bukkit.session.RestrictionGate;
+import com.sobble.pleasejustlogin.bukkit.session.SessionManager;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the cost of dispatching a player event with 200 authenticated players and 0, 1 or 200
+ * unauthenticated ones, comparing the always registered listener with the {@link RestrictionGate}.
+ * <p>
+ * Events are dispatched the way the server does it, through the baked {@link HandlerList},
+ * with a no-op listener standing for the other plugins. Run it with {@code gradlew benchmark}.
+ */
+public class EventGateBenchmark {
+
+    private static final int AUTHENTICATED = 200;
+    private static final int EVENTS = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws EventException {
+        System.out.println("Unauthenticated | always registered | gated");
+        for (int unauthenticated : new int[]{0, 1, 200}) {
+            double gated = run(true, unauthenticated);
+            double legacy = run(false, unauthenticated);
+            System.out.printf("%15d | %12.1f ns/op | %6.1f ns/op%n", unauthenticated, legacy, gated);
+        }
+    }
+
+    private static double run(boolean gated, int unauthenticated) throws EventException {
+        HandlerList handlers = BenchmarkEvent.handlers;
+        for (RegisteredListener listener : handlers.getRegisteredListeners()) {
+            handlers.unregister(listener);
+        }
+        handlers.register(new RegisteredListener(new Listener() {
+        }, (listener, event) -> {
+        }, EventPriority.NORMAL, null, false));
+
+        Listener owner = new Listener() {
+        };
+        RegisteredListener restriction;
+        SessionManager sessionManager;
+        if (gated) {
+            RegisteredListener[] holder = new RegisteredListener[1];
+            sessionManager = new SessionManager(new RestrictionGate(
+                    () -> handlers.register(holder[0]),
+                    () -> handlers.unregister(holder[0]),
+                    Runnable::run));
+            SessionManager sessions = sessionManager;
+            restriction = holder[0] = new RegisteredListener(owner, (listener, event) -> {
+                BenchmarkEvent e = (BenchmarkEvent) event;
+                if (sessions.isRestricted(e.player, Restriction.INTERACT)) e.setCancelled(true);
+            }, EventPriority.LOWEST, null, false);
+        } else {
+            sessionManager = new SessionManager(new RestrictionGate(() -> {
+            }, () -> {
+            }, Runnable::run));
+            SessionManager sessions = sessionManager;
+            restriction = new RegisteredListener(owner, (listener, event) -> {
+                // the check before the gate, on every event
+                BenchmarkEvent e = (BenchmarkEvent) event;
+                AuthSession session = sessions.get(e.player);
+                if (session == null || !session.isAuthenticated()) e.setCancelled(true);
+            }, EventPriority.LOWEST, null, false);
+            handlers.register(restriction);
+        }
+
+        UUID[] players = new UUID[AUTHENTICATED + unauthenticated];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+            AuthSession session = sessionManager.create(players[i], "Player" + i, null);
+            session.resolve(true);
+            session.attach();
+            if (i < AUTHENTICATED) {
+                session.authenticate();
+            }
+        }
+
+        BenchmarkEvent[] events = new BenchmarkEvent[4096];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new BenchmarkEvent(players[random.nextInt(players.length)]);
+        }
+
+        double best = Double.MAX_VALUE;
+        long cancelled = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < EVENTS; i++) {
+                BenchmarkEvent event = events[i & (events.length - 1)];
+                event.cancelled = false;
+                for (RegisteredListener listener : handlers.getRegisteredListeners()) {
+                    listener.callEvent(event);
+                }
+                if (event.cancelled) {
+                    cancelled++;
+                }
+            }
+            best = Math.min(best, (System.nanoTime() - start) / (double) EVENTS);
+        }
+
+        handlers.unregister(restriction);
+        if (unauthenticated == 0 && cancelled != 0) {
+            throw new IllegalStateException("Authenticated players were restricted");
+        }
+        return best;
+    }
+
+    private static class BenchmarkEvent extends Event implements Cancellable {
+
+        private static final HandlerList handlers = new HandlerList();
+
+        private final UUID player;
+        private boolean cancelled;
+
+        BenchmarkEvent(UUID player) {
+            this.player = player;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void setCancelled(boolean cancelled) {
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public HandlerList getHandlers() {
+            return handlers;
+        }
+
+        public static HandlerList getHandlerList() {
+            return handlers;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.bukkit.benchmark;
+
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
+import com.sobble.pleasejustlogin.bukkit.session.RestrictionGate;
+import org.bukkit.Location;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/**
+ * Measures the cost of freezing 200 unauthenticated players that keep sending movements,
+ * comparing the 'clamp' freeze mode with the 'anchor' one.
+ * <p>
+ * Only the freeze itself is measured, the move events are created up front. Run it with
+ * {@code gradlew benchmark -Pbenchmark=MoveFreezeBenchmark}.
+ */
+public class MoveFreezeBenchmark {
+
+    private static final int PLAYERS = 200;
+    private static final int EVENTS = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        System.out.println("Freeze mode | time        | allocated");
+        for (int round = 0; round < 2; round++) {
+            // the first round only warms up
+            double[] clamp = run(false);
+            double[] anchor = run(true);
+            if (round == 1) {
+                System.out.printf("clamp       | %5.1f ns/op | %5.1f bytes/op%n", clamp[0], clamp[1]);
+                System.out.printf("anchor      | %5.1f ns/op | %5.1f bytes/op%n", anchor[0], anchor[1]);
+            }
+        }
+    }
+
+    private static double[] run(boolean anchor) {
+        RestrictionGate gate = new RestrictionGate(() -> {
+        }, () -> {
+        }, Runnable::run);
+        AuthSession[] sessions = new AuthSession[PLAYERS];
+        PlayerMoveEvent[] events = new PlayerMoveEvent[PLAYERS * 4];
+        Location[] targets = new Location[events.length];
+        // the coordinates each move is sent with, the anchor mode writes into the target location
+        double[] coordinates = new double[events.length * 3];
+        for (int i = 0; i < PLAYERS; i++) {
+            sessions[i] = new AuthSession(UUID.randomUUID(), "Player" + i, null, gate);
+            Location from = new Location(null, i * 16.5D, 64D, -i * 16.5D, 90F, 0F);
+            for (int j = 0; j < 4; j++) {
+                // walking, falling, jumping and looking around
+                Location to = from.clone();
+                switch (j) {
+                    case 0: to.setX(to.getX() + 0.21D); break;
+                    case 1: to.setY(to.getY() - 0.0784D); break;
+                    case 2: to.setY(to.getY() + 0.42D); break;
+                    default: to.setYaw(to.getYaw() + 12F); break;
+                }
+                int index = i * 4 + j;
+                targets[index] = to;
+                coordinates[index * 3] = to.getX();
+                coordinates[index * 3 + 1] = to.getY();
+                coordinates[index * 3 + 2] = to.getZ();
+                events[index] = new PlayerMoveEvent(null, from, to);
+            }
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        double bestTime = Double.MAX_VALUE;
+        double bestAllocated = Double.MAX_VALUE;
+        long corrected = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < EVENTS; i++) {
+                int index = i % events.length;
+                PlayerMoveEvent event = events[index];
+                Location target = targets[index];
+                target.setX(coordinates[index * 3]);
+                target.setY(coordinates[index * 3 + 1]);
+                target.setZ(coordinates[index * 3 + 2]);
+                event.setTo(target);
+                if (anchor) {
+                    if (sessions[index >> 2].freeze(event.getFrom(), target)) {
+                        corrected++;
+                    }
+                } else {
+                    clamp(event);
+                    if (event.getTo() != target) {
+                        corrected++;
+                    }
+                }
+            }
+            bestTime = Math.min(bestTime, (System.nanoTime() - start) / (double) EVENTS);
+            bestAllocated = Math.min(bestAllocated, (threads.getThreadAllocatedBytes(thread) - allocated) / (double) EVENTS);
+        }
+
+        if (corrected != (long) EVENTS * ROUNDS / 4 * 3) {
+            throw new IllegalStateException("Unexpected number of corrected moves: " + corrected);
+        }
+        return new double[]{bestTime, bestAllocated};
+    }
+
+    // the 'clamp' freeze mode of PlayerRestrictionListeners
+    private static void clamp(PlayerMoveEvent e) {
+        Location from = e.getFrom();
+        Location to = e.getTo();
+        if (from.getX() == to.getX() && from.getY() == to.getY() && from.getZ() == to.getZ()) {
+            return;
+        }
+        Location newLoc = from.clone();
+        newLoc.setYaw(to.getYaw());
+        newLoc.setPitch(to.getPitch());
+        newLoc.setX(from.getX());
+        newLoc.setZ(from.getZ());
+        newLoc.setY(from.getY());
+        e.setTo(newLoc);
+    }
+
+}
@@ -28,23 +28,49 @@ import com.sobble.pleasejustlogin.bukkit.api.OLBukkitAPI;
 import com.sobble.pleasejustlogin.bukkit.captcha.CaptchaManager;
 import com.sobble.pleasejustlogin.bukkit.command.CommandManagement;
 import com.sobble.pleasejustlogin.bukkit.listener.PlayerAuthenticateListener;
+import com.sobble.pleasejustlogin.bukkit.listener.PlayerChatListeners;
 import com.sobble.pleasejustlogin.bukkit.listener.PlayerGeneralListeners;
 import com.sobble.pleasejustlogin.bukkit.listener.PlayerJoinListeners;
 import com.sobble.pleasejustlogin.bukkit.listener.PlayerKickListeners;
+import com.sobble.pleasejustlogin.bukkit.listener.PlayerRestrictionListeners;
 import com.sobble.pleasejustlogin.bukkit.protocol.ProtocolLibInventoryHider;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
+import com.sobble.pleasejustlogin.bukkit.session.RestrictionGate;
+import com.sobble.pleasejustlogin.bukkit.session.SessionManager;
 import com.sobble.pleasejustlogin.bukkit.task.LoginQueue;
 import com.sobble.pleasejustlogin.common.OpenLogin;
 import com.sobble.pleasejustlogin.common.api.OpenLoginAPI;
+import com.sobble.pleasejustlogin.common.database.AccountLogConverter;
+import com.sobble.pleasejustlogin.common.database.AccountStore;
 import com.sobble.pleasejustlogin.common.database.Database;
+import com.sobble.pleasejustlogin.common.database.LogAccountStore;
 import com.sobble.pleasejustlogin.common.database.PluginSettings;
+import com.sobble.pleasejustlogin.common.database.PooledRemoteDatabase;
+import com.sobble.pleasejustlogin.common.database.PooledSQLite;
 import com.sobble.pleasejustlogin.common.database.SQLite;
+import com.sobble.pleasejustlogin.common.database.SchemaMigrations;
+import com.sobble.pleasejustlogin.common.database.SqlAccountStore;
+import com.sobble.pleasejustlogin.common.database.SqlDialect;
 import com.sobble.pleasejustlogin.common.http.HttpClient;
+import com.sobble.pleasejustlogin.common.importer.AccountImporter;
+import com.sobble.pleasejustlogin.common.manager.AccountCache;
 import com.sobble.pleasejustlogin.common.manager.AccountManagement;
+import com.sobble.pleasejustlogin.common.manager.AccountWriteQueue;
+import com.sobble.pleasejustlogin.common.manager.AddressIndex;
 import com.sobble.pleasejustlogin.common.manager.LoginManagement;
+import com.sobble.pleasejustlogin.common.manager.NameFilter;
+import com.sobble.pleasejustlogin.common.manager.RateLimiter;
 import com.sobble.pleasejustlogin.common.model.Title;
 import com.sobble.pleasejustlogin.common.security.filter.LoggerFilterManager;
+import com.sobble.pleasejustlogin.common.security.hashing.Argon2idHasher;
+import com.sobble.pleasejustlogin.common.security.hashing.BCryptHasher;
+import com.sobble.pleasejustlogin.common.security.hashing.HashCalibration;
+import com.sobble.pleasejustlogin.common.security.hashing.PasswordHasher;
+import com.sobble.pleasejustlogin.common.security.hashing.PasswordHashing;
+import com.sobble.pleasejustlogin.common.security.hashing.Pbkdf2Hasher;
 import com.sobble.pleasejustlogin.common.settings.Messages;
 import com.sobble.pleasejustlogin.common.settings.Settings;
+import com.sobble.pleasejustlogin.common.util.BoundedExecutor;
 import com.sobble.pleasejustlogin.common.util.FileUtils;
 import com.tcoded.folialib.FoliaLib;
 import com.tcoded.folialib.impl.ServerImplementation;
@@ -58,28 +84,36 @@ import org.bukkit.Server;
 import org.bukkit.World;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
 import java.io.IOException;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Getter
 public class OpenLoginBukkit extends JavaPlugin {
 
+    private static final int SHARED_DATABASE_CACHE_EXPIRE = 30;
+
     private LoginManagement loginManagement;
     private AccountManagement accountManagement;
     private CommandManagement commandManagement;
     private CaptchaManager captchaManager;
+    private SessionManager sessionManager;
+    private PlayerRestrictionListeners restrictionListeners;
+    private LoginQueue loginQueue;
     private ServerImplementation foliaLib;
+    private BoundedExecutor ioExecutor;
+    private BoundedExecutor hashExecutor;
 
     private Database database;
+    private AccountStore accountStore;
     private PluginSettings pluginSettings;
+    private HashCalibration hashCalibration;
     private File loginLocationsFile;
     private YamlConfiguration loginLocationsConfig;
 
@@ -88,58 +122,54 @@ public class OpenLoginBukkit extends JavaPlugin {
     @Setter
     private boolean newUser;
     private int registeredUsers;
-    private final Map<String, Location> loginLocations = new ConcurrentHashMap<>();
-    private final Set<String> loginTeleports = ConcurrentHashMap.newKeySet();
-
-    public void rememberLoginLocation(Player player) {
-        String name = player.getName().toLowerCase();
-        if (loginLocations.containsKey(name)) {
+    // the import started by /plsjstadmin import, if any
+    private final AtomicReference<AccountImporter> runningImport = new AtomicReference<>();
+
+    /**
+     * Remembers where the player joined, unless a location of an earlier unfinished login is stored.
+     *
+     * @param session the session of the player
+     * @param player  the player
+     */
+    public void rememberLoginLocation(AuthSession session, Player player) {
+        if (session.getLoginLocation() != null) {
             return;
         }
-        Location location = player.getLocation().clone();
-        loginLocations.put(name, location);
-        persistLoginLocation(name, location);
+        Location location = readLocation(session.getName());
+        if (location == null) {
+            location = player.getLocation().clone();
+            persistLoginLocation(session.getName(), location);
+        }
+        session.setLoginLocation(location);
     }
 
     public void forceLoginLocation(Player player) {
-        String name = player.getName().toLowerCase();
-        Location location = player.getLocation().clone();
-        loginLocations.put(name, location);
-        persistLoginLocation(name, location);
+        forceLoginLocation(player, null);
     }
 
     public void forceLoginLocation(Player player, Location location) {
-        String name = player.getName().toLowerCase();
         Location safeLocation = location == null ? player.getLocation().clone() : location.clone();
-        loginLocations.put(name, safeLocation);
-        persistLoginLocation(name, safeLocation);
+        AuthSession session = sessionManager.get(player);
+        if (session != null) {
+            session.setLoginLocation(safeLocation);
+        }
+        persistLoginLocation(player.getName(), safeLocation);
     }
 
-    public Location popLoginLocation(String name) {
-        String key = name.toLowerCase();
-        Location location = loginLocations.remove(key);
+    public Location popLoginLocation(AuthSession session) {
+        Location location = session.takeLoginLocation();
         if (location != null) {
-            removeLoginLocation(key);
+            removeLoginLocation(session.getName());
         }
         return location;
     }
 
     public void clearLoginLocation(String name) {
-        String key = name.toLowerCase();
-        loginLocations.remove(key);
-        removeLoginLocation(key);
-    }
-
-    public void markLoginTeleport(String name) {
-        loginTeleports.add(name.toLowerCase());
-    }
-
-    public boolean consumeLoginTeleport(String name) {
-        return loginTeleports.remove(name.toLowerCase());
-    }
-
-    public void clearLoginTeleport(String name) {
-        loginTeleports.remove(name.toLowerCase());
+        AuthSession session = sessionManager.getByName(name);
+        if (session != null) {
+            session.setLoginLocation(null);
+        }
+        removeLoginLocation(name);
     }
 
     public Location getLoginSpawnLocation(Player player) {
@@ -153,10 +183,7 @@ public class OpenLoginBukkit extends JavaPlugin {
         loginLocationsFile = new File(getDataFolder(), "login-locations.yml");
         loginLocationsConfig = YamlConfiguration.loadConfiguration(loginLocationsFile);
         for (String key : loginLocationsConfig.getKeys(false)) {
-            Location location = readLocation(key);
-            if (location != null) {
-                loginLocations.put(key.toLowerCase(), location);
-            } else {
+            if (readLocation(key) == null) {
                 loginLocationsConfig.set(key, null);
             }
         }
@@ -269,17 +296,59 @@ public class OpenLoginBukkit extends JavaPlugin {
         }
 
         // setup Folia lib
-        foliaLib = new FoliaLib(this).getImpl();
+        FoliaLib folia = new FoliaLib(this);
+        foliaLib = folia.getImpl();
 
         // setup account management
-        accountManagement = new AccountManagement(database);
+        ioExecutor = new BoundedExecutor("io", Settings.DATABASE_EXECUTOR_THREADS.asInt(), Settings.DATABASE_EXECUTOR_QUEUE_SIZE.asInt());
+        // accounts changed by other servers of a shared database are only seen once they expire
+        int maxExpire = isLocalDatabase() ? Integer.MAX_VALUE : SHARED_DATABASE_CACHE_EXPIRE;
+        AccountCache accountCache = new AccountCache(
+                Settings.DATABASE_CACHE_MAXIMUM_SIZE.asInt(),
+                Math.min(maxExpire, Settings.DATABASE_CACHE_EXPIRE_AFTER_WRITE.asInt()),
+                Math.min(maxExpire, Settings.DATABASE_CACHE_EXPIRE_AFTER_ACCESS.asInt()),
+                Math.min(maxExpire, Settings.DATABASE_CACHE_NEGATIVE_EXPIRE.asInt()));
+        double falsePositiveRate = Settings.DATABASE_NAME_FILTER_FALSE_POSITIVE_RATE.asDouble();
+        NameFilter nameFilter = new NameFilter(falsePositiveRate > 0 && falsePositiveRate < 1 ? falsePositiveRate : 0.01D);
+        int hashingThreads = Settings.HASHING_THREADS.asInt();
+        if (hashingThreads <= 0) {
+            hashingThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        }
+        hashExecutor = new BoundedExecutor("hash", hashingThreads, Settings.HASHING_QUEUE_SIZE.asInt());
+        AccountWriteQueue writeQueue = new AccountWriteQueue(accountStore, ioExecutor, Settings.DATABASE_WRITE_BEHIND_BATCH_SIZE.asInt());
+        // other servers of a shared database register accounts this one doesn't count
+        AddressIndex addressIndex = isLocalDatabase() ? new AddressIndex(
+                Settings.ADDRESS_IPV6_PREFIX_LENGTH.asInt(),
+                Settings.SUBNET_IPV4_PREFIX_LENGTH.asInt(),
+                Settings.SUBNET_IPV6_PREFIX_LENGTH.asInt(),
+                Settings.MAX_ACCOUNTS_PER_SUBNET.asInt()) : null;
+        accountManagement = new AccountManagement(accountStore, ioExecutor, hashExecutor, accountCache, nameFilter, setupPasswordHashing(), writeQueue, addressIndex);
+        if (!loadAddressIndex()) {
+            server.shutdown();
+            return;
+        }
 
         // setup login management
-        loginManagement = new LoginManagement(accountManagement);
+        loginManagement = createLoginManagement();
 
         // setup captcha manager
         captchaManager = new CaptchaManager(this);
 
+        // setup login sessions, the restriction listeners are only registered while someone has to log in
+        restrictionListeners = new PlayerRestrictionListeners(this);
+        sessionManager = new SessionManager(new RestrictionGate(
+                () -> pm.registerEvents(restrictionListeners, this),
+                () -> HandlerList.unregisterAll(restrictionListeners),
+                task -> {
+                    // a join on the main thread registers them before it completes, Folia has no main thread
+                    // and registering is synchronized on the handler lists, so it registers them right away
+                    if (folia.isFolia() || server.isPrimaryThread()) {
+                        task.run();
+                    } else {
+                        foliaLib.runNextTick(next -> task.run());
+                    }
+                }));
+
         // setup commands
         commandManagement = new CommandManagement(this);
         commandManagement.register();
@@ -288,7 +357,7 @@ public class OpenLoginBukkit extends JavaPlugin {
         LoggerFilterManager.setup(getLogger());
 
         // setup listeners
-        setupListeners(newUser);
+        PlayerJoinListeners joinListeners = setupListeners(newUser);
 
         // setup ProtocolLib inventory hider
         if (pm.getPlugin("ProtocolLib") != null) {
@@ -296,7 +365,25 @@ public class OpenLoginBukkit extends JavaPlugin {
         }
 
         // start login queue task
-        LoginQueue.startTask(this);
+        loginQueue = new LoginQueue(this);
+        loginQueue.startTask();
+
+        // players that were online before, e.g. after a reload, have no session and have to log in again
+        for (Player player : server.getOnlinePlayers()) {
+            if (!SessionManager.isNpc(player)) {
+                joinListeners.resume(player);
+            }
+        }
+
+        // start account write task
+        long flushTicks = Math.max(1, Settings.DATABASE_WRITE_BEHIND_FLUSH_INTERVAL.asInt() / 50);
+        foliaLib.runTimerAsync(task -> flushAccountWrites(), flushTicks, flushTicks);
+
+        // start account log compaction task
+        if (accountStore instanceof LogAccountStore) {
+            long compactionTicks = 20L * Math.max(1, Settings.DATABASE_LOG_COMPACTION_INTERVAL.asInt());
+            foliaLib.runTimerAsync(task -> compactAccountLog((LogAccountStore) accountStore), compactionTicks, compactionTicks);
+        }
 
         // start captcha cleanup task (runs every 60 seconds)
         foliaLib.runTimerAsync(task -> captchaManager.cleanupExpired(), 20L * 60L, 20L * 60L);
@@ -309,6 +396,43 @@ public class OpenLoginBukkit extends JavaPlugin {
 
         // updates
         foliaLib.runAsync(task -> this.detectUpdates());
+
+        // name filter
+        if (Settings.DATABASE_NAME_FILTER_ENABLED.asBoolean() && isLocalDatabase() && !accountStore.isIndexed()) {
+            foliaLib.runAsync(task -> rebuildNameFilter());
+        }
+
+        // cache warm-up, cached accounts expire quickly with a shared database
+        int warmUp = Math.min(Settings.DATABASE_CACHE_WARM_UP.asInt(), Settings.DATABASE_CACHE_MAXIMUM_SIZE.asInt());
+        if (warmUp > 0 && isLocalDatabase() && !accountStore.isIndexed()) {
+            foliaLib.runAsync(task -> warmUpCache(warmUp));
+        }
+    }
+
+    public void onDisable() {
+        AccountImporter importer = runningImport.get();
+        if (importer != null) {
+            importer.cancel();
+        }
+        if (hashExecutor != null) {
+            hashExecutor.shutdown(5, TimeUnit.SECONDS);
+        }
+        if (ioExecutor != null && !ioExecutor.shutdown(10, TimeUnit.SECONDS)) {
+            sendMessage("§cTimed out waiting for pending account operations.");
+        }
+        if (accountManagement != null && !flushAccountWrites()) {
+            sendMessage("§c" + accountManagement.getWriteQueue().size() + " account updates could not be saved.");
+        }
+        if (accountStore instanceof LogAccountStore) {
+            ((LogAccountStore) accountStore).close();
+        }
+        if (database != null) {
+            try {
+                database.closeConnection();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     public void sendMessage(String message) {
@@ -321,20 +445,50 @@ public class OpenLoginBukkit extends JavaPlugin {
 
     private boolean setupDatabase() {
         File databaseFile = new File(getDataFolder(), "accounts.db");
-        database = new SQLite(databaseFile);
+        String type = Settings.DATABASE_TYPE.asString().toLowerCase();
+        switch (type) {
+            case "sqlite":
+                database = new SQLite(databaseFile);
+                break;
+            case "sqlite-pooled":
+            case "log":
+                database = new PooledSQLite(databaseFile,
+                        Settings.DATABASE_POOL_READERS.asInt(),
+                        Settings.DATABASE_POOL_BUSY_TIMEOUT.asInt(),
+                        Settings.DATABASE_POOL_ACQUIRE_TIMEOUT.asInt(),
+                        Settings.DATABASE_POOL_STATEMENT_CACHE_SIZE.asInt());
+                break;
+            case "mysql":
+            case "mariadb":
+            case "postgresql":
+                database = new PooledRemoteDatabase(type.equals("postgresql") ? SqlDialect.POSTGRESQL : SqlDialect.MYSQL,
+                        Settings.DATABASE_REMOTE_HOST.asString(),
+                        Settings.DATABASE_REMOTE_PORT.asInt(),
+                        Settings.DATABASE_REMOTE_DATABASE.asString(),
+                        Settings.DATABASE_REMOTE_USERNAME.asString(),
+                        Settings.DATABASE_REMOTE_PASSWORD.asString(),
+                        Settings.DATABASE_REMOTE_PROPERTIES.asString(),
+                        Settings.DATABASE_POOL_READERS.asInt(),
+                        Settings.DATABASE_REMOTE_WRITERS.asInt(),
+                        Settings.DATABASE_POOL_ACQUIRE_TIMEOUT.asInt(),
+                        Settings.DATABASE_POOL_STATEMENT_CACHE_SIZE.asInt());
+                break;
+            default:
+                sendMessage("§cUnknown database type '" + type + "'. Shutting down server...");
+                return false;
+        }
         try {
             database.openConnection();
-            database.update("CREATE TABLE IF NOT EXISTS `openlogin` (`name` TEXT, `realname` TEXT, `password` TEXT, `address` TEXT, `lastlogin` INTEGER, `regdate` INTEGER)");
-            database.update("CREATE TABLE IF NOT EXISTS `settings` (`key` TEXT, `value` TEXT)");
-            try (Database.Query query = database.query("SELECT COUNT(*) FROM `openlogin`")) {
-                ResultSet rs = query.resultSet;
-                if (rs.next()) {
-                    registeredUsers = rs.getInt("COUNT(*)");
-                }
+            pluginSettings = new PluginSettings(database);
+            SchemaMigrations schemaMigrations = new SchemaMigrations(database, pluginSettings);
+            schemaMigrations.createTables();
+            schemaMigrations.migrate(message -> sendMessage("§7" + message));
+            accountStore = type.equals("log") ? setupAccountLog() : new SqlAccountStore(database);
+            try {
+                registeredUsers = (int) accountStore.count();
             } catch (Exception e) {
                 sendMessage("§cFailed to update the register count.");
             }
-            pluginSettings = new PluginSettings(database);
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -343,12 +497,185 @@ public class OpenLoginBukkit extends JavaPlugin {
         }
     }
 
-    private void setupListeners(boolean newUser) {
+    // accounts are kept in the log, accounts.db only keeps the plugin settings
+    private LogAccountStore setupAccountLog() throws SQLException {
+        LogAccountStore store = new LogAccountStore(getDataFolder(), "accounts");
+        store.open();
+        if (store.isCreated()) {
+            sendMessage("§7Converting the accounts of accounts.db to the account log...");
+            long start = System.currentTimeMillis();
+            long converted = AccountLogConverter.convert(database, store);
+            sendMessage("§7Converted " + converted + " accounts in " + (System.currentTimeMillis() - start) + "ms.");
+        }
+        return store;
+    }
+
+    private PasswordHashing setupPasswordHashing() {
+        PasswordHashing passwordHashing = createPasswordHashing();
+        if (!Settings.HASHING_CALIBRATION_ENABLED.asBoolean()) {
+            return passwordHashing;
+        }
+
+        PasswordHasher minimum = passwordHashing.getCurrent();
+        int target = Settings.HASHING_CALIBRATION_TARGET.asInt();
+        hashCalibration = HashCalibration.restore(minimum, target, pluginSettings.read("hashing_calibration"));
+        if (hashCalibration == null) {
+            sendMessage("§7Calibrating " + minimum.getName() + " password hashing for a " + target + "ms budget...");
+            long start = System.currentTimeMillis();
+            hashCalibration = HashCalibration.run(minimum, target);
+            pluginSettings.set("hashing_calibration", hashCalibration.serialize());
+            sendMessage(String.format("§7Calibrated %s to %s (%.1fms per check) in %dms.", minimum.getName(),
+                    hashCalibration.getHasher().getParameters(), hashCalibration.getMeasuredMillis(), System.currentTimeMillis() - start));
+        }
+        if (hashCalibration.isOverBudget()) {
+            sendMessage(String.format("§eThe minimum %s parameters take %.1fms per check, above the %dms budget.",
+                    minimum.getName(), hashCalibration.getMeasuredMillis(), target));
+        }
+        return passwordHashing.withCurrent(hashCalibration.getHasher());
+    }
+
+    private PasswordHashing createPasswordHashing() {
+        try {
+            return PasswordHashing.of(Settings.HASHING_ALGORITHM.asString(),
+                    new BCryptHasher(Settings.HASHING_BCRYPT_COST.asInt()),
+                    new Pbkdf2Hasher(Settings.HASHING_PBKDF2_ITERATIONS.asInt()),
+                    new Argon2idHasher(Settings.HASHING_ARGON2ID_MEMORY.asInt(),
+                            Settings.HASHING_ARGON2ID_ITERATIONS.asInt(),
+                            Settings.HASHING_ARGON2ID_PARALLELISM.asInt()));
+        } catch (IllegalArgumentException e) {
+            sendMessage("§cInvalid password hashing settings (" + e.getMessage() + "), using bcrypt with default parameters.");
+            return PasswordHashing.of("bcrypt", new BCryptHasher(10), new Pbkdf2Hasher(600000), new Argon2idHasher(19456, 2, 1));
+        }
+    }
+
+    private LoginManagement createLoginManagement() {
+        long[] lockouts;
+        try {
+            lockouts = RateLimiter.Policy.parseLockouts(Settings.LOGIN_ATTEMPTS_LOCKOUTS.asString());
+            if (lockouts.length == 0) {
+                throw new IllegalArgumentException("no lockouts");
+            }
+        } catch (IllegalArgumentException e) {
+            sendMessage("§cInvalid login attempt lockouts (" + e.getMessage() + "), using 300, 900, 3600 seconds.");
+            lockouts = new long[]{300000L, 900000L, 3600000L};
+        }
+        long window = Settings.LOGIN_ATTEMPTS_WINDOW.asInt() * 1000L;
+        int maxEntries = Settings.LOGIN_ATTEMPTS_MAX_ENTRIES.asInt();
+        return new LoginManagement(accountManagement,
+                new RateLimiter(new RateLimiter.Policy(Settings.LOGIN_ATTEMPTS_ADDRESS.asInt(), window, lockouts), maxEntries),
+                new RateLimiter(new RateLimiter.Policy(Settings.LOGIN_ATTEMPTS_SUBNET.asInt(), window, lockouts), maxEntries),
+                new RateLimiter(new RateLimiter.Policy(Settings.LOGIN_ATTEMPTS_ACCOUNT.asInt(), window, lockouts), maxEntries),
+                Settings.ADDRESS_IPV6_PREFIX_LENGTH.asInt(),
+                Settings.SUBNET_IPV4_PREFIX_LENGTH.asInt(),
+                Settings.SUBNET_IPV6_PREFIX_LENGTH.asInt());
+    }
+
+    /**
+     * Checks if the database is only used by this server.
+     *
+     * @return true for SQLite databases
+     */
+    public boolean isLocalDatabase() {
+        return database.getDialect() == SqlDialect.SQLITE;
+    }
+
+    /**
+     * Writes the queued account updates. Blocks until done, so call it asynchronously.
+     *
+     * @return true on success
+     */
+    public boolean flushAccountWrites() {
+        try {
+            accountManagement.getWriteQueue().flush();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            sendMessage("§cFailed to write the queued account updates, retrying later.");
+            return false;
+        }
+    }
+
+    // the limits can only be checked once every stored account is counted
+    private boolean loadAddressIndex() {
+        if (accountManagement.getAddressIndex() == null) {
+            return true;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            long accounts = accountManagement.loadAddressIndex();
+            sendMessage("§7Address index built with " + accounts + " accounts in " + (System.currentTimeMillis() - start) + "ms.");
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            sendMessage("§cFailed to build the address index. Shutting down server...");
+            return false;
+        }
+    }
+
+    private void warmUpCache(int limit) {
+        long start = System.currentTimeMillis();
+        try {
+            int accounts = accountManagement.warmUp(limit);
+            sendMessage("§7Preloaded " + accounts + " recently used accounts in " + (System.currentTimeMillis() - start) + "ms.");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            sendMessage("§cFailed to preload accounts, they are loaded when players join instead.");
+        }
+    }
+
+    /**
+     * Compacts the account log if enough of it is taken by old records. Blocks until done, so call it asynchronously.
+     *
+     * @param store the account log
+     */
+    private void compactAccountLog(LogAccountStore store) {
+        try {
+            long garbage = store.getGarbageBytes();
+            long start = System.currentTimeMillis();
+            if (store.compactIfNeeded()) {
+                sendMessage("§7Compacted the account log, freeing " + garbage / 1024 + " KiB in " + (System.currentTimeMillis() - start) + "ms.");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            sendMessage("§cFailed to compact the account log, retrying later.");
+        }
+    }
+
+    /**
+     * Rebuilds the registered name filter. Blocks until done, so call it asynchronously.
+     *
+     * @return true on success
+     */
+    public boolean rebuildNameFilter() {
+        if (!isLocalDatabase()) {
+            sendMessage("§cThe name filter can't be used with a shared database, other servers register names it doesn't know.");
+            return false;
+        }
+        if (accountStore.isIndexed()) {
+            sendMessage("§cThe name filter isn't used with the account log, its index already knows every name.");
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            long names = accountManagement.rebuildNameFilter();
+            sendMessage("§7Name filter built with " + names + " names in " + (System.currentTimeMillis() - start) + "ms.");
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            sendMessage("§cFailed to build the name filter, lookups will use the database.");
+            return false;
+        }
+    }
+
+    private PlayerJoinListeners setupListeners(boolean newUser) {
         PluginManager pm = getServer().getPluginManager();
+        PlayerJoinListeners joinListeners = new PlayerJoinListeners(this);
         pm.registerEvents(new PlayerGeneralListeners(this), this);
-        pm.registerEvents(new PlayerJoinListeners(this), this);
+        pm.registerEvents(new PlayerChatListeners(this), this);
+        pm.registerEvents(joinListeners, this);
         pm.registerEvents(new PlayerKickListeners(this), this);
         pm.registerEvents(new PlayerAuthenticateListener(this, newUser), this);
+        return joinListeners;
     }
 
     private void setupMetrics() {
@@ -425,6 +752,11 @@ public class OpenLoginBukkit extends JavaPlugin {
                 Messages.define(message, obj);
             }
         }
+
+        // null on the first load, the listeners read the settings when they are created
+        if (restrictionListeners != null) {
+            restrictionListeners.reloadSettings();
+        }
         return true;
     }
 
@@ -28,11 +28,11 @@ import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
 import com.sobble.pleasejustlogin.common.api.OpenLoginAPI;
 import com.sobble.pleasejustlogin.common.manager.AccountManagement;
 import com.sobble.pleasejustlogin.common.model.Account;
-import com.sobble.pleasejustlogin.common.security.hashing.BCrypt;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RequiredArgsConstructor
 public class OLBukkitAPI implements OpenLoginAPI {
@@ -58,8 +58,32 @@ public class OLBukkitAPI implements OpenLoginAPI {
 
     @Override
     public boolean update(@NonNull String player, @NonNull String password, String address, boolean replace) {
-        String salt = BCrypt.gensalt();
-        String hashedPassword = BCrypt.hashpw(password, salt);
-        return plugin.getAccountManagement().update(player, hashedPassword, address, replace);
+        AccountManagement accountManagement = plugin.getAccountManagement();
+        String hashedPassword = accountManagement.getPasswordHashing().hash(password);
+        return accountManagement.update(player, hashedPassword, address, replace);
+    }
+
+    @Override
+    public CompletableFuture<Optional<Account>> getAccountAsync(@NonNull String player) {
+        return plugin.getAccountManagement().searchAsync(player);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> comparePasswordAsync(@NonNull String player, @NonNull String password) {
+        AccountManagement accountManagement = plugin.getAccountManagement();
+        return accountManagement.retrieveOrLoadAsync(player).thenCompose(account -> account.isPresent() ?
+                accountManagement.comparePasswordAsync(account.get(), password) : CompletableFuture.completedFuture(false));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isRegisteredAsync(@NonNull String player) {
+        return plugin.getAccountManagement().retrieveOrLoadAsync(player).thenApply(Optional::isPresent);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateAsync(@NonNull String player, @NonNull String password, String address, boolean replace) {
+        AccountManagement accountManagement = plugin.getAccountManagement();
+        return accountManagement.hashPasswordAsync(password).thenCompose(hashedPassword ->
+                accountManagement.updateAsync(player, hashedPassword, address, replace));
     }
 }
@@ -25,9 +25,9 @@
 package com.sobble.pleasejustlogin.bukkit.captcha;
 
 import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
 import com.sobble.pleasejustlogin.common.settings.Settings;
 import com.sobble.pleasejustlogin.common.util.CaptchaGenerator;
-import lombok.Getter;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -38,9 +38,7 @@ import org.bukkit.inventory.meta.MapMeta;
 import org.bukkit.map.MapView;
 
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages CAPTCHA generation, validation, and map item handling.
@@ -48,7 +46,6 @@ import java.util.concurrent.ConcurrentHashMap;
 public class CaptchaManager {
 
     private final OpenLoginBukkit plugin;
-    private final Map<String, CaptchaSession> activeCaptchas = new ConcurrentHashMap<>();
 
     public CaptchaManager(OpenLoginBukkit plugin) {
         this.plugin = plugin;
@@ -57,15 +54,14 @@ public class CaptchaManager {
     /**
      * Generate a CAPTCHA code and give the player a map item displaying it.
      *
-     * @param player the player to give the CAPTCHA to
+     * @param player  the player to give the CAPTCHA to
+     * @param session the session of the player
      * @return the generated CAPTCHA code
      */
-    public String generateAndGiveCaptcha(Player player) {
-        String playerName = player.getName().toLowerCase();
-
+    public String generateAndGiveCaptcha(Player player, AuthSession session) {
         // Remove any existing CAPTCHA
-        if (hasCaptcha(playerName)) {
-            removeCaptcha(playerName);
+        if (hasCaptcha(player, session)) {
+            removeCaptcha(player, session);
         }
 
         // Validate and generate CAPTCHA code
@@ -101,7 +97,7 @@ public class CaptchaManager {
         // Store session with replaced item
         long expirationTime = System.currentTimeMillis() +
                 (Settings.CAPTCHA_EXPIRATION_TIME.asInt() * 1000L);
-        activeCaptchas.put(playerName, new CaptchaSession(code, expirationTime, getMapId(mapView), replacedItem));
+        session.setCaptcha(new CaptchaSession(code, expirationTime, getMapId(mapView), replacedItem));
 
         return code;
     }
@@ -109,21 +105,21 @@ public class CaptchaManager {
     /**
      * Validate a CAPTCHA code for a player.
      *
-     * @param playerName the player's name
-     * @param inputCode  the code entered by the player
+     * @param player    the player
+     * @param session   the session of the player
+     * @param inputCode the code entered by the player
      * @return true if the code is valid, false otherwise
      */
-    public boolean validateCaptcha(String playerName, String inputCode) {
-        String key = playerName.toLowerCase();
-        CaptchaSession session = activeCaptchas.get(key);
+    public boolean validateCaptcha(Player player, AuthSession session, String inputCode) {
+        CaptchaSession captcha = session.getCaptcha();
 
-        if (session == null) {
+        if (captcha == null) {
             return false;
         }
 
-        if (session.isExpired()) {
+        if (captcha.isExpired()) {
             // Use removeCaptcha to properly clean up the map item
-            removeCaptcha(playerName);
+            removeCaptcha(player, session);
             return false;
         }
 
@@ -133,26 +129,26 @@ public class CaptchaManager {
         }
 
         // Case-insensitive comparison
-        return session.getCode().equalsIgnoreCase(inputCode);
+        return captcha.getCode().equalsIgnoreCase(inputCode);
     }
 
     /**
      * Check if a player has an active CAPTCHA.
      *
-     * @param playerName the player's name
+     * @param player  the player
+     * @param session the session of the player
      * @return true if the player has an active CAPTCHA
      */
-    public boolean hasCaptcha(String playerName) {
-        String key = playerName.toLowerCase();
-        CaptchaSession session = activeCaptchas.get(key);
+    public boolean hasCaptcha(Player player, AuthSession session) {
+        CaptchaSession captcha = session.getCaptcha();
 
-        if (session == null) {
+        if (captcha == null) {
             return false;
         }
 
-        if (session.isExpired()) {
+        if (captcha.isExpired()) {
             // Use removeCaptcha to properly clean up the map item
-            removeCaptcha(playerName);
+            removeCaptcha(player, session);
             return false;
         }
 
@@ -163,54 +159,19 @@ public class CaptchaManager {
      * Remove CAPTCHA for a player and clean up the map item.
      * Also restores the item that was replaced by the CAPTCHA map.
      *
-     * @param playerName the player's name
+     * @param player  the player
+     * @param session the session of the player
      */
-    public void removeCaptcha(String playerName) {
-        String key = playerName.toLowerCase();
-        CaptchaSession session = activeCaptchas.remove(key);
+    public void removeCaptcha(Player player, AuthSession session) {
+        CaptchaSession captcha = session.takeCaptcha();
 
         // Remove map from player's inventory if they're online
-        Player player = Bukkit.getPlayerExact(playerName);
-        if (player != null && player.isOnline()) {
+        if (player.isOnline()) {
             // Run all inventory operations on the entity thread for Folia compatibility
             plugin.getFoliaLib().runAtEntity(player, task -> {
                 removeCaptchaMap(player);
-                
-                // Restore the replaced item if there was one
-                if (session != null && session.getReplacedItem() != null) {
-                    int slot = Settings.CAPTCHA_MAP_SLOT.asInt();
-                    PlayerInventory inv = player.getInventory();
-                    
-                    if (slot >= 0 && slot <= 8) {
-                        // Check if the slot is safe to restore to
-                        ItemStack currentItem = inv.getItem(slot);
-                        boolean slotIsSafe = currentItem == null ||
-                                            currentItem.getType() == Material.AIR ||
-                                            (currentItem.getType() == Material.FILLED_MAP &&
-                                             currentItem.hasItemMeta() &&
-                                             currentItem.getItemMeta().hasDisplayName() &&
-                                             currentItem.getItemMeta().getDisplayName().contains("CAPTCHA"));
-                        
-                        if (slotIsSafe) {
-                            // Safe to restore to the original slot
-                            inv.setItem(slot, session.getReplacedItem());
-                        } else {
-                            // Slot has a different item now, add to inventory instead
-                            Map<Integer, ItemStack> leftovers = inv.addItem(session.getReplacedItem());
-                            // Drop any items that couldn't fit
-                            for (ItemStack leftover : leftovers.values()) {
-                                player.getWorld().dropItemNaturally(player.getLocation(), leftover);
-                            }
-                        }
-                    } else {
-                        // If slot is invalid, add to inventory and drop leftovers
-                        Map<Integer, ItemStack> leftovers = inv.addItem(session.getReplacedItem());
-                        // Drop any items that couldn't fit
-                        for (ItemStack leftover : leftovers.values()) {
-                            player.getWorld().dropItemNaturally(player.getLocation(), leftover);
-                        }
-                    }
-                    player.updateInventory();
+                if (captcha != null) {
+                    restoreReplacedItem(player, captcha);
                 }
             });
         }
@@ -219,13 +180,12 @@ public class CaptchaManager {
     /**
      * Check if a player's CAPTCHA has expired.
      *
-     * @param playerName the player's name
+     * @param session the session of the player
      * @return true if expired or doesn't exist
      */
-    public boolean isExpired(String playerName) {
-        String key = playerName.toLowerCase();
-        CaptchaSession session = activeCaptchas.get(key);
-        return session == null || session.isExpired();
+    public boolean isExpired(AuthSession session) {
+        CaptchaSession captcha = session.getCaptcha();
+        return captcha == null || captcha.isExpired();
     }
 
     /**
@@ -233,59 +193,63 @@ public class CaptchaManager {
      * Should be called periodically by a scheduled task.
      */
     public void cleanupExpired() {
-        Iterator<Map.Entry<String, CaptchaSession>> iterator = activeCaptchas.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, CaptchaSession> entry = iterator.next();
-            if (entry.getValue().isExpired()) {
-                CaptchaSession session = entry.getValue();
-                iterator.remove();
-
-                // Try to remove map from player if online and restore replaced item
-                Player player = Bukkit.getPlayerExact(entry.getKey());
-                if (player != null && player.isOnline()) {
-                    // Run all player operations on the entity thread
-                    plugin.getFoliaLib().runAtEntity(player, task -> {
-                        removeCaptchaMap(player);
-                        
-                        // Restore the replaced item if there was one
-                        if (session.getReplacedItem() != null) {
-                            int slot = Settings.CAPTCHA_MAP_SLOT.asInt();
-                            PlayerInventory inv = player.getInventory();
-                            
-                            if (slot >= 0 && slot <= 8) {
-                                // Check if the slot is safe to restore to
-                                ItemStack currentItem = inv.getItem(slot);
-                                boolean slotIsSafe = currentItem == null ||
-                                                    currentItem.getType() == Material.AIR ||
-                                                    (currentItem.getType() == Material.FILLED_MAP &&
-                                                     currentItem.hasItemMeta() &&
-                                                     currentItem.getItemMeta().hasDisplayName() &&
-                                                     currentItem.getItemMeta().getDisplayName().contains("CAPTCHA"));
-                                
-                                if (slotIsSafe) {
-                                    // Safe to restore to the original slot
-                                    inv.setItem(slot, session.getReplacedItem());
-                                } else {
-                                    // Slot has a different item now, add to inventory instead
-                                    Map<Integer, ItemStack> leftovers = inv.addItem(session.getReplacedItem());
-                                    // Drop any items that couldn't fit
-                                    for (ItemStack leftover : leftovers.values()) {
-                                        player.getWorld().dropItemNaturally(player.getLocation(), leftover);
-                                    }
-                                }
-                            } else {
-                                // If slot is invalid, add to inventory and drop leftovers
-                                Map<Integer, ItemStack> leftovers = inv.addItem(session.getReplacedItem());
-                                // Drop any items that couldn't fit
-                                for (ItemStack leftover : leftovers.values()) {
-                                    player.getWorld().dropItemNaturally(player.getLocation(), leftover);
-                                }
-                            }
-                            player.updateInventory();
-                        }
-                    });
-                }
+        for (AuthSession session : plugin.getSessionManager().getSessions()) {
+            CaptchaSession captcha = session.getCaptcha();
+            if (captcha == null || !captcha.isExpired()) {
+                continue;
+            }
+
+            // Try to remove map from player if online and restore replaced item
+            Player player = Bukkit.getPlayer(session.getUniqueId());
+            if (player != null) {
+                removeCaptcha(player, session);
+            } else {
+                session.takeCaptcha();
+            }
+        }
+    }
+
+    /**
+     * Give back the item that was replaced by the CAPTCHA map.
+     */
+    private void restoreReplacedItem(Player player, CaptchaSession captcha) {
+        if (captcha.getReplacedItem() == null) {
+            return;
+        }
+
+        int slot = Settings.CAPTCHA_MAP_SLOT.asInt();
+        PlayerInventory inv = player.getInventory();
+
+        if (slot >= 0 && slot <= 8) {
+            // Check if the slot is safe to restore to
+            ItemStack currentItem = inv.getItem(slot);
+            boolean slotIsSafe = currentItem == null ||
+                                currentItem.getType() == Material.AIR ||
+                                (currentItem.getType() == Material.FILLED_MAP &&
+                                 currentItem.hasItemMeta() &&
+                                 currentItem.getItemMeta().hasDisplayName() &&
+                                 currentItem.getItemMeta().getDisplayName().contains("CAPTCHA"));
+
+            if (slotIsSafe) {
+                // Safe to restore to the original slot
+                inv.setItem(slot, captcha.getReplacedItem());
+            } else {
+                // Slot has a different item now, add to inventory instead
+                dropLeftovers(player, inv.addItem(captcha.getReplacedItem()));
             }
+        } else {
+            // If slot is invalid, add to inventory and drop leftovers
+            dropLeftovers(player, inv.addItem(captcha.getReplacedItem()));
+        }
+        player.updateInventory();
+    }
+
+    /**
+     * Drop any items that couldn't fit.
+     */
+    private void dropLeftovers(Player player, Map<Integer, ItemStack> leftovers) {
+        for (ItemStack leftover : leftovers.values()) {
+            player.getWorld().dropItemNaturally(player.getLocation(), leftover);
         }
     }
 
@@ -413,26 +377,4 @@ public class CaptchaManager {
 
         player.updateInventory();
     }
-
-    /**
-     * Internal class to store CAPTCHA session data.
-     */
-    @Getter
-    private static class CaptchaSession {
-        private final String code;
-        private final long expirationTime;
-        private final int mapId;
-        private final ItemStack replacedItem; // Store the item that was replaced
-
-        public CaptchaSession(String code, long expirationTime, int mapId, ItemStack replacedItem) {
-            this.code = code;
-            this.expirationTime = expirationTime;
-            this.mapId = mapId;
-            this.replacedItem = replacedItem;
-        }
-
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expirationTime;
-        }
-    }
 }
@@ -26,7 +26,7 @@ package com.sobble.pleasejustlogin.bukkit.command;
 
 import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
 import com.sobble.pleasejustlogin.bukkit.command.executors.OpenLoginCommand;
-import com.sobble.pleasejustlogin.common.manager.LoginManagement;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
 import com.sobble.pleasejustlogin.common.settings.Messages;
 import lombok.NonNull;
 import org.bukkit.command.Command;
@@ -34,6 +34,11 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
 public abstract class BukkitAbstractCommand implements CommandExecutor {
 
     protected final OpenLoginBukkit plugin;
@@ -51,8 +56,7 @@ public abstract class BukkitAbstractCommand implements CommandExecutor {
     }
 
     public boolean onCommand(CommandSender sender, Command cmd, String lb, String[] args) {
-        final String name = sender.getName();
-        final LoginManagement loginManagement = plugin.getLoginManagement();
+        final AuthSession session = sender instanceof Player ? plugin.getSessionManager().get((Player) sender) : null;
 
         if (plugin.isNewUser()) {
             if (!(this instanceof OpenLoginCommand)) {
@@ -63,7 +67,7 @@ public abstract class BukkitAbstractCommand implements CommandExecutor {
                 return true;
             }
         } else {
-            if (requireAuth && sender instanceof Player && !loginManagement.isAuthenticated(name)) {
+            if (requireAuth && sender instanceof Player && (session == null || !session.isAuthenticated())) {
                 return true;
             }
             if (!sender.hasPermission(permission)) {
@@ -72,7 +76,8 @@ public abstract class BukkitAbstractCommand implements CommandExecutor {
             }
         }
 
-        if (loginManagement.isUnlocked(name)) {
+        // players can't flood commands, e.g. /login with a wrong password
+        if (session == null || session.tryLockCommands()) {
             plugin.getFoliaLib().runAsync(task -> {
                 try {
                     perform(sender, lb, args);
@@ -85,5 +90,44 @@ public abstract class BukkitAbstractCommand implements CommandExecutor {
         return true;
     }
 
+    /**
+     * Continues a command once password hashing completes.
+     * <p>
+     * The continuation runs on the async scheduler, keeping hashing threads free for hashing.
+     * If the hashing executor is saturated, players are kicked with a "server busy" message.
+     *
+     * @param sender the command sender
+     * @param lb     the command label, used in logs
+     * @param future the hashing work
+     * @param then   the continuation
+     * @param <T>    the result type
+     */
+    protected <T> void afterHashing(CommandSender sender, String lb, CompletableFuture<T> future, Consumer<T> then) {
+        future.whenCompleteAsync((result, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                String message = Messages.SERVER_BUSY.asString("§cThe server is busy, please try again in a moment.");
+                if (sender instanceof Player) {
+                    Player player = (Player) sender;
+                    plugin.getFoliaLib().runAtEntity(player, task -> player.kickPlayer(message));
+                } else {
+                    sender.sendMessage(message);
+                }
+                return;
+            }
+            if (cause != null) {
+                cause.printStackTrace();
+                plugin.sendMessage("§cFailed to perform the command '" + lb + "', sender: " + sender.getName());
+                return;
+            }
+            try {
+                then.accept(result);
+            } catch (Exception e) {
+                e.printStackTrace();
+                plugin.sendMessage("§cFailed to perform the command '" + lb + "', sender: " + sender.getName());
+            }
+        }, runnable -> plugin.getFoliaLib().runAsync(task -> runnable.run()));
+    }
+
     protected abstract void perform(CommandSender sender, String lb, String[] args);
 }
@@ -28,7 +28,6 @@ import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
 import com.sobble.pleasejustlogin.bukkit.command.BukkitAbstractCommand;
 import com.sobble.pleasejustlogin.common.manager.AccountManagement;
 import com.sobble.pleasejustlogin.common.model.Account;
-import com.sobble.pleasejustlogin.common.security.hashing.BCrypt;
 import com.sobble.pleasejustlogin.common.settings.Messages;
 import com.sobble.pleasejustlogin.common.settings.Settings;
 import org.bukkit.command.CommandSender;
@@ -85,20 +84,22 @@ public class ChangePasswordCommand extends BukkitAbstractCommand {
         }
 
         Account account = accountOpt.get();
-        if (!accountManagement.comparePassword(account, currentPassword)) {
-            sender.sendMessage(Messages.PASSWORDS_DONT_MATCH.asString());
-            return;
-        }
-
-        String salt = BCrypt.gensalt();
-        String hashedPassword = BCrypt.hashpw(newPassword, salt);
-        String address = Objects.requireNonNull(sender.getAddress()).getAddress().getHostAddress();
-        if (!accountManagement.update(name, hashedPassword, address)) {
-            sender.sendMessage(Messages.DATABASE_ERROR.asString());
-            return;
-        }
-
-        sender.sendMessage(Messages.PASSWORD_CHANGED.asString());
+        afterHashing(sender, lb, accountManagement.comparePasswordAsync(account, currentPassword), matches -> {
+            if (!matches) {
+                sender.sendMessage(Messages.PASSWORDS_DONT_MATCH.asString());
+                return;
+            }
+
+            afterHashing(sender, lb, accountManagement.hashPasswordAsync(newPassword), hashedPassword -> {
+                String address = Objects.requireNonNull(sender.getAddress()).getAddress().getHostAddress();
+                if (!accountManagement.update(name, hashedPassword, address)) {
+                    sender.sendMessage(Messages.DATABASE_ERROR.asString());
+                    return;
+                }
+
+                sender.sendMessage(Messages.PASSWORD_CHANGED.asString());
+            });
+        });
     }
 
     private void performConsole(CommandSender sender, String lb, String[] args) {
@@ -139,24 +140,27 @@ public class ChangePasswordCommand extends BukkitAbstractCommand {
         }
 
         Account account = accountOpt.get();
-        if (accountManagement.comparePassword(account, newPassword)) {
-            sender.sendMessage(Messages.PASSWORD_SAME_AS_OLD.asString());
-            return;
-        }
-
-        String salt = BCrypt.gensalt();
-        String hashedPassword = BCrypt.hashpw(newPassword, salt);
-        String address = playerIfOnline != null ?
-                Objects.requireNonNull(playerIfOnline.getAddress()).getAddress().getHostAddress() : null;
-        if (!accountManagement.update(playerName, hashedPassword, address)) {
-            sender.sendMessage(Messages.DATABASE_ERROR.asString());
-            return;
-        }
-
-        sender.sendMessage(Messages.PASSWORD_CHANGED.asString());
-
-        if (playerIfOnline != null) {
-            playerIfOnline.sendMessage(Messages.PASSWORD_CHANGED.asString());
-        }
+        String finalPlayerName = playerName;
+        afterHashing(sender, lb, accountManagement.comparePasswordAsync(account, newPassword), same -> {
+            if (same) {
+                sender.sendMessage(Messages.PASSWORD_SAME_AS_OLD.asString());
+                return;
+            }
+
+            afterHashing(sender, lb, accountManagement.hashPasswordAsync(newPassword), hashedPassword -> {
+                String address = playerIfOnline != null ?
+                        Objects.requireNonNull(playerIfOnline.getAddress()).getAddress().getHostAddress() : null;
+                if (!accountManagement.update(finalPlayerName, hashedPassword, address)) {
+                    sender.sendMessage(Messages.DATABASE_ERROR.asString());
+                    return;
+                }
+
+                sender.sendMessage(Messages.PASSWORD_CHANGED.asString());
+
+                if (playerIfOnline != null) {
+                    playerIfOnline.sendMessage(Messages.PASSWORD_CHANGED.asString());
+                }
+            });
+        });
     }
 }
@@ -29,9 +29,9 @@ import com.sobble.pleasejustlogin.bukkit.api.events.AsyncAuthenticateEvent;
 import com.sobble.pleasejustlogin.bukkit.api.events.AsyncLoginEvent;
 import com.sobble.pleasejustlogin.bukkit.captcha.CaptchaManager;
 import com.sobble.pleasejustlogin.bukkit.command.BukkitAbstractCommand;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
 import com.sobble.pleasejustlogin.bukkit.ui.title.TitleAPI;
 import com.sobble.pleasejustlogin.common.manager.AccountManagement;
-import com.sobble.pleasejustlogin.common.manager.LoginManagement;
 import com.sobble.pleasejustlogin.common.model.Account;
 import com.sobble.pleasejustlogin.common.settings.Messages;
 import com.sobble.pleasejustlogin.common.settings.Settings;
@@ -55,9 +55,12 @@ public class LoginCommand extends BukkitAbstractCommand {
 
         Player player = (Player) sender;
         String name = sender.getName();
-        LoginManagement loginManagement = plugin.getLoginManagement();
-        
-        if (loginManagement.isAuthenticated(name)) {
+        AuthSession session = plugin.getSessionManager().get(player);
+        if (session == null) {
+            return;
+        }
+
+        if (session.isAuthenticated()) {
             sender.sendMessage(Messages.ALREADY_LOGIN.asString());
             return;
         }
@@ -79,8 +82,8 @@ public class LoginCommand extends BukkitAbstractCommand {
             String captchaInput = args[1];
             
             // Validate CAPTCHA first
-            if (!captchaManager.validateCaptcha(name, captchaInput)) {
-                captchaManager.removeCaptcha(name);
+            if (!captchaManager.validateCaptcha(player, session, captchaInput)) {
+                captchaManager.removeCaptcha(player, session);
                 plugin.getFoliaLib().runAtEntity(player, task ->
                     player.kickPlayer(Messages.CAPTCHA_INCORRECT.asString())
                 );
@@ -88,10 +91,10 @@ public class LoginCommand extends BukkitAbstractCommand {
             }
             
             // CAPTCHA valid, remove it and proceed with password validation
-            captchaManager.removeCaptcha(name);
+            captchaManager.removeCaptcha(player, session);
             
             // Continue with normal login flow
-            performLogin(player, name, password);
+            performLogin(player, session, lb, name, password);
         } else {
             // No CAPTCHA required, expect 1 argument
             if (args.length != 1) {
@@ -100,11 +103,11 @@ public class LoginCommand extends BukkitAbstractCommand {
             }
             
             String password = args[0];
-            performLogin(player, name, password);
+            performLogin(player, session, lb, name, password);
         }
     }
 
-    private void performLogin(Player player, String name, String password) {
+    private void performLogin(Player player, AuthSession session, String lb, String name, String password) {
         AccountManagement accountManagement = plugin.getAccountManagement();
         Optional<Account> accountOpt = accountManagement.retrieveOrLoad(name);
         
@@ -114,32 +117,43 @@ public class LoginCommand extends BukkitAbstractCommand {
         }
 
         Account account = accountOpt.get();
-        String remoteAddress = player.getAddress() != null && player.getAddress().getAddress() != null ? 
-                player.getAddress().getAddress().getHostAddress() : null;
-        
-        String rateLimitKey = remoteAddress != null && !remoteAddress.equals("127.0.0.1") ? 
-                remoteAddress : "uuid:" + player.getUniqueId().toString();
+        String address = session.getAddress();
+        String rateLimitKey = session.getRateLimitKey();
         
-        if (plugin.getLoginManagement().isIpLockedOut(rateLimitKey)) {
+        if (plugin.getLoginManagement().getLockout(address, rateLimitKey, name) > 0) {
             plugin.getFoliaLib().runAtEntity(player, task ->
                 player.kickPlayer("§cYou have been locked out due to too many failed login attempts. Try again later.")
             );
             return;
         }
         
-        if (!accountManagement.comparePassword(account, password)) {
-            plugin.getLoginManagement().registerFailedAttempt(rateLimitKey);
-            plugin.getFoliaLib().runAtEntity(player, task ->
-                player.kickPlayer(Messages.INCORRECT_PASSWORD.asString())
-            );
-            return;
-        }
+        afterHashing(player, lb, accountManagement.comparePasswordAsync(account, password), matches -> {
+            if (!matches) {
+                plugin.getLoginManagement().registerFailedAttempt(address, rateLimitKey, name);
+                plugin.getFoliaLib().runAtEntity(player, task ->
+                    player.kickPlayer(Messages.INCORRECT_PASSWORD.asString())
+                );
+                return;
+            }
+
+            completeLogin(player, session, name);
+            if (Settings.HASHING_REHASH_ON_LOGIN.asBoolean() && accountManagement.needsRehash(account)) {
+                accountManagement.rehashAsync(account, password).whenComplete((success, throwable) -> {
+                    if (throwable != null) {
+                        plugin.getLogger().warning("Failed to rehash the password of " + name + ": " + throwable.getMessage());
+                    }
+                });
+            }
+        });
+    }
 
-        plugin.getLoginManagement().clearFailedAttempts(rateLimitKey);
+    private void completeLogin(Player player, AuthSession session, String name) {
+        plugin.getLoginManagement().clearFailedAttempts(session.getAddress(), session.getRateLimitKey(), name);
 
         AsyncLoginEvent loginEvent = new AsyncLoginEvent(player);
-        if (loginEvent.callEvt()) {
-            plugin.getLoginManagement().setAuthenticated(name);
+        // refused if the player timed out meanwhile
+        if (loginEvent.callEvt() && session.authenticate()) {
+            plugin.getAccountManagement().recordLogin(name, session.getAddress());
 
             player.sendMessage(Messages.SUCCESSFUL_LOGIN.asString());
             TitleAPI.getApi().send(player, Messages.TITLE_AFTER_LOGIN.asTitle());
@@ -148,7 +162,7 @@ public class LoginCommand extends BukkitAbstractCommand {
                 player.setWalkSpeed(0.2F);
                 player.setFlySpeed(0.1F);
                 if (Settings.SPAWN_BEFORE_LOGIN_RETURN_LAST_LOCATION.asBoolean()) {
-                    Location lastLocation = plugin.popLoginLocation(name);
+                    Location lastLocation = plugin.popLoginLocation(session);
                     if (lastLocation != null) {
                         player.teleport(lastLocation);
                     }
@@ -160,7 +174,7 @@ public class LoginCommand extends BukkitAbstractCommand {
                     for (Player onlinePlayer : plugin.getServer().getOnlinePlayers()) {
                         if (!onlinePlayer.equals(player)) {
                             // Only show if the other player is authenticated
-                            if (plugin.getLoginManagement().isAuthenticated(onlinePlayer.getName())) {
+                            if (plugin.getSessionManager().isAuthenticated(onlinePlayer)) {
                                 onlinePlayer.showPlayer(player);
                                 player.showPlayer(onlinePlayer);
                             }
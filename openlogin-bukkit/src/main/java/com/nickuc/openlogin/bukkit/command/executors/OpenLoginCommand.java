@@ -29,6 +29,7 @@ import com.sobble.pleasejustlogin.bukkit.command.BukkitAbstractCommand;
 import com.sobble.pleasejustlogin.bukkit.ui.chat.ActionbarAPI;
 import com.sobble.pleasejustlogin.bukkit.ui.title.TitleAPI;
 import com.sobble.pleasejustlogin.common.http.HttpClient;
+import com.sobble.pleasejustlogin.common.security.hashing.PasswordHasher;
 import com.sobble.pleasejustlogin.common.settings.Messages;
 import com.sobble.pleasejustlogin.common.util.FileUtils;
 import org.bukkit.command.CommandSender;
@@ -58,7 +59,7 @@ public class OpenLoginCommand extends BukkitAbstractCommand {
                 case "reload":
                 case "rl":
                 case "r": {
-                    if (sender instanceof Player && !plugin.getLoginManagement().isAuthenticated(sender.getName())) {
+                    if (sender instanceof Player && !plugin.getSessionManager().isAuthenticated((Player) sender)) {
                         return;
                     }
 
@@ -68,6 +69,40 @@ public class OpenLoginCommand extends BukkitAbstractCommand {
                     return;
                 }
 
+                case "stats": {
+                    if (!sender.hasPermission("plsjstlogin.admin")) {
+                        sender.sendMessage(Messages.INSUFFICIENT_PERMISSIONS.asString());
+                        return;
+                    }
+
+                    sender.sendMessage("");
+                    sender.sendMessage(" §eDatabase:");
+                    for (String line : plugin.getDatabase().getStatus()) {
+                        sender.sendMessage("  §7" + line);
+                    }
+                    for (String line : plugin.getAccountStore().getStatus()) {
+                        sender.sendMessage("  §7" + line);
+                    }
+                    sender.sendMessage("  §7" + plugin.getIoExecutor().getStatus());
+                    sender.sendMessage("  §7" + plugin.getHashExecutor().getStatus());
+                    if (plugin.getHashCalibration() != null) {
+                        sender.sendMessage("  §7" + plugin.getHashCalibration().getStatus());
+                    } else {
+                        PasswordHasher hasher = plugin.getAccountManagement().getPasswordHashing().getCurrent();
+                        sender.sendMessage("  §7Password hashing: " + hasher.getName() + " (" + hasher.getParameters() + "), not calibrated");
+                    }
+                    sender.sendMessage("  §7" + plugin.getAccountManagement().getWriteQueue().getStatus());
+                    sender.sendMessage("  §7" + plugin.getAccountManagement().getCache().getStatus());
+                    sender.sendMessage("  §7" + plugin.getAccountManagement().getNameFilter().getStatus());
+                    sender.sendMessage("  §7" + plugin.getLoginManagement().getStatus());
+                    sender.sendMessage("  §7" + plugin.getSessionManager().getGate().getStatus());
+                    if (plugin.getAccountManagement().getAddressIndex() != null) {
+                        sender.sendMessage("  §7" + plugin.getAccountManagement().getAddressIndex().getStatus());
+                    }
+                    sender.sendMessage("");
+                    return;
+                }
+
                 case "update": {
                     if (!(sender instanceof Player)) {
                         sender.sendMessage(Messages.PLAYER_COMMAND_USAGE.asString());
@@ -75,8 +110,7 @@ public class OpenLoginCommand extends BukkitAbstractCommand {
                     }
 
                     Player player = (Player) sender;
-                    String name = player.getName();
-                    if (!plugin.getLoginManagement().isAuthenticated(name)) {
+                    if (!plugin.getSessionManager().isAuthenticated(player)) {
                         return;
                     }
 
@@ -147,8 +181,7 @@ public class OpenLoginCommand extends BukkitAbstractCommand {
                     }
 
                     Player player = (Player) sender;
-                    String name = player.getName();
-                    if (!plugin.isNewUser() && !plugin.getLoginManagement().isAuthenticated(name)) {
+                    if (!plugin.isNewUser() && !plugin.getSessionManager().isAuthenticated(player)) {
                         return;
                     }
 
@@ -26,19 +26,25 @@ package com.sobble.pleasejustlogin.bukkit.command.executors;
 
 import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
 import com.sobble.pleasejustlogin.bukkit.command.BukkitAbstractCommand;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
+import com.sobble.pleasejustlogin.common.database.SqlAccountStore;
+import com.sobble.pleasejustlogin.common.importer.AccountExporter;
+import com.sobble.pleasejustlogin.common.importer.AccountImporter;
+import com.sobble.pleasejustlogin.common.importer.CsvImportSource;
+import com.sobble.pleasejustlogin.common.importer.ImportSource;
+import com.sobble.pleasejustlogin.common.importer.SqliteImportSource;
 import com.sobble.pleasejustlogin.common.manager.AccountManagement;
-import com.sobble.pleasejustlogin.common.security.hashing.BCrypt;
 import com.sobble.pleasejustlogin.common.settings.Messages;
 import com.sobble.pleasejustlogin.common.settings.Settings;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import java.io.File;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
+import java.io.IOException;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.SQLFeatureNotSupportedException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.Optional;
 
 public class PlsjstAdminCommand extends BukkitAbstractCommand {
@@ -53,8 +59,16 @@ public class PlsjstAdminCommand extends BukkitAbstractCommand {
             return;
         }
 
-        if (args.length < 2) {
-            sender.sendMessage("§cUsage: /" + lb + " <rmpass|migrate|changepass|import> <args>");
+        if (args.length == 1 && args[0].equalsIgnoreCase("rebuildfilter")) {
+            sender.sendMessage("§7Rebuilding the name filter...");
+            plugin.getFoliaLib().runAsync(task -> sender.sendMessage(plugin.rebuildNameFilter() ?
+                    "§aName filter rebuilt. " + plugin.getAccountManagement().getNameFilter().getStatus() :
+                    "§cFailed to rebuild the name filter, see the console for details."));
+            return;
+        }
+
+        if (args.length == 0) {
+            sender.sendMessage("§cUsage: /" + lb + " <rmpass|migrate|changepass|import|export|backup|restore|rebuildfilter> <args>");
             return;
         }
 
@@ -74,6 +88,7 @@ public class PlsjstAdminCommand extends BukkitAbstractCommand {
                     plugin.forceLoginLocation(playerIfOnline);
                 }
                 plugin.getLoginManagement().cleanup(name);
+                revokeSession(name);
                 sender.sendMessage(removed ?
                         "§aPassword removed for §f" + name + "§a." :
                         Messages.NOT_REGISTERED.asString());
@@ -90,6 +105,7 @@ public class PlsjstAdminCommand extends BukkitAbstractCommand {
                 boolean migrated = accountManagement.migrate(oldName, newName);
                 if (migrated) {
                     plugin.getLoginManagement().cleanup(oldName);
+                    revokeSession(oldName);
                     sender.sendMessage("§aMigrated §f" + oldName + " §ato §f" + newName + "§a.");
                 } else {
                     sender.sendMessage("§cFailed to migrate. Check if the old user exists and the new name is free.");
@@ -125,112 +141,242 @@ public class PlsjstAdminCommand extends BukkitAbstractCommand {
                 Player playerIfOnline = plugin.getServer().getPlayerExact(name);
                 String address = playerIfOnline != null && playerIfOnline.getAddress() != null ?
                         playerIfOnline.getAddress().getAddress().getHostAddress() : null;
-                String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt());
-                if (!accountManagement.update(name, hashedPassword, address)) {
-                    sender.sendMessage(Messages.DATABASE_ERROR.asString());
+                afterHashing(sender, lb, accountManagement.hashPasswordAsync(password), hashedPassword -> {
+                    if (!accountManagement.update(name, hashedPassword, address)) {
+                        sender.sendMessage(Messages.DATABASE_ERROR.asString());
+                        return;
+                    }
+                    accountManagement.invalidateCache(name.toLowerCase());
+                    sender.sendMessage(Messages.PASSWORD_CHANGED.asString());
+                });
+                return;
+            }
+            case "import": {
+                if (args.length < 2 || args.length > 4) {
+                    sender.sendMessage("§cUsage: /" + lb + " import <loginsecurity|authme|nlogin|csv> [file] [restart]");
                     return;
                 }
-                accountManagement.invalidateCache(name.toLowerCase());
-                sender.sendMessage(Messages.PASSWORD_CHANGED.asString());
+                importAccounts(sender, lb, args);
                 return;
             }
-            case "import": {
-                if (args.length != 2 || !args[1].equalsIgnoreCase("loginsecurity")) {
-                    sender.sendMessage("§cUsage: /" + lb + " import LoginSecurity");
+            case "export": {
+                if (args.length > 2) {
+                    sender.sendMessage("§cUsage: /" + lb + " export [file]");
+                    return;
+                }
+                File folder = backupFolder(sender);
+                if (folder != null) {
+                    exportAccounts(sender, new File(folder, args.length == 2 ? args[1] : backupName(".csv.gz")));
+                }
+                return;
+            }
+            case "backup": {
+                if (args.length != 1) {
+                    sender.sendMessage("§cUsage: /" + lb + " backup");
                     return;
                 }
-                importLoginSecurity(sender);
+                backupAccounts(sender);
+                return;
+            }
+            case "restore": {
+                if (args.length < 2 || args.length > 3 || (args.length == 3 && !args[2].equalsIgnoreCase("restart"))) {
+                    sender.sendMessage("§cUsage: /" + lb + " restore <file> [restart]");
+                    return;
+                }
+                restoreAccounts(sender, args[1], args.length == 3);
                 return;
             }
             default:
-                sender.sendMessage("§cUsage: /" + lb + " <rmpass|migrate|changepass|import> <args>");
+                sender.sendMessage("§cUsage: /" + lb + " <rmpass|migrate|changepass|import|export|backup|restore|rebuildfilter> <args>");
         }
     }
 
-    private void importLoginSecurity(CommandSender sender) {
+    private void importAccounts(CommandSender sender, String lb, String[] args) {
+        String type = args[1].toLowerCase();
+        boolean restart = false;
+        String path = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("restart")) {
+                restart = true;
+            } else {
+                path = args[i];
+            }
+        }
+
         File pluginsDir = plugin.getDataFolder().getParentFile();
-        File dbFile = resolveLoginSecurityDb(pluginsDir);
-        if (dbFile == null) {
-            sender.sendMessage("§cLoginSecurity.db not found in the plugins folder.");
-            return;
+        File file;
+        if (path != null) {
+            file = new File(pluginsDir, path);
+            if (!file.isFile()) {
+                sender.sendMessage("§c" + file.getPath() + " not found.");
+                return;
+            }
+        } else {
+            switch (type) {
+                case "loginsecurity":
+                    file = resolveLoginSecurityDb(pluginsDir);
+                    break;
+                case "authme":
+                    file = resolveFile(pluginsDir, "AuthMe/authme.db");
+                    break;
+                case "nlogin":
+                    file = resolveFile(pluginsDir, "nLogin/nlogin.db", "nLogin/nLogin.db", "nLogin/database.db");
+                    break;
+                case "csv":
+                    file = resolveFile(plugin.getDataFolder(), "import.csv");
+                    break;
+                default:
+                    file = null;
+            }
+            if (file == null) {
+                sender.sendMessage("§cNo " + type + " database found in the plugins folder, pass its path relative to the plugins folder.");
+                return;
+            }
         }
 
-        int imported = 0;
-        int skipped = 0;
-        int unsupported = 0;
+        ImportSource source;
+        switch (type) {
+            case "loginsecurity":
+                source = SqliteImportSource.loginSecurity(file);
+                break;
+            case "authme":
+                source = SqliteImportSource.authMe(file);
+                break;
+            case "nlogin":
+                source = SqliteImportSource.nLogin(file);
+                break;
+            case "csv":
+                source = new CsvImportSource(file);
+                break;
+            default:
+                sender.sendMessage("§cUsage: /" + lb + " import <loginsecurity|authme|nlogin|csv> [file] [restart]");
+                return;
+        }
+
+        runImport(sender, source, file, restart);
+    }
 
+    private void exportAccounts(CommandSender sender, File target) {
+        AccountExporter exporter = new AccountExporter(plugin.getAccountStore(),
+                Settings.DATABASE_IMPORT_BATCH_SIZE.asInt(), Settings.DATABASE_IMPORT_PROGRESS_INTERVAL.asInt());
+        sender.sendMessage("§7Exporting accounts to §f" + target.getPath() + "§7...");
+        long start = System.currentTimeMillis();
         try {
-            Class.forName("org.sqlite.JDBC");
-        } catch (ClassNotFoundException e) {
-            sender.sendMessage("§cSQLite driver not found.");
+            long exported = exporter.export(target, progress -> sender.sendMessage("§7" + progress));
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            sender.sendMessage(String.format("§aExported %d accounts in %.1fs (%d/s, %d KiB).",
+                    exported, elapsed / 1000D, exported * 1000 / elapsed, target.length() / 1024));
+        } catch (IOException | SQLException e) {
+            sender.sendMessage("§cExport failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void backupAccounts(CommandSender sender) {
+        File folder = backupFolder(sender);
+        if (folder == null) {
             return;
         }
+        if (plugin.getAccountStore() instanceof SqlAccountStore) {
+            File target = new File(folder, backupName(".db"));
+            sender.sendMessage("§7Copying the database to §f" + target.getPath() + "§7...");
+            long start = System.currentTimeMillis();
+            try {
+                plugin.getDatabase().backup(target);
+                AccountExporter.writeChecksum(target);
+                long elapsed = Math.max(1, System.currentTimeMillis() - start);
+                sender.sendMessage(String.format("§aBackup complete in %.1fs (%d KiB, %d KiB/s).",
+                        elapsed / 1000D, target.length() / 1024, target.length() * 1000 / 1024 / elapsed));
+                return;
+            } catch (SQLFeatureNotSupportedException e) {
+                // a database server, its own tools make better backups but an export still works
+            } catch (SQLException | IOException e) {
+                sender.sendMessage("§cBackup failed: " + e.getMessage());
+                e.printStackTrace();
+                return;
+            }
+        }
+        exportAccounts(sender, new File(folder, backupName(".csv.gz")));
+    }
 
-        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.toString());
-             Statement statement = connection.createStatement();
-             ResultSet rs = statement.executeQuery(
-                     "SELECT last_name, ip_address, password, last_login, registration_date FROM ls_players")) {
+    private void restoreAccounts(CommandSender sender, String path, boolean restart) {
+        File file = new File(new File(plugin.getDataFolder(), "backups"), path);
+        if (!file.isFile()) {
+            sender.sendMessage("§c" + file.getPath() + " not found.");
+            return;
+        }
+        try {
+            if (!AccountExporter.verifyChecksum(file)) {
+                sender.sendMessage("§c" + file.getName() + " doesn't match its checksum, it was changed or is damaged.");
+                return;
+            }
+        } catch (IOException e) {
+            sender.sendMessage("§cFailed to read " + file.getPath() + ": " + e.getMessage());
+            return;
+        }
+        ImportSource source = file.getName().endsWith(".db") ? SqliteImportSource.backup(file) : new CsvImportSource(file);
+        runImport(sender, source, file, restart);
+    }
 
-            while (rs.next()) {
-                String name = rs.getString("last_name");
-                if (name == null || name.trim().isEmpty()) {
-                    skipped++;
-                    continue;
-                }
+    private void runImport(CommandSender sender, ImportSource source, File file, boolean restart) {
+        AccountImporter importer = new AccountImporter(plugin.getAccountManagement(), plugin.getPluginSettings(),
+                Settings.DATABASE_IMPORT_BATCH_SIZE.asInt(), Settings.DATABASE_IMPORT_PROGRESS_INTERVAL.asInt());
+        if (!plugin.getRunningImport().compareAndSet(null, importer)) {
+            sender.sendMessage("§cAnother import is still running.");
+            return;
+        }
 
-                String password = rs.getString("password");
-                if (password == null || !password.startsWith("$2")) {
-                    unsupported++;
-                    continue;
-                }
+        sender.sendMessage("§7Importing accounts from §f" + file.getPath() + "§7...");
+        try {
+            AccountImporter.Result result = importer.run(source, restart, progress -> sender.sendMessage("§7" + progress));
+            sender.sendMessage(result.isCancelled() ?
+                    "§cImport stopped, run the command again to continue." :
+                    "§aImport complete in " + result.getMillis() / 1000 + "s.");
+            sender.sendMessage(" §7Imported: §f" + result.getImported());
+            sender.sendMessage(" §7Skipped: §f" + result.getSkipped());
+            sender.sendMessage(" §7Unsupported hashes: §f" + result.getUnsupported());
+        } catch (IOException | SQLException e) {
+            sender.sendMessage("§cImport failed: " + e.getMessage() + ". Run the command again to continue.");
+            e.printStackTrace();
+        } finally {
+            plugin.getRunningImport().set(null);
+        }
+    }
 
-                if (plugin.getAccountManagement().search(name).isPresent()) {
-                    skipped++;
-                    continue;
-                }
+    private File backupFolder(CommandSender sender) {
+        File folder = new File(plugin.getDataFolder(), "backups");
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            sender.sendMessage("§cFailed to create " + folder.getPath() + ".");
+            return null;
+        }
+        return folder;
+    }
+
+    private static String backupName(String extension) {
+        return "accounts-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + extension;
+    }
 
-                String address = rs.getString("ip_address");
-                long lastLogin = rs.getLong("last_login");
-                long regDate = rs.getLong("registration_date");
-
-                plugin.getDatabase().update(
-                        "INSERT INTO `openlogin` (`name`, `realname`, `password`, `address`, `lastlogin`, `regdate`) " +
-                                "VALUES (?, ?, ?, ?, ?, ?)",
-                        name.toLowerCase(),
-                        name,
-                        password,
-                        address == null ? "127.0.0.1" : address,
-                        lastLogin,
-                        regDate
-                );
-                imported++;
+    private File resolveFile(File folder, String... candidates) {
+        for (String candidate : candidates) {
+            File file = new File(folder, candidate);
+            if (file.isFile()) {
+                return file;
             }
-        } catch (SQLException e) {
-            sender.sendMessage("§cFailed to import LoginSecurity database.");
-            e.printStackTrace();
-            return;
         }
-
-        sender.sendMessage("§aLoginSecurity import complete.");
-        sender.sendMessage(" §7Imported: §f" + imported);
-        sender.sendMessage(" §7Skipped: §f" + skipped);
-        sender.sendMessage(" §7Unsupported hashes: §f" + unsupported);
+        return null;
     }
 
     private File resolveLoginSecurityDb(File pluginsDir) {
-        File rootDb = new File(pluginsDir, "LoginSecurity.db");
-        if (rootDb.exists()) {
-            return rootDb;
-        }
-        File pluginFolder = new File(pluginsDir, "LoginSecurity");
-        File nestedDb = new File(pluginFolder, "LoginSecurity.db");
-        if (nestedDb.exists()) {
-            return nestedDb;
-        }
-        File databaseDb = new File(pluginFolder, "database.db");
-        if (databaseDb.exists()) {
-            return databaseDb;
+        return resolveFile(pluginsDir, "LoginSecurity.db", "LoginSecurity/LoginSecurity.db", "LoginSecurity/database.db");
+    }
+
+    /**
+     * Logs out an online player whose account no longer exists.
+     */
+    private void revokeSession(String name) {
+        AuthSession session = plugin.getSessionManager().getByName(name);
+        if (session != null) {
+            session.revoke(false);
         }
-        return null;
     }
 }
@@ -29,10 +29,9 @@ import com.sobble.pleasejustlogin.bukkit.api.events.AsyncAuthenticateEvent;
 import com.sobble.pleasejustlogin.bukkit.api.events.AsyncRegisterEvent;
 import com.sobble.pleasejustlogin.bukkit.captcha.CaptchaManager;
 import com.sobble.pleasejustlogin.bukkit.command.BukkitAbstractCommand;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
 import com.sobble.pleasejustlogin.bukkit.ui.title.TitleAPI;
 import com.sobble.pleasejustlogin.common.manager.AccountManagement;
-import com.sobble.pleasejustlogin.common.manager.LoginManagement;
-import com.sobble.pleasejustlogin.common.security.hashing.BCrypt;
 import com.sobble.pleasejustlogin.common.settings.Messages;
 import com.sobble.pleasejustlogin.common.settings.Settings;
 import org.bukkit.command.CommandSender;
@@ -57,8 +56,12 @@ public class RegisterCommand extends BukkitAbstractCommand {
 
     private void performPlayer(Player sender, String lb, String[] args) {
         String name = sender.getName();
-        LoginManagement loginManagement = plugin.getLoginManagement();
-        if (loginManagement.isAuthenticated(name)) {
+        AuthSession session = plugin.getSessionManager().get(sender);
+        if (session == null) {
+            return;
+        }
+
+        if (session.isAuthenticated()) {
             sender.sendMessage(Messages.ALREADY_LOGIN.asString());
             return;
         }
@@ -81,8 +84,8 @@ public class RegisterCommand extends BukkitAbstractCommand {
             String captchaInput = args[2];
             
             // Validate CAPTCHA first
-            if (!captchaManager.validateCaptcha(name, captchaInput)) {
-                captchaManager.removeCaptcha(name);
+            if (!captchaManager.validateCaptcha(sender, session, captchaInput)) {
+                captchaManager.removeCaptcha(sender, session);
                 plugin.getFoliaLib().runAtEntity(sender, task ->
                     sender.kickPlayer(Messages.CAPTCHA_INCORRECT.asString())
                 );
@@ -90,7 +93,7 @@ public class RegisterCommand extends BukkitAbstractCommand {
             }
             
             // CAPTCHA valid, proceed with registration (will remove CAPTCHA on success)
-            performRegistration(sender, name, password, passwordConfirm, true);
+            performRegistration(sender, session, lb, name, password, passwordConfirm, true);
         } else {
             // No CAPTCHA required, expect 2 arguments
             if (args.length != 2) {
@@ -100,11 +103,11 @@ public class RegisterCommand extends BukkitAbstractCommand {
             
             String password = args[0];
             String passwordConfirm = args[1];
-            performRegistration(sender, name, password, passwordConfirm, false);
+            performRegistration(sender, session, lb, name, password, passwordConfirm, false);
         }
     }
 
-    private void performRegistration(Player sender, String name, String password, String passwordConfirm, boolean hasCaptcha) {
+    private void performRegistration(Player sender, AuthSession session, String lb, String name, String password, String passwordConfirm, boolean hasCaptcha) {
         int passwordLength = password.length();
 
         if (passwordLength <= Settings.PASSWORD_SMALL.asInt()) {
@@ -129,36 +132,31 @@ public class RegisterCommand extends BukkitAbstractCommand {
             return;
         }
         
-        String address = null;
-        if (sender.getAddress() != null && sender.getAddress().getAddress() != null) {
-            java.net.InetAddress inetAddress = sender.getAddress().getAddress();
-            if (!inetAddress.isLoopbackAddress()) {
-                address = inetAddress.getHostAddress();
-            }
-        }
-        
+        String address = session.getAddress();
         int maxPerIp = address != null ? Settings.MAX_ACCOUNTS_PER_IP.asInt() : 0;
-
-        String salt = BCrypt.gensalt();
-        String hashedPassword = BCrypt.hashpw(password, salt);
-        
-        try {
-            if (!accountManagement.createAccountIfUnderIpLimit(name, hashedPassword, address, maxPerIp)) {
-                sender.sendMessage(Messages.DATABASE_ERROR.asString());
+        String finalAddress = address;
+        afterHashing(sender, lb, accountManagement.hashPasswordAsync(password), hashedPassword -> {
+            try {
+                if (!accountManagement.createAccountIfUnderIpLimit(name, hashedPassword, finalAddress, maxPerIp)) {
+                    sender.sendMessage(Messages.DATABASE_ERROR.asString());
+                    return;
+                }
+            } catch (IllegalStateException e) {
+                sender.sendMessage(Messages.REGISTRATION_LIMIT.asString());
                 return;
             }
-        } catch (IllegalStateException e) {
-            sender.sendMessage(Messages.REGISTRATION_LIMIT.asString());
-            return;
-        }
 
+            completeRegistration(sender, session, hasCaptcha);
+        });
+    }
+
+    private void completeRegistration(Player sender, AuthSession session, boolean hasCaptcha) {
         AsyncRegisterEvent registerEvent = new AsyncRegisterEvent(sender);
-        if (registerEvent.callEvt()) {
-            plugin.getLoginManagement().setAuthenticated(name);
-            
+        // refused if the player timed out meanwhile, the account is kept
+        if (registerEvent.callEvt() && session.authenticate()) {
             // Remove CAPTCHA only after successful registration
             if (hasCaptcha) {
-                plugin.getCaptchaManager().removeCaptcha(name);
+                plugin.getCaptchaManager().removeCaptcha(sender, session);
             }
 
             TitleAPI.getApi().send(sender, Messages.TITLE_AFTER_REGISTER.asTitle());
@@ -168,7 +166,7 @@ public class RegisterCommand extends BukkitAbstractCommand {
                 sender.setWalkSpeed(0.2F);
                 sender.setFlySpeed(0.1F);
                 if (Settings.SPAWN_BEFORE_LOGIN_RETURN_LAST_LOCATION.asBoolean()) {
-                    Location lastLocation = plugin.popLoginLocation(name);
+                    Location lastLocation = plugin.popLoginLocation(session);
                     if (lastLocation != null) {
                         sender.teleport(lastLocation);
                     }
@@ -182,7 +180,7 @@ public class RegisterCommand extends BukkitAbstractCommand {
                             // Always show the newly registered player to others
                             onlinePlayer.showPlayer(sender);
                             // Only show other players to the newly registered player if they are authenticated
-                            if (plugin.getLoginManagement().isAuthenticated(onlinePlayer.getName())) {
+                            if (plugin.getSessionManager().isAuthenticated(onlinePlayer)) {
                                 sender.showPlayer(onlinePlayer);
                             }
                         }
@@ -240,27 +238,29 @@ public class RegisterCommand extends BukkitAbstractCommand {
         }
 
         int maxPerIp = address != null ? Settings.MAX_ACCOUNTS_PER_IP.asInt() : 0;
-
-        String salt = BCrypt.gensalt();
-        String hashedPassword = BCrypt.hashpw(password, salt);
-        
-        try {
-            if (!accountManagement.createAccountIfUnderIpLimit(playerName, hashedPassword, address, maxPerIp)) {
-                sender.sendMessage(Messages.DATABASE_ERROR.asString());
+        String finalPlayerName = playerName, finalAddress = address;
+        afterHashing(sender, lb, accountManagement.hashPasswordAsync(password), hashedPassword -> {
+            try {
+                if (!accountManagement.createAccountIfUnderIpLimit(finalPlayerName, hashedPassword, finalAddress, maxPerIp)) {
+                    sender.sendMessage(Messages.DATABASE_ERROR.asString());
+                    return;
+                }
+            } catch (IllegalStateException e) {
+                sender.sendMessage(Messages.REGISTRATION_LIMIT.asString());
                 return;
             }
-        } catch (IllegalStateException e) {
-            sender.sendMessage(Messages.REGISTRATION_LIMIT.asString());
-            return;
-        }
 
+            completeConsoleRegistration(sender, finalPlayerName, playerIfOnline);
+        });
+    }
+
+    private void completeConsoleRegistration(CommandSender sender, String playerName, Player playerIfOnline) {
         sender.sendMessage(Messages.SUCCESSFUL_REGISTER.asString());
 
         if (playerIfOnline != null) {
+            AuthSession session = plugin.getSessionManager().get(playerIfOnline);
             AsyncRegisterEvent registerEvent = new AsyncRegisterEvent(playerIfOnline);
-            if (registerEvent.callEvt()) {
-                plugin.getLoginManagement().setAuthenticated(playerName);
-
+            if (session != null && registerEvent.callEvt() && session.authenticate()) {
                 TitleAPI.getApi().send(playerIfOnline, Messages.TITLE_AFTER_REGISTER.asTitle());
                 playerIfOnline.sendMessage(Messages.SUCCESSFUL_REGISTER.asString());
 
@@ -268,7 +268,7 @@ public class RegisterCommand extends BukkitAbstractCommand {
                     playerIfOnline.setWalkSpeed(0.2F);
                     playerIfOnline.setFlySpeed(0.1F);
                     if (Settings.SPAWN_BEFORE_LOGIN_RETURN_LAST_LOCATION.asBoolean()) {
-                        Location lastLocation = plugin.popLoginLocation(playerIfOnline.getName());
+                        Location lastLocation = plugin.popLoginLocation(session);
                         if (lastLocation != null) {
                             playerIfOnline.teleport(lastLocation);
                         }
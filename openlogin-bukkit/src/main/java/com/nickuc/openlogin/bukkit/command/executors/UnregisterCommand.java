@@ -64,17 +64,19 @@ public class UnregisterCommand extends BukkitAbstractCommand {
 
         Account account = accountOpt.get();
         String currentPassword = args[0];
-        if (!accountManagement.comparePassword(account, currentPassword)) {
-            sender.sendMessage(Messages.INCORRECT_PASSWORD.asString());
-            return;
-        }
-
-        if (!accountManagement.delete(name)) {
-            sender.sendMessage(Messages.DATABASE_ERROR.asString());
-            return;
-        }
-
-        plugin.getFoliaLib().runAtEntity(sender, task -> sender.kickPlayer(Messages.UNREGISTER_KICK.asString()));
+        afterHashing(sender, lb, accountManagement.comparePasswordAsync(account, currentPassword), matches -> {
+            if (!matches) {
+                sender.sendMessage(Messages.INCORRECT_PASSWORD.asString());
+                return;
+            }
+
+            if (!accountManagement.delete(name)) {
+                sender.sendMessage(Messages.DATABASE_ERROR.asString());
+                return;
+            }
+
+            plugin.getFoliaLib().runAtEntity(sender, task -> sender.kickPlayer(Messages.UNREGISTER_KICK.asString()));
+        });
     }
 
     private void performConsole(CommandSender sender, String lb, String[] args) {
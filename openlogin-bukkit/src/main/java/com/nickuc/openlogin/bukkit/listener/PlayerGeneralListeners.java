@@ -25,9 +25,8 @@
 package com.sobble.pleasejustlogin.bukkit.listener;
 
 import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
-import com.sobble.pleasejustlogin.bukkit.task.LoginQueue;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
 import com.sobble.pleasejustlogin.bukkit.ui.title.TitleAPI;
-import com.sobble.pleasejustlogin.common.manager.LoginManagement;
 import com.sobble.pleasejustlogin.common.settings.Settings;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Location;
@@ -35,15 +34,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.block.BlockBreakEvent;
-import org.bukkit.event.block.BlockPlaceEvent;
-import org.bukkit.event.block.SignChangeEvent;
-import org.bukkit.event.entity.EntityDamageByEntityEvent;
-import org.bukkit.event.entity.EntityDamageEvent;
-import org.bukkit.event.entity.EntityRegainHealthEvent;
-import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.event.inventory.InventoryOpenEvent;
-import org.bukkit.event.player.*;
+import org.bukkit.event.player.PlayerQuitEvent;
 
 @RequiredArgsConstructor
 public class PlayerGeneralListeners implements Listener {
@@ -54,7 +45,7 @@ public class PlayerGeneralListeners implements Listener {
     public void onPlayerQuit(PlayerQuitEvent e) {
         Player player = e.getPlayer();
         String name = player.getName();
-        LoginManagement loginManagement = plugin.getLoginManagement();
+        AuthSession session = plugin.getSessionManager().get(player);
         if (Settings.SPAWN_BEFORE_LOGIN_RETURN_LAST_LOCATION.asBoolean() && player.isDead()) {
             Location respawn = player.getBedSpawnLocation();
             if (respawn == null) {
@@ -62,281 +53,14 @@ public class PlayerGeneralListeners implements Listener {
             }
             plugin.forceLoginLocation(player, respawn);
         }
-        if (loginManagement.isAuthenticated(name)) {
-            plugin.clearLoginLocation(name);
-        }
-        loginManagement.cleanup(name);
-        plugin.clearLoginTeleport(name);
-        plugin.getCaptchaManager().removeCaptcha(name);
-        LoginQueue.removeFromQueue(name);
-        TitleAPI.getApi().reset(player);
-    }
-
-    @EventHandler(priority = EventPriority.HIGH)
-    public void onPlayerCommandPreprocess(PlayerCommandPreprocessEvent e) {
-        Player player = e.getPlayer();
-        String name = player.getName();
-        String message = e.getMessage().toLowerCase();
-        String command = message.split(" ")[0];
-        if (!plugin.getLoginManagement().isAuthenticated(name) && !plugin.getCommandManagement().isAllowedCommand(command)) {
-            e.setCancelled(true);
-        }
-    }
-
-    @EventHandler(priority = EventPriority.HIGH)
-    public void onPlayerMove(PlayerMoveEvent e) {
-        if (e.isCancelled()) return;
-
-        Player player = e.getPlayer();
-        String name = player.getName();
-        if (e instanceof PlayerTeleportEvent && plugin.consumeLoginTeleport(name)) return;
-        if (plugin.getLoginManagement().isAuthenticated(name)) return;
-        
-        Location from = e.getFrom();
-        Location to = e.getTo();
-        if (to == null) return;
-        
-        // Allow looking around (pitch/yaw changes) but prevent position changes
-        if (from.getX() == to.getX() && from.getY() == to.getY() && from.getZ() == to.getZ()) {
-            // Only rotation changed, allow it
-            return;
-        }
-        
-        // Always construct a corrected location to prevent horizontal drift during falling
-        Location newLoc = from.clone();
-        
-        // Preserve rotation
-        newLoc.setYaw(to.getYaw());
-        newLoc.setPitch(to.getPitch());
-        
-        // Clamp X and Z to prevent horizontal movement
-        newLoc.setX(from.getX());
-        newLoc.setZ(from.getZ());
-        
-        // Prevent all vertical movement to avoid void death
-        newLoc.setY(from.getY());
-        
-        // Fix "too many packets" disconnect by using PlayerMoveEvent#setTo instead of Player#teleport
-        e.setTo(newLoc);
-    }
-
-    @EventHandler(priority = EventPriority.HIGH)
-    public void onBlockPlace(BlockPlaceEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.HIGH)
-    public void onBlockBreak(BlockBreakEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.HIGH)
-    public void onEntityDamageEvent(EntityDamageEvent e) {
-        if (e.getCause() == EntityDamageEvent.DamageCause.SUICIDE) return;
-        if (e.isCancelled()) return;
-        if (!(e.getEntity() instanceof Player)) return;
-
-        Player player = ((Player) e.getEntity());
-        if (!plugin.getLoginManagement().isAuthenticated(player.getName())) {
-            e.setCancelled(true);
-        }
-    }
-
-    @EventHandler(priority = EventPriority.HIGH)
-    public void onEntityRegainHealth(EntityRegainHealthEvent e) {
-        if (e.isCancelled()) return;
-        if (!(e.getEntity() instanceof Player)) return;
-
-        Player player = (Player) e.getEntity();
-        if (!plugin.getLoginManagement().isAuthenticated(player.getName())) {
-            e.setCancelled(true);
-        }
-    }
-
-    @EventHandler(priority = EventPriority.HIGH)
-    public void onAsyncPlayerChat(AsyncPlayerChatEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler
-    public void onInventoryOpen(InventoryOpenEvent e) {
-        Player player = (Player) e.getPlayer();
-        String name = player.getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) {
-            e.setCancelled(true);
-            plugin.getFoliaLib().runAtEntity(player, task -> player.closeInventory());
-        }
-    }
-
-    @EventHandler
-    public void onInventoryClick(InventoryClickEvent e) {
-        String name = e.getWhoClicked().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.HIGH)
-    public void onPlayerDropItem(PlayerDropItemEvent e) {
-        if (e.isCancelled()) return;
-
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerInteract(PlayerInteractEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerInteractEntity(PlayerInteractEntityEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onEntityDamageByEntity(EntityDamageByEntityEvent e) {
-        if (e.getCause() == EntityDamageEvent.DamageCause.SUICIDE) return;
-        if (e.isCancelled()) return;
-
-        if (e.getEntity() instanceof Player) {
-            Player player = (Player) e.getEntity();
-            if (!plugin.getLoginManagement().isAuthenticated(player.getName())) {
-                e.setCancelled(true);
-                return;
+        if (session != null) {
+            if (session.isAuthenticated()) {
+                plugin.clearLoginLocation(name);
             }
+            plugin.getCaptchaManager().removeCaptcha(player, session);
+            plugin.getSessionManager().remove(player.getUniqueId(), session);
         }
-
-        if (e.getDamager() instanceof Player) {
-            Player player = (Player) e.getDamager();
-            if (!plugin.getLoginManagement().isAuthenticated(player.getName())) {
-                e.setCancelled(true);
-            }
-        }
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerShearEntity(PlayerShearEntityEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerFish(PlayerFishEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerBedEnter(PlayerBedEnterEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerEditBook(PlayerEditBookEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onSignChange(SignChangeEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerItemHeld(PlayerItemHeldEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) {
-            // Allow switching to CAPTCHA map slot if CAPTCHA is enabled
-            boolean captchaEnabled = Settings.CAPTCHA_ENABLED.asBoolean();
-            if (captchaEnabled && plugin.getCaptchaManager().hasCaptcha(name)) {
-                int captchaSlot = Settings.CAPTCHA_MAP_SLOT.asInt();
-                // If slot is invalid, allow all switching since map is in arbitrary slot
-                if (captchaSlot < 0 || captchaSlot > 8) {
-                    return;
-                }
-                // Allow switching to the CAPTCHA slot or from it
-                if (e.getNewSlot() == captchaSlot || e.getPreviousSlot() == captchaSlot) {
-                    return; // Don't cancel, allow the switch
-                }
-            }
-            e.setCancelled(true);
-        }
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerItemConsume(PlayerItemConsumeEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @SuppressWarnings("deprecation")
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerPickupItem(PlayerPickupItemEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerSwapHandItems(PlayerSwapHandItemsEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerArmorStandManipulate(PlayerArmorStandManipulateEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onVehicleEnter(org.bukkit.event.vehicle.VehicleEnterEvent e) {
-        if (e.getEntered() instanceof Player) {
-            String name = e.getEntered().getName();
-            if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-        }
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onVehicleExit(org.bukkit.event.vehicle.VehicleExitEvent e) {
-        if (e.getExited() instanceof Player) {
-            String name = e.getExited().getName();
-            if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-        }
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerPortal(PlayerPortalEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerBucketFill(PlayerBucketFillEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerBucketEmpty(PlayerBucketEmptyEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerToggleSneak(PlayerToggleSneakEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
-    }
-
-    @EventHandler(priority = EventPriority.LOWEST)
-    public void onPlayerToggleSprint(PlayerToggleSprintEvent e) {
-        String name = e.getPlayer().getName();
-        if (!plugin.getLoginManagement().isAuthenticated(name)) e.setCancelled(true);
+        plugin.getLoginManagement().cleanup(name);
+        TitleAPI.getApi().reset(player);
     }
 }
@@ -25,9 +25,10 @@
 package com.sobble.pleasejustlogin.bukkit.listener;
 
 import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
-import com.sobble.pleasejustlogin.bukkit.task.LoginQueue;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
 import com.sobble.pleasejustlogin.bukkit.ui.title.TitleAPI;
 import com.sobble.pleasejustlogin.bukkit.util.TextComponentMessage;
+import com.sobble.pleasejustlogin.common.manager.AccountManagement;
 import com.sobble.pleasejustlogin.common.model.Title;
 import com.sobble.pleasejustlogin.common.settings.Messages;
 import com.sobble.pleasejustlogin.common.settings.Settings;
@@ -39,6 +40,8 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 
+import java.net.InetSocketAddress;
+
 @AllArgsConstructor
 public class PlayerJoinListeners implements Listener {
 
@@ -48,10 +51,14 @@ public class PlayerJoinListeners implements Listener {
     public void onPlayerJoin(PlayerJoinEvent e) {
         Player player = e.getPlayer();
         String name = player.getName();
+        InetSocketAddress address = player.getAddress();
+        AuthSession session = plugin.getSessionManager().getOrCreate(player.getUniqueId(), name, address == null ? null : address.getAddress());
+        // restricts the player before anything else, registering the restriction listeners if needed
+        session.attach();
 
         if (Settings.SPAWN_BEFORE_LOGIN_RETURN_LAST_LOCATION.asBoolean()) {
-            plugin.rememberLoginLocation(player);
-            plugin.markLoginTeleport(name);
+            plugin.rememberLoginLocation(session, player);
+            session.markLoginTeleport();
             plugin.getFoliaLib().runAtEntity(player, task -> player.teleport(plugin.getLoginSpawnLocation(player)));
         }
 
@@ -83,12 +90,10 @@ public class PlayerJoinListeners implements Listener {
             }, 30L);
 
             e.setJoinMessage("");
+            plugin.getAccountManagement().releasePrefetch(name);
             return;
         }
 
-        boolean registered = plugin.getAccountManagement().retrieveOrLoad(name).isPresent();
-        LoginQueue.addToQueue(name, registered);
-
         player.setWalkSpeed(0F);
         player.setFlySpeed(0F);
 
@@ -97,8 +102,8 @@ public class PlayerJoinListeners implements Listener {
             // Hide unauthenticated players from everyone (including each other)
             for (Player onlinePlayer : plugin.getServer().getOnlinePlayers()) {
                 if (!onlinePlayer.equals(player)) {
-                    boolean joinerAuth = plugin.getLoginManagement().isAuthenticated(name);
-                    boolean onlineAuth = plugin.getLoginManagement().isAuthenticated(onlinePlayer.getName());
+                    boolean joinerAuth = session.isAuthenticated();
+                    boolean onlineAuth = plugin.getSessionManager().isAuthenticated(onlinePlayer);
                     
                     // If either player is unauthenticated, hide them from each other
                     if (!joinerAuth || !onlineAuth) {
@@ -109,6 +114,58 @@ public class PlayerJoinListeners implements Listener {
             }
         }
 
+        if (session.isResolved()) {
+            plugin.getAccountManagement().releasePrefetch(name);
+            startLogin(player, session);
+            return;
+        }
+
+        // no pre-login resolved it (e.g. another plugin skipped it), ask the database off the main thread
+        resolveAndStartLogin(player, session);
+    }
+
+    /**
+     * Restricts a player that was online before the plugin was enabled, e.g. after a reload,
+     * and asks them to log in again.
+     *
+     * @param player the player
+     */
+    public void resume(Player player) {
+        InetSocketAddress address = player.getAddress();
+        AuthSession session = plugin.getSessionManager().create(player.getUniqueId(), player.getName(), address == null ? null : address.getAddress());
+        session.attach();
+        plugin.getFoliaLib().runAtEntity(player, task -> {
+            player.setWalkSpeed(0F);
+            player.setFlySpeed(0F);
+        });
+        resolveAndStartLogin(player, session);
+    }
+
+    private void resolveAndStartLogin(Player player, AuthSession session) {
+        String name = player.getName();
+        plugin.getFoliaLib().runAsync(task -> {
+            AccountManagement accountManagement = plugin.getAccountManagement();
+            session.resolve(accountManagement.retrieveOrLoad(name).isPresent());
+            accountManagement.releasePrefetch(name);
+            plugin.getFoliaLib().runAtEntity(player, next -> {
+                if (player.isOnline() && plugin.getSessionManager().get(player) == session) {
+                    startLogin(player, session);
+                }
+            });
+        });
+    }
+
+    /**
+     * Starts the login timeout and asks the player to log in or register.
+     *
+     * @param player  the player
+     * @param session the resolved session of the player
+     */
+    private void startLogin(Player player, AuthSession session) {
+        String name = player.getName();
+        boolean registered = session.isRegistered();
+        plugin.getLoginQueue().addToQueue(session);
+
         // Check if CAPTCHA is enabled
         boolean captchaEnabled = Settings.CAPTCHA_ENABLED.asBoolean();
         boolean captchaOnLogin = captchaEnabled && Settings.CAPTCHA_USE_ON_LOGIN.asBoolean();
@@ -117,7 +174,7 @@ public class PlayerJoinListeners implements Listener {
         if (registered) {
             if (captchaOnLogin) {
                 // Generate CAPTCHA immediately for login
-                String captchaCode = plugin.getCaptchaManager().generateAndGiveCaptcha(player);
+                String captchaCode = plugin.getCaptchaManager().generateAndGiveCaptcha(player, session);
                 if (captchaCode != null) {
                     player.sendMessage(Messages.CAPTCHA_MAP_GIVEN.asString());
                     player.sendMessage(Messages.CAPTCHA_INSTRUCTION.asString());
@@ -134,7 +191,7 @@ public class PlayerJoinListeners implements Listener {
         } else {
             if (captchaOnRegister) {
                 // Generate CAPTCHA immediately for registration
-                String captchaCode = plugin.getCaptchaManager().generateAndGiveCaptcha(player);
+                String captchaCode = plugin.getCaptchaManager().generateAndGiveCaptcha(player, session);
                 if (captchaCode != null) {
                     player.sendMessage(Messages.CAPTCHA_MAP_GIVEN.asString());
                     player.sendMessage(Messages.CAPTCHA_INSTRUCTION.asString());
@@ -25,8 +25,11 @@
 package com.sobble.pleasejustlogin.bukkit.listener;
 
 import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
+import com.sobble.pleasejustlogin.common.manager.AccountManagement;
 import com.sobble.pleasejustlogin.common.model.Account;
 import com.sobble.pleasejustlogin.common.settings.Messages;
+import com.sobble.pleasejustlogin.common.settings.Settings;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
@@ -38,11 +41,14 @@ import org.bukkit.event.player.PlayerKickEvent;
 import org.bukkit.event.player.PlayerLoginEvent;
 
 import java.util.Optional;
+import java.util.UUID;
 import java.util.regex.Pattern;
 
 @RequiredArgsConstructor
 public class PlayerKickListeners implements Listener {
 
+    // from pre-login to join, usually a few seconds
+    private static final long PREFETCH_MILLIS = 30000;
     private static final Pattern VALID_NICK = Pattern.compile("([a-zA-Z0-9_]{3,16})|(\\*[a-zA-Z0-9_]{3,17})");
 
     private final OpenLoginBukkit plugin;
@@ -64,7 +70,10 @@ public class PlayerKickListeners implements Listener {
             return;
         }
 
-        Optional<Account> accountOpt = plugin.getAccountManagement().retrieveOrLoad(name);
+        // the account stays cached for the login command
+        AccountManagement accountManagement = plugin.getAccountManagement();
+        Optional<Account> accountOpt = Settings.DATABASE_CACHE_PREFETCH_ON_LOGIN.asBoolean() ?
+                accountManagement.prefetch(name, PREFETCH_MILLIS) : accountManagement.retrieveOrLoad(name);
         if (accountOpt.isPresent()) {
             Account account = accountOpt.get();
             String realname = account.getRealName();
@@ -73,8 +82,20 @@ public class PlayerKickListeners implements Listener {
                         .replace("{0}", name)
                         .replace("{1}", realname);
                 e.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, kickMessage);
+                return;
             }
         }
+
+        // resolved here, so the join doesn't wait for the database
+        plugin.getSessionManager().create(e.getUniqueId(), name, e.getAddress()).resolve(accountOpt.isPresent());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLoginResult(AsyncPlayerPreLoginEvent e) {
+        if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            plugin.getAccountManagement().releasePrefetch(e.getName());
+            discardSession(e.getUniqueId());
+        }
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
@@ -87,17 +108,32 @@ public class PlayerKickListeners implements Listener {
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLoginResult(PlayerLoginEvent e) {
+        if (e.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            plugin.getAccountManagement().releasePrefetch(e.getPlayer().getName());
+            discardSession(e.getPlayer().getUniqueId());
+        }
+    }
+
     @EventHandler(priority = EventPriority.LOW)
     public void onPlayerKick(PlayerKickEvent e) {
         String reason = e.getReason();
 
         // prevent kick online players
         if (reason.contains("You logged in from another location")) {
-            String name = e.getPlayer().getName();
-            if (plugin.getLoginManagement().isAuthenticated(name)) {
+            if (plugin.getSessionManager().isAuthenticated(e.getPlayer())) {
                 e.setCancelled(true);
             }
         }
     }
 
+    private void discardSession(UUID uniqueId) {
+        // keep the session of a player that is still online
+        AuthSession session = plugin.getSessionManager().get(uniqueId);
+        if (session != null && Bukkit.getPlayer(uniqueId) == null) {
+            plugin.getSessionManager().remove(uniqueId, session);
+        }
+    }
+
 }
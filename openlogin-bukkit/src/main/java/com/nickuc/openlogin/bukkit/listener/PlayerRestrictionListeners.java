@@ -0,0 +1,319 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.bukkit.listener;
+
+import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
+import com.sobble.pleasejustlogin.bukkit.session.Restriction;
+import com.sobble.pleasejustlogin.bukkit.session.RestrictionGate;
+import com.sobble.pleasejustlogin.bukkit.session.SessionManager;
+import com.sobble.pleasejustlogin.common.settings.Settings;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.SignChangeEvent;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityRegainHealthEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.player.*;
+
+/**
+ * Cancels everything a player does before logging in, according to the {@link Restriction} bits of their session.
+ * <p>
+ * These listeners are only registered by the {@link RestrictionGate} while a restricted player is online.
+ * Commands and chat are cancelled by the always registered {@link PlayerChatListeners}.
+ */
+public class PlayerRestrictionListeners implements Listener {
+
+    private final OpenLoginBukkit plugin;
+    // Settings.FREEZE_MODE, read once instead of on every move
+    private volatile boolean clampFreeze;
+
+    public PlayerRestrictionListeners(OpenLoginBukkit plugin) {
+        this.plugin = plugin;
+        reloadSettings();
+    }
+
+    /**
+     * Reads the settings used by the listeners again, e.g. after /plsjstlogin reload.
+     */
+    public void reloadSettings() {
+        clampFreeze = "clamp".equalsIgnoreCase(Settings.FREEZE_MODE.asString());
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPlayerMove(PlayerMoveEvent e) {
+        if (e.isCancelled()) return;
+
+        AuthSession session = plugin.getSessionManager().get(e.getPlayer());
+        if (session == null) {
+            // a player without a session hasn't logged in, e.g. after a reload
+            if (!SessionManager.isNpc(e.getPlayer())) e.setCancelled(true);
+            return;
+        }
+        if (!session.isRestricted(Restriction.MOVE)) return;
+        if (e instanceof PlayerTeleportEvent && session.consumeLoginTeleport()) return;
+
+        Location to = e.getTo();
+        if (to == null) return;
+
+        if (!clampFreeze) {
+            // Hold the player at one location per session, the server compares 'to' with a copy of it
+            session.freeze(e.getFrom(), to);
+            return;
+        }
+
+        Location from = e.getFrom();
+        
+        // Allow looking around (pitch/yaw changes) but prevent position changes
+        if (from.getX() == to.getX() && from.getY() == to.getY() && from.getZ() == to.getZ()) {
+            // Only rotation changed, allow it
+            return;
+        }
+        
+        // Always construct a corrected location to prevent horizontal drift during falling
+        Location newLoc = from.clone();
+        
+        // Preserve rotation
+        newLoc.setYaw(to.getYaw());
+        newLoc.setPitch(to.getPitch());
+        
+        // Clamp X and Z to prevent horizontal movement
+        newLoc.setX(from.getX());
+        newLoc.setZ(from.getZ());
+        
+        // Prevent all vertical movement to avoid void death
+        newLoc.setY(from.getY());
+        
+        // Fix "too many packets" disconnect by using PlayerMoveEvent#setTo instead of Player#teleport
+        e.setTo(newLoc);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent e) {
+        AuthSession session = plugin.getSessionManager().get(e.getPlayer());
+        if (session != null && session.isRestricted(Restriction.MOVE) && e.getTo() != null) {
+            session.setAnchor(e.getTo());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onBlockPlace(BlockPlaceEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.BUILD)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onBlockBreak(BlockBreakEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.BUILD)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onEntityDamageEvent(EntityDamageEvent e) {
+        if (e.getCause() == EntityDamageEvent.DamageCause.SUICIDE) return;
+        if (e.isCancelled()) return;
+        if (!(e.getEntity() instanceof Player)) return;
+
+        Player player = ((Player) e.getEntity());
+        if (plugin.getSessionManager().isRestricted(player, Restriction.DAMAGE)) {
+            e.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onEntityRegainHealth(EntityRegainHealthEvent e) {
+        if (e.isCancelled()) return;
+        if (!(e.getEntity() instanceof Player)) return;
+
+        Player player = (Player) e.getEntity();
+        if (plugin.getSessionManager().isRestricted(player, Restriction.DAMAGE)) {
+            e.setCancelled(true);
+        }
+    }
+
+    @EventHandler
+    public void onInventoryOpen(InventoryOpenEvent e) {
+        Player player = (Player) e.getPlayer();
+        if (plugin.getSessionManager().isRestricted(player, Restriction.INVENTORY)) {
+            e.setCancelled(true);
+            plugin.getFoliaLib().runAtEntity(player, task -> player.closeInventory());
+        }
+    }
+
+    @EventHandler
+    public void onInventoryClick(InventoryClickEvent e) {
+        if (plugin.getSessionManager().isRestricted((Player) e.getWhoClicked(), Restriction.INVENTORY)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPlayerDropItem(PlayerDropItemEvent e) {
+        if (e.isCancelled()) return;
+
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INVENTORY)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerInteract(PlayerInteractEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INTERACT)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerInteractEntity(PlayerInteractEntityEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INTERACT)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onEntityDamageByEntity(EntityDamageByEntityEvent e) {
+        if (e.getCause() == EntityDamageEvent.DamageCause.SUICIDE) return;
+        if (e.isCancelled()) return;
+
+        if (e.getEntity() instanceof Player) {
+            Player player = (Player) e.getEntity();
+            if (plugin.getSessionManager().isRestricted(player, Restriction.DAMAGE)) {
+                e.setCancelled(true);
+                return;
+            }
+        }
+
+        if (e.getDamager() instanceof Player) {
+            Player player = (Player) e.getDamager();
+            if (plugin.getSessionManager().isRestricted(player, Restriction.DAMAGE)) {
+                e.setCancelled(true);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerShearEntity(PlayerShearEntityEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INTERACT)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerFish(PlayerFishEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INTERACT)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerBedEnter(PlayerBedEnterEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INTERACT)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerEditBook(PlayerEditBookEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INTERACT)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onSignChange(SignChangeEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.BUILD)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerItemHeld(PlayerItemHeldEvent e) {
+        Player player = e.getPlayer();
+        AuthSession session = plugin.getSessionManager().get(player);
+        if (plugin.getSessionManager().isRestricted(player, Restriction.INVENTORY)) {
+            // Allow switching to CAPTCHA map slot if CAPTCHA is enabled
+            boolean captchaEnabled = Settings.CAPTCHA_ENABLED.asBoolean();
+            if (captchaEnabled && session != null && plugin.getCaptchaManager().hasCaptcha(player, session)) {
+                int captchaSlot = Settings.CAPTCHA_MAP_SLOT.asInt();
+                // If slot is invalid, allow all switching since map is in arbitrary slot
+                if (captchaSlot < 0 || captchaSlot > 8) {
+                    return;
+                }
+                // Allow switching to the CAPTCHA slot or from it
+                if (e.getNewSlot() == captchaSlot || e.getPreviousSlot() == captchaSlot) {
+                    return; // Don't cancel, allow the switch
+                }
+            }
+            e.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerItemConsume(PlayerItemConsumeEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INVENTORY)) e.setCancelled(true);
+    }
+
+    @SuppressWarnings("deprecation")
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerPickupItem(PlayerPickupItemEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INVENTORY)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerSwapHandItems(PlayerSwapHandItemsEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INVENTORY)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerArmorStandManipulate(PlayerArmorStandManipulateEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INTERACT)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onVehicleEnter(org.bukkit.event.vehicle.VehicleEnterEvent e) {
+        if (e.getEntered() instanceof Player) {
+            if (plugin.getSessionManager().isRestricted((Player) e.getEntered(), Restriction.INTERACT)) e.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onVehicleExit(org.bukkit.event.vehicle.VehicleExitEvent e) {
+        if (e.getExited() instanceof Player) {
+            if (plugin.getSessionManager().isRestricted((Player) e.getExited(), Restriction.INTERACT)) e.setCancelled(true);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerPortal(PlayerPortalEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.INTERACT)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerBucketFill(PlayerBucketFillEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.BUILD)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerBucketEmpty(PlayerBucketEmptyEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.BUILD)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerToggleSneak(PlayerToggleSneakEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.MOVE)) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerToggleSprint(PlayerToggleSprintEvent e) {
+        if (plugin.getSessionManager().isRestricted(e.getPlayer(), Restriction.MOVE)) e.setCancelled(true);
+    }
+}
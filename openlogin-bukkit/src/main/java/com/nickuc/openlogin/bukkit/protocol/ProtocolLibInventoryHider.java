@@ -58,7 +58,7 @@ public class ProtocolLibInventoryHider {
             @Override
             public void onPacketSending(PacketEvent event) {
                 Player player = event.getPlayer();
-                if (!ProtocolLibInventoryHider.this.plugin.getLoginManagement().isAuthenticated(player.getName())) {
+                if (!ProtocolLibInventoryHider.this.plugin.getSessionManager().isAuthenticated(player)) {
                     // Check if CAPTCHA is enabled
                     boolean captchaEnabled = Settings.CAPTCHA_ENABLED.asBoolean();
                     if (captchaEnabled && event.getPacketType() == PacketType.Play.Server.SET_SLOT) {
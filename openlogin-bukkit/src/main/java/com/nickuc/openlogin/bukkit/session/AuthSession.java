@@ -0,0 +1,385 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.bukkit.session;
+
+import com.sobble.pleasejustlogin.bukkit.captcha.CaptchaSession;
+import com.sobble.pleasejustlogin.common.util.TimerWheel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import javax.annotation.Nullable;
+import java.net.InetAddress;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * The login state of a connecting or online player.
+ * <p>
+ * A session is created on pre-login, off the main thread, where it also learns whether the
+ * player is registered. The join only reads the resolved state, so it never waits for the database.
+ * It holds everything tied to the player until they quit: the authentication, the restrictions,
+ * the login timeout, the captcha, the location to return to and the rate limit key.
+ * <p>
+ * The state is never locked: reading it is a single volatile read, so the many listeners that
+ * check it on every event don't contend, and every change is a compare-and-set. That way a login
+ * that completes while the player times out either wins or is refused, never both.
+ */
+public class AuthSession {
+
+    // time between two commands of the same player
+    private static final long COMMAND_COOLDOWN = 750L;
+
+    private static final AtomicReferenceFieldUpdater<AuthSession, State> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(AuthSession.class, State.class, "state");
+    private static final AtomicLongFieldUpdater<AuthSession> COMMAND_UNLOCK =
+            AtomicLongFieldUpdater.newUpdater(AuthSession.class, "commandUnlock");
+    private static final AtomicReferenceFieldUpdater<AuthSession, TimerWheel.Timeout> LOGIN_TIMEOUT =
+            AtomicReferenceFieldUpdater.newUpdater(AuthSession.class, TimerWheel.Timeout.class, "loginTimeout");
+
+    public enum State {
+        /**
+         * Not known yet whether the player is registered.
+         */
+        RESOLVING,
+        /**
+         * Registered, has to log in.
+         */
+        LOGIN,
+        /**
+         * Not registered, has to register.
+         */
+        REGISTER,
+        /**
+         * Logged in or registered.
+         */
+        AUTHENTICATED,
+        /**
+         * Didn't log in in time, being kicked.
+         */
+        TIMED_OUT
+    }
+
+    @Getter
+    private final UUID uniqueId;
+    @Getter
+    private final String name;
+    @Getter
+    @Nullable
+    private final String address;
+    @Getter
+    private final String rateLimitKey;
+
+    @Getter
+    private volatile State state = State.RESOLVING;
+
+    // restriction bits, and whether the player is online and counted by the gate
+    private final RestrictionGate gate;
+    private volatile int restrictions = Restriction.ALL;
+    private volatile boolean online;
+    private boolean gated;
+    private volatile long commandUnlock;
+
+    // login timeout, null while not waiting for the player
+    private volatile TimerWheel.Timeout loginTimeout;
+
+    private final AtomicReference<CaptchaSession> captcha = new AtomicReference<>();
+
+    // where the player returns after logging in, and whether the teleport to the spawn is pending
+    @Getter
+    @Setter
+    @Nullable
+    private volatile Location loginLocation;
+    private volatile boolean loginTeleport;
+
+    // where a restricted player is held, only set from the thread of the player, the world is null until the first move
+    private volatile World anchorWorld;
+    private double anchorX, anchorY, anchorZ;
+
+    /**
+     * Creates a new session.
+     *
+     * @param uniqueId the unique id of the player
+     * @param name     the name of the player
+     * @param address  the address of the player, if known
+     * @param gate     the gate counting restricted players
+     */
+    public AuthSession(@NonNull UUID uniqueId, @NonNull String name, @Nullable InetAddress address, @NonNull RestrictionGate gate) {
+        this.uniqueId = uniqueId;
+        this.name = name;
+        this.address = address == null || address.isLoopbackAddress() ? null : address.getHostAddress();
+        // players connecting through a local proxy share its address
+        this.rateLimitKey = this.address != null ? this.address : "uuid:" + uniqueId;
+        this.gate = gate;
+    }
+
+    /**
+     * Sets whether the player is registered, leaving {@link State#RESOLVING}.
+     *
+     * @param registered should be true if the player is registered
+     */
+    public void resolve(boolean registered) {
+        STATE.compareAndSet(this, State.RESOLVING, registered ? State.LOGIN : State.REGISTER);
+    }
+
+    public boolean isResolved() {
+        return state != State.RESOLVING;
+    }
+
+    public boolean isRegistered() {
+        return state == State.LOGIN;
+    }
+
+    public boolean isAuthenticated() {
+        return state == State.AUTHENTICATED;
+    }
+
+    /**
+     * Checks if the player is restricted from something.
+     *
+     * @param restriction the {@link Restriction} bits to check
+     * @return true if any of them is set
+     */
+    public boolean isRestricted(int restriction) {
+        return (restrictions & restriction) != 0;
+    }
+
+    /**
+     * Marks the player as online, so their restrictions count for the {@link RestrictionGate}.
+     */
+    public void attach() {
+        online = true;
+        updateGate();
+    }
+
+    /**
+     * Marks the player as offline, e.g. when they quit.
+     */
+    public void detach() {
+        online = false;
+        updateGate();
+    }
+
+    /**
+     * Marks the player as authenticated, lifting the restrictions and stopping the login timeout.
+     *
+     * @return false if the player timed out in the meantime
+     */
+    public boolean authenticate() {
+        State current;
+        do {
+            current = state;
+            if (current == State.TIMED_OUT) {
+                return false;
+            }
+        } while (current != State.AUTHENTICATED && !STATE.compareAndSet(this, current, State.AUTHENTICATED));
+        setRestrictions(Restriction.NONE);
+        stopLoginTimeout();
+        return true;
+    }
+
+    /**
+     * Revokes the authentication, e.g. when the password of the player was removed.
+     *
+     * @param registered should be true if the player still has an account
+     */
+    public void revoke(boolean registered) {
+        State target = registered ? State.LOGIN : State.REGISTER;
+        State current;
+        do {
+            current = state;
+            if (current == State.TIMED_OUT) {
+                return;
+            }
+        } while (!STATE.compareAndSet(this, current, target));
+        // held where the next move starts, not where the player was before logging in
+        anchorWorld = null;
+        setRestrictions(Restriction.ALL);
+    }
+
+    /**
+     * Ends the login time of a player that isn't authenticated.
+     *
+     * @return true if the player has to be kicked, false if they authenticated in the meantime
+     */
+    public boolean expire() {
+        State current;
+        do {
+            current = state;
+            if (current == State.AUTHENTICATED || current == State.TIMED_OUT) {
+                return false;
+            }
+        } while (!STATE.compareAndSet(this, current, State.TIMED_OUT));
+        stopLoginTimeout();
+        return true;
+    }
+
+    private void setRestrictions(int restrictions) {
+        this.restrictions = restrictions;
+        updateGate();
+    }
+
+    // counts this session while it is online and restricted, from the latest values
+    private synchronized void updateGate() {
+        boolean restricted = online && restrictions != Restriction.NONE;
+        if (restricted != gated) {
+            gated = restricted;
+            if (restricted) {
+                gate.acquire();
+            } else {
+                gate.release();
+            }
+        }
+    }
+
+    /**
+     * Checks if the player may run a command and, if so, locks commands for a short while.
+     *
+     * @return true if the player may run a command
+     */
+    public boolean tryLockCommands() {
+        long now = System.currentTimeMillis();
+        long unlock = commandUnlock;
+        return unlock - now < 0 && COMMAND_UNLOCK.compareAndSet(this, unlock, now + COMMAND_COOLDOWN);
+    }
+
+    /**
+     * Sets the login timeout, cancelling the previous one.
+     *
+     * @param timeout the new timeout, or null to only cancel the previous one
+     */
+    public void setLoginTimeout(@Nullable TimerWheel.Timeout timeout) {
+        TimerWheel.Timeout previous = LOGIN_TIMEOUT.getAndSet(this, timeout);
+        if (previous != null && previous != timeout) {
+            previous.cancel();
+        }
+    }
+
+    public void stopLoginTimeout() {
+        setLoginTimeout(null);
+    }
+
+    @Nullable
+    public CaptchaSession getCaptcha() {
+        return captcha.get();
+    }
+
+    public void setCaptcha(@Nullable CaptchaSession session) {
+        captcha.set(session);
+    }
+
+    /**
+     * Removes the captcha of the player.
+     *
+     * @return the removed captcha, or null if the player had none
+     */
+    @Nullable
+    public CaptchaSession takeCaptcha() {
+        return captcha.getAndSet(null);
+    }
+
+    /**
+     * Removes the location to return to after logging in.
+     *
+     * @return the removed location, or null if there is none
+     */
+    @Nullable
+    public Location takeLoginLocation() {
+        Location location = loginLocation;
+        loginLocation = null;
+        return location;
+    }
+
+    public void markLoginTeleport() {
+        loginTeleport = true;
+    }
+
+    /**
+     * Checks if the pending teleport to the spawn happened, clearing it.
+     *
+     * @return true if it was pending
+     */
+    public boolean consumeLoginTeleport() {
+        if (!loginTeleport) {
+            return false;
+        }
+        loginTeleport = false;
+        return true;
+    }
+
+    /**
+     * Holds the player in place, at the location of their first move or last teleport.
+     * <p>
+     * The anchor is written into the given target location, which keeps its rotation, so nothing is allocated.
+     *
+     * @param from where the player moves from
+     * @param to   where the player moves to, moved back to the anchor
+     * @return true if the player was moved back, false if the player only looked around
+     */
+    public boolean freeze(@NonNull Location from, @NonNull Location to) {
+        World world = anchorWorld;
+        if (world == null) {
+            setAnchor(from);
+            world = from.getWorld();
+        }
+        if (to.getWorld() == world && to.getX() == anchorX && to.getY() == anchorY && to.getZ() == anchorZ) {
+            return false;
+        }
+
+        to.setWorld(world);
+        to.setX(anchorX);
+        to.setY(anchorY);
+        to.setZ(anchorZ);
+        return true;
+    }
+
+    /**
+     * Moves the location where the player is held, e.g. after a teleport.
+     *
+     * @param location the new location
+     */
+    public void setAnchor(@NonNull Location location) {
+        anchorX = location.getX();
+        anchorY = location.getY();
+        anchorZ = location.getZ();
+        anchorWorld = location.getWorld();
+    }
+
+    /**
+     * Checks if this session belongs to the given player.
+     *
+     * @param uniqueId the unique id of the player
+     * @param name     the name of the player
+     * @return true if both match
+     */
+    public boolean isOwner(@NonNull UUID uniqueId, @NonNull String name) {
+        return this.uniqueId.equals(uniqueId) && this.name.equals(name);
+    }
+
+}
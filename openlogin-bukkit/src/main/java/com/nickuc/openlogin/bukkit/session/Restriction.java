@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.bukkit.session;
+
+/**
+ * The restrictions of an {@link AuthSession}, as bits of a mask.
+ * <p>
+ * Each restriction listener checks its own bit, so a single volatile read tells it whether to cancel.
+ */
+public final class Restriction {
+
+    /**
+     * Moving, sneaking and sprinting.
+     */
+    public static final int MOVE = 1;
+    /**
+     * Commands other than the allowed ones.
+     */
+    public static final int COMMANDS = 1 << 1;
+    public static final int CHAT = 1 << 2;
+    /**
+     * Placing and breaking blocks, editing signs and using buckets.
+     */
+    public static final int BUILD = 1 << 3;
+    /**
+     * Interacting with blocks and entities, including vehicles, beds and portals.
+     */
+    public static final int INTERACT = 1 << 4;
+    /**
+     * Opening and clicking inventories, dropping, picking up, holding and consuming items.
+     */
+    public static final int INVENTORY = 1 << 5;
+    /**
+     * Taking, dealing and regaining health.
+     */
+    public static final int DAMAGE = 1 << 6;
+
+    public static final int NONE = 0;
+    public static final int ALL = MOVE | COMMANDS | CHAT | BUILD | INTERACT | INVENTORY | DAMAGE;
+
+    private Restriction() {
+    }
+
+}
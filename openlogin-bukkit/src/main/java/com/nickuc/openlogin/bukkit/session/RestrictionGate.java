@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.bukkit.session;
+
+import lombok.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps the restriction listeners registered only while a restricted player is online.
+ * <p>
+ * Almost always every online player is authenticated, and then the listeners aren't called at
+ * all. The first restricted player registers them, and the last one to log in or quit unregisters them.
+ * The count changes on any thread (e.g. a login completing on the hashing threads), but the listeners
+ * are only registered and unregistered through the given executor, which may run it right away.
+ */
+public class RestrictionGate {
+
+    private final Runnable register;
+    private final Runnable unregister;
+    private final Executor mainThread;
+
+    // guarded by this
+    private int restricted;
+    private boolean registered;
+
+    /**
+     * Creates a new gate.
+     *
+     * @param register   registers the restriction listeners
+     * @param unregister unregisters the restriction listeners
+     * @param mainThread runs the registration on the main thread
+     */
+    public RestrictionGate(@NonNull Runnable register, @NonNull Runnable unregister, @NonNull Executor mainThread) {
+        this.register = register;
+        this.unregister = unregister;
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Counts a restricted player, registering the listeners for the first one.
+     */
+    public void acquire() {
+        boolean first;
+        synchronized (this) {
+            first = restricted++ == 0;
+        }
+        if (first) {
+            mainThread.execute(this::update);
+        }
+    }
+
+    /**
+     * Stops counting a restricted player, unregistering the listeners after the last one.
+     */
+    public void release() {
+        boolean last;
+        synchronized (this) {
+            last = --restricted == 0;
+        }
+        if (last) {
+            mainThread.execute(this::update);
+        }
+    }
+
+    // follows the count at the time it runs, so an acquire racing a release can't leave the listeners unregistered
+    private synchronized void update() {
+        boolean restrict = restricted > 0;
+        if (restrict != registered) {
+            registered = restrict;
+            if (restrict) {
+                register.run();
+            } else {
+                unregister.run();
+            }
+        }
+    }
+
+    public synchronized boolean isRegistered() {
+        return registered;
+    }
+
+    public synchronized String getStatus() {
+        return String.format("Restrictions: %d restricted players, listeners %s",
+                restricted, registered ? "registered" : "unregistered");
+    }
+
+}
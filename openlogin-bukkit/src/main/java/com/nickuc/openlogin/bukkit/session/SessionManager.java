@@ -0,0 +1,172 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.bukkit.session;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nullable;
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the {@link AuthSession} of every connecting and online player, by unique id.
+ */
+@RequiredArgsConstructor
+public class SessionManager {
+
+    @Getter
+    private final RestrictionGate gate;
+    private final Map<UUID, AuthSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the session of a player, replacing the previous one.
+     *
+     * @param uniqueId the unique id of the player
+     * @param name     the name of the player
+     * @param address  the address of the player, if known
+     * @return the new session
+     */
+    public AuthSession create(@NonNull UUID uniqueId, @NonNull String name, @Nullable InetAddress address) {
+        AuthSession session = new AuthSession(uniqueId, name, address, gate);
+        AuthSession previous = sessions.put(uniqueId, session);
+        if (previous != null) {
+            previous.detach();
+            previous.stopLoginTimeout();
+        }
+        return session;
+    }
+
+    @Nullable
+    public AuthSession get(@NonNull UUID uniqueId) {
+        return sessions.get(uniqueId);
+    }
+
+    @Nullable
+    public AuthSession get(@NonNull Player player) {
+        return sessions.get(player.getUniqueId());
+    }
+
+    /**
+     * Returns the session of an online player.
+     *
+     * @param name the name of the player
+     * @return the session, or null if the player is offline
+     */
+    @Nullable
+    public AuthSession getByName(@NonNull String name) {
+        Player player = Bukkit.getPlayerExact(name);
+        return player == null ? null : sessions.get(player.getUniqueId());
+    }
+
+    /**
+     * Checks if the player is authenticated. Players without a session (e.g. NPCs) never are.
+     *
+     * @param player the player
+     * @return true if authenticated
+     */
+    public boolean isAuthenticated(@NonNull Player player) {
+        AuthSession session = sessions.get(player.getUniqueId());
+        return session != null && session.isAuthenticated();
+    }
+
+    /**
+     * Checks if the player is restricted from something. Players without a session are restricted
+     * from everything, except NPCs.
+     *
+     * @param player      the player
+     * @param restriction the {@link Restriction} bits to check
+     * @return true if any of them is set
+     */
+    public boolean isRestricted(@NonNull Player player, int restriction) {
+        AuthSession session = sessions.get(player.getUniqueId());
+        return session == null ? !isNpc(player) : session.isRestricted(restriction);
+    }
+
+    /**
+     * Checks if the player is restricted from something. Players without a session are restricted from everything.
+     *
+     * @param uniqueId    the unique id of the player
+     * @param restriction the {@link Restriction} bits to check
+     * @return true if any of them is set
+     */
+    public boolean isRestricted(@NonNull UUID uniqueId, int restriction) {
+        AuthSession session = sessions.get(uniqueId);
+        return session == null || session.isRestricted(restriction);
+    }
+
+    /**
+     * Checks if the player is an NPC of another plugin, which never logs in.
+     *
+     * @param player the player
+     * @return true if the player has the NPC metadata
+     */
+    public static boolean isNpc(@NonNull Player player) {
+        return player.hasMetadata("NPC");
+    }
+
+    /**
+     * Returns the session of a player, or creates an unresolved one if the player has none
+     * or it was created for another name.
+     *
+     * @param uniqueId the unique id of the player
+     * @param name     the name of the player
+     * @param address  the address of the player, if known
+     * @return the session
+     */
+    public AuthSession getOrCreate(@NonNull UUID uniqueId, @NonNull String name, @Nullable InetAddress address) {
+        AuthSession session = sessions.get(uniqueId);
+        return session != null && session.isOwner(uniqueId, name) ? session : create(uniqueId, name, address);
+    }
+
+    /**
+     * Removes the session of a player, unless it was replaced meanwhile, e.g. by a reconnect
+     * whose join ran before the quit of the old connection.
+     *
+     * @param uniqueId the unique id of the player
+     * @param session  the session to remove
+     */
+    public void remove(@NonNull UUID uniqueId, @NonNull AuthSession session) {
+        if (sessions.remove(uniqueId, session)) {
+            session.detach();
+            session.stopLoginTimeout();
+        }
+    }
+
+    public Collection<AuthSession> getSessions() {
+        return sessions.values();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+}
@@ -25,79 +25,76 @@
 package com.sobble.pleasejustlogin.bukkit.task;
 
 import com.sobble.pleasejustlogin.bukkit.OpenLoginBukkit;
+import com.sobble.pleasejustlogin.bukkit.session.AuthSession;
+import com.sobble.pleasejustlogin.bukkit.ui.chat.ActionbarAPI;
 import com.sobble.pleasejustlogin.common.settings.Messages;
 import com.sobble.pleasejustlogin.common.settings.Settings;
+import com.sobble.pleasejustlogin.common.util.TimerWheel;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import org.bukkit.Server;
 import org.bukkit.entity.Player;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Kicks players that don't log in in time.
+ * <p>
+ * Every waiting player has a single timeout on a {@link TimerWheel}, held by their session, so a
+ * login or a quit cancels it right away and a second of the task only touches the timeouts due in it.
+ * With the countdown enabled the timeout moves forward one second at a time, showing the time left.
+ */
+@RequiredArgsConstructor
 public class LoginQueue {
 
-    private static final ConcurrentHashMap<String, PlayerLogin> pendingLogin = new ConcurrentHashMap<>();
+    private final OpenLoginBukkit plugin;
+    private final TimerWheel wheel = new TimerWheel(1000L);
 
     /**
      * Starts the global timeout task.
-     *
-     * @param plugin the plugin instance
      */
-    public static void startTask(OpenLoginBukkit plugin) {
-        final Server server = plugin.getServer();
-        plugin.getFoliaLib().runTimerAsync(() -> {
-            if (pendingLogin.isEmpty()) return;
-
-            for (Map.Entry<String, PlayerLogin> entry : pendingLogin.entrySet()) {
-                String name = entry.getKey();
-                Player player = server.getPlayer(name);
-                if (player == null || plugin.getLoginManagement().isAuthenticated(name)) {
-                    pendingLogin.remove(name);
-                    return;
-                }
-
-                PlayerLogin playerLogin = entry.getValue();
-                int seconds = playerLogin.seconds;
-                if (seconds >= Settings.TIME_TO_LOGIN.asInt()) {
-                    plugin.getFoliaLib().runAtEntity(player, task -> player.kickPlayer(playerLogin.registered ? Messages.DELAY_KICK_LOGIN.asString() : Messages.DELAY_KICK_REGISTER.asString()));
-                    pendingLogin.remove(name);
-                    return;
-                }
-                playerLogin.addSecond();
-            }
-        }, 0, 20);
+    public void startTask() {
+        plugin.getFoliaLib().runTimerAsync(() -> wheel.advance(System.currentTimeMillis()), 20, 20);
     }
 
     /**
      * Add a player to timeout timer.
      *
-     * @param name       the name of the player
-     * @param registered should be true if the player is registered
+     * @param session the session of the player
      */
-    public static void addToQueue(@NonNull String name, boolean registered) {
-        pendingLogin.put(name, new PlayerLogin(registered));
+    public void addToQueue(@NonNull AuthSession session) {
+        schedule(session, System.currentTimeMillis() + Settings.TIME_TO_LOGIN.asInt() * 1000L);
     }
 
-    /**
-     * Removes a player from timeout timer.
-     *
-     * @param name the name of the player
-     */
-    public static void removeFromQueue(@NonNull String name) {
-        pendingLogin.remove(name);
+    private void schedule(AuthSession session, long deadline) {
+        long remaining = deadline - System.currentTimeMillis();
+        long delay = remaining > 0 && Settings.LOGIN_COUNTDOWN.asBoolean() ? (remaining - 1) % 1000L + 1 : remaining;
+        session.setLoginTimeout(wheel.schedule(() -> run(session, deadline), delay, TimeUnit.MILLISECONDS));
     }
 
-    // Player login class
-    @RequiredArgsConstructor
-    private static class PlayerLogin {
-
-        private final boolean registered;
-        private int seconds;
+    private void run(AuthSession session, long deadline) {
+        // authenticated or quit in the meantime
+        if (session.isAuthenticated() || plugin.getSessionManager().get(session.getUniqueId()) != session) {
+            return;
+        }
 
-        public void addSecond() {
-            seconds++;
+        Player player = plugin.getServer().getPlayer(session.getUniqueId());
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining > 0) {
+            if (player != null) {
+                String message = Messages.DELAY_KICK_COUNTDOWN.asString("§eTime left: §f{0}s")
+                        .replace("{0}", String.valueOf((remaining + 999) / 1000));
+                plugin.getFoliaLib().runAtEntity(player, task -> ActionbarAPI.getApi().send(player, message));
+            }
+            schedule(session, deadline);
+            return;
         }
 
+        boolean registered = session.isRegistered();
+        if (!session.expire()) {
+            return;
+        }
+        if (player != null) {
+            plugin.getFoliaLib().runAtEntity(player, task -> player.kickPlayer(registered ? Messages.DELAY_KICK_LOGIN.asString() : Messages.DELAY_KICK_REGISTER.asString()));
+        }
     }
 }
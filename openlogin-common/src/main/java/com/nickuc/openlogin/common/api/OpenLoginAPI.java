@@ -30,7 +30,14 @@ import lombok.NonNull;
 
 import javax.annotation.Nullable;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * The plugin API.
+ * <p>
+ * The blocking methods may query the database and should not be called from the main thread,
+ * use the {@code *Async} variants there.
+ */
 public interface OpenLoginAPI {
 
     static OpenLoginAPI getApi() {
@@ -107,4 +114,48 @@ public interface OpenLoginAPI {
         return update(player, password, true);
     }
 
+    /**
+     * Get the player account without blocking the caller.
+     *
+     * @param player the name of player
+     * @return a future of the {@link Account}
+     */
+    default CompletableFuture<Optional<Account>> getAccountAsync(@NonNull String player) {
+        return CompletableFuture.supplyAsync(() -> getAccount(player));
+    }
+
+    /**
+     * Checks if the password provided is valid without blocking the caller.
+     *
+     * @param player   the name of the player
+     * @param password the password to compare
+     * @return a future completed with true if the passwords match
+     */
+    default CompletableFuture<Boolean> comparePasswordAsync(@NonNull String player, @NonNull String password) {
+        return CompletableFuture.supplyAsync(() -> comparePassword(player, password));
+    }
+
+    /**
+     * Checks if the player is registered without blocking the caller.
+     *
+     * @param player the name of the player
+     * @return a future completed with true if registered
+     */
+    default CompletableFuture<Boolean> isRegisteredAsync(@NonNull String player) {
+        return CompletableFuture.supplyAsync(() -> isRegistered(player));
+    }
+
+    /**
+     * Update the player's data without blocking the caller.
+     *
+     * @param player   the name of the player
+     * @param password the password to use
+     * @param address  the player address
+     * @param replace  forces update if player data exists
+     * @return a future completed with true on success
+     */
+    default CompletableFuture<Boolean> updateAsync(@NonNull String player, @NonNull String password, @Nullable String address, boolean replace) {
+        return CompletableFuture.supplyAsync(() -> update(player, password, address, replace));
+    }
+
 }
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+import lombok.NonNull;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Copies the accounts of the {@code openlogin} table into a {@link LogAccountStore}.
+ * <p>
+ * Meant to run before the store is used, e.g. right after it was created. The table is only read.
+ */
+public class AccountLogConverter {
+
+    /**
+     * Copies every account that the log doesn't contain yet.
+     *
+     * @param source the database with the {@code openlogin} table
+     * @param target the log to fill
+     * @return the number of copied accounts
+     * @throws SQLException on failure, the accounts copied so far are kept
+     */
+    public static long convert(@NonNull Database source, @NonNull LogAccountStore target) throws SQLException {
+        long converted = 0;
+        try (Database.Query query = source.query("SELECT `name`, `realname`, `password`, `address`, `lastlogin`, `regdate` FROM `openlogin`")) {
+            ResultSet resultSet = query.resultSet;
+            while (resultSet.next()) {
+                String name = resultSet.getString("name");
+                String realName = resultSet.getString("realname");
+                String hashedPassword = resultSet.getString("password");
+                if (realName == null || !realName.equalsIgnoreCase(name)) {
+                    realName = name;
+                }
+                if (realName == null || hashedPassword == null) {
+                    continue;
+                }
+                Account account = new Account(realName, hashedPassword, resultSet.getString("address"),
+                        resultSet.getLong("lastlogin"), resultSet.getLong("regdate"));
+                if (target.load(account)) {
+                    converted++;
+                }
+            }
+        } finally {
+            target.sync();
+        }
+        return converted;
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+import lombok.NonNull;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Storage of the registered accounts.
+ * <p>
+ * Accounts are keyed by their lowercase name. Implementations must be safe to use from
+ * several threads.
+ */
+public interface AccountStore {
+
+    /**
+     * Finds an account.
+     *
+     * @param key the lowercase name
+     * @return the account, or empty if not registered
+     * @throws SQLException on failure
+     */
+    Optional<Account> find(@NonNull String key) throws SQLException;
+
+    /**
+     * Counts the accounts registered from an address.
+     *
+     * @param address the IP address
+     * @return the number of accounts
+     * @throws SQLException on failure
+     */
+    int countByAddress(@NonNull String address) throws SQLException;
+
+    /**
+     * Inserts a new account.
+     *
+     * @param account the account to insert
+     * @throws SQLException on failure, including if the account already exists
+     */
+    void insert(@NonNull Account account) throws SQLException;
+
+    /**
+     * Inserts a new account only if fewer than the given number of accounts use its address.
+     * The check and the insert are atomic.
+     *
+     * @param account       the account to insert, with a non-null address
+     * @param maxPerAddress the maximum number of accounts per address
+     * @return true if inserted, false if the limit was reached
+     * @throws SQLException on failure, including if the account already exists
+     */
+    boolean insertUnderAddressLimit(@NonNull Account account, int maxPerAddress) throws SQLException;
+
+    /**
+     * Inserts an account, or updates the password, address and last login of an existing one.
+     * The stored real name and registration date are kept.
+     *
+     * @param account the account to store
+     * @throws SQLException on failure
+     */
+    void upsert(@NonNull Account account) throws SQLException;
+
+    /**
+     * Inserts an account if its name is not registered yet.
+     *
+     * @param account the account to insert
+     * @return true if inserted
+     * @throws SQLException on failure
+     */
+    boolean insertIfAbsent(@NonNull Account account) throws SQLException;
+
+    /**
+     * Inserts the accounts whose names are not registered yet, all at once.
+     *
+     * @param accounts the accounts to insert
+     * @return the inserted accounts
+     * @throws SQLException on failure, in which case some of them may have been inserted
+     */
+    List<Account> insertAllIfAbsent(@NonNull List<Account> accounts) throws SQLException;
+
+    /**
+     * Updates the address and last login of existing accounts. The password is never written,
+     * so a queued login can't revert a password change. Accounts that are no longer registered are skipped.
+     *
+     * @param accounts the accounts to update
+     * @throws SQLException on failure, in which case some of them may not have been written
+     */
+    void updateAll(@NonNull Collection<Account> accounts) throws SQLException;
+
+    /**
+     * Deletes an account.
+     *
+     * @param key the lowercase name
+     * @return true if the account existed
+     * @throws SQLException on failure
+     */
+    boolean delete(@NonNull String key) throws SQLException;
+
+    /**
+     * Moves an account to a new name, keeping the rest of its data.
+     *
+     * @param oldKey  the current lowercase name
+     * @param newName the new name
+     * @return true if moved, false if the account doesn't exist or the new name is taken
+     * @throws SQLException on failure
+     */
+    boolean rename(@NonNull String oldKey, @NonNull String newName) throws SQLException;
+
+    /**
+     * Counts the registered accounts.
+     *
+     * @return the number of accounts
+     * @throws SQLException on failure
+     */
+    long count() throws SQLException;
+
+    /**
+     * Visits the lowercase name of every registered account.
+     *
+     * @param consumer the consumer of the names
+     * @throws SQLException on failure
+     */
+    void forEachName(@NonNull Consumer<String> consumer) throws SQLException;
+
+    /**
+     * Visits the address of every registered account, once per account.
+     *
+     * @param consumer the consumer of the addresses, never given null
+     * @throws SQLException on failure
+     */
+    void forEachAddress(@NonNull Consumer<String> consumer) throws SQLException;
+
+    /**
+     * Visits every registered account, read in pages so the database is not held while the consumer runs.
+     *
+     * @param pageSize the number of accounts read at once
+     * @param consumer the consumer of the accounts
+     * @throws SQLException on failure
+     */
+    void forEachAccount(int pageSize, @NonNull Consumer<Account> consumer) throws SQLException;
+
+    /**
+     * Visits the lowercase names of the most recently used accounts, most recent first.
+     *
+     * @param limit    the maximum number of names
+     * @param consumer the consumer of the names
+     * @throws SQLException on failure
+     */
+    void forEachRecentName(int limit, @NonNull Consumer<String> consumer) throws SQLException;
+
+    /**
+     * Checks if every lookup is answered from memory, which makes a name filter useless.
+     *
+     * @return true if the store keeps an index of all names in memory
+     */
+    default boolean isIndexed() {
+        return false;
+    }
+
+    /**
+     * Gets a short summary of the store state, used for diagnostics.
+     *
+     * @return the status lines
+     */
+    default String[] getStatus() {
+        return new String[0];
+    }
+
+}
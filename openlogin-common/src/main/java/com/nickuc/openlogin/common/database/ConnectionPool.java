@@ -0,0 +1,228 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small bounded pool of JDBC connections.
+ * <p>
+ * Connections are created lazily up to {@code maxSize} and handed out exclusively,
+ * so statements cached on a connection are never shared between threads.
+ */
+public class ConnectionPool {
+
+    private final String name;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final int validationTimeout;
+    private final ConnectionFactory factory;
+    private final BlockingQueue<Connection> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private volatile boolean closed;
+
+    // metrics
+    @Getter
+    private final AtomicLong acquired = new AtomicLong();
+    @Getter
+    private final AtomicLong saturated = new AtomicLong();
+    @Getter
+    private final AtomicLong waitNanos = new AtomicLong();
+    @Getter
+    private final AtomicInteger peakInUse = new AtomicInteger();
+
+    public ConnectionPool(@NonNull String name, int maxSize, long acquireTimeoutMillis, @NonNull ConnectionFactory factory) {
+        this(name, maxSize, acquireTimeoutMillis, 0, factory);
+    }
+
+    /**
+     * Creates a pool that checks idle connections before handing them out, e.g. because
+     * a database server closes connections that were idle for too long.
+     *
+     * @param name                 the pool name, used in logs
+     * @param maxSize              the maximum number of connections
+     * @param acquireTimeoutMillis how long to wait for a free connection, in milliseconds
+     * @param validationTimeout    how long to wait for an idle connection check in seconds, 0 to not check
+     * @param factory              creates new connections
+     */
+    public ConnectionPool(@NonNull String name, int maxSize, long acquireTimeoutMillis, int validationTimeout, @NonNull ConnectionFactory factory) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationTimeout = Math.max(0, validationTimeout);
+        this.factory = factory;
+        this.idle = new ArrayBlockingQueue<>(maxSize);
+    }
+
+    /**
+     * Borrows a connection, creating one if the pool is not yet full.
+     *
+     * @return a connection for exclusive use
+     * @throws SQLException if the pool is closed or no connection became available in time
+     */
+    public Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("The " + name + " pool is closed");
+        }
+
+        Connection connection = idle.poll();
+        boolean fresh = false;
+        if (connection == null) {
+            connection = tryCreate();
+            fresh = connection != null;
+        }
+        if (connection == null) {
+            saturated.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                connection = idle.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a " + name + " connection", e);
+            } finally {
+                waitNanos.addAndGet(System.nanoTime() - start);
+            }
+            if (connection == null) {
+                throw new SQLException("Timed out after " + acquireTimeoutMillis + "ms waiting for a " + name + " connection");
+            }
+        }
+
+        if (connection.isClosed() || !fresh && validationTimeout > 0 && !connection.isValid(validationTimeout)) {
+            created.decrementAndGet();
+            closeQuietly(connection);
+            return acquire();
+        }
+
+        acquired.incrementAndGet();
+        int current = inUse.incrementAndGet();
+        peakInUse.accumulateAndGet(current, Math::max);
+        return connection;
+    }
+
+    /**
+     * Returns a borrowed connection to the pool.
+     *
+     * @param connection the connection to return
+     */
+    public void release(@NonNull Connection connection) {
+        inUse.decrementAndGet();
+        if (closed || !idle.offer(connection)) {
+            created.decrementAndGet();
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Closes every idle connection and rejects further acquisitions.
+     */
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            created.decrementAndGet();
+            closeQuietly(connection);
+        }
+    }
+
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public int getSize() {
+        return created.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets a one line summary of the pool usage.
+     *
+     * @return the pool status
+     */
+    public String getStatus() {
+        long acquisitions = acquired.get();
+        long saturations = saturated.get();
+        double avgWait = saturations == 0 ? 0 : waitNanos.get() / 1_000_000D / saturations;
+        return String.format("%s: %d/%d open, %d in use (peak %d), %d acquired, %d saturated (avg wait %.2fms)",
+                name, getSize(), maxSize, getInUse(), peakInUse.get(), acquisitions, saturations, avgWait);
+    }
+
+    private Connection tryCreate() throws SQLException {
+        while (true) {
+            int current = created.get();
+            if (current >= maxSize) {
+                return null;
+            }
+            if (created.compareAndSet(current, current + 1)) {
+                try {
+                    return factory.create();
+                } catch (SQLException | RuntimeException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        } finally {
+            factory.closed(connection);
+        }
+    }
+
+    // Connection factory
+    public interface ConnectionFactory {
+
+        Connection create() throws SQLException;
+
+        /**
+         * Called after the pool closed a connection.
+         *
+         * @param connection the closed connection
+         */
+        default void closed(Connection connection) {
+        }
+
+    }
+
+}
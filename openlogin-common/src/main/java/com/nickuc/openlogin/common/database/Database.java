@@ -25,10 +25,12 @@
 package com.sobble.pleasejustlogin.common.database;
 
 import java.io.Closeable;
+import java.io.File;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 
 public interface Database {
 
@@ -51,9 +53,10 @@ public interface Database {
      *
      * @param command the command to be executed
      * @param args    the command arguments
+     * @return the number of affected rows
      * @throws SQLException on failure
      */
-    void update(String command, Object... args) throws SQLException;
+    int update(String command, Object... args) throws SQLException;
 
     /**
      * Executes a query.
@@ -65,13 +68,130 @@ public interface Database {
      */
     Query query(String command, Object... args) throws SQLException;
 
+    /**
+     * Runs a unit of work in a single transaction.
+     * <p>
+     * The transaction is committed if the work returns normally and rolled back otherwise.
+     * The work must only use the given connection.
+     *
+     * @param transaction the work to run
+     * @param <T>         the result type
+     * @return the result of the work
+     * @throws SQLException on failure
+     */
+    <T> T transaction(Transaction<T> transaction) throws SQLException;
+
+    /**
+     * Registers a named statement.
+     * <p>
+     * Implementations may compile registered statements once per connection and reuse them.
+     *
+     * @param name    the statement name
+     * @param command the command of the statement
+     */
+    void registerStatement(String name, String command);
+
+    /**
+     * Gets the command of a registered statement.
+     *
+     * @param name the statement name
+     * @return the command
+     * @throws IllegalArgumentException if the statement is not registered
+     */
+    String getStatement(String name);
+
+    /**
+     * Executes an update using a registered statement.
+     *
+     * @param name the statement name
+     * @param args the command arguments
+     * @return the number of affected rows
+     * @throws SQLException on failure
+     */
+    default int updateStatement(String name, Object... args) throws SQLException {
+        return update(getStatement(name), args);
+    }
+
+    /**
+     * Executes a query using a registered statement.
+     *
+     * @param name the statement name
+     * @param args the command arguments
+     * @return an instance of {@link Query}
+     * @throws SQLException on failure
+     */
+    default Query queryStatement(String name, Object... args) throws SQLException {
+        return query(getStatement(name), args);
+    }
+
+    /**
+     * Writes a consistent copy of the database to a new file while it stays in use.
+     *
+     * @param target the file to create
+     * @throws SQLException on failure
+     * @throws SQLFeatureNotSupportedException if this database can't be copied to a file
+     */
+    default void backup(File target) throws SQLException {
+        throw new SQLFeatureNotSupportedException(getClass().getSimpleName() + " can't be copied to a file");
+    }
+
+    /**
+     * Gets the SQL dialect of this database.
+     *
+     * @return the dialect
+     */
+    default SqlDialect getDialect() {
+        return SqlDialect.SQLITE;
+    }
+
+    /**
+     * Gets a short summary of the connection state, used for diagnostics.
+     *
+     * @return the status lines
+     */
+    default String[] getStatus() {
+        return new String[]{getClass().getSimpleName() + ": single connection"};
+    }
+
+    @FunctionalInterface
+    interface Transaction<T> {
+
+        /**
+         * Runs the work of a transaction.
+         *
+         * @param connection the connection of the transaction
+         * @return the result of the work
+         * @throws SQLException on failure, rolling back the transaction
+         */
+        T run(Connection connection) throws SQLException;
+
+    }
+
     // Query class
     class Query implements Closeable {
 
         private final PreparedStatement preparedStatement;
+        private final Runnable release;
+        private final boolean cached;
+        private boolean closed;
         public final ResultSet resultSet;
 
         public Query(Connection connection, String command, Object... args) throws SQLException {
+            this(connection, null, command, args);
+        }
+
+        /**
+         * Creates a query that returns its connection once closed.
+         *
+         * @param connection the connection to use
+         * @param release    called after the statement is closed, may be null
+         * @param command    the command to be executed
+         * @param args       the command arguments
+         * @throws SQLException on failure
+         */
+        public Query(Connection connection, Runnable release, String command, Object... args) throws SQLException {
+            this.release = release;
+            this.cached = false;
             try {
                 preparedStatement = connection.prepareStatement(command);
                 for (int i = 0; i < args.length; i++) {
@@ -84,8 +204,36 @@ public interface Database {
             }
         }
 
+        /**
+         * Creates a query on a cached statement, which is kept open once the query is closed.
+         *
+         * @param preparedStatement the cached statement
+         * @param release           called after the query is closed, may be null
+         * @param command           the command of the statement
+         * @param args              the command arguments
+         * @throws SQLException on failure
+         */
+        public Query(PreparedStatement preparedStatement, Runnable release, String command, Object... args) throws SQLException {
+            this.preparedStatement = preparedStatement;
+            this.release = release;
+            this.cached = true;
+            try {
+                for (int i = 0; i < args.length; i++) {
+                    preparedStatement.setObject(i + 1, args[i]);
+                }
+                resultSet = preparedStatement.executeQuery();
+            } catch (SQLException e) {
+                close();
+                throw new SQLException("Failed to execute query statement: '" + command + "'", e);
+            }
+        }
+
         @Override
         public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
             try {
                 if (resultSet != null) {
                     resultSet.close();
@@ -94,10 +242,17 @@ public interface Database {
             }
             try {
                 if (preparedStatement != null) {
-                    preparedStatement.close();
+                    if (cached) {
+                        preparedStatement.clearParameters();
+                    } else {
+                        preparedStatement.close();
+                    }
                 }
             } catch (SQLException ignored) {
             }
+            if (release != null) {
+                release.run();
+            }
         }
 
     }
@@ -0,0 +1,777 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+import lombok.NonNull;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * An {@link AccountStore} kept in an append-only log with an in-memory index.
+ * <p>
+ * Every change appends a checksummed record to a memory-mapped file, and the index maps each
+ * name to the offset of its latest record, so a lookup is a hash lookup and a copy out of the
+ * page cache. Writes are serialized and forced to disk before they return, reads take no lock.
+ * <p>
+ * On startup the log is replayed up to the first damaged record, which drops a write torn by
+ * a crash. Replaced and deleted records stay in the file until {@link #compact()} copies the
+ * live records to a new generation of it.
+ */
+public class LogAccountStore implements AccountStore {
+
+    private static final int MAGIC = 0x504A4C4C;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 8;
+    // payload length, payload checksum and record type
+    private static final int RECORD_HEADER = 9;
+    // three strings of at most 65535 bytes each, plus the fixed fields
+    private static final int MAX_PAYLOAD = 1 << 18;
+    private static final byte PUT = 1, DELETE = 2;
+
+    private static final int MIN_CAPACITY = 1 << 20;
+    private static final int COPY_BUFFER = 1 << 20;
+    private static final long MIN_COMPACTION_GARBAGE = 1 << 20;
+
+    private final File folder;
+    private final Pattern filePattern;
+    private final String prefix;
+    // number of accounts of each address, only changed while holding the lock
+    private final ConcurrentHashMap<String, Integer> addresses = new ConcurrentHashMap<>();
+
+    private volatile Segment segment;
+    private FileChannel channel;
+    private File file;
+    private long generation;
+    private int end;
+    private long garbage;
+    private boolean created;
+
+    // metrics
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private int truncatedAt = -1;
+
+    /**
+     * Creates a new store. Its files are named {@code <prefix>.<generation>.log}.
+     *
+     * @param folder the folder of the log files
+     * @param prefix the name of the log files
+     */
+    public LogAccountStore(@NonNull File folder, @NonNull String prefix) {
+        this.folder = folder;
+        this.prefix = prefix;
+        this.filePattern = Pattern.compile(Pattern.quote(prefix) + "\\.(\\d+)\\.log");
+    }
+
+    /**
+     * Opens the latest generation of the log and replays it, creating an empty log if there is none.
+     *
+     * @throws SQLException if the log can't be read
+     */
+    public synchronized void open() throws SQLException {
+        try {
+            if (!folder.exists() && !folder.mkdirs()) {
+                throw new IOException("Failed to create " + folder);
+            }
+
+            // older generations and unfinished compactions are left over from a crash or a locked file
+            generation = 0;
+            File[] files = folder.listFiles();
+            if (files != null) {
+                for (File candidate : files) {
+                    Matcher matcher = filePattern.matcher(candidate.getName());
+                    if (matcher.matches()) {
+                        generation = Math.max(generation, Long.parseLong(matcher.group(1)));
+                    }
+                }
+                for (File candidate : files) {
+                    Matcher matcher = filePattern.matcher(candidate.getName());
+                    boolean old = matcher.matches() && Long.parseLong(matcher.group(1)) != generation;
+                    if (old || candidate.getName().startsWith(prefix + ".") && candidate.getName().endsWith(".log.tmp")) {
+                        candidate.delete();
+                    }
+                }
+            }
+            created = generation == 0;
+            if (created) {
+                generation = 1;
+            }
+
+            file = file(generation);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large");
+            }
+            MappedByteBuffer buffer = map(channel, Math.max(MIN_CAPACITY, (int) size));
+            if (buffer.getInt(0) == 0 && buffer.getInt(4) == 0) {
+                // new, or created right before a crash
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.force();
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " is not an account log of a supported version");
+            }
+            replay(buffer);
+        } catch (IOException e) {
+            throw new SQLException("Failed to open the account log", e);
+        }
+    }
+
+    /**
+     * Checks if {@link #open()} created a new log, e.g. to fill it from another store.
+     *
+     * @return true if there was no log before
+     */
+    public synchronized boolean isCreated() {
+        return created;
+    }
+
+    /**
+     * Forces pending writes to disk and closes the log.
+     */
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        segment.buffer.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    @Override
+    public Optional<Account> find(@NonNull String key) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return Optional.ofNullable(lookup(key));
+        } finally {
+            lookups.incrementAndGet();
+            lookupNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int countByAddress(@NonNull String address) {
+        return addresses.getOrDefault(address, 0);
+    }
+
+    @Override
+    public synchronized void insert(@NonNull Account account) throws SQLException {
+        checkAbsent(account);
+        try {
+            put(account);
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
+        sync();
+    }
+
+    @Override
+    public synchronized boolean insertUnderAddressLimit(@NonNull Account account, int maxPerAddress) throws SQLException {
+        checkAbsent(account);
+        if (account.getAddress() != null && countByAddress(account.getAddress()) >= maxPerAddress) {
+            return false;
+        }
+        try {
+            put(account);
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
+        sync();
+        return true;
+    }
+
+    @Override
+    public synchronized void upsert(@NonNull Account account) throws SQLException {
+        try {
+            put(merge(account));
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
+        sync();
+    }
+
+    @Override
+    public synchronized boolean insertIfAbsent(@NonNull Account account) throws SQLException {
+        if (!load(account)) {
+            return false;
+        }
+        sync();
+        return true;
+    }
+
+    @Override
+    public synchronized List<Account> insertAllIfAbsent(@NonNull List<Account> accounts) throws SQLException {
+        List<Account> inserted = new ArrayList<>(accounts.size());
+        try {
+            for (Account account : accounts) {
+                if (load(account)) {
+                    inserted.add(account);
+                }
+            }
+        } finally {
+            sync();
+        }
+        return inserted;
+    }
+
+    @Override
+    public synchronized void updateAll(@NonNull Collection<Account> accounts) throws SQLException {
+        try {
+            for (Account account : accounts) {
+                Integer offset = segment.index.get(account.getRealName().toLowerCase());
+                if (offset != null) {
+                    // keeps the stored password, only the login is written
+                    Account stored = readAccount(segment.buffer, offset);
+                    put(new Account(stored.getRealName(), stored.getHashedPassword(), account.getAddress(), account.getLastLogin(), stored.getRegDate()));
+                }
+            }
+        } catch (IOException e) {
+            throw writeFailed(e);
+        } finally {
+            sync();
+        }
+    }
+
+    @Override
+    public synchronized boolean delete(@NonNull String key) throws SQLException {
+        if (!segment.index.containsKey(key)) {
+            return false;
+        }
+        try {
+            remove(key);
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
+        sync();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean rename(@NonNull String oldKey, @NonNull String newName) throws SQLException {
+        Segment segment = this.segment;
+        Integer offset = segment.index.get(oldKey);
+        if (offset == null || segment.index.containsKey(newName.toLowerCase())) {
+            return false;
+        }
+        Account account = readAccount(segment.buffer, offset);
+        try {
+            // a crash between both records leaves the account under both names, never under none
+            put(new Account(newName, account.getHashedPassword(), account.getAddress(), account.getLastLogin(), account.getRegDate()));
+            remove(oldKey);
+        } catch (IOException e) {
+            throw writeFailed(e);
+        } finally {
+            sync();
+        }
+        return true;
+    }
+
+    @Override
+    public long count() {
+        return segment.index.size();
+    }
+
+    @Override
+    public void forEachName(@NonNull Consumer<String> consumer) {
+        segment.index.keySet().forEach(consumer);
+    }
+
+    @Override
+    public void forEachAddress(@NonNull Consumer<String> consumer) {
+        for (Map.Entry<String, Integer> entry : addresses.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                consumer.accept(entry.getKey());
+            }
+        }
+    }
+
+    @Override
+    public void forEachAccount(int pageSize, @NonNull Consumer<Account> consumer) {
+        for (String key : segment.index.keySet()) {
+            Account account = lookup(key);
+            if (account != null) {
+                consumer.accept(account);
+            }
+        }
+    }
+
+    @Override
+    public void forEachRecentName(int limit, @NonNull Consumer<String> consumer) {
+        if (limit <= 0) {
+            return;
+        }
+        // keeps the most recent accounts seen so far, least recent on top
+        PriorityQueue<Account> recent = new PriorityQueue<>(Comparator.comparingLong(Account::getLastLogin));
+        forEachAccount(0, account -> {
+            if (recent.size() < limit) {
+                recent.add(account);
+            } else if (account.getLastLogin() > recent.peek().getLastLogin()) {
+                recent.poll();
+                recent.add(account);
+            }
+        });
+        List<Account> accounts = new ArrayList<>(recent);
+        accounts.sort(Comparator.comparingLong(Account::getLastLogin).reversed());
+        for (Account account : accounts) {
+            consumer.accept(account.getRealName().toLowerCase());
+        }
+    }
+
+    @Override
+    public boolean isIndexed() {
+        return true;
+    }
+
+    /**
+     * Inserts an account if its name is not registered yet, without forcing it to disk.
+     * Used for bulk loads, which call {@link #sync()} once done.
+     *
+     * @param account the account to insert
+     * @return true if inserted
+     * @throws SQLException on failure
+     */
+    synchronized boolean load(Account account) throws SQLException {
+        if (segment.index.containsKey(account.getRealName().toLowerCase())) {
+            return false;
+        }
+        try {
+            put(account);
+        } catch (IOException e) {
+            throw writeFailed(e);
+        }
+        return true;
+    }
+
+    /**
+     * Forces the appended records to disk.
+     */
+    synchronized void sync() {
+        segment.buffer.force();
+    }
+
+    /**
+     * Compacts the log if more than half of it is taken by replaced or deleted records.
+     *
+     * @return true if the log was compacted
+     * @throws SQLException on failure, the current log is kept
+     */
+    public synchronized boolean compactIfNeeded() throws SQLException {
+        if (garbage < MIN_COMPACTION_GARBAGE || garbage < end - FILE_HEADER - garbage) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * Copies the live records to a new generation of the log and switches to it.
+     * Writes wait for the copy, lookups keep using the previous generation meanwhile.
+     *
+     * @throws SQLException on failure, the current log is kept
+     */
+    public synchronized void compact() throws SQLException {
+        Segment old = segment;
+        File target = file(generation + 1);
+        File temp = new File(folder, target.getName() + ".tmp");
+        ConcurrentHashMap<String, Integer> index = new ConcurrentHashMap<>(Math.max(16, old.index.size() * 4 / 3 + 1));
+        int position = FILE_HEADER;
+        try {
+            try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer copy = ByteBuffer.allocate(COPY_BUFFER);
+                copy.putInt(MAGIC).putInt(VERSION);
+                for (Map.Entry<String, Integer> entry : old.index.entrySet()) {
+                    int offset = entry.getValue();
+                    int size = RECORD_HEADER + old.buffer.getInt(offset);
+                    if (copy.remaining() < size) {
+                        write(out, copy);
+                    }
+                    // copied as stored, the checksum stays valid
+                    ByteBuffer record = old.buffer.duplicate();
+                    record.position(offset).limit(offset + size);
+                    copy.put(record);
+                    index.put(entry.getKey(), position);
+                    position += size;
+                }
+                write(out, copy);
+                out.force(true);
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temp.delete();
+            throw new SQLException("Failed to compact the account log", e);
+        }
+
+        FileChannel previous = channel;
+        File previousFile = file;
+        FileChannel compacted = null;
+        try {
+            compacted = FileChannel.open(target.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment = new Segment(map(compacted, capacityFor(position)), index);
+            channel = compacted;
+        } catch (IOException e) {
+            // later writes go to the current log, so the next start must not pick the new one
+            if (compacted != null) {
+                try {
+                    compacted.close();
+                } catch (IOException ignored) {
+                }
+            }
+            target.delete();
+            throw new SQLException("Failed to open the compacted account log", e);
+        }
+        file = target;
+        generation++;
+        end = position;
+        garbage = 0;
+        compactions.incrementAndGet();
+        try {
+            previous.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        // fails while the old mapping is alive on some systems, the next start deletes it then
+        previousFile.delete();
+    }
+
+    /**
+     * Gets the size of the records that a compaction would drop.
+     *
+     * @return the number of bytes
+     */
+    public synchronized long getGarbageBytes() {
+        return garbage;
+    }
+
+    /**
+     * Gets the average time a lookup took.
+     *
+     * @return the average lookup time, in microseconds
+     */
+    public double getAverageLookupMicros() {
+        long lookups = this.lookups.get();
+        return lookups == 0 ? 0 : lookupNanos.get() / 1e3 / lookups;
+    }
+
+    @Override
+    public synchronized String[] getStatus() {
+        String status = String.format("%s: %s, %d accounts, %d KiB used (%d KiB replaced or deleted), %d writes, %d compactions",
+                getClass().getSimpleName(), file == null ? "closed" : file.getName(), count(), end / 1024, garbage / 1024,
+                writes.get(), compactions.get());
+        String timing = String.format("%s: %d lookups, %.2fus avg lookup", getClass().getSimpleName(), lookups.get(), getAverageLookupMicros());
+        if (truncatedAt >= 0) {
+            return new String[]{status, timing, getClass().getSimpleName() + ": a damaged write at byte " + truncatedAt + " was dropped on startup"};
+        }
+        return new String[]{status, timing};
+    }
+
+    @Nullable
+    private Account lookup(String key) {
+        while (true) {
+            Segment segment = this.segment;
+            Integer offset = segment.index.get(key);
+            if (offset == null) {
+                return null;
+            }
+            // otherwise the record was appended to a larger mapping this thread hasn't seen yet
+            if (offset < segment.buffer.capacity()) {
+                return readAccount(segment.buffer, offset);
+            }
+        }
+    }
+
+    private void replay(MappedByteBuffer buffer) throws IOException {
+        ConcurrentHashMap<String, Integer> index = new ConcurrentHashMap<>();
+        int capacity = buffer.capacity();
+        int offset = FILE_HEADER;
+        long garbage = 0;
+        while (offset <= capacity - RECORD_HEADER) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > MAX_PAYLOAD || length > capacity - offset - RECORD_HEADER) {
+                break;
+            }
+            byte type = buffer.get(offset + 8);
+            byte[] payload = readPayload(buffer, offset);
+            if (buffer.getInt(offset + 4) != checksum(type, payload)) {
+                break;
+            }
+
+            String key;
+            if (type == PUT) {
+                key = decode(payload).getRealName().toLowerCase();
+            } else if (type == DELETE) {
+                key = new DataInputStream(new ByteArrayInputStream(payload)).readUTF();
+                garbage += RECORD_HEADER + length;
+            } else {
+                break;
+            }
+            Integer previous = type == PUT ? index.put(key, offset) : index.remove(key);
+            if (previous != null) {
+                garbage += RECORD_HEADER + buffer.getInt(previous);
+            }
+            offset += RECORD_HEADER + length;
+        }
+
+        // anything after the last valid record is a torn write, clear it so it can't be read back later
+        truncatedAt = -1;
+        if (!isZero(buffer, offset, capacity)) {
+            truncatedAt = offset;
+            for (int i = offset; i < capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+
+        addresses.clear();
+        for (Integer record : index.values()) {
+            String address = readAccount(buffer, record).getAddress();
+            if (address != null) {
+                addresses.merge(address, 1, Integer::sum);
+            }
+        }
+        this.segment = new Segment(buffer, index);
+        this.end = offset;
+        this.garbage = garbage;
+    }
+
+    private void put(Account account) throws IOException {
+        String key = account.getRealName().toLowerCase();
+        int offset = append(PUT, encode(account));
+        Segment segment = this.segment;
+        Integer previous = segment.index.put(key, offset);
+        if (previous != null) {
+            discard(segment.buffer, previous);
+        }
+        if (account.getAddress() != null) {
+            addresses.merge(account.getAddress(), 1, Integer::sum);
+        }
+    }
+
+    private void remove(String key) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(key);
+        byte[] payload = bytes.toByteArray();
+        append(DELETE, payload);
+        garbage += RECORD_HEADER + payload.length;
+        Segment segment = this.segment;
+        Integer previous = segment.index.remove(key);
+        if (previous != null) {
+            discard(segment.buffer, previous);
+        }
+    }
+
+    // accounts a replaced or deleted record as garbage
+    private void discard(MappedByteBuffer buffer, int offset) {
+        garbage += RECORD_HEADER + buffer.getInt(offset);
+        String address = readAccount(buffer, offset).getAddress();
+        if (address != null) {
+            addresses.computeIfPresent(address, (key, count) -> count <= 1 ? null : count - 1);
+        }
+    }
+
+    private int append(byte type, byte[] payload) throws IOException {
+        if (channel == null) {
+            throw new IOException("The account log is closed");
+        }
+        int size = RECORD_HEADER + payload.length;
+        if ((long) end + size > segment.buffer.capacity()) {
+            if ((long) end + size > Integer.MAX_VALUE) {
+                throw new IOException("The account log is full, it must be compacted");
+            }
+            // the new mapping is published before any offset beyond the old one
+            segment.buffer.force();
+            segment = new Segment(map(channel, capacityFor(end + size)), segment.index);
+        }
+
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(end);
+        buffer.putInt(payload.length).putInt(checksum(type, payload)).put(type).put(payload);
+        int offset = end;
+        end += size;
+        writes.incrementAndGet();
+        return offset;
+    }
+
+    private Account merge(Account account) {
+        Segment segment = this.segment;
+        Integer offset = segment.index.get(account.getRealName().toLowerCase());
+        if (offset == null) {
+            return account;
+        }
+        Account stored = readAccount(segment.buffer, offset);
+        return new Account(stored.getRealName(), account.getHashedPassword(), account.getAddress(), account.getLastLogin(), stored.getRegDate());
+    }
+
+    private void checkAbsent(Account account) throws SQLException {
+        if (segment.index.containsKey(account.getRealName().toLowerCase())) {
+            throw new SQLIntegrityConstraintViolationException("The account " + account.getRealName() + " already exists");
+        }
+    }
+
+    private File file(long generation) {
+        return new File(folder, prefix + "." + generation + ".log");
+    }
+
+    private static SQLException writeFailed(IOException e) {
+        return new SQLException("Failed to write to the account log", e);
+    }
+
+    private static Account readAccount(ByteBuffer buffer, int offset) {
+        try {
+            return decode(readPayload(buffer, offset));
+        } catch (IOException e) {
+            // records are checked on startup, a valid record always decodes
+            throw new IllegalStateException("Corrupted account log record at " + offset, e);
+        }
+    }
+
+    private static byte[] readPayload(ByteBuffer buffer, int offset) {
+        byte[] payload = new byte[buffer.getInt(offset)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + RECORD_HEADER);
+        view.get(payload);
+        return payload;
+    }
+
+    private static byte[] encode(Account account) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(account.getRealName());
+        out.writeUTF(account.getHashedPassword());
+        out.writeBoolean(account.getAddress() != null);
+        if (account.getAddress() != null) {
+            out.writeUTF(account.getAddress());
+        }
+        out.writeLong(account.getLastLogin());
+        out.writeLong(account.getRegDate());
+        return bytes.toByteArray();
+    }
+
+    private static Account decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String realName = in.readUTF();
+        String hashedPassword = in.readUTF();
+        String address = in.readBoolean() ? in.readUTF() : null;
+        return new Account(realName, hashedPassword, address, in.readLong(), in.readLong());
+    }
+
+    private static boolean isZero(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            if (buffer.getLong(i) != 0) {
+                return false;
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static int capacityFor(long size) {
+        long capacity = MIN_CAPACITY;
+        while (capacity < size + size / 2) {
+            capacity *= 2;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, capacity);
+    }
+
+    /**
+     * Maps a file, first filling the new part with zeros, so a full disk fails here rather
+     * than on a later write to the mapping.
+     */
+    private static MappedByteBuffer map(FileChannel channel, int capacity) throws IOException {
+        long size = channel.size();
+        if (size < capacity) {
+            ByteBuffer zeros = ByteBuffer.allocate(COPY_BUFFER);
+            while (size < capacity) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), capacity - size));
+                size += channel.write(zeros, size);
+            }
+        }
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // A mapping of the log and the index of its records
+    private static class Segment {
+
+        private final MappedByteBuffer buffer;
+        private final ConcurrentHashMap<String, Integer> index;
+
+        private Segment(MappedByteBuffer buffer, ConcurrentHashMap<String, Integer> index) {
+            this.buffer = buffer;
+            this.index = index;
+        }
+
+    }
+
+}
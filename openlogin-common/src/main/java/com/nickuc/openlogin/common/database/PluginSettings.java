@@ -25,17 +25,29 @@
 package com.sobble.pleasejustlogin.common.database;
 
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
 import javax.annotation.Nullable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
-@RequiredArgsConstructor
 public class PluginSettings {
 
+    // named statements
+    private static final String READ = "settings.read";
+    private static final String UPDATE = "settings.update";
+    private static final String INSERT = "settings.insert";
+
     private final Database database;
 
+    public PluginSettings(@NonNull Database database) {
+        this.database = database;
+        database.registerStatement(READ, "SELECT `value` FROM `settings` WHERE `key` = ?");
+        database.registerStatement(UPDATE, "UPDATE `settings` SET `value` = ? WHERE `key` = ?");
+        database.registerStatement(INSERT, "INSERT INTO `settings` (`key`, `value`) VALUES (?, ?)");
+    }
+
     public String read(@NonNull String key, @NonNull String def) {
         String value = read(key);
         return value == null ? def : value;
@@ -43,7 +55,7 @@ public class PluginSettings {
 
     @Nullable
     public String read(@NonNull String key) {
-        try (Database.Query query = database.query("SELECT `value` FROM `settings` WHERE `key` = ?", key)) {
+        try (Database.Query query = database.queryStatement(READ, key)) {
             ResultSet resultSet = query.resultSet;
             if (resultSet.next()) {
                 return resultSet.getString("value");
@@ -55,12 +67,12 @@ public class PluginSettings {
     }
 
     public boolean set(@NonNull String key, @NonNull String value) {
-        try (Database.Query query = database.query("SELECT `value` FROM `settings` WHERE `key` = ?", key)) {
+        try (Database.Query query = database.queryStatement(READ, key)) {
             ResultSet resultSet = query.resultSet;
             if (resultSet.next()) {
-                database.update("UPDATE `settings` SET `value` = ? WHERE `key` = ?", value, key);
+                database.updateStatement(UPDATE, value, key);
             } else {
-                database.update("INSERT INTO `settings` (`key`, `value`) VALUES (?, ?)", key, value);
+                database.updateStatement(INSERT, key, value);
             }
             return true;
         } catch (SQLException e) {
@@ -69,4 +81,28 @@ public class PluginSettings {
         }
     }
 
+    /**
+     * Sets a value as part of a transaction.
+     *
+     * @param connection the connection of the transaction
+     * @param key        the key to set
+     * @param value      the value to set
+     * @throws SQLException on failure
+     * @see Database#transaction(Database.Transaction)
+     */
+    public void set(@NonNull Connection connection, @NonNull String key, @NonNull String value) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(database.getStatement(UPDATE))) {
+            update.setString(1, value);
+            update.setString(2, key);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(database.getStatement(INSERT))) {
+            insert.setString(1, key);
+            insert.setString(2, value);
+            insert.executeUpdate();
+        }
+    }
+
 }
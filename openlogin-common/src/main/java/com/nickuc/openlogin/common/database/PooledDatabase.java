@@ -0,0 +1,321 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base for {@link Database} implementations backed by connection pools.
+ * <p>
+ * Queries are served by a pool of reader connections, while updates go through a
+ * separate writer pool, so a slow write never blocks lookups done during login.
+ * Each connection keeps a {@link StatementCache}, registered statements are compiled
+ * as soon as a connection is opened.
+ */
+public abstract class PooledDatabase implements Database {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Getter
+    private final int readers, writers;
+    private final long acquireTimeoutMillis;
+    private final int statementCacheSize;
+    private final AtomicLong retries = new AtomicLong();
+    private final Map<String, String> statements = new ConcurrentHashMap<>();
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+    protected ConnectionPool readerPool, writerPool;
+
+    protected PooledDatabase(int readers, int writers, long acquireTimeoutMillis, int statementCacheSize) {
+        this.readers = Math.max(1, readers);
+        this.writers = Math.max(1, writers);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.statementCacheSize = Math.max(1, statementCacheSize);
+    }
+
+    /**
+     * Creates a new physical connection.
+     *
+     * @param writer true if the connection will be used for updates
+     * @return the new connection
+     * @throws SQLException on failure
+     */
+    protected abstract Connection createConnection(boolean writer) throws SQLException;
+
+    /**
+     * Checks if a failed update may succeed if attempted again, e.g. the database was busy.
+     *
+     * @param e the failure
+     * @return true to retry the update
+     */
+    protected boolean isRetryable(SQLException e) {
+        return false;
+    }
+
+    /**
+     * Gets how long to wait when checking if an idle connection is still alive.
+     *
+     * @return the timeout in seconds, 0 to not check idle connections
+     */
+    protected int getValidationTimeout() {
+        return 0;
+    }
+
+    /**
+     * Called once before the pools are created.
+     *
+     * @throws SQLException on failure
+     */
+    protected void prepare() throws SQLException {
+    }
+
+    /**
+     * Open the connection pools.
+     *
+     * @throws SQLException on failure
+     */
+    public synchronized void openConnection() throws SQLException {
+        if (readerPool != null) {
+            return;
+        }
+        prepare();
+        int validationTimeout = getValidationTimeout();
+        writerPool = new ConnectionPool("writer", writers, acquireTimeoutMillis, validationTimeout, new Factory(true));
+        readerPool = new ConnectionPool("reader", readers, acquireTimeoutMillis, validationTimeout, new Factory(false));
+
+        // fail fast on bad credentials or paths
+        writerPool.release(writerPool.acquire());
+    }
+
+    /**
+     * Close the connection pools.
+     */
+    public synchronized void closeConnection() {
+        if (readerPool != null) {
+            readerPool.close();
+            writerPool.close();
+            readerPool = writerPool = null;
+            statementCaches.clear();
+        }
+    }
+
+    /**
+     * Executes an update on a writer connection.
+     *
+     * @param command the command to be executed
+     * @param args    the command arguments
+     * @return the number of affected rows
+     * @throws SQLException on failure
+     */
+    public int update(String command, Object... args) throws SQLException {
+        command = getDialect().translate(command);
+        ConnectionPool pool = pool(true);
+        Connection connection = pool.acquire();
+        StatementCache statementCache = statementCache(connection);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    PreparedStatement preparedStatement = statementCache.prepare(command);
+                    for (int i = 0; i < args.length; i++) {
+                        preparedStatement.setObject(i + 1, args[i]);
+                    }
+                    int rows = preparedStatement.executeUpdate();
+                    preparedStatement.clearParameters();
+                    return rows;
+                } catch (SQLException e) {
+                    statementCache.invalidate(command);
+                    if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) {
+                        throw new SQLException("Failed to execute update statement: '" + command + "'", e);
+                    }
+                    retries.incrementAndGet();
+                }
+            }
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Executes a query on a reader connection.
+     *
+     * @param command the command to be executed
+     * @param args    the command arguments
+     * @return returns an instance of {@link com.sobble.pleasejustlogin.common.database.Database.Query}
+     * @throws SQLException on failure
+     */
+    public Query query(String command, Object... args) throws SQLException {
+        command = getDialect().translate(command);
+        ConnectionPool pool = pool(false);
+        Connection connection = pool.acquire();
+        PreparedStatement preparedStatement;
+        try {
+            preparedStatement = statementCache(connection).prepare(command);
+        } catch (SQLException e) {
+            pool.release(connection);
+            throw new SQLException("Failed to prepare query statement: '" + command + "'", e);
+        }
+        return new Query(preparedStatement, () -> pool.release(connection), command, args);
+    }
+
+    /**
+     * Runs a unit of work in a single transaction on a writer connection.
+     * <p>
+     * The work is attempted again if the database was busy, so it must not have side effects
+     * outside of the transaction.
+     *
+     * @param transaction the work to run
+     * @return the result of the work
+     * @throws SQLException on failure
+     */
+    public <T> T transaction(Transaction<T> transaction) throws SQLException {
+        ConnectionPool pool = pool(true);
+        Connection connection = pool.acquire();
+        try {
+            connection.setAutoCommit(false);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    T result = transaction.run(connection);
+                    connection.commit();
+                    return result;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) {
+                        throw e;
+                    }
+                    retries.incrementAndGet();
+                } catch (RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } finally {
+                pool.release(connection);
+            }
+        }
+    }
+
+    /**
+     * Registers a named statement, compiled on every connection opened from now on.
+     *
+     * @param name    the statement name
+     * @param command the command of the statement
+     */
+    public void registerStatement(@NonNull String name, @NonNull String command) {
+        statements.put(name, getDialect().translate(command));
+    }
+
+    /**
+     * Gets the command of a registered statement.
+     *
+     * @param name the statement name
+     * @return the command
+     */
+    public String getStatement(@NonNull String name) {
+        String command = statements.get(name);
+        if (command == null) {
+            throw new IllegalArgumentException("Unknown statement '" + name + "'");
+        }
+        return command;
+    }
+
+    @Override
+    public String[] getStatus() {
+        ConnectionPool readerPool = this.readerPool, writerPool = this.writerPool;
+        if (readerPool == null) {
+            return new String[]{getClass().getSimpleName() + ": closed"};
+        }
+        return new String[]{
+                getClass().getSimpleName() + " " + readerPool.getStatus(),
+                getClass().getSimpleName() + " " + writerPool.getStatus() + ", " + retries.get() + " retried",
+                "Statements: " + statements.size() + " registered, " + statementCounters
+        };
+    }
+
+    private Connection setupConnection(boolean writer) throws SQLException {
+        Connection connection = createConnection(writer);
+        StatementCache statementCache = new StatementCache(connection, statementCacheSize, statementCounters);
+        for (String command : statements.values()) {
+            try {
+                statementCache.prepare(command);
+            } catch (SQLException ignored) {
+                // compiled again on first use, where the failure is reported
+            }
+        }
+        statementCaches.put(connection, statementCache);
+        return connection;
+    }
+
+    private StatementCache statementCache(Connection connection) {
+        return statementCaches.computeIfAbsent(connection, c -> new StatementCache(c, statementCacheSize, statementCounters));
+    }
+
+    protected ConnectionPool pool(boolean writer) throws SQLException {
+        ConnectionPool pool = writer ? writerPool : readerPool;
+        if (pool == null) {
+            openConnection();
+            pool = writer ? writerPool : readerPool;
+        }
+        return pool;
+    }
+
+    protected static void execute(@NonNull Connection connection, @NonNull String command) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(command);
+        }
+    }
+
+    // Sets up new connections and forgets the statements of closed ones
+    private class Factory implements ConnectionPool.ConnectionFactory {
+
+        private final boolean writer;
+
+        private Factory(boolean writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public Connection create() throws SQLException {
+            return setupConnection(writer);
+        }
+
+        @Override
+        public void closed(Connection connection) {
+            statementCaches.remove(connection);
+        }
+
+    }
+}
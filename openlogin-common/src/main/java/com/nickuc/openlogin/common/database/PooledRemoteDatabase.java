@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * A pooled MySQL/MariaDB or PostgreSQL database, shared by every server of a network.
+ * <p>
+ * Unlike SQLite, the server accepts concurrent writers, so the writer pool may hold
+ * several connections. Idle connections are checked before use, since servers close
+ * connections that stayed idle for too long.
+ */
+public class PooledRemoteDatabase extends PooledDatabase {
+
+    private static final int VALIDATION_TIMEOUT = 2;
+    private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205, MYSQL_DEADLOCK = 1213;
+
+    @Getter
+    private final SqlDialect dialect;
+    private final String url, username, password;
+
+    /**
+     * Creates a pooled remote database.
+     *
+     * @param dialect              the dialect, either {@link SqlDialect#MYSQL} or {@link SqlDialect#POSTGRESQL}
+     * @param host                 the server host
+     * @param port                 the server port, 0 for the default one
+     * @param database             the database name
+     * @param username             the user name
+     * @param password             the user password
+     * @param properties           extra connection properties, e.g. {@code useSSL=false&characterEncoding=utf8}
+     * @param readers              the maximum number of reader connections
+     * @param writers              the maximum number of writer connections
+     * @param acquireTimeoutMillis how long to wait for a free connection, in milliseconds
+     * @param statementCacheSize   the maximum number of cached statements per connection
+     */
+    public PooledRemoteDatabase(@NonNull SqlDialect dialect, @NonNull String host, int port, @NonNull String database,
+                                @NonNull String username, @NonNull String password, @NonNull String properties,
+                                int readers, int writers, long acquireTimeoutMillis, int statementCacheSize) {
+        super(readers, writers, acquireTimeoutMillis, statementCacheSize);
+        if (dialect == SqlDialect.SQLITE) {
+            throw new IllegalArgumentException("SQLite is not a remote database");
+        }
+        this.dialect = dialect;
+        String scheme = dialect == SqlDialect.MYSQL ? "mysql" : "postgresql";
+        int defaultPort = dialect == SqlDialect.MYSQL ? 3306 : 5432;
+        this.url = "jdbc:" + scheme + "://" + host + ":" + (port > 0 ? port : defaultPort) + "/" + database +
+                (properties.isEmpty() ? "" : "?" + properties);
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    protected void prepare() throws SQLException {
+        // servers bundle different driver versions, the driver has to be provided by the server
+        String[] drivers = dialect == SqlDialect.MYSQL ?
+                new String[]{"com.mysql.cj.jdbc.Driver", "com.mysql.jdbc.Driver"} : new String[]{"org.postgresql.Driver"};
+        for (String driver : drivers) {
+            try {
+                Class.forName(driver);
+                return;
+            } catch (ClassNotFoundException ignored) {
+            }
+        }
+        throw new SQLException("Failed to find the " + dialect + " driver (" + String.join(", ", drivers) + ")");
+    }
+
+    @Override
+    protected Connection createConnection(boolean writer) throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    @Override
+    protected int getValidationTimeout() {
+        return VALIDATION_TIMEOUT;
+    }
+
+    @Override
+    protected boolean isRetryable(SQLException e) {
+        // class 40 is a rolled back transaction, e.g. a deadlock or serialization failure
+        String state = e.getSQLState();
+        return state != null && state.startsWith("40") ||
+                dialect == SqlDialect.MYSQL && (e.getErrorCode() == MYSQL_DEADLOCK || e.getErrorCode() == MYSQL_LOCK_WAIT_TIMEOUT);
+    }
+}
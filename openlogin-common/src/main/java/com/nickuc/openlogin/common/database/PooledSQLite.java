@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import lombok.NonNull;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * A pooled SQLite database running in WAL mode.
+ * <p>
+ * WAL lets the reader connections query while the single writer commits,
+ * SQLite only allows one writer at a time so the writer pool is fixed at one connection.
+ */
+public class PooledSQLite extends PooledDatabase {
+
+    private static final int SQLITE_BUSY = 5, SQLITE_LOCKED = 6;
+
+    private final File file;
+    private final int busyTimeout;
+
+    /**
+     * Creates a pooled SQLite database.
+     *
+     * @param file                 the database file
+     * @param readers              the maximum number of reader connections
+     * @param busyTimeout          how long a connection waits on a locked database, in milliseconds
+     * @param acquireTimeoutMillis how long to wait for a free connection, in milliseconds
+     * @param statementCacheSize   the maximum number of cached statements per connection
+     */
+    public PooledSQLite(@NonNull File file, int readers, int busyTimeout, long acquireTimeoutMillis, int statementCacheSize) {
+        super(readers, 1, acquireTimeoutMillis, statementCacheSize);
+        this.file = file;
+        this.busyTimeout = Math.max(0, busyTimeout);
+    }
+
+    @Override
+    protected void prepare() throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("Failed to find class 'org.sqlite.JDBC'", e);
+        }
+        File parentFile = file.getParentFile();
+        if (!parentFile.exists() && !parentFile.mkdirs()) {
+            throw new RuntimeException("Failed to create '" + parentFile + "'");
+        }
+    }
+
+    @Override
+    protected Connection createConnection(boolean writer) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.toString());
+        try {
+            execute(connection, "PRAGMA busy_timeout = " + busyTimeout);
+            if (writer) {
+                // journal mode is persistent, it only has to be switched by one connection
+                execute(connection, "PRAGMA journal_mode = WAL");
+            }
+            execute(connection, "PRAGMA synchronous = NORMAL");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * Writes a consistent copy of the database to a new file.
+     * <p>
+     * The copy is made on a reader connection, so writes go on meanwhile.
+     *
+     * @param target the file to create
+     * @throws SQLException on failure
+     */
+    @Override
+    public void backup(@NonNull File target) throws SQLException {
+        ConnectionPool pool = pool(false);
+        Connection connection = pool.acquire();
+        try {
+            SQLite.backup(connection, target);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    @Override
+    protected boolean isRetryable(SQLException e) {
+        int code = e.getErrorCode() & 0xff;
+        return code == SQLITE_BUSY || code == SQLITE_LOCKED;
+    }
+}
@@ -32,12 +32,24 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * A single connection shared by every thread.
+ * <p>
+ * Every use of the connection holds the same lock, a query until it is closed, so a transaction
+ * never includes the work of another thread.
+ */
 @RequiredArgsConstructor
 public class SQLite implements Database {
 
     @NonNull
     private final File file;
+    private final Map<String, String> statements = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
     private Connection connection;
 
     /**
@@ -46,6 +58,15 @@ public class SQLite implements Database {
      * @throws SQLException on failure
      */
     public void openConnection() throws SQLException {
+        lock.lock();
+        try {
+            openConnectionLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void openConnectionLocked() throws SQLException {
         if (connection == null || connection.isClosed()) {
             try {
                 Class.forName("org.sqlite.JDBC");
@@ -66,7 +87,12 @@ public class SQLite implements Database {
      * @throws SQLException on failure
      */
     public void closeConnection() throws SQLException {
-        if (connection != null && !connection.isClosed()) connection.close();
+        lock.lock();
+        try {
+            if (connection != null && !connection.isClosed()) connection.close();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -74,22 +100,28 @@ public class SQLite implements Database {
      *
      * @param command the command to be executed
      * @param args    the command arguments
+     * @return the number of affected rows
      * @throws SQLException on failure
      */
-    public void update(String command, Object... args) throws SQLException {
-        openConnection();
-        try (PreparedStatement preparedStatement = connection.prepareStatement(command)) {
-            for (int i = 0; i < args.length; i++) {
-                preparedStatement.setObject(i + 1, args[i]);
+    public int update(String command, Object... args) throws SQLException {
+        lock.lock();
+        try {
+            openConnectionLocked();
+            try (PreparedStatement preparedStatement = connection.prepareStatement(command)) {
+                for (int i = 0; i < args.length; i++) {
+                    preparedStatement.setObject(i + 1, args[i]);
+                }
+                return preparedStatement.executeUpdate();
+            } catch (SQLException e) {
+                throw new SQLException("Failed to execute update statement: '" + command + "'", e);
             }
-            preparedStatement.executeUpdate();
-        } catch (SQLException e) {
-            throw new SQLException("Failed to execute update statement: '" + command + "'", e);
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Executes a query.
+     * Executes a query. The connection stays locked until the query is closed.
      *
      * @param command the command to be executed
      * @param args    the command arguments
@@ -97,7 +129,106 @@ public class SQLite implements Database {
      * @throws SQLException on failure
      */
     public Query query(String command, Object... args) throws SQLException {
-        openConnection();
-        return new Query(connection, command, args);
+        lock.lock();
+        try {
+            openConnectionLocked();
+        } catch (SQLException | RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+        // a failing query is closed right away, which unlocks the connection
+        return new Query(connection, lock::unlock, command, args);
+    }
+
+    /**
+     * Runs a unit of work in a single transaction, the other threads wait until it ends.
+     *
+     * @param transaction the work to run
+     * @return the result of the work
+     * @throws SQLException on failure
+     */
+    public <T> T transaction(Transaction<T> transaction) throws SQLException {
+        lock.lock();
+        try {
+            openConnectionLocked();
+            connection.setAutoCommit(false);
+            try {
+                T result = transaction.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a consistent copy of the database to a new file.
+     *
+     * @param target the file to create
+     * @throws SQLException on failure
+     */
+    @Override
+    public void backup(@NonNull File target) throws SQLException {
+        lock.lock();
+        try {
+            openConnectionLocked();
+            backup(connection, target);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers a named statement.
+     * <p>
+     * The shared connection is used by several threads, so statements are not cached.
+     *
+     * @param name    the statement name
+     * @param command the command of the statement
+     */
+    public void registerStatement(@NonNull String name, @NonNull String command) {
+        statements.put(name, command);
+    }
+
+    /**
+     * Gets the command of a registered statement.
+     *
+     * @param name the statement name
+     * @return the command
+     */
+    public String getStatement(@NonNull String name) {
+        String command = statements.get(name);
+        if (command == null) {
+            throw new IllegalArgumentException("Unknown statement '" + name + "'");
+        }
+        return command;
+    }
+
+    /**
+     * Copies a database with {@code VACUUM INTO}, or with the backup API of the driver on
+     * SQLite versions before 3.27. Either way the copy is made from a single read transaction.
+     *
+     * @param connection the connection to the database
+     * @param target     the file to create
+     * @throws SQLException on failure
+     */
+    static void backup(Connection connection, File target) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("VACUUM INTO ?")) {
+            statement.setString(1, target.getAbsolutePath());
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("syntax error")) {
+                throw new SQLException("Failed to copy the database to '" + target + "'", e);
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("backup to \"" + target.getAbsolutePath() + "\"");
+            }
+        }
     }
 }
@@ -0,0 +1,272 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Versioned schema migrations, applied in order at startup.
+ * <p>
+ * The current version is kept in the {@code settings} table under {@link #VERSION_KEY}.
+ * Each migration runs in its own transaction together with the version bump, so an
+ * interrupted startup resumes from the last applied migration.
+ * <p>
+ * SQLite databases start with the original untyped tables, which the migrations convert.
+ * Other databases never had them, so {@link #createTables()} creates the current schema
+ * and the conversions are skipped.
+ */
+public class SchemaMigrations {
+
+    public static final String VERSION_KEY = "schema_version";
+
+    private final Database database;
+    private final SqlDialect dialect;
+    private final PluginSettings pluginSettings;
+    private final List<Migration> migrations = new ArrayList<>();
+
+    public SchemaMigrations(@NonNull Database database, @NonNull PluginSettings pluginSettings) {
+        this.database = database;
+        this.dialect = database.getDialect();
+        this.pluginSettings = pluginSettings;
+
+        register(1, "typed account table with unique names", connection -> {
+            if (dialect != SqlDialect.SQLITE) {
+                return null;
+            }
+            execute(connection, "DROP TABLE IF EXISTS `openlogin_new`");
+            execute(connection, createAccountTable("openlogin_new", false));
+            // duplicated names keep the most recently used row
+            execute(connection, "INSERT OR IGNORE INTO `openlogin_new` (`name`, `realname`, `password`, `address`, `lastlogin`, `regdate`) " +
+                    "SELECT LOWER(`name`), COALESCE(`realname`, `name`), `password`, `address`, COALESCE(`lastlogin`, 0), COALESCE(`regdate`, 0) " +
+                    "FROM `openlogin` WHERE `name` IS NOT NULL ORDER BY `lastlogin` DESC");
+            long before = count(connection, "openlogin"), after = count(connection, "openlogin_new");
+            execute(connection, "DROP TABLE `openlogin`");
+            execute(connection, "ALTER TABLE `openlogin_new` RENAME TO `openlogin`");
+            return before == after ? null : (before - after) + " duplicated accounts removed";
+        });
+        register(2, "account address index", connection -> {
+            if (dialect == SqlDialect.SQLITE) {
+                execute(connection, "CREATE INDEX IF NOT EXISTS `openlogin_address` ON `openlogin` (`address`)");
+            } else if (!hasIndex(connection, "openlogin", "openlogin_address")) {
+                // MySQL has no CREATE INDEX IF NOT EXISTS
+                execute(connection, "CREATE INDEX `openlogin_address` ON `openlogin` (`address`)");
+            }
+            return null;
+        });
+        register(3, "unique settings keys", connection -> {
+            if (dialect != SqlDialect.SQLITE) {
+                return null;
+            }
+            execute(connection, "DROP TABLE IF EXISTS `settings_new`");
+            execute(connection, "CREATE TABLE `settings_new` (`key` TEXT NOT NULL PRIMARY KEY, `value` TEXT)");
+            // duplicated keys keep the last written value
+            execute(connection, "INSERT OR REPLACE INTO `settings_new` (`key`, `value`) " +
+                    "SELECT `key`, `value` FROM `settings` WHERE `key` IS NOT NULL ORDER BY `rowid`");
+            execute(connection, "DROP TABLE `settings`");
+            execute(connection, "ALTER TABLE `settings_new` RENAME TO `settings`");
+            return null;
+        });
+        register(4, "account last login index", connection -> {
+            if (dialect == SqlDialect.SQLITE) {
+                execute(connection, "CREATE INDEX IF NOT EXISTS `openlogin_lastlogin` ON `openlogin` (`lastlogin`)");
+            } else if (!hasIndex(connection, "openlogin", "openlogin_lastlogin")) {
+                execute(connection, "CREATE INDEX `openlogin_lastlogin` ON `openlogin` (`lastlogin`)");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Creates the tables if they don't exist yet.
+     *
+     * @throws SQLException on failure
+     */
+    public void createTables() throws SQLException {
+        if (dialect == SqlDialect.SQLITE) {
+            database.update("CREATE TABLE IF NOT EXISTS `openlogin` (`name` TEXT, `realname` TEXT, `password` TEXT, `address` TEXT, `lastlogin` INTEGER, `regdate` INTEGER)");
+            database.update("CREATE TABLE IF NOT EXISTS `settings` (`key` TEXT, `value` TEXT)");
+        } else {
+            database.update(createAccountTable("openlogin", true));
+            database.update("CREATE TABLE IF NOT EXISTS `settings` (`key` " + dialect.varchar(64) + " NOT NULL PRIMARY KEY, `value` TEXT)");
+        }
+    }
+
+    /**
+     * Registers a migration. Versions must be registered in ascending order.
+     *
+     * @param version     the schema version after the migration
+     * @param description a short description, used in logs
+     * @param action      the migration work, run inside a transaction
+     */
+    public void register(int version, @NonNull String description, @NonNull Action action) {
+        int latest = getLatestVersion();
+        if (version <= latest) {
+            throw new IllegalArgumentException("Migration " + version + " must be newer than " + latest);
+        }
+        migrations.add(new Migration(version, description, action));
+    }
+
+    /**
+     * Gets the registered migrations.
+     *
+     * @return an unmodifiable list of migrations
+     */
+    public List<Migration> getMigrations() {
+        return Collections.unmodifiableList(migrations);
+    }
+
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+    }
+
+    /**
+     * Gets the schema version stored in the database.
+     *
+     * @return the current version, 0 if no migration was applied
+     */
+    public int getCurrentVersion() {
+        String value = pluginSettings.read(VERSION_KEY, "0");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid " + VERSION_KEY + ": " + value, e);
+        }
+    }
+
+    /**
+     * Applies every migration newer than the current version.
+     *
+     * @param logger receives one line per applied migration
+     * @return the number of applied migrations
+     * @throws SQLException if a migration fails, earlier migrations stay applied
+     */
+    public int migrate(@NonNull Consumer<String> logger) throws SQLException {
+        int current = getCurrentVersion();
+        int latest = getLatestVersion();
+        if (current > latest) {
+            logger.accept("Database schema version " + current + " is newer than this version supports (" + latest + ").");
+            return 0;
+        }
+
+        int applied = 0;
+        long totalStart = System.currentTimeMillis();
+        for (Migration migration : migrations) {
+            if (migration.version <= current) {
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            String details;
+            try {
+                details = database.transaction(connection -> {
+                    String result = migration.action.migrate(connection);
+                    pluginSettings.set(connection, VERSION_KEY, String.valueOf(migration.version));
+                    return result;
+                });
+            } catch (SQLException e) {
+                throw new SQLException("Failed to apply schema migration " + migration.version + " (" + migration.description + ")", e);
+            }
+            applied++;
+            logger.accept("Applied schema migration " + migration.version + " (" + migration.description + ") in " +
+                    (System.currentTimeMillis() - start) + "ms" + (details == null ? "." : ": " + details + "."));
+        }
+        if (applied > 0) {
+            logger.accept("Database schema migrated from version " + current + " to " + latest + " in " +
+                    (System.currentTimeMillis() - totalStart) + "ms.");
+        }
+        return applied;
+    }
+
+    private String createAccountTable(String table, boolean ifNotExists) {
+        return "CREATE TABLE " + (ifNotExists ? "IF NOT EXISTS " : "") + "`" + table + "` (" +
+                "`name` " + dialect.varchar(64) + " NOT NULL PRIMARY KEY, " +
+                "`realname` " + dialect.varchar(64) + " NOT NULL, " +
+                "`password` " + dialect.varchar(255) + ", " +
+                "`address` " + dialect.varchar(64) + ", " +
+                "`lastlogin` " + dialect.bigint() + " NOT NULL DEFAULT 0, " +
+                "`regdate` " + dialect.bigint() + " NOT NULL DEFAULT 0)";
+    }
+
+    private void execute(Connection connection, String command) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(dialect.translate(command));
+        }
+    }
+
+    private static boolean hasIndex(Connection connection, String table, String index) throws SQLException {
+        try (ResultSet resultSet = connection.getMetaData().getIndexInfo(connection.getCatalog(), connection.getSchema(), table, false, true)) {
+            while (resultSet.next()) {
+                if (index.equalsIgnoreCase(resultSet.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long count(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM `" + table + "`")) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Action {
+
+        /**
+         * Runs the migration.
+         *
+         * @param connection the connection of the migration transaction
+         * @return optional details to log, may be null
+         * @throws SQLException on failure, rolling back the migration
+         */
+        String migrate(Connection connection) throws SQLException;
+
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Migration {
+
+        private final int version;
+        @NonNull
+        private final String description;
+        @NonNull
+        private final Action action;
+
+    }
+
+}
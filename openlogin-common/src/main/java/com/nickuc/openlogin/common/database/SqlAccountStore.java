@@ -0,0 +1,326 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+import lombok.NonNull;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * An {@link AccountStore} backed by the {@code openlogin} table of a {@link Database}.
+ */
+public class SqlAccountStore implements AccountStore {
+
+    // named statements
+    private static final String SEARCH = "account.search";
+    private static final String COUNT_BY_IP = "account.count-by-ip";
+    private static final String INSERT = "account.insert";
+    private static final String INSERT_UNDER_IP_LIMIT = "account.insert-under-ip-limit";
+    private static final String UPSERT = "account.upsert";
+    private static final String INSERT_IF_ABSENT = "account.insert-if-absent";
+    private static final String UPDATE = "account.update";
+    private static final String DELETE = "account.delete";
+    private static final String MIGRATE = "account.migrate";
+    private static final String COUNT = "account.count";
+    private static final String NAMES = "account.names";
+    private static final String ADDRESSES = "account.addresses";
+    private static final String PAGE = "account.page";
+    private static final String RECENT_NAMES = "account.recent-names";
+
+    // statements sent to the database at once by the batch methods
+    private static final int MAX_BATCH = 512;
+
+    private static final String[] COLUMNS = {"name", "realname", "password", "address", "lastlogin", "regdate"};
+
+    private final Database database;
+
+    public SqlAccountStore(@NonNull Database database) {
+        this.database = database;
+        database.registerStatement(SEARCH, "SELECT * FROM `openlogin` WHERE `name` = ?");
+        database.registerStatement(COUNT_BY_IP, "SELECT COUNT(*) FROM `openlogin` WHERE `address` = ?");
+        database.registerStatement(INSERT, "INSERT INTO `openlogin` (`name`, `realname`, `password`, `address`, `lastlogin`, `regdate`) VALUES (?, ?, ?, ?, ?, ?)");
+        database.registerStatement(UPDATE, "UPDATE `openlogin` SET `address` = ?, `lastlogin` = ? WHERE `name` = ?");
+        database.registerStatement(DELETE, "DELETE FROM `openlogin` WHERE `name` = ?");
+        SqlDialect dialect = database.getDialect();
+        // a single statement is atomic, the count can't change between the check and the insert
+        database.registerStatement(INSERT_UNDER_IP_LIMIT, "INSERT INTO `openlogin` (`name`, `realname`, `password`, `address`, `lastlogin`, `regdate`) " +
+                dialect.selectParameters(COLUMNS.length) + " WHERE (SELECT COUNT(*) FROM `openlogin` WHERE `address` = ?) < ?");
+        // keeps the stored realname and regdate of an existing account
+        database.registerStatement(UPSERT, dialect.upsert("openlogin", "name", COLUMNS, "password", "address", "lastlogin"));
+        database.registerStatement(INSERT_IF_ABSENT, dialect.insertIgnore("openlogin", COLUMNS));
+        // the count is read through a derived table, MySQL can't read the updated table in a subquery
+        database.registerStatement(MIGRATE, "UPDATE `openlogin` SET `name` = ?, `realname` = ? WHERE `name` = ? " +
+                "AND (SELECT `c` FROM (SELECT COUNT(*) AS `c` FROM `openlogin` WHERE `name` = ?) AS `t`) = 0");
+        database.registerStatement(COUNT, "SELECT COUNT(*) FROM `openlogin`");
+        database.registerStatement(NAMES, "SELECT `name` FROM `openlogin`");
+        database.registerStatement(ADDRESSES, "SELECT `address` FROM `openlogin` WHERE `address` IS NOT NULL");
+        database.registerStatement(PAGE, "SELECT * FROM `openlogin` WHERE `name` > ? ORDER BY `name` LIMIT ?");
+        database.registerStatement(RECENT_NAMES, "SELECT `name` FROM `openlogin` ORDER BY `lastlogin` DESC LIMIT ?");
+    }
+
+    @Override
+    public Optional<Account> find(@NonNull String key) throws SQLException {
+        try (Database.Query query = database.queryStatement(SEARCH, key)) {
+            ResultSet resultSet = query.resultSet;
+            if (resultSet.next()) {
+                return Optional.of(read(resultSet));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public int countByAddress(@NonNull String address) throws SQLException {
+        try (Database.Query query = database.queryStatement(COUNT_BY_IP, address)) {
+            ResultSet resultSet = query.resultSet;
+            if (resultSet.next()) {
+                return resultSet.getInt(1);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void insert(@NonNull Account account) throws SQLException {
+        database.updateStatement(INSERT, values(account));
+    }
+
+    @Override
+    public boolean insertUnderAddressLimit(@NonNull Account account, int maxPerAddress) throws SQLException {
+        Object[] args = {account.getRealName().toLowerCase(), account.getRealName(), account.getHashedPassword(),
+                account.getAddress(), account.getLastLogin(), account.getRegDate(), account.getAddress(), maxPerAddress};
+        String lock = database.getDialect().getAdvisoryLock();
+        // no address is never counted, so there is nothing to wait for
+        if (lock == null || account.getAddress() == null) {
+            return database.updateStatement(INSERT_UNDER_IP_LIMIT, args) > 0;
+        }
+        // registrations from the same address wait for each other, so each one counts the previous ones
+        return database.transaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(lock)) {
+                statement.setString(1, account.getAddress());
+                statement.execute();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(database.getStatement(INSERT_UNDER_IP_LIMIT))) {
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                return statement.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public void upsert(@NonNull Account account) throws SQLException {
+        database.updateStatement(UPSERT, values(account));
+    }
+
+    @Override
+    public boolean insertIfAbsent(@NonNull Account account) throws SQLException {
+        return database.updateStatement(INSERT_IF_ABSENT, values(account)) > 0;
+    }
+
+    @Override
+    public List<Account> insertAllIfAbsent(@NonNull List<Account> accounts) throws SQLException {
+        if (accounts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return database.transaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(database.getStatement(INSERT_IF_ABSENT))) {
+                List<Account> inserted = new ArrayList<>(accounts.size());
+                boolean rowByRow = false;
+                for (int from = 0; from < accounts.size(); from += MAX_BATCH) {
+                    List<Account> batch = accounts.subList(from, Math.min(accounts.size(), from + MAX_BATCH));
+                    if (!rowByRow) {
+                        Savepoint savepoint = connection.setSavepoint();
+                        for (Account account : batch) {
+                            setValues(statement, account);
+                            statement.addBatch();
+                        }
+                        int[] counts = statement.executeBatch();
+                        if (!contains(counts, Statement.SUCCESS_NO_INFO)) {
+                            for (int i = 0; i < counts.length; i++) {
+                                if (counts[i] > 0) {
+                                    inserted.add(batch.get(i));
+                                }
+                            }
+                            continue;
+                        }
+                        // the driver rewrote the batch and can't tell which rows were inserted,
+                        // e.g. with rewriteBatchedStatements, so it is inserted again row by row
+                        connection.rollback(savepoint);
+                        rowByRow = true;
+                    }
+                    for (Account account : batch) {
+                        setValues(statement, account);
+                        if (statement.executeUpdate() > 0) {
+                            inserted.add(account);
+                        }
+                    }
+                }
+                return inserted;
+            }
+        });
+    }
+
+    @Override
+    public void updateAll(@NonNull Collection<Account> accounts) throws SQLException {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        database.transaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(database.getStatement(UPDATE))) {
+                int size = 0;
+                for (Account account : accounts) {
+                    statement.setString(1, account.getAddress());
+                    statement.setLong(2, account.getLastLogin());
+                    statement.setString(3, account.getRealName().toLowerCase());
+                    statement.addBatch();
+                    if (++size % MAX_BATCH == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean delete(@NonNull String key) throws SQLException {
+        return database.updateStatement(DELETE, key) > 0;
+    }
+
+    @Override
+    public boolean rename(@NonNull String oldKey, @NonNull String newName) throws SQLException {
+        String newKey = newName.toLowerCase();
+        return database.updateStatement(MIGRATE, newKey, newName, oldKey, newKey) > 0;
+    }
+
+    @Override
+    public long count() throws SQLException {
+        try (Database.Query query = database.queryStatement(COUNT)) {
+            if (query.resultSet.next()) {
+                return query.resultSet.getLong(1);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void forEachName(@NonNull Consumer<String> consumer) throws SQLException {
+        try (Database.Query query = database.queryStatement(NAMES)) {
+            ResultSet resultSet = query.resultSet;
+            while (resultSet.next()) {
+                String name = resultSet.getString(1);
+                if (name != null) {
+                    consumer.accept(name);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEachAddress(@NonNull Consumer<String> consumer) throws SQLException {
+        try (Database.Query query = database.queryStatement(ADDRESSES)) {
+            ResultSet resultSet = query.resultSet;
+            while (resultSet.next()) {
+                consumer.accept(resultSet.getString(1));
+            }
+        }
+    }
+
+    @Override
+    public void forEachAccount(int pageSize, @NonNull Consumer<Account> consumer) throws SQLException {
+        pageSize = Math.max(1, pageSize);
+        List<Account> page = new ArrayList<>(pageSize);
+        String after = "";
+        do {
+            page.clear();
+            // pages continue after the last name instead of skipping rows, so each one is a short index range scan
+            try (Database.Query query = database.queryStatement(PAGE, after, pageSize)) {
+                ResultSet resultSet = query.resultSet;
+                while (resultSet.next()) {
+                    after = resultSet.getString("name");
+                    page.add(read(resultSet));
+                }
+            }
+            page.forEach(consumer);
+        } while (page.size() == pageSize);
+    }
+
+    @Override
+    public void forEachRecentName(int limit, @NonNull Consumer<String> consumer) throws SQLException {
+        List<String> names = new ArrayList<>(Math.max(0, limit));
+        try (Database.Query query = database.queryStatement(RECENT_NAMES, limit)) {
+            ResultSet resultSet = query.resultSet;
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+        }
+        names.forEach(consumer);
+    }
+
+    private static Account read(ResultSet resultSet) throws SQLException {
+        String realName = resultSet.getString("realname");
+        String hashedPassword = resultSet.getString("password");
+        String address = resultSet.getString("address");
+        long lastLogin = resultSet.getLong("lastlogin");
+        long regdate = resultSet.getLong("regdate");
+        return new Account(realName, hashedPassword, address, lastLogin, regdate);
+    }
+
+    private static Object[] values(Account account) {
+        return new Object[]{account.getRealName().toLowerCase(), account.getRealName(), account.getHashedPassword(),
+                account.getAddress(), account.getLastLogin(), account.getRegDate()};
+    }
+
+    private static void setValues(PreparedStatement statement, Account account) throws SQLException {
+        Object[] values = values(account);
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+    }
+
+    private static boolean contains(int[] counts, int count) {
+        for (int value : counts) {
+            if (value == count) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
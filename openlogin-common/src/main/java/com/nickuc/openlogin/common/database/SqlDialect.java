@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import lombok.NonNull;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * The SQL differences between the supported databases.
+ * <p>
+ * Statements are written with backtick quoted identifiers and translated with
+ * {@link #translate(String)}, only the constructs built here differ between dialects.
+ */
+public enum SqlDialect {
+
+    SQLITE,
+    MYSQL,
+    POSTGRESQL;
+
+    /**
+     * Translates a statement written with backtick quoted identifiers.
+     *
+     * @param command the statement
+     * @return the statement for this dialect
+     */
+    public String translate(@NonNull String command) {
+        return this == POSTGRESQL ? command.replace('`', '"') : command;
+    }
+
+    /**
+     * Builds an insert that does nothing if a row with the same unique key exists.
+     *
+     * @param table   the table
+     * @param columns the inserted columns, one parameter each
+     * @return the statement
+     */
+    public String insertIgnore(@NonNull String table, @NonNull String... columns) {
+        String insert = "INTO `" + table + "` (" + join(columns, "`%s`") + ") VALUES (" + join(columns, "?") + ")";
+        switch (this) {
+            case SQLITE:
+                return "INSERT OR IGNORE " + insert;
+            case MYSQL:
+                return "INSERT IGNORE " + insert;
+            default:
+                return "INSERT " + insert + " ON CONFLICT DO NOTHING";
+        }
+    }
+
+    /**
+     * Builds an insert that updates some columns of an existing row instead, keeping the others.
+     *
+     * @param table   the table
+     * @param key     the primary key column
+     * @param columns the inserted columns, one parameter each
+     * @param updated the columns overwritten if the row exists
+     * @return the statement
+     */
+    public String upsert(@NonNull String table, @NonNull String key, @NonNull String[] columns, @NonNull String... updated) {
+        List<String> overwritten = Arrays.asList(updated);
+        switch (this) {
+            case SQLITE: {
+                // ON CONFLICT needs SQLite 3.24, so the kept columns are read from the old row instead
+                StringJoiner selected = new StringJoiner(", ");
+                for (String column : columns) {
+                    selected.add(column.equals(key) || overwritten.contains(column) ?
+                            "v.`" + column + "`" : "COALESCE(o.`" + column + "`, v.`" + column + "`)");
+                }
+                return "INSERT OR REPLACE INTO `" + table + "` (" + join(columns, "`%s`") + ") SELECT " + selected +
+                        " FROM (SELECT " + join(columns, "? AS `%s`") + ") AS v LEFT JOIN `" + table + "` AS o ON o.`" + key + "` = v.`" + key + "`";
+            }
+            case MYSQL:
+                return "INSERT INTO `" + table + "` (" + join(columns, "`%s`") + ") VALUES (" + join(columns, "?") + ")" +
+                        " ON DUPLICATE KEY UPDATE " + join(updated, "`%s` = VALUES(`%<s`)");
+            default:
+                return "INSERT INTO `" + table + "` (" + join(columns, "`%s`") + ") VALUES (" + join(columns, "?") + ")" +
+                        " ON CONFLICT (`" + key + "`) DO UPDATE SET " + join(updated, "`%s` = EXCLUDED.`%<s`");
+        }
+    }
+
+    /**
+     * Builds a {@code SELECT} of parameters without a table, which may be followed by a {@code WHERE} clause.
+     *
+     * @param count the number of parameters
+     * @return the statement
+     */
+    public String selectParameters(int count) {
+        String select = "SELECT " + join(Collections.nCopies(count, "?").toArray(new String[0]), "%s");
+        return this == MYSQL ? select + " FROM DUAL" : select;
+    }
+
+    /**
+     * Gets a statement taking a transaction scoped lock on a string parameter, for checks
+     * that have to be atomic with a following insert.
+     *
+     * @return the statement, or null if a single statement is already atomic
+     */
+    @Nullable
+    public String getAdvisoryLock() {
+        // SQLite has a single writer and InnoDB locks the rows read by INSERT ... SELECT,
+        // PostgreSQL's read committed snapshot would let two inserts see the same count
+        return this == POSTGRESQL ? "SELECT pg_advisory_xact_lock(hashtext(?))" : null;
+    }
+
+    /**
+     * Gets the column type of a short string, e.g. a name.
+     *
+     * @param length the maximum length
+     * @return the column type
+     */
+    public String varchar(int length) {
+        return this == SQLITE ? "TEXT" : "VARCHAR(" + length + ")";
+    }
+
+    /**
+     * Gets the column type of a 64 bit integer.
+     *
+     * @return the column type
+     */
+    public String bigint() {
+        return this == SQLITE ? "INTEGER" : "BIGINT";
+    }
+
+    private static String join(String[] values, String format) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (String value : values) {
+            joiner.add(String.format(format, value));
+        }
+        return joiner.toString();
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import lombok.NonNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, least recently used cache of prepared statements for a single connection.
+ * <p>
+ * Not thread safe: the owning connection must be used by one thread at a time.
+ */
+public class StatementCache {
+
+    private final Connection connection;
+    private final int maxSize;
+    private final Counters counters;
+    private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75F, true);
+
+    public StatementCache(@NonNull Connection connection, int maxSize, @NonNull Counters counters) {
+        this.connection = connection;
+        this.maxSize = Math.max(1, maxSize);
+        this.counters = counters;
+    }
+
+    /**
+     * Gets the cached statement for a command, compiling it on a miss.
+     *
+     * @param command the command to prepare
+     * @return the prepared statement, must not be closed by the caller
+     * @throws SQLException on failure
+     */
+    public PreparedStatement prepare(@NonNull String command) throws SQLException {
+        PreparedStatement preparedStatement = statements.get(command);
+        if (preparedStatement != null && !preparedStatement.isClosed()) {
+            counters.hits.incrementAndGet();
+            return preparedStatement;
+        }
+
+        counters.misses.incrementAndGet();
+        preparedStatement = connection.prepareStatement(command);
+        statements.put(command, preparedStatement);
+        if (statements.size() > maxSize) {
+            Iterator<Map.Entry<String, PreparedStatement>> iterator = statements.entrySet().iterator();
+            PreparedStatement eldest = iterator.next().getValue();
+            iterator.remove();
+            counters.evictions.incrementAndGet();
+            closeQuietly(eldest);
+        }
+        return preparedStatement;
+    }
+
+    /**
+     * Drops a statement, e.g. after it failed and may be left in a bad state.
+     *
+     * @param command the command to drop
+     */
+    public void invalidate(@NonNull String command) {
+        PreparedStatement preparedStatement = statements.remove(command);
+        if (preparedStatement != null) {
+            closeQuietly(preparedStatement);
+        }
+    }
+
+    /**
+     * Closes every cached statement.
+     */
+    public void clear() {
+        for (PreparedStatement preparedStatement : statements.values()) {
+            closeQuietly(preparedStatement);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement preparedStatement) {
+        try {
+            preparedStatement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    // Counters shared by the caches of a database
+    public static class Counters {
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public long getEvictions() {
+            return evictions.get();
+        }
+
+        @Override
+        public String toString() {
+            long hits = getHits(), total = hits + getMisses();
+            double rate = total == 0 ? 0 : hits * 100D / total;
+            return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions", hits, getMisses(), rate, getEvictions());
+        }
+
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.importer;
+
+import com.sobble.pleasejustlogin.common.database.AccountStore;
+import com.sobble.pleasejustlogin.common.model.Account;
+import lombok.NonNull;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes every account to a gzip compressed CSV file, readable by {@link CsvImportSource}.
+ * <p>
+ * Accounts are read from the store in pages, so the database is only held while a page is read.
+ * The SHA-256 of the file is written next to it, in the format of {@code sha256sum}.
+ */
+public class AccountExporter {
+
+    public static final String CHECKSUM_EXTENSION = ".sha256";
+
+    private final AccountStore store;
+    private final int pageSize, progressInterval;
+
+    /**
+     * Creates a new exporter.
+     *
+     * @param store            the store to export
+     * @param pageSize         the number of accounts read at once
+     * @param progressInterval the number of accounts between progress reports
+     */
+    public AccountExporter(@NonNull AccountStore store, int pageSize, int progressInterval) {
+        this.store = store;
+        this.pageSize = Math.max(1, pageSize);
+        this.progressInterval = Math.max(1, progressInterval);
+    }
+
+    /**
+     * Exports every account. The file only appears once it is complete.
+     *
+     * @param target   the file to write, should end with {@code .csv.gz}
+     * @param progress receives the progress reports
+     * @return the number of exported accounts
+     * @throws IOException  if the file can't be written
+     * @throws SQLException if the accounts can't be read
+     */
+    public long export(@NonNull File target, @NonNull Consumer<String> progress) throws IOException, SQLException {
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        MessageDigest digest = sha256();
+        long start = System.currentTimeMillis();
+        long[] exported = {0};
+        try {
+            try (OutputStream out = Files.newOutputStream(temp.toPath());
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(
+                         new GZIPOutputStream(new DigestOutputStream(out, digest), 1 << 16), StandardCharsets.UTF_8), 1 << 16)) {
+                writer.write("name,password,address,lastlogin,regdate\n");
+                store.forEachAccount(pageSize, account -> {
+                    try {
+                        write(writer, account);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (++exported[0] % progressInterval == 0) {
+                        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+                        progress.accept(String.format("%d accounts exported (%d/s)", exported[0], exported[0] * 1000 / elapsed));
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        writeChecksum(target, digest.digest());
+        return exported[0];
+    }
+
+    /**
+     * Computes the SHA-256 of a file and writes it next to it.
+     *
+     * @param file the file
+     * @throws IOException on failure
+     */
+    public static void writeChecksum(@NonNull File file) throws IOException {
+        writeChecksum(file, checksum(file));
+    }
+
+    /**
+     * Checks a file against the SHA-256 written next to it.
+     *
+     * @param file the file
+     * @return true if it matches or no checksum was written, false if the file was changed or damaged
+     * @throws IOException on failure
+     */
+    public static boolean verifyChecksum(@NonNull File file) throws IOException {
+        File checksumFile = new File(file.getParentFile(), file.getName() + CHECKSUM_EXTENSION);
+        if (!checksumFile.isFile()) {
+            return true;
+        }
+        String expected = new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8).trim();
+        int space = expected.indexOf(' ');
+        return toHex(checksum(file)).equalsIgnoreCase(space == -1 ? expected : expected.substring(0, space));
+    }
+
+    private static void write(Writer writer, Account account) throws IOException {
+        writer.write(escape(account.getRealName()));
+        writer.write(',');
+        writer.write(escape(account.getHashedPassword()));
+        writer.write(',');
+        writer.write(escape(account.getAddress()));
+        writer.write(',');
+        writer.write(Long.toString(account.getLastLogin()));
+        writer.write(',');
+        writer.write(Long.toString(account.getRegDate()));
+        writer.write('\n');
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1 && value.trim().equals(value)) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"").replace("\n", "") + '"';
+    }
+
+    private static void writeChecksum(File file, byte[] checksum) throws IOException {
+        File checksumFile = new File(file.getParentFile(), file.getName() + CHECKSUM_EXTENSION);
+        Files.write(checksumFile.toPath(), (toHex(checksum) + "  " + file.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] checksum(File file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform must provide it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+}
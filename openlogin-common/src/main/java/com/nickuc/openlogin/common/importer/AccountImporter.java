@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.importer;
+
+import com.sobble.pleasejustlogin.common.database.PluginSettings;
+import com.sobble.pleasejustlogin.common.manager.AccountManagement;
+import com.sobble.pleasejustlogin.common.model.Account;
+import com.sobble.pleasejustlogin.common.security.hashing.PasswordHashing;
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Streams the accounts of an {@link ImportSource} into the account store.
+ * <p>
+ * The registered names are loaded once up front, so duplicates are skipped without a lookup per row,
+ * and new accounts are inserted in batches of one transaction each. After every batch the position of
+ * the source is saved in the plugin settings, so an interrupted import continues where it stopped.
+ */
+public class AccountImporter {
+
+    private final AccountManagement accountManagement;
+    private final PluginSettings pluginSettings;
+    private final int batchSize, progressInterval;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new importer.
+     *
+     * @param accountManagement the account management to import into
+     * @param pluginSettings    the settings the import position is saved in
+     * @param batchSize         the number of accounts inserted per transaction
+     * @param progressInterval  the number of rows between progress reports
+     */
+    public AccountImporter(@NonNull AccountManagement accountManagement, @NonNull PluginSettings pluginSettings,
+                           int batchSize, int progressInterval) {
+        this.accountManagement = accountManagement;
+        this.pluginSettings = pluginSettings;
+        this.batchSize = Math.max(1, batchSize);
+        this.progressInterval = Math.max(1, progressInterval);
+    }
+
+    /**
+     * Imports the accounts of a source. The source is closed afterwards.
+     *
+     * @param source   the source to read
+     * @param restart  true to ignore a saved position and read the source from the start
+     * @param progress receives the progress reports
+     * @return the import result
+     * @throws IOException  if the source can't be read
+     * @throws SQLException if the accounts can't be inserted, the ones of the previous batches are kept
+     */
+    public Result run(@NonNull ImportSource source, boolean restart, @NonNull Consumer<String> progress) throws IOException, SQLException {
+        String positionKey = "import." + source.getName() + ".position";
+        String resumeFrom = restart ? null : pluginSettings.read(positionKey);
+        if (resumeFrom != null && resumeFrom.isEmpty()) {
+            resumeFrom = null;
+        }
+
+        Set<String> names = new HashSet<>();
+        accountManagement.getStore().forEachName(name -> names.add(name.toLowerCase()));
+        progress.accept(names.size() + " accounts already registered" +
+                (resumeFrom == null ? "." : ", continuing after position " + resumeFrom + "."));
+
+        Result result = new Result(resumeFrom);
+        PasswordHashing passwordHashing = accountManagement.getPasswordHashing();
+        List<Account> batch = new ArrayList<>(batchSize);
+        try (ImportSource reader = source) {
+            reader.open(resumeFrom);
+
+            Account account;
+            while (!cancelled && (account = reader.next()) != null) {
+                result.rows++;
+                String realName = account.getRealName();
+                if (realName == null) {
+                    result.skipped++;
+                } else if (account.getHashedPassword() == null || !passwordHashing.isSupported(account.getHashedPassword())) {
+                    result.unsupported++;
+                } else if (!names.add(realName.toLowerCase())) {
+                    result.skipped++;
+                } else {
+                    batch.add(account);
+                    if (batch.size() >= batchSize) {
+                        flush(batch, result, positionKey, reader.getPosition());
+                    }
+                }
+
+                if (result.rows % progressInterval == 0) {
+                    progress.accept(result.toString());
+                }
+            }
+            flush(batch, result, positionKey, reader.getPosition());
+        }
+
+        result.cancelled = cancelled;
+        if (!cancelled) {
+            pluginSettings.set(positionKey, "");
+        }
+        result.millis = System.currentTimeMillis() - result.started;
+        return result;
+    }
+
+    /**
+     * Stops a running import after the current row. The rows read so far are still inserted.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void flush(List<Account> batch, Result result, String positionKey, @Nullable String position) throws SQLException {
+        if (!batch.isEmpty()) {
+            int imported = accountManagement.importAccounts(batch);
+            result.imported += imported;
+            // registered by a player while the import was running
+            result.skipped += batch.size() - imported;
+            batch.clear();
+        }
+        if (position != null) {
+            pluginSettings.set(positionKey, position);
+        }
+    }
+
+    @Getter
+    public static class Result {
+
+        @Nullable
+        private final String resumedFrom;
+        private final long started = System.currentTimeMillis();
+        private long rows, imported, skipped, unsupported, millis;
+        private boolean cancelled;
+
+        private Result(@Nullable String resumedFrom) {
+            this.resumedFrom = resumedFrom;
+        }
+
+        @Override
+        public String toString() {
+            long elapsed = Math.max(1, System.currentTimeMillis() - started);
+            return String.format("%d rows read (%d/s): %d imported, %d skipped, %d unsupported hashes",
+                    rows, rows * 1000 / elapsed, imported, skipped, unsupported);
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.importer;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads accounts from a CSV file with the columns {@code name,password[,address[,lastlogin[,regdate]]]}.
+ * <p>
+ * Dates are in milliseconds. Empty lines, lines starting with {@code #} and a header line are skipped.
+ * Fields may be quoted, with {@code ""} for a quote inside them. Files ending with {@code .gz} are
+ * decompressed, like the ones written by {@link AccountExporter}. The resume position is the line number.
+ */
+@RequiredArgsConstructor
+public class CsvImportSource implements ImportSource {
+
+    @NonNull
+    private final File file;
+
+    private BufferedReader reader;
+    private long line;
+
+    @Override
+    public String getName() {
+        return "csv." + file.getName();
+    }
+
+    @Override
+    public void open(@Nullable String position) throws IOException {
+        long skip;
+        try {
+            skip = position == null ? 0 : Long.parseLong(position);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid position " + position, e);
+        }
+        InputStream in = Files.newInputStream(file.toPath());
+        try {
+            if (file.getName().endsWith(".gz")) {
+                in = new GZIPInputStream(in, 1 << 16);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        line = 0;
+        while (line < skip && reader.readLine() != null) {
+            line++;
+        }
+    }
+
+    @Nullable
+    @Override
+    public Account next() throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (line == 1 && text.startsWith("\uFEFF")) {
+                text = text.substring(1);
+            }
+            String trimmed = text.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            List<String> fields = split(text);
+            if (fields.size() > 1 && fields.get(1).equalsIgnoreCase("password")) {
+                continue;
+            }
+            String name = fields.get(0);
+            String password = fields.size() > 1 ? fields.get(1) : null;
+            String address = fields.size() > 2 && !fields.get(2).isEmpty() ? fields.get(2) : null;
+            return new Account(name.isEmpty() ? null : name, password == null || password.isEmpty() ? null : password,
+                    address, number(fields, 3), number(fields, 4));
+        }
+        return null;
+    }
+
+    @Override
+    public String getPosition() {
+        return line == 0 ? null : Long.toString(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    private static long number(List<String> fields, int index) {
+        if (index >= fields.size()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(fields.get(index));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+}
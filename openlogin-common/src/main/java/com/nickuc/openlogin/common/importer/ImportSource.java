@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.importer;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A stream of accounts read from another plugin, see {@link AccountImporter}.
+ * <p>
+ * Rows are read one at a time, so a source never holds all of its accounts in memory.
+ */
+public interface ImportSource extends Closeable {
+
+    /**
+     * Gets the name of this source, used to remember where an import stopped.
+     *
+     * @return the source name
+     */
+    String getName();
+
+    /**
+     * Opens the source.
+     *
+     * @param position a position returned by {@link #getPosition()} to continue after, or null to read from the start
+     * @throws IOException if the source can't be read
+     */
+    void open(@Nullable String position) throws IOException;
+
+    /**
+     * Reads the next account. Its real name is null if the row has no usable name.
+     *
+     * @return the account, or null once every row was read
+     * @throws IOException on failure
+     */
+    @Nullable
+    Account next() throws IOException;
+
+    /**
+     * Gets the position of the last read row.
+     *
+     * @return the position, or null if no row was read yet
+     */
+    @Nullable
+    String getPosition();
+
+}
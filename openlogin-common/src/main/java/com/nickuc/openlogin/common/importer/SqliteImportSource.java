@@ -0,0 +1,256 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.importer;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the accounts table of another plugin's SQLite database.
+ * <p>
+ * Each column is looked up by a list of candidate names, so a reader works across the schema
+ * versions of a plugin. Rows are read in {@code rowid} order, which is also the resume position.
+ */
+public class SqliteImportSource implements ImportSource {
+
+    // times below this are in seconds rather than milliseconds (March 1973 in milliseconds)
+    private static final long MILLIS_THRESHOLD = 100_000_000_000L;
+
+    @Getter
+    private final String name;
+    private final File file;
+    private final String table;
+    private final String[] nameColumns, passwordColumns, addressColumns, lastLoginColumns, regDateColumns;
+
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private String nameColumn, passwordColumn, addressColumn, lastLoginColumn, regDateColumn;
+    private long rowId = -1;
+
+    private SqliteImportSource(String name, File file, String table, String[] nameColumns, String[] passwordColumns,
+                               String[] addressColumns, String[] lastLoginColumns, String[] regDateColumns) {
+        this.name = name;
+        this.file = file;
+        this.table = table;
+        this.nameColumns = nameColumns;
+        this.passwordColumns = passwordColumns;
+        this.addressColumns = addressColumns;
+        this.lastLoginColumns = lastLoginColumns;
+        this.regDateColumns = regDateColumns;
+    }
+
+    /**
+     * Creates a reader for the {@code ls_players} table of LoginSecurity.
+     *
+     * @param file the database file
+     * @return the source
+     */
+    public static SqliteImportSource loginSecurity(@NonNull File file) {
+        return new SqliteImportSource("loginsecurity", file, "ls_players",
+                new String[]{"last_name"},
+                new String[]{"password"},
+                new String[]{"ip_address"},
+                new String[]{"last_login"},
+                new String[]{"registration_date"});
+    }
+
+    /**
+     * Creates a reader for the {@code authme} table of AuthMe.
+     *
+     * @param file the database file
+     * @return the source
+     */
+    public static SqliteImportSource authMe(@NonNull File file) {
+        return new SqliteImportSource("authme", file, "authme",
+                new String[]{"realname", "username"},
+                new String[]{"password"},
+                new String[]{"ip", "last_ip", "regip"},
+                new String[]{"lastlogin"},
+                new String[]{"regdate"});
+    }
+
+    /**
+     * Creates a reader for the {@code nlogin} table of nLogin.
+     *
+     * @param file the database file
+     * @return the source
+     */
+    public static SqliteImportSource nLogin(@NonNull File file) {
+        return new SqliteImportSource("nlogin", file, "nlogin",
+                new String[]{"last_name", "realname", "name"},
+                new String[]{"password"},
+                new String[]{"last_ip", "address"},
+                new String[]{"last_seen", "lastlogin"},
+                new String[]{"creation_date", "regdate"});
+    }
+
+    /**
+     * Creates a reader for the {@code openlogin} table of a backup made by this plugin.
+     *
+     * @param file the backup file
+     * @return the source
+     */
+    public static SqliteImportSource backup(@NonNull File file) {
+        return new SqliteImportSource("backup." + file.getName(), file, "openlogin",
+                new String[]{"realname", "name"},
+                new String[]{"password"},
+                new String[]{"address"},
+                new String[]{"lastlogin"},
+                new String[]{"regdate"});
+    }
+
+    @Override
+    public void open(@Nullable String position) throws IOException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new IOException("SQLite driver not found", e);
+        }
+
+        try {
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file);
+
+            Map<String, String> columns = new HashMap<>();
+            try (Statement metadata = connection.createStatement();
+                 ResultSet empty = metadata.executeQuery("SELECT * FROM `" + table + "` LIMIT 0")) {
+                ResultSetMetaData data = empty.getMetaData();
+                for (int i = 1; i <= data.getColumnCount(); i++) {
+                    columns.put(data.getColumnName(i).toLowerCase(), data.getColumnName(i));
+                }
+            }
+            nameColumn = column(columns, nameColumns, true);
+            passwordColumn = column(columns, passwordColumns, true);
+            addressColumn = column(columns, addressColumns, false);
+            lastLoginColumn = column(columns, lastLoginColumns, false);
+            regDateColumn = column(columns, regDateColumns, false);
+
+            rowId = position == null ? -1 : Long.parseLong(position);
+            statement = connection.prepareStatement("SELECT `rowid` AS `import_rowid`, * FROM `" + table + "` WHERE `rowid` > ? ORDER BY `rowid`");
+            statement.setLong(1, rowId);
+            resultSet = statement.executeQuery();
+        } catch (SQLException | NumberFormatException e) {
+            close();
+            throw new IOException("Failed to read table " + table + " of " + file, e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Account next() throws IOException {
+        try {
+            if (!resultSet.next()) {
+                return null;
+            }
+            rowId = resultSet.getLong("import_rowid");
+            String realName = resultSet.getString(nameColumn);
+            String address = addressColumn == null ? null : resultSet.getString(addressColumn);
+            return new Account(realName == null || realName.trim().isEmpty() ? null : realName.trim(),
+                    resultSet.getString(passwordColumn),
+                    address == null || address.isEmpty() ? null : address,
+                    millis(lastLoginColumn), millis(regDateColumn));
+        } catch (SQLException e) {
+            throw new IOException("Failed to read table " + table + " of " + file, e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getPosition() {
+        return rowId == -1 ? null : Long.toString(rowId);
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (resultSet != null) resultSet.close();
+            if (statement != null) statement.close();
+            if (connection != null) connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a date column that may hold seconds, milliseconds, a timestamp or a date string.
+     */
+    private long millis(@Nullable String column) throws SQLException {
+        if (column == null) {
+            return 0;
+        }
+        Object value = resultSet.getObject(column);
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof Number) {
+            long time = ((Number) value).longValue();
+            return time < MILLIS_THRESHOLD ? time * 1000 : time;
+        }
+        if (value instanceof String) {
+            String text = ((String) value).trim();
+            try {
+                long time = Long.parseLong(text);
+                return time < MILLIS_THRESHOLD ? time * 1000 : time;
+            } catch (NumberFormatException e) {
+                try {
+                    return Timestamp.valueOf(text).getTime();
+                } catch (IllegalArgumentException e1) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private String column(Map<String, String> columns, String[] candidates, boolean required) throws SQLException {
+        for (String candidate : candidates) {
+            String column = columns.get(candidate);
+            if (column != null) {
+                return column;
+            }
+        }
+        if (required) {
+            throw new SQLException("Table " + table + " has none of the columns " + String.join(", ", candidates));
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,400 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.manager;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+import lombok.NonNull;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * A concurrent, bounded account cache.
+ * <p>
+ * Lookups never take a global lock. Concurrent loads of the same key are coalesced into a
+ * single load, and "not registered" results are cached for a shorter time than accounts.
+ * A load that races with {@link #put} or {@link #invalidate} is discarded instead of
+ * overwriting the newer state.
+ * <p>
+ * Entries can be {@link #pin pinned} for a while, e.g. between a player's pre-login and join,
+ * so they are neither evicted nor expired before they are used.
+ */
+public class AccountCache {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<Account>>> loading = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final AtomicLong modifications = new AtomicLong();
+
+    private final int maximumSize;
+    private final long expireAfterWrite, expireAfterAccess, negativeExpire;
+
+    // metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong preloaded = new AtomicLong();
+    private final AtomicLong preloadHits = new AtomicLong();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maximumSize       the maximum number of entries
+     * @param expireAfterWrite  seconds an account is kept after being loaded
+     * @param expireAfterAccess seconds an account is kept after its last lookup
+     * @param negativeExpire    seconds a "not registered" result is kept, 0 to disable negative caching
+     */
+    public AccountCache(int maximumSize, int expireAfterWrite, int expireAfterAccess, int negativeExpire) {
+        this.maximumSize = Math.max(1, maximumSize);
+        this.expireAfterWrite = TimeUnit.SECONDS.toNanos(Math.max(1, expireAfterWrite));
+        this.expireAfterAccess = TimeUnit.SECONDS.toNanos(Math.max(1, expireAfterAccess));
+        this.negativeExpire = TimeUnit.SECONDS.toNanos(Math.max(0, negativeExpire));
+    }
+
+    /**
+     * Gets a cached value without loading it.
+     *
+     * @param key the lowercase name
+     * @return the cached value, or null if absent
+     */
+    @Nullable
+    public Optional<Account> getIfPresent(@NonNull String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (entry.isExpired(now)) {
+            if (entries.remove(key, entry)) {
+                expirations.incrementAndGet();
+            }
+            return null;
+        }
+        entry.accessed = now;
+        (entry.account == null ? negativeHits : hits).incrementAndGet();
+        if (entry.preloaded) {
+            entry.preloaded = false;
+            preloadHits.incrementAndGet();
+        }
+        return Optional.ofNullable(entry.account);
+    }
+
+    /**
+     * Gets a value, loading it if absent. Only one load per key runs at a time.
+     *
+     * @param key    the lowercase name
+     * @param loader the function to load the value on a miss
+     * @return the cached or loaded value
+     */
+    public Optional<Account> get(@NonNull String key, @NonNull Function<String, Optional<Account>> loader) {
+        Optional<Account> cached = getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<Optional<Account>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<Account>> running = loading.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        misses.incrementAndGet();
+        return load(key, future, loader, false);
+    }
+
+    /**
+     * Loads a value ahead of its use, unless it is cached or already being loaded.
+     * The first lookup of a preloaded value is counted as a preload hit.
+     *
+     * @param key    the lowercase name
+     * @param loader the function to load the value
+     * @return true if the value was loaded
+     */
+    public boolean preload(@NonNull String key, @NonNull Function<String, Optional<Account>> loader) {
+        if (entries.containsKey(key)) {
+            return false;
+        }
+        CompletableFuture<Optional<Account>> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, future) != null) {
+            return false;
+        }
+        load(key, future, loader, true);
+        preloaded.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Keeps an entry from expiring or being evicted for a while. A later {@link #put} keeps the pin.
+     * <p>
+     * If the key is not cached, e.g. because "not registered" results are not cached, the given
+     * value is stored unless the key was changed after it was loaded.
+     *
+     * @param key     the lowercase name
+     * @param account the value loaded for the key, or null if not registered
+     * @param loaded  the {@link #getModificationCount() modification count} from before the value was loaded
+     * @param millis  how long to keep the entry
+     */
+    public void pin(@NonNull String key, @Nullable Account account, long loaded, long millis) {
+        long now = System.nanoTime(), until = now + TimeUnit.MILLISECONDS.toNanos(millis);
+        Entry entry = entries.computeIfAbsent(key, k -> modifications.get() == loaded ? new Entry(account, now) : null);
+        if (entry != null) {
+            entry.pinnedUntil = until;
+        }
+    }
+
+    /**
+     * Lets a pinned entry expire and be evicted again.
+     *
+     * @param key the lowercase name
+     */
+    public void unpin(@NonNull String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.pinnedUntil = 0;
+        }
+    }
+
+    /**
+     * Gets the number of {@link #put puts} and {@link #invalidate invalidations} so far.
+     *
+     * @return the modification count
+     */
+    public long getModificationCount() {
+        return modifications.get();
+    }
+
+    private Optional<Account> load(String key, CompletableFuture<Optional<Account>> future,
+                                   Function<String, Optional<Account>> loader, boolean preload) {
+        try {
+            Optional<Account> value = loader.apply(key);
+            // only store the result if no put or invalidate happened meanwhile
+            if (loading.remove(key, future)) {
+                store(key, value.orElse(null), preload);
+            }
+            future.complete(value);
+            return value;
+        } catch (Throwable t) {
+            // also on errors, or the coalesced lookups would wait forever
+            loading.remove(key, future);
+            future.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    /**
+     * Stores an account.
+     *
+     * @param key     the lowercase name
+     * @param account the account, or null to cache it as not registered
+     */
+    public void put(@NonNull String key, @Nullable Account account) {
+        modifications.incrementAndGet();
+        loading.remove(key);
+        store(key, account, false);
+    }
+
+    /**
+     * Replaces a cached account with one derived from it. Nothing is stored if the key is not
+     * cached or cached as not registered.
+     *
+     * @param key      the lowercase name
+     * @param function the function computing the new account from the cached one
+     */
+    public void computeIfPresent(@NonNull String key, @NonNull UnaryOperator<Account> function) {
+        modifications.incrementAndGet();
+        loading.remove(key);
+        long now = System.nanoTime();
+        entries.computeIfPresent(key, (k, current) -> {
+            if (current.account == null) {
+                return current;
+            }
+            Entry entry = new Entry(function.apply(current.account), now);
+            entry.pinnedUntil = current.pinnedUntil;
+            return entry;
+        });
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the lowercase name
+     */
+    public void invalidate(@NonNull String key) {
+        modifications.incrementAndGet();
+        loading.remove(key);
+        entries.remove(key);
+    }
+
+    /**
+     * Removes every key.
+     */
+    public void invalidateAll() {
+        modifications.incrementAndGet();
+        loading.clear();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets a one line summary of the cache usage.
+     *
+     * @return the cache status
+     */
+    public String getStatus() {
+        long hits = this.hits.get() + negativeHits.get(), total = hits + misses.get();
+        double rate = total == 0 ? 0 : hits * 100D / total;
+        return String.format("Account cache: %d/%d entries, %d hits (%d negative), %d misses (%.1f%% hit rate), %d coalesced, %d evicted, %d expired, %d preloaded (%d used)",
+                size(), maximumSize, hits, negativeHits.get(), misses.get(), rate, coalesced.get(), evictions.get(), expirations.get(),
+                preloaded.get(), preloadHits.get());
+    }
+
+    private void store(String key, Account account, boolean preload) {
+        long now = System.nanoTime();
+        Entry entry = new Entry(account, now);
+        entry.preloaded = preload;
+        if (account == null && negativeExpire == 0) {
+            // only kept while pinned
+            entries.computeIfPresent(key, (k, current) -> {
+                if (!current.isPinned(now)) {
+                    return null;
+                }
+                entry.pinnedUntil = current.pinnedUntil;
+                return entry;
+            });
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            entry.pinnedUntil = previous.pinnedUntil;
+        }
+        if (entries.size() > maximumSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Trims the cache to 90% of its maximum size, dropping expired entries first and then
+     * the least recently accessed ones. Only one thread evicts at a time.
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            for (Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext(); ) {
+                if (iterator.next().getValue().isExpired(now)) {
+                    iterator.remove();
+                    expirations.incrementAndGet();
+                }
+            }
+
+            int target = maximumSize - maximumSize / 10;
+            int excess = entries.size() - target;
+            if (excess <= 0) {
+                return;
+            }
+
+            // find the access time below which roughly 'excess' entries are
+            long[] accessed = new long[entries.size()];
+            int count = 0;
+            for (Entry entry : entries.values()) {
+                if (count == accessed.length) {
+                    break;
+                }
+                accessed[count++] = entry.accessed;
+            }
+            Arrays.sort(accessed, 0, count);
+            long threshold = accessed[Math.min(excess, count) - 1];
+
+            for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext() && excess > 0; ) {
+                Entry entry = iterator.next();
+                if (entry.accessed <= threshold && !entry.isPinned(now)) {
+                    iterator.remove();
+                    evictions.incrementAndGet();
+                    excess--;
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    // Cache entry
+    private class Entry {
+
+        private final Account account;
+        private final long written;
+        private volatile long accessed, pinnedUntil;
+        private volatile boolean preloaded;
+
+        private Entry(Account account, long now) {
+            this.account = account;
+            this.written = now;
+            this.accessed = now;
+        }
+
+        private boolean isPinned(long now) {
+            return pinnedUntil != 0 && pinnedUntil - now > 0;
+        }
+
+        private boolean isExpired(long now) {
+            if (isPinned(now)) {
+                return false;
+            }
+            if (account == null) {
+                return now - written >= negativeExpire;
+            }
+            return now - written >= expireAfterWrite || now - accessed >= expireAfterAccess;
+        }
+
+    }
+
+}
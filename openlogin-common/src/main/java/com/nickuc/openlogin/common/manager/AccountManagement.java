@@ -24,25 +24,96 @@
 
 package com.sobble.pleasejustlogin.common.manager;
 
-import com.sobble.pleasejustlogin.common.database.Database;
+import com.sobble.pleasejustlogin.common.database.AccountStore;
 import com.sobble.pleasejustlogin.common.model.Account;
-import com.sobble.pleasejustlogin.common.security.hashing.BCrypt;
+import com.sobble.pleasejustlogin.common.security.hashing.PasswordHashing;
+import com.sobble.pleasejustlogin.common.util.BloomFilter;
+import com.sobble.pleasejustlogin.common.util.BoundedExecutor;
+import lombok.Getter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
 import javax.annotation.Nullable;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
-@RequiredArgsConstructor
 public class AccountManagement {
 
-    private final Map<String, Account> accountCache = new HashMap<>();
+    @Getter
+    private final AccountStore store;
+    @Getter
+    private final BoundedExecutor executor;
+    @Getter
+    private final BoundedExecutor hashExecutor;
+    @Getter
+    private final AccountCache cache;
+    @Getter
+    private final NameFilter nameFilter;
+    @Getter
+    private final PasswordHashing passwordHashing;
+    @Getter
+    private final AccountWriteQueue writeQueue;
+    // null to count the accounts per address in the store, filled by loadAddressIndex() before use
+    @Getter
+    @Nullable
+    private final AddressIndex addressIndex;
 
-    private final Database database;
+    public AccountManagement(@NonNull AccountStore store, @NonNull BoundedExecutor executor, @NonNull BoundedExecutor hashExecutor,
+                             @NonNull AccountCache cache, @NonNull NameFilter nameFilter, @NonNull PasswordHashing passwordHashing,
+                             @NonNull AccountWriteQueue writeQueue, @Nullable AddressIndex addressIndex) {
+        this.store = store;
+        this.executor = executor;
+        this.hashExecutor = hashExecutor;
+        this.passwordHashing = passwordHashing;
+        this.cache = cache;
+        this.nameFilter = nameFilter;
+        this.writeQueue = writeQueue;
+        this.addressIndex = addressIndex;
+    }
+
+    /**
+     * Fills the address index with the address of every stored account.
+     *
+     * @return the number of counted accounts
+     * @throws SQLException if the addresses could not be read
+     */
+    public long loadAddressIndex() throws SQLException {
+        if (addressIndex == null) {
+            return 0;
+        }
+        AtomicLong accounts = new AtomicLong();
+        store.forEachAddress(address -> {
+            addressIndex.add(address);
+            accounts.incrementAndGet();
+        });
+        return accounts.get();
+    }
+
+    /**
+     * Rebuilds the name filter from every registered name.
+     *
+     * @return the number of names added to the filter
+     * @throws SQLException if the names could not be read
+     */
+    public synchronized long rebuildNameFilter() throws SQLException {
+        BloomFilter filter = nameFilter.beginRebuild(store.count());
+        AtomicLong names = new AtomicLong();
+        try {
+            store.forEachName(name -> {
+                filter.put(name.toLowerCase());
+                names.incrementAndGet();
+            });
+        } catch (SQLException e) {
+            nameFilter.abortRebuild();
+            throw e;
+        }
+        nameFilter.finishRebuild();
+        return names.get();
+    }
 
     /**
      * Checks if the password provided is valid.
@@ -55,10 +126,63 @@ public class AccountManagement {
         if (hashedPassword == null) {
             return false;
         }
-        if (!hashedPassword.startsWith("$2")) {
+        if (!passwordHashing.isSupported(hashedPassword)) {
             throw new IllegalArgumentException("Invalid hashed password for " + account.getRealName() + "! " + hashedPassword);
         }
-        return BCrypt.checkpw(password, hashedPassword);
+        return passwordHashing.verify(password, hashedPassword);
+    }
+
+    /**
+     * Checks if the password provided is valid on the hashing executor.
+     * <p>
+     * The future completes exceptionally with a {@link java.util.concurrent.RejectedExecutionException}
+     * if too many passwords are being checked at once.
+     *
+     * @param password the password to compare
+     * @return a future completed with true if the passwords match
+     */
+    public CompletableFuture<Boolean> comparePasswordAsync(@NonNull Account account, @NonNull String password) {
+        return hashExecutor.supply(() -> comparePassword(account, password));
+    }
+
+    /**
+     * Hashes a password on the hashing executor.
+     *
+     * @param password the password to hash
+     * @return a future completed with the hashed password
+     * @see #comparePasswordAsync(Account, String)
+     */
+    public CompletableFuture<String> hashPasswordAsync(@NonNull String password) {
+        return hashExecutor.supply(() -> passwordHashing.hash(password));
+    }
+
+    /**
+     * Checks if an account's password was hashed with an outdated algorithm or parameters.
+     *
+     * @param account the account to check
+     * @return true if the password should be hashed again on the next successful login
+     */
+    public boolean needsRehash(@NonNull Account account) {
+        String hashedPassword = account.getHashedPassword();
+        return hashedPassword != null && passwordHashing.needsRehash(hashedPassword);
+    }
+
+    /**
+     * Hashes a verified password again with the current algorithm and stores it.
+     * Nothing is stored if the password was changed in the meantime.
+     *
+     * @param account  the account of the password
+     * @param password the plain password, already verified against the account
+     * @return a future completed with true on success
+     */
+    public CompletableFuture<Boolean> rehashAsync(@NonNull Account account, @NonNull String password) {
+        return hashPasswordAsync(password).thenApplyAsync(hashedPassword -> {
+            Optional<Account> current = search(account.getRealName());
+            if (!current.isPresent() || !Objects.equals(current.get().getHashedPassword(), account.getHashedPassword())) {
+                return false;
+            }
+            return update(account.getRealName(), hashedPassword, current.get().getAddress());
+        }, executor);
     }
 
     /**
@@ -68,17 +192,124 @@ public class AccountManagement {
      * @return the player's {@link Account}. Failing, will return empty Optional.
      */
     public Optional<Account> retrieveOrLoad(@NonNull String name) {
-        synchronized (accountCache) {
-            Account account = accountCache.get(name.toLowerCase());
-            if (account == null) {
-                Optional<Account> accountOpt = search(name);
-                if (accountOpt.isPresent()) {
-                    account = accountOpt.get();
-                    accountCache.put(name.toLowerCase(), account);
+        String key = name.toLowerCase();
+        Optional<Account> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (nameFilter.isDefinitelyAbsent(key)) {
+            return Optional.empty();
+        }
+        return loadIntoCache(key);
+    }
+
+    private Optional<Account> loadIntoCache(String key) {
+        try {
+            return cache.get(key, this::loadForCache);
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    private Optional<Account> loadForCache(String key) {
+        try {
+            Optional<Account> account = load(key);
+            if (!account.isPresent() && nameFilter.isReady()) {
+                nameFilter.recordFalsePositive();
+            }
+            return account;
+        } catch (SQLException e) {
+            // failures must not be cached as "not registered"
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Retrieve or load an account and keep it cached for a while, e.g. from a player's pre-login
+     * until the join, so the join is answered from memory.
+     *
+     * @param name   the name of the player
+     * @param millis how long to keep the account cached, unless released before
+     * @return the player's {@link Account}. Failing, will return empty Optional.
+     * @see #releasePrefetch(String)
+     */
+    public Optional<Account> prefetch(@NonNull String name, long millis) {
+        String key = name.toLowerCase();
+        long modifications = cache.getModificationCount();
+        Optional<Account> account = cache.getIfPresent(key);
+        if (account == null) {
+            if (nameFilter.isDefinitelyAbsent(key)) {
+                // answered from memory anyway
+                return Optional.empty();
+            }
+            try {
+                account = cache.get(key, this::loadForCache);
+            } catch (IllegalStateException e) {
+                e.printStackTrace();
+                return Optional.empty();
+            }
+        }
+        cache.pin(key, account.orElse(null), modifications, millis);
+        return account;
+    }
+
+    /**
+     * Lets a prefetched account expire normally again.
+     *
+     * @param name the name of the player
+     */
+    public void releasePrefetch(@NonNull String name) {
+        cache.unpin(name.toLowerCase());
+    }
+
+    /**
+     * Loads the most recently used accounts into the cache, e.g. after a restart.
+     * Accounts that are already cached are skipped.
+     *
+     * @param limit the maximum number of accounts
+     * @return the number of loaded accounts
+     * @throws SQLException on failure
+     */
+    public int warmUp(int limit) throws SQLException {
+        List<String> keys = new ArrayList<>();
+        store.forEachRecentName(limit, keys::add);
+        int loaded = 0;
+        try {
+            for (String key : keys) {
+                if (cache.preload(key, this::loadForCache)) {
+                    loaded++;
                 }
             }
-            return Optional.ofNullable(account);
+        } catch (IllegalStateException e) {
+            // loadForCache wraps SQLExceptions, the store may throw its own IllegalStateExceptions
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e);
         }
+        return loaded;
+    }
+
+    /**
+     * Retrieve or load an account without blocking the caller.
+     * <p>
+     * Cached accounts and names rejected by the name filter complete immediately,
+     * otherwise the account is loaded on the I/O executor.
+     *
+     * @param name the name of the player
+     * @return a future of the player's {@link Account}
+     */
+    public CompletableFuture<Optional<Account>> retrieveOrLoadAsync(@NonNull String name) {
+        String key = name.toLowerCase();
+        Optional<Account> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (nameFilter.isDefinitelyAbsent(key)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return executor.supply(() -> loadIntoCache(key));
     }
 
     /**
@@ -87,9 +318,41 @@ public class AccountManagement {
      * @param account the account to add
      */
     public void addToCache(@NonNull Account account) {
-        synchronized (accountCache) {
-            accountCache.put(account.getRealName().toLowerCase(), account);
+        String key = account.getRealName().toLowerCase();
+        nameFilter.put(key);
+        cache.put(key, account);
+    }
+
+    /**
+     * Records an account inserted without this class, e.g. by an importer.
+     *
+     * @param name the name of the player
+     */
+    public void accountInserted(@NonNull String name) {
+        String key = name.toLowerCase();
+        nameFilter.put(key);
+        cache.invalidate(key);
+    }
+
+    /**
+     * Imports accounts, e.g. from another plugin, skipping the names that are already registered.
+     *
+     * @param accounts the accounts to import
+     * @return the number of imported accounts
+     * @throws SQLException on failure, in which case some of them may have been imported
+     */
+    public int importAccounts(@NonNull List<Account> accounts) throws SQLException {
+        for (Account account : accounts) {
+            nameFilter.put(account.getRealName().toLowerCase());
+        }
+        List<Account> inserted = store.insertAllIfAbsent(accounts);
+        for (Account account : inserted) {
+            if (addressIndex != null) {
+                addressIndex.add(account.getAddress());
+            }
+            cache.invalidate(account.getRealName().toLowerCase());
         }
+        return inserted.size();
     }
 
     /**
@@ -98,9 +361,7 @@ public class AccountManagement {
      * @param key the key to invalidate
      */
     public void invalidateCache(@NonNull String key) {
-        synchronized (accountCache) {
-            accountCache.remove(key);
-        }
+        cache.invalidate(key);
     }
 
     /**
@@ -110,22 +371,35 @@ public class AccountManagement {
      * @return optional of {@link Account}
      */
     public Optional<Account> search(@NonNull String name) {
-        try (Database.Query query = database.query("SELECT * FROM `openlogin` WHERE `name` = ?", name.toLowerCase())) {
-            ResultSet resultSet = query.resultSet;
-            if (resultSet.next()) {
-                String realName = resultSet.getString("realname");
-                String hashedPassword = resultSet.getString("password");
-                String address = resultSet.getString("address");
-                long lastLogin = resultSet.getLong("lastlogin");
-                long regdate = resultSet.getLong("regdate");
-                return Optional.of(new Account(realName, hashedPassword, address, lastLogin, regdate));
-            }
+        try {
+            return load(name);
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return Optional.empty();
     }
 
+    private Optional<Account> load(String name) throws SQLException {
+        Account pending = writeQueue.get(name.toLowerCase());
+        Optional<Account> stored = store.find(name.toLowerCase());
+        if (pending == null || !stored.isPresent()) {
+            return stored;
+        }
+        // only the login is queued, the stored password is the current one
+        Account account = stored.get();
+        return Optional.of(new Account(account.getRealName(), account.getHashedPassword(), pending.getAddress(), pending.getLastLogin(), account.getRegDate()));
+    }
+
+    /**
+     * Searches for saved accounts without blocking the caller.
+     *
+     * @param name the name of the player
+     * @return a future of the {@link Account}
+     */
+    public CompletableFuture<Optional<Account>> searchAsync(@NonNull String name) {
+        return executor.supply(() -> search(name));
+    }
+
     /**
      * Counts accounts by IP.
      *
@@ -133,17 +407,14 @@ public class AccountManagement {
      * @return the number of accounts
      */
     public int countByIp(@NonNull String address) throws SQLException {
-        try (Database.Query query = database.query("SELECT COUNT(*) FROM `openlogin` WHERE `address` = ?", address)) {
-            ResultSet resultSet = query.resultSet;
-            if (resultSet.next()) {
-                return resultSet.getInt(1);
-            }
-        }
-        return 0;
+        return addressIndex != null ? addressIndex.count(address) : store.countByAddress(address);
     }
 
     /**
      * Create an account atomically enforcing the IP limit.
+     * <p>
+     * With an address index, the limit is checked and reserved in memory, which also enforces
+     * its subnet limit, and released again if the account can't be stored.
      *
      * @param name the name of the player (realname)
      * @param hashedPassword the hashed password
@@ -157,38 +428,31 @@ public class AccountManagement {
             return false;
         }
 
+        String key = name.toLowerCase();
         long current = System.currentTimeMillis();
+        // added before the insert, so a concurrent lookup never misses the new account
+        nameFilter.put(key);
 
         try {
-            if (address != null && maxPerIp > 0) {
-                // This is still prone to race conditions if not done in a single query transaction,
-                // but since SQLite/MySQL are used via the Query wrapper, we can do an INSERT ... SELECT or a check first.
-                // For simplicity and matching the prompt's request for atomic or just a synchronized method / transaction:
-                synchronized (this) {
-                    if (countByIp(address) >= maxPerIp) {
-                        throw new IllegalStateException("IP limit exceeded");
-                    }
-                    database.update(
-                            "INSERT INTO `openlogin` (`name`, `realname`, `password`, `address`, `lastlogin`, `regdate`) VALUES (?, ?, ?, ?, ?, ?)",
-                            name.toLowerCase(),
-                            name,
-                            hashedPassword,
-                            address,
-                            current,
-                            current
-                    );
+            Account account = new Account(name, hashedPassword, address, current, current);
+            if (address != null && addressIndex != null) {
+                if (!addressIndex.tryReserve(address, maxPerIp)) {
+                    throw new IllegalStateException("IP limit exceeded");
+                }
+                try {
+                    store.insert(account);
+                } catch (SQLException e) {
+                    addressIndex.remove(address);
+                    throw e;
+                }
+            } else if (address != null && maxPerIp > 0) {
+                if (!store.insertUnderAddressLimit(account, maxPerIp)) {
+                    throw new IllegalStateException("IP limit exceeded");
                 }
             } else {
-                database.update(
-                        "INSERT INTO `openlogin` (`name`, `realname`, `password`, `address`, `lastlogin`, `regdate`) VALUES (?, ?, ?, ?, ?, ?)",
-                        name.toLowerCase(),
-                        name,
-                        hashedPassword,
-                        address,
-                        current,
-                        current
-                );
+                store.insert(account);
             }
+            cache.put(key, account);
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -218,38 +482,41 @@ public class AccountManagement {
      * @return true on success
      */
     public boolean update(@NonNull String name, @NonNull String hashedPassword, @Nullable String address, boolean replace) {
-        boolean exists = search(name).isPresent();
-        if (exists) {
-            if (!replace) {
-                return false;
-            }
-        }
-
         if (hashedPassword.trim().isEmpty()) {
             return false;
         }
 
+        String key = name.toLowerCase();
         long current = System.currentTimeMillis();
+        String finalAddress = address == null ? "127.0.0.1" : address;
 
         try {
-            if (exists) {
-                database.update(
-                        "UPDATE `openlogin` SET `password` = ?, `address` = ?, `lastlogin` = ? WHERE `name` = ?",
-                        hashedPassword,
-                        address == null ? "127.0.0.1" : address,
-                        current,
-                        name.toLowerCase()
-                );
+            nameFilter.put(key);
+            if (replace) {
+                String previousAddress = addressIndex == null ? null : load(key).map(Account::getAddress).orElse(null);
+                // the row is replaced as a whole, older queued state must not be written over it
+                writeQueue.discard(key);
+                store.upsert(new Account(name, hashedPassword, finalAddress, current, current));
+                // a login recorded meanwhile may have queued the old state again
+                writeQueue.discard(key);
+                if (addressIndex != null) {
+                    addressIndex.move(previousAddress, finalAddress);
+                }
+            } else if (!store.insertIfAbsent(new Account(name, hashedPassword, finalAddress, current, current))) {
+                return false;
+            } else if (addressIndex != null) {
+                addressIndex.add(finalAddress);
+            }
+
+            // the stored realname and regdate are kept, refresh the cached account only if they are known
+            Optional<Account> cached = cache.getIfPresent(key);
+            if (cached != null && cached.isPresent()) {
+                Account account = cached.get();
+                cache.put(key, new Account(account.getRealName(), hashedPassword, finalAddress, current, account.getRegDate()));
+            } else if (replace) {
+                cache.invalidate(key);
             } else {
-                database.update(
-                        "INSERT INTO `openlogin` (`name`, `realname`, `password`, `address`, `lastlogin`, `regdate`) VALUES (?, ?, ?, ?, ?, ?)",
-                        name.toLowerCase(),
-                        name,
-                        hashedPassword,
-                        address == null ? "127.0.0.1" : address,
-                        current,
-                        current
-                );
+                cache.put(key, new Account(name, hashedPassword, finalAddress, current, current));
             }
             return true;
         } catch (SQLException e) {
@@ -258,6 +525,45 @@ public class AccountManagement {
         }
     }
 
+    /**
+     * Records a successful login, updating the last login time and address.
+     * <p>
+     * The update is queued on the {@link AccountWriteQueue} and written with the next batch.
+     *
+     * @param name    the name of the player
+     * @param address the player address, or null to keep the stored one
+     */
+    public void recordLogin(@NonNull String name, @Nullable String address) {
+        Optional<Account> existing = retrieveOrLoad(name);
+        if (!existing.isPresent()) {
+            return;
+        }
+        Account account = existing.get();
+        long now = System.currentTimeMillis();
+        Account updated = new Account(account.getRealName(), account.getHashedPassword(),
+                address == null ? account.getAddress() : address, now, account.getRegDate());
+        // applied to the cached account, so a password changed meanwhile is kept
+        cache.computeIfPresent(name.toLowerCase(), cached -> new Account(cached.getRealName(), cached.getHashedPassword(),
+                address == null ? cached.getAddress() : address, now, cached.getRegDate()));
+        if (addressIndex != null) {
+            addressIndex.move(account.getAddress(), updated.getAddress());
+        }
+        writeQueue.enqueue(updated);
+    }
+
+    /**
+     * Update the player's data without blocking the caller.
+     *
+     * @param name           the name of the player (realname)
+     * @param hashedPassword the hashed password
+     * @param address        the player address
+     * @param replace        forces update if player data exists
+     * @return a future completed with true on success
+     */
+    public CompletableFuture<Boolean> updateAsync(@NonNull String name, @NonNull String hashedPassword, @Nullable String address, boolean replace) {
+        return executor.supply(() -> update(name, hashedPassword, address, replace));
+    }
+
     /**
      * Delete all of the player's data.
      *
@@ -265,20 +571,45 @@ public class AccountManagement {
      * @return true on success
      */
     public boolean delete(@NonNull String name) {
-        boolean exists = search(name).isPresent();
-        if (!exists) {
-            return false;
-        }
-
+        String key = name.toLowerCase();
         try {
-            database.update("DELETE FROM `openlogin` WHERE `name` = ?", name.toLowerCase());
-            return true;
+            String previousAddress = addressIndex == null ? null : load(key).map(Account::getAddress).orElse(null);
+            writeQueue.discard(key);
+            boolean deleted = store.delete(key);
+            if (deleted && addressIndex != null) {
+                addressIndex.remove(previousAddress);
+            }
+            // a login recorded meanwhile must not bring the account back
+            writeQueue.discard(key);
+            cache.put(key, null);
+            return deleted;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    /**
+     * Delete all of the player's data without blocking the caller.
+     *
+     * @param name the name of the player
+     * @return a future completed with true on success
+     */
+    public CompletableFuture<Boolean> deleteAsync(@NonNull String name) {
+        return executor.supply(() -> delete(name));
+    }
+
+    /**
+     * Migrate a player's account to a new username without blocking the caller.
+     *
+     * @param oldName the current username
+     * @param newName the new username
+     * @return a future completed with true on success
+     */
+    public CompletableFuture<Boolean> migrateAsync(@NonNull String oldName, @NonNull String newName) {
+        return executor.supply(() -> migrate(oldName, newName));
+    }
+
     /**
      * Migrate a player's account to a new username.
      *
@@ -290,24 +621,19 @@ public class AccountManagement {
         if (oldName.equalsIgnoreCase(newName)) {
             return false;
         }
-        boolean oldExists = search(oldName).isPresent();
-        if (!oldExists) {
-            return false;
-        }
-        boolean newExists = search(newName).isPresent();
-        if (newExists) {
-            return false;
-        }
+        String oldKey = oldName.toLowerCase(), newKey = newName.toLowerCase();
         try {
-            database.update(
-                    "UPDATE `openlogin` SET `name` = ?, `realname` = ? WHERE `name` = ?",
-                    newName.toLowerCase(),
-                    newName,
-                    oldName.toLowerCase()
-            );
-            invalidateCache(oldName.toLowerCase());
-            invalidateCache(newName.toLowerCase());
-            return true;
+            // the row is renamed as stored, so write its pending state first
+            writeQueue.flush();
+            writeQueue.discard(oldKey);
+            nameFilter.put(newKey);
+            boolean migrated = store.rename(oldKey, newName);
+            if (migrated) {
+                writeQueue.discard(oldKey);
+                invalidateCache(oldKey);
+                invalidateCache(newKey);
+            }
+            return migrated;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
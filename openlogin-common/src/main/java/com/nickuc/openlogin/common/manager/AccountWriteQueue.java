@@ -0,0 +1,194 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.manager;
+
+import com.sobble.pleasejustlogin.common.database.AccountStore;
+import com.sobble.pleasejustlogin.common.model.Account;
+import lombok.NonNull;
+
+import javax.annotation.Nullable;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A write-behind queue for account updates.
+ * <p>
+ * Updates are coalesced per name, so only the latest state of an account is written. Only the
+ * address and last login are written, never the password. Pending updates are written
+ * together once the batch size is reached or
+ * {@link #flush()} is called, e.g. by a periodic task and on shutdown. Until then
+ * {@link #get(String)} returns them, so reads never fall behind the queued state.
+ */
+public class AccountWriteQueue {
+
+    private final AccountStore store;
+    private final Executor executor;
+    private final int batchSize;
+    private final ConcurrentHashMap<String, Account> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // metrics
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    /**
+     * Creates a new queue.
+     *
+     * @param store     the store to write to
+     * @param executor  the executor running flushes once the batch size is reached
+     * @param batchSize the number of pending updates that triggers a flush
+     */
+    public AccountWriteQueue(@NonNull AccountStore store, @NonNull Executor executor, int batchSize) {
+        this.store = store;
+        this.executor = executor;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Queues the new state of an existing account, replacing any pending state of it.
+     *
+     * @param account the account to write
+     */
+    public void enqueue(@NonNull Account account) {
+        enqueued.incrementAndGet();
+        if (pending.put(account.getRealName().toLowerCase(), account) != null) {
+            coalesced.incrementAndGet();
+        }
+        if (pending.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    flushScheduled.set(false);
+                    try {
+                        flush();
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the periodic flush will pick them up
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Gets the pending state of an account.
+     *
+     * @param key the lowercase name
+     * @return the pending account, or null if there is none
+     */
+    @Nullable
+    public Account get(@NonNull String key) {
+        return pending.get(key);
+    }
+
+    /**
+     * Drops the pending state of an account, e.g. before it is deleted. Waits for a running
+     * flush, so no older state is written afterwards.
+     *
+     * @param key the lowercase name
+     */
+    public synchronized void discard(@NonNull String key) {
+        pending.remove(key);
+    }
+
+    /**
+     * Writes every pending update, in a single transaction for SQL stores. Failed updates stay queued.
+     *
+     * @return the number of written updates
+     * @throws SQLException on failure
+     */
+    public synchronized int flush() throws SQLException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Map.Entry<String, Account>> batch = new ArrayList<>(pending.size());
+        List<Account> accounts = new ArrayList<>(pending.size());
+        for (Map.Entry<String, Account> entry : pending.entrySet()) {
+            batch.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            accounts.add(entry.getValue());
+        }
+
+        long start = System.nanoTime();
+        try {
+            store.updateAll(accounts);
+        } catch (SQLException e) {
+            failures.incrementAndGet();
+            throw e;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        flushes.incrementAndGet();
+        flushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        written.addAndGet(batch.size());
+
+        // updates queued during the flush replaced these entries and stay pending
+        for (Map.Entry<String, Account> entry : batch) {
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+        return batch.size();
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Gets the average time a flush took.
+     *
+     * @return the average flush time, in milliseconds
+     */
+    public double getAverageFlushMillis() {
+        long flushes = this.flushes.get();
+        return flushes == 0 ? 0 : flushNanos.get() / 1e6 / flushes;
+    }
+
+    /**
+     * Gets a one line summary of the queue usage.
+     *
+     * @return the queue status
+     */
+    public String getStatus() {
+        return String.format("Write queue: %d pending (batch %d), %d queued, %d coalesced, %d written in %d flushes (%d failed), %.1fms avg flush (%.1fms max)",
+                size(), batchSize, enqueued.get(), coalesced.get(), written.get(), flushes.get(), failures.get(),
+                getAverageFlushMillis(), maxFlushNanos.get() / 1e6);
+    }
+
+}
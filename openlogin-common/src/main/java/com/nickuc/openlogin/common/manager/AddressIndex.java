@@ -0,0 +1,495 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.manager;
+
+import lombok.NonNull;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory counts of the registered accounts per address and per subnet.
+ * <p>
+ * IPv4 addresses are keyed by their 32 bits and IPv6 addresses by a configurable prefix, since
+ * a single IPv6 user usually gets a whole /64. Counts are kept in lock-free open-addressing
+ * tables of primitive keys, and {@link #tryReserve(String, int)} checks a limit and increments
+ * the count with a single compare-and-set, so concurrent registrations can't exceed it.
+ * <p>
+ * The index must be filled with every stored address before it is used, and only fits a
+ * database that no other server writes to.
+ */
+public class AddressIndex {
+
+    private final int ipv6PrefixLength;
+    private final int subnetIpv4PrefixLength, subnetIpv6PrefixLength;
+    private final int maxPerSubnet;
+    private final CountTable addresses = new CountTable();
+    private final CountTable subnets = new CountTable();
+
+    /**
+     * Creates a new, empty index.
+     *
+     * @param ipv6PrefixLength       the prefix length an IPv6 address is counted by (1-128)
+     * @param subnetIpv4PrefixLength the prefix length of an IPv4 subnet (1-32)
+     * @param subnetIpv6PrefixLength the prefix length of an IPv6 subnet (1-128)
+     * @param maxPerSubnet           the maximum number of accounts per subnet, 0 to not count subnets
+     */
+    public AddressIndex(int ipv6PrefixLength, int subnetIpv4PrefixLength, int subnetIpv6PrefixLength, int maxPerSubnet) {
+        this.ipv6PrefixLength = Math.max(1, Math.min(128, ipv6PrefixLength));
+        this.subnetIpv4PrefixLength = Math.max(1, Math.min(32, subnetIpv4PrefixLength));
+        this.subnetIpv6PrefixLength = Math.max(1, Math.min(128, subnetIpv6PrefixLength));
+        this.maxPerSubnet = Math.max(0, maxPerSubnet);
+    }
+
+    /**
+     * Counts the accounts of an address.
+     *
+     * @param address the IP address
+     * @return the number of accounts
+     */
+    public int count(@NonNull String address) {
+        return addresses.get(key(address, 32, ipv6PrefixLength));
+    }
+
+    /**
+     * Counts the accounts of the subnet of an address.
+     *
+     * @param address the IP address
+     * @return the number of accounts, always 0 if subnets are not counted
+     */
+    public int countSubnet(@NonNull String address) {
+        return maxPerSubnet == 0 ? 0 : subnets.get(key(address, subnetIpv4PrefixLength, subnetIpv6PrefixLength));
+    }
+
+    /**
+     * Counts an account for an address if neither the address nor its subnet reached its limit.
+     * Call {@link #remove(String)} if the account is not stored afterwards.
+     *
+     * @param address       the IP address
+     * @param maxPerAddress the maximum number of accounts per address, 0 for no limit
+     * @return true if counted, false if a limit was reached
+     */
+    public boolean tryReserve(@NonNull String address, int maxPerAddress) {
+        long key = key(address, 32, ipv6PrefixLength);
+        if (!addresses.add(key, 1, maxPerAddress)) {
+            return false;
+        }
+        if (maxPerSubnet > 0 && !subnets.add(key(address, subnetIpv4PrefixLength, subnetIpv6PrefixLength), 1, maxPerSubnet)) {
+            addresses.add(key, -1, 0);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Counts an account for an address, ignoring the limits.
+     *
+     * @param address the IP address, null is ignored
+     */
+    public void add(@Nullable String address) {
+        if (address == null) {
+            return;
+        }
+        addresses.add(key(address, 32, ipv6PrefixLength), 1, 0);
+        if (maxPerSubnet > 0) {
+            subnets.add(key(address, subnetIpv4PrefixLength, subnetIpv6PrefixLength), 1, 0);
+        }
+    }
+
+    /**
+     * Stops counting an account for an address.
+     *
+     * @param address the IP address, null is ignored
+     */
+    public void remove(@Nullable String address) {
+        if (address == null) {
+            return;
+        }
+        addresses.add(key(address, 32, ipv6PrefixLength), -1, 0);
+        if (maxPerSubnet > 0) {
+            subnets.add(key(address, subnetIpv4PrefixLength, subnetIpv6PrefixLength), -1, 0);
+        }
+    }
+
+    /**
+     * Moves an account from an address to another.
+     *
+     * @param from the previous address, may be null
+     * @param to   the new address, may be null
+     */
+    public void move(@Nullable String from, @Nullable String to) {
+        if (from == null ? to != null : !from.equals(to)) {
+            remove(from);
+            add(to);
+        }
+    }
+
+    /**
+     * Gets a one line summary of the index usage.
+     *
+     * @return the index status
+     */
+    public String getStatus() {
+        String status = String.format("Address index: %d addresses (%d slots, %d resizes)",
+                addresses.size(), addresses.capacity(), addresses.resizes.get());
+        if (maxPerSubnet > 0) {
+            status += String.format(", %d subnets (/%d, /%d, max %d)", subnets.size(), subnetIpv4PrefixLength, subnetIpv6PrefixLength, maxPerSubnet);
+        }
+        return status;
+    }
+
+    /**
+     * Gets the key of an address, masked to a prefix length.
+     * <p>
+     * IPv4 keys carry bit 32, which keeps them apart from IPv6 prefixes outside of the
+     * reserved ::/8 block. Unparsable addresses are keyed by a hash of their text.
+     */
+    static long key(String address, int ipv4PrefixLength, int ipv6PrefixLength) {
+        long ipv4 = parseIpv4(address, 0, address.length());
+        if (ipv4 >= 0) {
+            return ipv4Key(ipv4, ipv4PrefixLength);
+        }
+
+        long[] ipv6 = parseIpv6(address);
+        if (ipv6 == null) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < address.length(); i++) {
+                hash = (hash ^ address.charAt(i)) * 0x100000001b3L;
+            }
+            return hash == 0 ? 1 : hash;
+        }
+        long high = ipv6[0], low = ipv6[1];
+        if (high == 0 && low >>> 32 == 0xFFFFL) {
+            // IPv4-mapped
+            return ipv4Key(low & 0xFFFFFFFFL, ipv4PrefixLength);
+        }
+
+        long key;
+        if (ipv6PrefixLength <= 64) {
+            key = high & (-1L << (64 - ipv6PrefixLength));
+        } else {
+            key = high ^ mix(low & (ipv6PrefixLength == 128 ? -1L : -1L << (128 - ipv6PrefixLength)));
+        }
+        // the reserved ::/64 would be the empty key
+        return key == 0 ? 1 : key;
+    }
+
+    private static long ipv4Key(long address, int prefixLength) {
+        long mask = (0xFFFFFFFFL << (32 - prefixLength)) & 0xFFFFFFFFL;
+        return 1L << 32 | (address & mask);
+    }
+
+    // parses a dotted IPv4 address, -1 if invalid
+    private static long parseIpv4(String address, int from, int to) {
+        long result = 0;
+        int parts = 0;
+        int i = from;
+        while (i < to) {
+            int start = i, value = 0;
+            while (i < to && i - start < 3 && address.charAt(i) >= '0' && address.charAt(i) <= '9') {
+                value = value * 10 + address.charAt(i++) - '0';
+            }
+            if (i == start || value > 255 || ++parts > 4) {
+                return -1;
+            }
+            result = result << 8 | value;
+            if (i < to) {
+                if (address.charAt(i) != '.' || i == to - 1) {
+                    return -1;
+                }
+                i++;
+            }
+        }
+        return parts == 4 ? result : -1;
+    }
+
+    // parses an IPv6 address into its high and low 64 bits, null if invalid
+    @Nullable
+    private static long[] parseIpv6(String address) {
+        int end = address.indexOf('%');
+        if (end < 0) {
+            end = address.length();
+        }
+        int start = 0;
+        if (end > 1 && address.charAt(0) == '[' && address.charAt(end - 1) == ']') {
+            start = 1;
+            end--;
+        }
+
+        int[] groups = new int[8];
+        int count = 0, gap = -1;
+        int i = start;
+        if (address.startsWith("::", i)) {
+            gap = 0;
+            i += 2;
+        }
+        while (i < end) {
+            int groupStart = i, value = 0;
+            while (i < end && i - groupStart < 4 && Character.digit(address.charAt(i), 16) >= 0) {
+                value = value << 4 | Character.digit(address.charAt(i++), 16);
+            }
+            if (i < end && address.charAt(i) == '.') {
+                // embedded IPv4 in the last two groups
+                long ipv4 = parseIpv4(address, groupStart, end);
+                if (ipv4 < 0 || count > 6) {
+                    return null;
+                }
+                groups[count++] = (int) (ipv4 >>> 16);
+                groups[count++] = (int) (ipv4 & 0xFFFF);
+                i = end;
+                break;
+            }
+            if (i == groupStart || count == 8) {
+                return null;
+            }
+            groups[count++] = value;
+            if (i < end) {
+                if (address.charAt(i) != ':' || i == end - 1) {
+                    return null;
+                }
+                i++;
+                if (address.charAt(i) == ':') {
+                    if (gap >= 0) {
+                        return null;
+                    }
+                    gap = count;
+                    i++;
+                }
+            }
+        }
+
+        if (gap < 0 ? count != 8 : count > 7) {
+            return null;
+        }
+        if (gap >= 0) {
+            int shift = 8 - count;
+            System.arraycopy(groups, gap, groups, gap + shift, count - gap);
+            for (int j = gap; j < gap + shift; j++) {
+                groups[j] = 0;
+            }
+        }
+        long high = 0, low = 0;
+        for (int j = 0; j < 4; j++) {
+            high = high << 16 | groups[j];
+            low = low << 16 | groups[j + 4];
+        }
+        return new long[]{high, low};
+    }
+
+    // 64-bit finalizer of MurmurHash3
+    private static long mix(long value) {
+        value = (value ^ value >>> 33) * 0xff51afd7ed558ccdL;
+        value = (value ^ value >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return value ^ value >>> 33;
+    }
+
+    /**
+     * A lock-free map of non-zero long keys to counts, with linear probing.
+     * <p>
+     * Keys are claimed with a compare-and-set and never removed, counts are changed with a
+     * compare-and-set. Once the table is three quarters full, one thread moves the non-zero
+     * counts to a new table: it first marks every count as frozen, and updates that find a
+     * frozen count retry on the new table once it is published.
+     */
+    private static class CountTable {
+
+        private static final int FROZEN = 1 << 31;
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private volatile Slots slots = new Slots(INITIAL_CAPACITY);
+        private final AtomicBoolean resizing = new AtomicBoolean();
+        private final AtomicInteger resizes = new AtomicInteger();
+
+        private int get(long key) {
+            Slots slots = this.slots;
+            int index = slots.find(key);
+            return index < 0 ? 0 : slots.counts.get(index) & ~FROZEN;
+        }
+
+        /**
+         * Adds a delta to the count of a key.
+         *
+         * @param key   the key
+         * @param delta the delta, counts never go below zero
+         * @param limit the count an increment must not exceed, 0 for no limit
+         * @return false if the limit would be exceeded
+         */
+        private boolean add(long key, int delta, int limit) {
+            while (true) {
+                Slots slots = this.slots;
+                int index = delta > 0 ? slots.claim(key) : slots.find(key);
+                if (index == Slots.ABSENT) {
+                    return true;
+                }
+                if (index == Slots.FULL) {
+                    resize(slots);
+                    continue;
+                }
+
+                while (true) {
+                    int count = slots.counts.get(index);
+                    if ((count & FROZEN) != 0) {
+                        break;
+                    }
+                    if (delta > 0 && limit > 0 && count + delta > limit) {
+                        return false;
+                    }
+                    if (slots.counts.compareAndSet(index, count, Math.max(0, count + delta))) {
+                        if (slots.used.get() > slots.capacity / 4 * 3) {
+                            resize(slots);
+                        }
+                        return true;
+                    }
+                }
+                awaitResize(slots);
+            }
+        }
+
+        private void awaitResize(Slots slots) {
+            while (this.slots == slots) {
+                if (resizing.get()) {
+                    Thread.yield();
+                } else {
+                    // the resizing thread failed, take over
+                    resize(slots);
+                }
+            }
+        }
+
+        private void resize(Slots slots) {
+            if (!resizing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                if (this.slots != slots) {
+                    return;
+                }
+                int live = 0;
+                for (int i = 0; i < slots.capacity; i++) {
+                    int count = slots.counts.get(i);
+                    while ((count & FROZEN) == 0 && !slots.counts.compareAndSet(i, count, count | FROZEN)) {
+                        count = slots.counts.get(i);
+                    }
+                    if ((count & ~FROZEN) > 0 && slots.keys.get(i) != 0) {
+                        live++;
+                    }
+                }
+
+                // zero counts are dropped, so the table may also shrink
+                int capacity = INITIAL_CAPACITY;
+                while (capacity < live * 2) {
+                    capacity <<= 1;
+                }
+                Slots resized = new Slots(capacity);
+                for (int i = 0; i < slots.capacity; i++) {
+                    int count = slots.counts.get(i) & ~FROZEN;
+                    long key = slots.keys.get(i);
+                    if (key != 0 && count > 0) {
+                        resized.counts.set(resized.claim(key), count);
+                    }
+                }
+                this.slots = resized;
+                resizes.incrementAndGet();
+            } finally {
+                resizing.set(false);
+            }
+        }
+
+        private int size() {
+            Slots slots = this.slots;
+            int size = 0;
+            for (int i = 0; i < slots.capacity; i++) {
+                if ((slots.counts.get(i) & ~FROZEN) > 0) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        private int capacity() {
+            return slots.capacity;
+        }
+
+    }
+
+    // The arrays of a count table
+    private static class Slots {
+
+        private static final int ABSENT = -1, FULL = -2;
+
+        private final int capacity;
+        private final AtomicLongArray keys;
+        private final AtomicIntegerArray counts;
+        private final AtomicInteger used = new AtomicInteger();
+
+        private Slots(int capacity) {
+            this.capacity = capacity;
+            this.keys = new AtomicLongArray(capacity);
+            this.counts = new AtomicIntegerArray(capacity);
+        }
+
+        private int find(long key) {
+            int mask = capacity - 1;
+            int index = (int) mix(key) & mask;
+            for (int probes = 0; probes < capacity; probes++, index = index + 1 & mask) {
+                long current = keys.get(index);
+                if (current == key) {
+                    return index;
+                }
+                if (current == 0) {
+                    return ABSENT;
+                }
+            }
+            return ABSENT;
+        }
+
+        private int claim(long key) {
+            int mask = capacity - 1;
+            int index = (int) mix(key) & mask;
+            for (int probes = 0; probes < capacity; ) {
+                long current = keys.get(index);
+                if (current == key) {
+                    return index;
+                }
+                if (current == 0) {
+                    if (keys.compareAndSet(index, 0, key)) {
+                        used.incrementAndGet();
+                        return index;
+                    }
+                    // claimed meanwhile, maybe for the same key
+                    continue;
+                }
+                probes++;
+                index = index + 1 & mask;
+            }
+            return FULL;
+        }
+
+    }
+
+}
@@ -25,122 +25,122 @@
 package com.sobble.pleasejustlogin.common.manager;
 
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import javax.annotation.Nullable;
 
-@RequiredArgsConstructor
+/**
+ * Login state that isn't tied to an online player: the failed login limits and the cache.
+ * <p>
+ * Failed logins are counted per address (IPv6 by {@code Security.ipv6-prefix-length}), per
+ * subnet and per account, each with its own {@link RateLimiter.Policy}. A login is refused
+ * while any of them is locked out.
+ */
 public class LoginManagement {
 
-    private final Map<String, Long> lock = new HashMap<>();
-    private final HashSet<String> logged = new HashSet<>();
-    private final Map<String, Integer> failedAttempts = new HashMap<>();
-    private final Map<String, Long> ipLockout = new HashMap<>();
-
     private final AccountManagement accountManagement;
+    private final RateLimiter addresses, subnets, accounts;
+    private final int ipv6PrefixLength, subnetIpv4PrefixLength, subnetIpv6PrefixLength;
 
-    private void cleanupExpiredLockouts() {
-        long now = System.currentTimeMillis();
-        ipLockout.entrySet().removeIf(entry -> {
-            if (entry.getValue() <= now) {
-                failedAttempts.remove(entry.getKey());
-                return true;
-            }
-            return false;
-        });
-        if (ipLockout.size() > 1000) {
-            ipLockout.clear();
-            failedAttempts.clear();
-        }
-    }
-
-    public boolean isIpLockedOut(String ip) {
-        synchronized (ipLockout) {
-            cleanupExpiredLockouts();
-            Long unlockTime = ipLockout.get(ip);
-            return unlockTime != null && unlockTime > System.currentTimeMillis();
-        }
-    }
-
-    public void registerFailedAttempt(String ip) {
-        synchronized (ipLockout) {
-            cleanupExpiredLockouts();
-            int attempts = failedAttempts.getOrDefault(ip, 0) + 1;
-            failedAttempts.put(ip, attempts);
-            if (attempts >= 5) {
-                // Exponential backoff: 5 failures -> 5 min, 6 -> 15 min, 7 -> 1 hr
-                long lockoutDuration = 0;
-                if (attempts == 5) lockoutDuration = 5 * 60 * 1000L;
-                else if (attempts == 6) lockoutDuration = 15 * 60 * 1000L;
-                else lockoutDuration = 60 * 60 * 1000L;
-                
-                ipLockout.put(ip, System.currentTimeMillis() + lockoutDuration);
-            }
-        }
-    }
-
-    public void clearFailedAttempts(String ip) {
-        synchronized (ipLockout) {
-            failedAttempts.remove(ip);
-            ipLockout.remove(ip);
-        }
+    /**
+     * Creates a new login management.
+     *
+     * @param accountManagement      the account management
+     * @param addresses              the limiter of addresses
+     * @param subnets                the limiter of subnets
+     * @param accounts               the limiter of account names
+     * @param ipv6PrefixLength       the prefix length an IPv6 address is limited by (1-128)
+     * @param subnetIpv4PrefixLength the prefix length of an IPv4 subnet (1-32)
+     * @param subnetIpv6PrefixLength the prefix length of an IPv6 subnet (1-128)
+     */
+    public LoginManagement(@NonNull AccountManagement accountManagement, @NonNull RateLimiter addresses, @NonNull RateLimiter subnets, @NonNull RateLimiter accounts,
+                           int ipv6PrefixLength, int subnetIpv4PrefixLength, int subnetIpv6PrefixLength) {
+        this.accountManagement = accountManagement;
+        this.addresses = addresses;
+        this.subnets = subnets;
+        this.accounts = accounts;
+        this.ipv6PrefixLength = Math.max(1, Math.min(128, ipv6PrefixLength));
+        this.subnetIpv4PrefixLength = Math.max(1, Math.min(32, subnetIpv4PrefixLength));
+        this.subnetIpv6PrefixLength = Math.max(1, Math.min(128, subnetIpv6PrefixLength));
     }
 
     /**
-     * Clears the player cache
+     * Gets how long a login is refused.
      *
-     * @param name the name of the player
+     * @param address the address of the player, null if unknown or local
+     * @param key     the key the player is limited by without an address
+     * @param name    the name of the account
+     * @return the remaining lockout in milliseconds, 0 if not locked out
      */
-    public void cleanup(@NonNull String name) {
-        String nameLower = name.toLowerCase();
-        synchronized (lock) {
-            lock.remove(nameLower);
-        }
-        synchronized (logged) {
-            logged.remove(nameLower);
+    public long getLockout(@Nullable String address, @NonNull String key, @NonNull String name) {
+        long lockout = addresses.getLockout(addressKey(address, key));
+        if (address != null) {
+            lockout = Math.max(lockout, subnets.getLockout(subnetKey(address)));
         }
-        accountManagement.invalidateCache(nameLower);
+        return Math.max(lockout, accounts.getLockout(nameKey(name)));
     }
 
     /**
-     * Set the player authenticated.
+     * Counts a failed login.
      *
-     * @param name the name of the player
+     * @param address the address of the player, null if unknown or local
+     * @param key     the key the player is limited by without an address
+     * @param name    the name of the account
      */
-    public void setAuthenticated(@NonNull String name) {
-        synchronized (logged) {
-            logged.add(name.toLowerCase());
+    public void registerFailedAttempt(@Nullable String address, @NonNull String key, @NonNull String name) {
+        addresses.registerFailure(addressKey(address, key));
+        if (address != null) {
+            subnets.registerFailure(subnetKey(address));
         }
+        accounts.registerFailure(nameKey(name));
     }
 
     /**
-     * Check if the player is authenticated.
+     * Forgets the failed logins of a player after a successful login. The subnet keeps its count,
+     * one player logging in says nothing about the others.
      *
-     * @param name the name of the player
-     * @return true if authenticated
+     * @param address the address of the player, null if unknown or local
+     * @param key     the key the player is limited by without an address
+     * @param name    the name of the account
      */
-    public boolean isAuthenticated(@NonNull String name) {
-        synchronized (logged) {
-            return logged.contains(name.toLowerCase());
-        }
+    public void clearFailedAttempts(@Nullable String address, @NonNull String key, @NonNull String name) {
+        addresses.clear(addressKey(address, key));
+        accounts.clear(nameKey(name));
+    }
+
+    public String getStatus() {
+        return String.format("Login limits: %d addresses, %d subnets, %d accounts tracked, %d lockouts",
+                addresses.size(), subnets.size(), accounts.size(),
+                addresses.getLockouts() + subnets.getLockouts() + accounts.getLockouts());
     }
 
     /**
-     * Checks if the player is unlocked and lock it.
+     * Clears the player cache
      *
      * @param name the name of the player
      */
-    public boolean isUnlocked(@NonNull String name) {
-        String toLower = name.toLowerCase();
-        synchronized (lock) {
-            Long millis = lock.get(toLower);
-            if (millis == null || millis - System.currentTimeMillis() < 0) {
-                lock.put(name.toLowerCase(), System.currentTimeMillis() + 750L);
-                return true;
-            }
-            return false;
+    public void cleanup(@NonNull String name) {
+        accountManagement.invalidateCache(name.toLowerCase());
+    }
+
+    private long addressKey(@Nullable String address, String key) {
+        return address != null ? AddressIndex.key(address, 32, ipv6PrefixLength) : hash(key, false);
+    }
+
+    private long subnetKey(String address) {
+        return AddressIndex.key(address, subnetIpv4PrefixLength, subnetIpv6PrefixLength);
+    }
+
+    private static long nameKey(String name) {
+        return hash(name, true);
+    }
+
+    // 64-bit FNV-1a, without lower-casing into a new string
+    private static long hash(String value, boolean ignoreCase) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (ignoreCase ? Character.toLowerCase(c) : c)) * 0x100000001b3L;
         }
+        return hash;
     }
 }
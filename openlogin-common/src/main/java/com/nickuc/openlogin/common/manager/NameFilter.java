@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.manager;
+
+import com.sobble.pleasejustlogin.common.util.BloomFilter;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks registered names to answer "definitely not registered" without touching the database.
+ * <p>
+ * Until the first build completes, every name is reported as possibly registered. Names added
+ * while a rebuild is running are recorded in both the old and the new filter, so a rebuild
+ * never loses a registration.
+ */
+public class NameFilter {
+
+    @Getter
+    private final double falsePositiveRate;
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+
+    // metrics
+    private final AtomicLong definiteNegatives = new AtomicLong();
+    private final AtomicLong positives = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    public NameFilter(double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Checks if a name is definitely not registered.
+     *
+     * @param key the lowercase name
+     * @return true if the name was never registered
+     */
+    public boolean isDefinitelyAbsent(@NonNull String key) {
+        BloomFilter filter = this.filter;
+        if (filter == null) {
+            return false;
+        }
+        if (!filter.mightContain(key)) {
+            definiteNegatives.incrementAndGet();
+            return true;
+        }
+        positives.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Records a registered name.
+     *
+     * @param key the lowercase name
+     */
+    public void put(@NonNull String key) {
+        BloomFilter filter = this.filter;
+        if (filter != null) {
+            filter.put(key);
+        }
+        BloomFilter building = this.building;
+        if (building != null) {
+            building.put(key);
+        }
+    }
+
+    /**
+     * Records that the filter reported a name as possibly registered, but it was not.
+     */
+    public void recordFalsePositive() {
+        falsePositives.incrementAndGet();
+    }
+
+    /**
+     * Starts a rebuild sized for the given number of names.
+     * Names have to be added to the returned filter before calling {@link #finishRebuild()}.
+     *
+     * @param expectedNames the number of registered names
+     * @return the filter being built
+     */
+    public synchronized BloomFilter beginRebuild(long expectedNames) {
+        // leave room for registrations until the next rebuild
+        BloomFilter building = new BloomFilter(Math.max(1024, expectedNames * 2), falsePositiveRate);
+        this.building = building;
+        return building;
+    }
+
+    /**
+     * Replaces the active filter with the one being built.
+     */
+    public synchronized void finishRebuild() {
+        if (building != null) {
+            filter = building;
+            building = null;
+            definiteNegatives.set(0);
+            positives.set(0);
+            falsePositives.set(0);
+        }
+    }
+
+    /**
+     * Discards a failed rebuild, keeping the active filter.
+     */
+    public synchronized void abortRebuild() {
+        building = null;
+    }
+
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    public String getStatus() {
+        BloomFilter filter = this.filter;
+        if (filter == null) {
+            return "Name filter: " + (building != null ? "building" : "disabled");
+        }
+        long positives = this.positives.get(), falsePositives = this.falsePositives.get();
+        long negatives = definiteNegatives.get() + falsePositives;
+        double observed = negatives == 0 ? 0 : falsePositives * 100D / negatives;
+        return String.format("Name filter: %d/%d names, %d KiB, %d hashes, %.3f%% expected fpp, %.3f%% observed fpp, %d skipped lookups, %d passed (%d false positives)%s",
+                filter.getInsertions(), filter.getExpectedInsertions(), filter.getBitCount() >>> 13, filter.getHashFunctions(),
+                filter.getExpectedFalsePositiveRate() * 100, observed, definiteNegatives.get(), positives, falsePositives,
+                building != null ? ", rebuilding" : "");
+    }
+
+}
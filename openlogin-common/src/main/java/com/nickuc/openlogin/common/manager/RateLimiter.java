@@ -0,0 +1,272 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.manager;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts failures per key in a sliding window and locks a key out once it has too many.
+ * <p>
+ * Keys are spread over shards with their own lock, so concurrent attempts on different keys
+ * rarely contend. Each shard is a bounded map in least recently used order: when it is full,
+ * the key that failed longest ago is dropped, not the whole map, so a flood of new keys can't
+ * reset the lockouts of others. Keys that neither fail nor are locked any more are removed from
+ * the old end of the shard as new attempts come in. Every operation is O(1).
+ * <p>
+ * The window is approximated with two fixed windows: the count of the previous one is weighted
+ * by how much of it still overlaps the sliding window.
+ */
+public class RateLimiter {
+
+    private static final int SHARDS = 16;
+    // expired entries removed per attempt
+    private static final int EXPIRE_PER_ATTEMPT = 2;
+
+    private final Policy policy;
+    private final LongSupplier clock;
+    private final Shard[] shards = new Shard[SHARDS];
+    private final AtomicLong lockouts = new AtomicLong();
+
+    /**
+     * Creates a new limiter.
+     *
+     * @param policy     when a key is locked out
+     * @param maxEntries the maximum number of tracked keys
+     */
+    public RateLimiter(@NonNull Policy policy, int maxEntries) {
+        this(policy, maxEntries, System::currentTimeMillis);
+    }
+
+    // the clock is only replaced by tests
+    RateLimiter(@NonNull Policy policy, int maxEntries, @NonNull LongSupplier clock) {
+        this.policy = policy;
+        this.clock = clock;
+        int perShard = Math.max(16, maxEntries / SHARDS);
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(perShard);
+        }
+    }
+
+    /**
+     * Gets the remaining lockout of a key.
+     *
+     * @param key the key
+     * @return the remaining lockout in milliseconds, 0 if not locked out
+     */
+    public long getLockout(long key) {
+        if (!policy.isEnabled()) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        Shard shard = shard(key);
+        synchronized (shard) {
+            Window window = shard.get(key);
+            return window == null ? 0 : Math.max(0, window.lockedUntil - now);
+        }
+    }
+
+    /**
+     * Counts a failure of a key, locking it out once it reaches the threshold.
+     *
+     * @param key the key
+     * @return the lockout in milliseconds, 0 if not locked out
+     */
+    public long registerFailure(long key) {
+        if (!policy.isEnabled()) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        Shard shard = shard(key);
+        synchronized (shard) {
+            shard.expire(now);
+            Window window = shard.get(key);
+            if (window == null) {
+                window = new Window(now);
+                shard.put(key, window);
+            }
+            window.roll(now, policy.window);
+            window.current++;
+
+            int failures = window.count(now, policy.window);
+            if (failures >= policy.threshold) {
+                long[] durations = policy.lockouts;
+                long duration = durations[Math.min(failures - policy.threshold, durations.length - 1)];
+                if (now + duration > window.lockedUntil) {
+                    window.lockedUntil = now + duration;
+                    lockouts.incrementAndGet();
+                }
+            }
+            return Math.max(0, window.lockedUntil - now);
+        }
+    }
+
+    /**
+     * Forgets the failures and the lockout of a key.
+     *
+     * @param key the key
+     */
+    public void clear(long key) {
+        Shard shard = shard(key);
+        synchronized (shard) {
+            shard.remove(key);
+        }
+    }
+
+    /**
+     * Gets the number of tracked keys.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    public long getLockouts() {
+        return lockouts.get();
+    }
+
+    public boolean isEnabled() {
+        return policy.isEnabled();
+    }
+
+    private Shard shard(long key) {
+        int hash = (int) (key ^ key >>> 32);
+        return shards[(hash ^ hash >>> 16) & (SHARDS - 1)];
+    }
+
+    /**
+     * When a key is locked out.
+     */
+    public static class Policy {
+
+        private final int threshold;
+        private final long window;
+        private final long[] lockouts;
+
+        /**
+         * Creates a new policy.
+         *
+         * @param threshold the number of failures in the window that locks a key out, 0 to disable
+         * @param window    the length of the window in milliseconds
+         * @param lockouts  the lockout at the threshold, at one failure more and so on in milliseconds,
+         *                  the last one is used for every failure after it
+         */
+        public Policy(int threshold, long window, @NonNull long[] lockouts) {
+            if (lockouts.length == 0) {
+                throw new IllegalArgumentException("At least one lockout is required.");
+            }
+            this.threshold = Math.max(0, threshold);
+            this.window = Math.max(1000, window);
+            this.lockouts = lockouts.clone();
+        }
+
+        /**
+         * Parses lockouts in seconds, e.g. "300, 900, 3600".
+         *
+         * @param lockouts the comma separated lockouts
+         * @return the lockouts in milliseconds
+         * @throws NumberFormatException if a lockout is not a number
+         */
+        public static long[] parseLockouts(@NonNull String lockouts) {
+            return Arrays.stream(lockouts.split(","))
+                    .map(String::trim)
+                    .filter(value -> !value.isEmpty())
+                    .mapToLong(value -> Long.parseLong(value) * 1000L)
+                    .toArray();
+        }
+
+        public boolean isEnabled() {
+            return threshold > 0;
+        }
+    }
+
+    private static class Window {
+
+        private long start;
+        private int current, previous;
+        private long lockedUntil;
+
+        private Window(long now) {
+            this.start = now;
+        }
+
+        private void roll(long now, long length) {
+            long elapsed = now - start;
+            if (elapsed >= length) {
+                previous = elapsed >= 2 * length ? 0 : current;
+                current = 0;
+                start += elapsed - elapsed % length;
+            }
+        }
+
+        private int count(long now, long length) {
+            long overlap = Math.max(0, length - (now - start));
+            return current + (int) (previous * overlap / length);
+        }
+
+        private boolean isExpired(long now, long length) {
+            return lockedUntil <= now && now - start >= 2 * length;
+        }
+    }
+
+    private class Shard extends LinkedHashMap<Long, Window> {
+
+        private final int maxEntries;
+
+        private Shard(int maxEntries) {
+            super(16, 0.75F, true);
+            this.maxEntries = maxEntries;
+        }
+
+        // drops keys from the least recently used end that no longer fail nor are locked
+        private void expire(long now) {
+            Iterator<Window> iterator = values().iterator();
+            for (int i = 0; i < EXPIRE_PER_ATTEMPT && iterator.hasNext(); i++) {
+                if (!iterator.next().isExpired(now, policy.window)) {
+                    return;
+                }
+                iterator.remove();
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Window> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.security.hashing;
+
+import java.util.Arrays;
+
+/**
+ * A pure Java Argon2id (RFC 9106, version 0x13).
+ * <p>
+ * Lanes are filled one after another on the calling thread, so the parallelism parameter
+ * only changes the output, not the number of threads used. Concurrent logins are already
+ * spread over the hashing executor.
+ */
+final class Argon2 {
+
+    static final int VERSION = 0x13;
+    private static final int TYPE_ID = 2;
+    private static final int SYNC_POINTS = 4;
+    private static final int BLOCK_WORDS = 128;
+    private static final int BLOCK_BYTES = BLOCK_WORDS * 8;
+
+    private final int lanes, passes;
+    private final int laneLength, segmentLength, memoryBlocks;
+    private final long[] memory;
+
+    // scratch blocks
+    private final long[] r = new long[BLOCK_WORDS];
+    private final long[] tmp = new long[BLOCK_WORDS];
+    private final long[] zero = new long[BLOCK_WORDS];
+    private final long[] input = new long[BLOCK_WORDS];
+    private final long[] addresses = new long[BLOCK_WORDS];
+
+    private Argon2(int memoryKiB, int passes, int lanes) {
+        this.lanes = lanes;
+        this.passes = passes;
+        int blocks = Math.max(memoryKiB, 2 * SYNC_POINTS * lanes);
+        this.segmentLength = blocks / (lanes * SYNC_POINTS);
+        this.laneLength = segmentLength * SYNC_POINTS;
+        this.memoryBlocks = laneLength * lanes;
+        this.memory = new long[memoryBlocks * BLOCK_WORDS];
+    }
+
+    /**
+     * Computes an Argon2id tag.
+     *
+     * @param password     the password bytes
+     * @param salt         the salt, at least 8 bytes
+     * @param memoryKiB    the memory cost in KiB
+     * @param passes       the number of passes
+     * @param lanes        the degree of parallelism
+     * @param outputLength the tag length in bytes, at least 4
+     * @return the tag
+     */
+    static byte[] hash(byte[] password, byte[] salt, int memoryKiB, int passes, int lanes, int outputLength) {
+        return hash(password, salt, new byte[0], new byte[0], memoryKiB, passes, lanes, outputLength);
+    }
+
+    static byte[] hash(byte[] password, byte[] salt, byte[] secret, byte[] associatedData,
+                       int memoryKiB, int passes, int lanes, int outputLength) {
+        if (salt.length < 8) {
+            throw new IllegalArgumentException("Salt is too short");
+        }
+        if (passes < 1 || lanes < 1 || lanes > 0xffffff || outputLength < 4 || memoryKiB < 8 * lanes) {
+            throw new IllegalArgumentException("Invalid parameters");
+        }
+
+        Argon2 argon2 = new Argon2(memoryKiB, passes, lanes);
+        byte[] h0 = new byte[Blake2b.MAX_OUTPUT_LENGTH + 8];
+        new Blake2b(Blake2b.MAX_OUTPUT_LENGTH)
+                .updateInt(lanes).updateInt(outputLength).updateInt(memoryKiB).updateInt(passes)
+                .updateInt(VERSION).updateInt(TYPE_ID)
+                .updateInt(password.length).update(password)
+                .updateInt(salt.length).update(salt)
+                .updateInt(secret.length).update(secret)
+                .updateInt(associatedData.length).update(associatedData)
+                .digest(h0, 0);
+        argon2.fill(h0);
+        return argon2.finish(outputLength);
+    }
+
+    private void fill(byte[] h0) {
+        byte[] block = new byte[BLOCK_BYTES];
+        for (int lane = 0; lane < lanes; lane++) {
+            for (int i = 0; i < 2; i++) {
+                writeInt(h0, Blake2b.MAX_OUTPUT_LENGTH, i);
+                writeInt(h0, Blake2b.MAX_OUTPUT_LENGTH + 4, lane);
+                variableHash(h0, block, BLOCK_BYTES);
+                int offset = (lane * laneLength + i) * BLOCK_WORDS;
+                for (int w = 0; w < BLOCK_WORDS; w++) {
+                    memory[offset + w] = readLong(block, w << 3);
+                }
+            }
+        }
+
+        for (int pass = 0; pass < passes; pass++) {
+            for (int slice = 0; slice < SYNC_POINTS; slice++) {
+                for (int lane = 0; lane < lanes; lane++) {
+                    fillSegment(pass, lane, slice);
+                }
+            }
+        }
+    }
+
+    private byte[] finish(int outputLength) {
+        long[] c = new long[BLOCK_WORDS];
+        for (int lane = 0; lane < lanes; lane++) {
+            int offset = (lane * laneLength + laneLength - 1) * BLOCK_WORDS;
+            for (int w = 0; w < BLOCK_WORDS; w++) {
+                c[w] ^= memory[offset + w];
+            }
+        }
+        byte[] block = new byte[BLOCK_BYTES];
+        for (int w = 0; w < BLOCK_WORDS; w++) {
+            writeLong(block, w << 3, c[w]);
+        }
+        byte[] out = new byte[outputLength];
+        variableHash(block, out, outputLength);
+        return out;
+    }
+
+    private void fillSegment(int pass, int lane, int slice) {
+        boolean dataIndependent = pass == 0 && slice < SYNC_POINTS / 2;
+        if (dataIndependent) {
+            Arrays.fill(input, 0);
+            input[0] = pass;
+            input[1] = lane;
+            input[2] = slice;
+            input[3] = memoryBlocks;
+            input[4] = passes;
+            input[5] = TYPE_ID;
+        }
+
+        int start = 0;
+        if (pass == 0 && slice == 0) {
+            // the first two blocks were generated from H0
+            start = 2;
+            if (dataIndependent) {
+                nextAddresses();
+            }
+        }
+
+        int current = lane * laneLength + slice * segmentLength + start;
+        int previous = current % laneLength == 0 ? current + laneLength - 1 : current - 1;
+
+        for (int i = start; i < segmentLength; i++, current++, previous++) {
+            if (current % laneLength == 1) {
+                previous = current - 1;
+            }
+
+            long pseudoRandom;
+            if (dataIndependent) {
+                if (i % BLOCK_WORDS == 0) {
+                    nextAddresses();
+                }
+                pseudoRandom = addresses[i % BLOCK_WORDS];
+            } else {
+                pseudoRandom = memory[previous * BLOCK_WORDS];
+            }
+
+            int refLane = pass == 0 && slice == 0 ? lane : (int) ((pseudoRandom >>> 32) % lanes);
+            int refIndex = referenceIndex(pass, slice, i, pseudoRandom & 0xffffffffL, refLane == lane);
+            fillBlock(memory, previous * BLOCK_WORDS, memory, (refLane * laneLength + refIndex) * BLOCK_WORDS,
+                    memory, current * BLOCK_WORDS, pass > 0);
+        }
+    }
+
+    private int referenceIndex(int pass, int slice, int index, long pseudoRandom, boolean sameLane) {
+        long areaSize;
+        if (pass == 0) {
+            if (slice == 0) {
+                areaSize = index - 1;
+            } else if (sameLane) {
+                areaSize = (long) slice * segmentLength + index - 1;
+            } else {
+                areaSize = (long) slice * segmentLength + (index == 0 ? -1 : 0);
+            }
+        } else if (sameLane) {
+            areaSize = laneLength - segmentLength + index - 1;
+        } else {
+            areaSize = laneLength - segmentLength + (index == 0 ? -1 : 0);
+        }
+
+        long relative = (pseudoRandom * pseudoRandom) >>> 32;
+        relative = areaSize - 1 - ((areaSize * relative) >>> 32);
+
+        long start = 0;
+        if (pass != 0 && slice != SYNC_POINTS - 1) {
+            start = (long) (slice + 1) * segmentLength;
+        }
+        return (int) ((start + relative) % laneLength);
+    }
+
+    private void nextAddresses() {
+        input[6]++;
+        fillBlock(zero, 0, input, 0, addresses, 0, false);
+        fillBlock(zero, 0, addresses, 0, addresses, 0, false);
+    }
+
+    // the compression function G
+    private void fillBlock(long[] x, int xOffset, long[] y, int yOffset, long[] out, int outOffset, boolean withXor) {
+        long[] r = this.r, tmp = this.tmp;
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            r[i] = x[xOffset + i] ^ y[yOffset + i];
+        }
+        if (withXor) {
+            for (int i = 0; i < BLOCK_WORDS; i++) {
+                tmp[i] = r[i] ^ out[outOffset + i];
+            }
+        } else {
+            System.arraycopy(r, 0, tmp, 0, BLOCK_WORDS);
+        }
+
+        // rows of 16 words
+        for (int i = 0; i < 8; i++) {
+            int b = 16 * i;
+            round(r, b, b + 1, b + 2, b + 3, b + 4, b + 5, b + 6, b + 7,
+                    b + 8, b + 9, b + 10, b + 11, b + 12, b + 13, b + 14, b + 15);
+        }
+        // columns of 2 words
+        for (int i = 0; i < 8; i++) {
+            int b = 2 * i;
+            round(r, b, b + 1, b + 16, b + 17, b + 32, b + 33, b + 48, b + 49,
+                    b + 64, b + 65, b + 80, b + 81, b + 96, b + 97, b + 112, b + 113);
+        }
+
+        for (int i = 0; i < BLOCK_WORDS; i++) {
+            out[outOffset + i] = tmp[i] ^ r[i];
+        }
+    }
+
+    private static void round(long[] v, int v0, int v1, int v2, int v3, int v4, int v5, int v6, int v7,
+                              int v8, int v9, int v10, int v11, int v12, int v13, int v14, int v15) {
+        mix(v, v0, v4, v8, v12);
+        mix(v, v1, v5, v9, v13);
+        mix(v, v2, v6, v10, v14);
+        mix(v, v3, v7, v11, v15);
+        mix(v, v0, v5, v10, v15);
+        mix(v, v1, v6, v11, v12);
+        mix(v, v2, v7, v8, v13);
+        mix(v, v3, v4, v9, v14);
+    }
+
+    private static void mix(long[] v, int a, int b, int c, int d) {
+        v[a] = blaMka(v[a], v[b]);
+        v[d] = Long.rotateRight(v[d] ^ v[a], 32);
+        v[c] = blaMka(v[c], v[d]);
+        v[b] = Long.rotateRight(v[b] ^ v[c], 24);
+        v[a] = blaMka(v[a], v[b]);
+        v[d] = Long.rotateRight(v[d] ^ v[a], 16);
+        v[c] = blaMka(v[c], v[d]);
+        v[b] = Long.rotateRight(v[b] ^ v[c], 63);
+    }
+
+    private static long blaMka(long x, long y) {
+        return x + y + 2 * (x & 0xffffffffL) * (y & 0xffffffffL);
+    }
+
+    // the variable length hash function H'
+    private static void variableHash(byte[] input, byte[] out, int outputLength) {
+        if (outputLength <= Blake2b.MAX_OUTPUT_LENGTH) {
+            new Blake2b(outputLength).updateInt(outputLength).update(input).digest(out, 0);
+            return;
+        }
+        byte[] v = new Blake2b(Blake2b.MAX_OUTPUT_LENGTH).updateInt(outputLength).update(input).digest();
+        int position = 0;
+        while (outputLength - position > Blake2b.MAX_OUTPUT_LENGTH) {
+            System.arraycopy(v, 0, out, position, 32);
+            position += 32;
+            if (outputLength - position > Blake2b.MAX_OUTPUT_LENGTH) {
+                v = new Blake2b(Blake2b.MAX_OUTPUT_LENGTH).update(v).digest();
+            }
+        }
+        new Blake2b(outputLength - position).update(v).digest(out, position);
+    }
+
+    static long readLong(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xffL)
+                | (bytes[offset + 1] & 0xffL) << 8
+                | (bytes[offset + 2] & 0xffL) << 16
+                | (bytes[offset + 3] & 0xffL) << 24
+                | (bytes[offset + 4] & 0xffL) << 32
+                | (bytes[offset + 5] & 0xffL) << 40
+                | (bytes[offset + 6] & 0xffL) << 48
+                | (bytes[offset + 7] & 0xffL) << 56;
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            bytes[offset + i] = (byte) (value >>> (i << 3));
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            bytes[offset + i] = (byte) (value >>> (i << 3));
+        }
+    }
+
+}
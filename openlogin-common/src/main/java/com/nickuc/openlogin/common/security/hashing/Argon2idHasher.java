@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.security.hashing;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Hashes passwords with {@link Argon2} id.
+ * <p>
+ * Hashes use the PHC string format: {@code $argon2id$v=19$m=<KiB>,t=<passes>,p=<lanes>$<salt>$<hash>},
+ * with base64 encoded salt and hash without padding.
+ */
+public class Argon2idHasher implements PasswordHasher {
+
+    private static final String PREFIX = "$argon2id$";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    // refuse to verify hashes that would need more memory than this (256 MiB, in KiB), or more passes or lanes
+    private static final int MAX_MEMORY = 256 * 1024;
+    private static final int MAX_ITERATIONS = 64;
+    private static final int MAX_PARALLELISM = 255;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Getter
+    private final int memory, iterations, parallelism;
+
+    /**
+     * Creates an Argon2id hasher.
+     *
+     * @param memory      the memory cost in KiB
+     * @param iterations  the number of passes over the memory
+     * @param parallelism the number of lanes
+     */
+    public Argon2idHasher(int memory, int iterations, int parallelism) {
+        if (!isSupported(memory, iterations, parallelism)) {
+            throw new IllegalArgumentException("Invalid Argon2id parameters: m=" + memory + ", t=" + iterations + ", p=" + parallelism);
+        }
+        this.memory = memory;
+        this.iterations = iterations;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public String getName() {
+        return "argon2id";
+    }
+
+    @Override
+    public String getParameters() {
+        return "m=" + memory + ",t=" + iterations + ",p=" + parallelism;
+    }
+
+    @Override
+    public boolean supports(@NonNull String hash) {
+        return hash.startsWith(PREFIX);
+    }
+
+    @Override
+    public String hash(@NonNull String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        byte[] hash = Argon2.hash(password.getBytes(StandardCharsets.UTF_8), salt, memory, iterations, parallelism, HASH_LENGTH);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "v=" + Argon2.VERSION + "$m=" + memory + ",t=" + iterations + ",p=" + parallelism +
+                "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    @Override
+    public boolean verify(@NonNull String password, @NonNull String hash) {
+        Parameters parameters = Parameters.parse(hash);
+        if (parameters == null || parameters.version != Argon2.VERSION ||
+                !isSupported(parameters.memory, parameters.iterations, parameters.parallelism)) {
+            return false;
+        }
+        try {
+            byte[] actual = Argon2.hash(password.getBytes(StandardCharsets.UTF_8), parameters.salt,
+                    parameters.memory, parameters.iterations, parameters.parallelism, parameters.hash.length);
+            return MessageDigest.isEqual(parameters.hash, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(@NonNull String hash) {
+        Parameters parameters = Parameters.parse(hash);
+        return parameters == null || parameters.version != Argon2.VERSION || parameters.memory != memory ||
+                parameters.iterations != iterations || parameters.parallelism != parallelism ||
+                parameters.hash.length != HASH_LENGTH;
+    }
+
+    private static boolean isSupported(int memory, int iterations, int parallelism) {
+        return parallelism >= 1 && parallelism <= MAX_PARALLELISM && iterations >= 1 && iterations <= MAX_ITERATIONS &&
+                memory >= 8 * parallelism && memory <= MAX_MEMORY;
+    }
+
+    // Parsed PHC string
+    private static class Parameters {
+
+        private int version, memory, iterations, parallelism;
+        private byte[] salt, hash;
+
+        private static Parameters parse(String hash) {
+            if (!hash.startsWith(PREFIX)) {
+                return null;
+            }
+            String[] parts = hash.substring(PREFIX.length()).split("\\$", -1);
+            if (parts.length != 4 || !parts[0].startsWith("v=")) {
+                return null;
+            }
+            try {
+                Parameters parameters = new Parameters();
+                parameters.version = Integer.parseInt(parts[0].substring(2));
+                for (String parameter : parts[1].split(",")) {
+                    int value = Integer.parseInt(parameter.substring(2));
+                    if (parameter.startsWith("m=")) {
+                        parameters.memory = value;
+                    } else if (parameter.startsWith("t=")) {
+                        parameters.iterations = value;
+                    } else if (parameter.startsWith("p=")) {
+                        parameters.parallelism = value;
+                    } else {
+                        return null;
+                    }
+                }
+                parameters.salt = Base64.getDecoder().decode(parts[2]);
+                parameters.hash = Base64.getDecoder().decode(parts[3]);
+                return parameters;
+            } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+
+    }
+
+}
@@ -25,6 +25,7 @@ package com.sobble.pleasejustlogin.common.security.hashing;
 
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.Arrays;
 
 /**
  * BCrypt implements OpenBSD-style Blowfish password hashing using
@@ -376,9 +377,24 @@ public final class BCrypt {
             51, 52, 53, -1, -1, -1, -1, -1
     };
 
+    // Shared by gensalt(), SecureRandom is thread safe
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Reusable per-thread state, so hashing does not allocate the key schedule on every call
+    private static final ThreadLocal<BCrypt> STATE = ThreadLocal.withInitial(BCrypt::new);
+
     // Expanded Blowfish key
-    private int[] P;
-    private int[] S;
+    private final int[] P = new int[P_orig.length];
+    private final int[] S = new int[S_orig.length];
+
+    // Scratch buffers
+    private final int[] keyWords = new int[P_orig.length];
+    private final int[] saltKeyWords = new int[P_orig.length];
+    private final int[] saltWords = new int[BCRYPT_SALT_LEN / 4];
+    private final int[] cdata = new int[bf_crypt_ciphertext.length];
+    private final byte[] saltBytes = new byte[BCRYPT_SALT_LEN];
+    private final byte[] hashBytes = new byte[bf_crypt_ciphertext.length * 4];
+    private final char[] result = new char[60];
 
     /**
      * Encode a byte array using bcrypt's slightly-modified base64
@@ -387,13 +403,14 @@ public final class BCrypt {
      *
      * @param d   the byte array to encode
      * @param len the number of bytes to encode
-     * @return base64-encoded string
+     * @param out the array to write the encoded characters to
+     * @param pos the position in out to start writing at
+     * @return the position in out after the last written character
      * @throws IllegalArgumentException if the length is invalid
      */
-    private static String encode_base64(byte[] d, int len)
+    private static int encode_base64(byte[] d, int len, char[] out, int pos)
             throws IllegalArgumentException {
         int off = 0;
-        StringBuilder rs = new StringBuilder();
         int c1, c2;
 
         if (len <= 0 || len > d.length)
@@ -401,26 +418,26 @@ public final class BCrypt {
 
         while (off < len) {
             c1 = d[off++] & 0xff;
-            rs.append(base64_code[(c1 >> 2) & 0x3f]);
+            out[pos++] = base64_code[(c1 >> 2) & 0x3f];
             c1 = (c1 & 0x03) << 4;
             if (off >= len) {
-                rs.append(base64_code[c1 & 0x3f]);
+                out[pos++] = base64_code[c1 & 0x3f];
                 break;
             }
             c2 = d[off++] & 0xff;
             c1 |= (c2 >> 4) & 0x0f;
-            rs.append(base64_code[c1 & 0x3f]);
+            out[pos++] = base64_code[c1 & 0x3f];
             c1 = (c2 & 0x0f) << 2;
             if (off >= len) {
-                rs.append(base64_code[c1 & 0x3f]);
+                out[pos++] = base64_code[c1 & 0x3f];
                 break;
             }
             c2 = d[off++] & 0xff;
             c1 |= (c2 >> 6) & 0x03;
-            rs.append(base64_code[c1 & 0x3f]);
-            rs.append(base64_code[c2 & 0x3f]);
+            out[pos++] = base64_code[c1 & 0x3f];
+            out[pos++] = base64_code[c2 & 0x3f];
         }
-        return rs.toString();
+        return pos;
     }
 
     /**
@@ -431,7 +448,7 @@ public final class BCrypt {
      * @return the decoded value of x
      */
     private static byte char64(char x) {
-        if ((int) x > index_64.length)
+        if ((int) x >= index_64.length)
             return -1;
         return index_64[x];
     }
@@ -441,135 +458,148 @@ public final class BCrypt {
      * byte array. Note that this is *not* compatible with
      * the standard MIME-base64 encoding.
      *
-     * @param s the string to decode
-     * @return an array containing the decoded bytes
-     * @throws IllegalArgumentException if maxolen is invalid
+     * @param s   the string to decode
+     * @param off the position of the first character to decode
+     * @param end the position after the last character to decode
+     * @param ret the array to write up to {@link #BCRYPT_SALT_LEN} decoded bytes to
+     * @return the number of decoded bytes
      */
-    private static byte[] decode_base64(String s)
-            throws IllegalArgumentException {
-        StringBuilder rs = new StringBuilder();
-        int off = 0, slen = s.length(), olen = 0;
-        byte[] ret;
+    private static int decode_base64(String s, int off, int end, byte[] ret) {
+        int olen = 0;
         byte c1, c2, c3, c4, o;
 
-        if (BCrypt.BCRYPT_SALT_LEN <= 0)
-            throw new IllegalArgumentException("Invalid maxolen");
-
-        while (off < slen - 1 && olen < BCrypt.BCRYPT_SALT_LEN) {
+        while (off < end - 1 && olen < BCRYPT_SALT_LEN) {
             c1 = char64(s.charAt(off++));
             c2 = char64(s.charAt(off++));
             if (c1 == -1 || c2 == -1)
                 break;
             o = (byte) (c1 << 2);
             o |= (c2 & 0x30) >> 4;
-            rs.append((char) o);
-            if (++olen >= BCrypt.BCRYPT_SALT_LEN || off >= slen)
+            ret[olen] = o;
+            if (++olen >= BCRYPT_SALT_LEN || off >= end)
                 break;
             c3 = char64(s.charAt(off++));
             if (c3 == -1)
                 break;
             o = (byte) ((c2 & 0x0f) << 4);
             o |= (c3 & 0x3c) >> 2;
-            rs.append((char) o);
-            if (++olen >= BCrypt.BCRYPT_SALT_LEN || off >= slen)
+            ret[olen] = o;
+            if (++olen >= BCRYPT_SALT_LEN || off >= end)
                 break;
             c4 = char64(s.charAt(off++));
             o = (byte) ((c3 & 0x03) << 6);
             o |= c4;
-            rs.append((char) o);
+            ret[olen] = o;
             ++olen;
         }
-
-        ret = new byte[olen];
-        for (off = 0; off < olen; off++)
-            ret[off] = (byte) rs.charAt(off);
-        return ret;
+        return olen;
     }
 
     /**
      * Blowfish encipher a single 64-bit block encoded as
      * two 32-bit halves
      *
-     * @param lr  an array containing the two 32-bit half blocks
-     * @param off the position in the array of the blocks
+     * @param l the left half block
+     * @param r the right half block
+     * @return the enciphered block, left half in the upper 32 bits
      */
-    private void encipher(int[] lr, int off) {
-        int i, n, l = lr[off], r = lr[off + 1];
+    private long encipher(int l, int r) {
+        final int[] P = this.P, S = this.S;
+        int n;
 
         l ^= P[0];
-        for (i = 0; i <= BLOWFISH_NUM_ROUNDS - 2; ) {
+        for (int i = 1; i < BLOWFISH_NUM_ROUNDS; i += 2) {
             // Feistel substitution on left word
-            n = S[(l >> 24) & 0xff];
+            n = S[l >>> 24];
             n += S[0x100 | ((l >> 16) & 0xff)];
             n ^= S[0x200 | ((l >> 8) & 0xff)];
             n += S[0x300 | (l & 0xff)];
-            r ^= n ^ P[++i];
+            r ^= n ^ P[i];
 
             // Feistel substitution on right word
-            n = S[(r >> 24) & 0xff];
+            n = S[r >>> 24];
             n += S[0x100 | ((r >> 16) & 0xff)];
             n ^= S[0x200 | ((r >> 8) & 0xff)];
             n += S[0x300 | (r & 0xff)];
-            l ^= n ^ P[++i];
+            l ^= n ^ P[i + 1];
         }
-        lr[off] = r ^ P[BLOWFISH_NUM_ROUNDS + 1];
-        lr[off + 1] = l;
+        return ((long) (r ^ P[BLOWFISH_NUM_ROUNDS + 1]) << 32) | (l & 0xffffffffL);
     }
 
     /**
-     * Cycically extract a word of key material
+     * Cycically extract words of key material
      *
-     * @param data the string to extract the data from
-     * @param offp a "pointer" (as a one-entry array) to the
-     *             current offset into data
-     * @return the next word of material from data
+     * @param data   the bytes to extract the words from
+     * @param length the number of bytes of data to use, a zero
+     *               byte is appended if it exceeds data.length
+     * @param words  the array to fill with words
      */
-    private static int streamtoword(byte[] data, int[] offp) {
-        int i;
-        int word = 0;
-        int off = offp[0];
-
-        for (i = 0; i < 4; i++) {
-            word = (word << 8) | (data[off] & 0xff);
-            off = (off + 1) % data.length;
+    private static void streamtowords(byte[] data, int length, int[] words) {
+        int off = 0;
+        for (int i = 0; i < words.length; i++) {
+            int word = 0;
+            for (int j = 0; j < 4; j++) {
+                word = (word << 8) | (off < data.length ? data[off] & 0xff : 0);
+                off = (off + 1) % length;
+            }
+            words[i] = word;
         }
-
-        offp[0] = off;
-        return word;
     }
 
     /**
      * Initialise the Blowfish key schedule
      */
     private void init_key() {
-        P = P_orig.clone();
-        S = S_orig.clone();
+        System.arraycopy(P_orig, 0, P, 0, P_orig.length);
+        System.arraycopy(S_orig, 0, S, 0, S_orig.length);
     }
 
     /**
      * Key the Blowfish cipher
      *
-     * @param key an array containing the key
+     * @param key the words of key material, one per P entry
      */
-    private void key(byte[] key) {
-        int i;
-        int[] koffp = {0};
-        int[] lr = {0, 0};
-        int plen = P.length, slen = S.length;
-
-        for (i = 0; i < plen; i++)
-            P[i] = P[i] ^ streamtoword(key, koffp);
-
-        for (i = 0; i < plen; i += 2) {
-            encipher(lr, 0);
-            P[i] = lr[0];
-            P[i + 1] = lr[1];
+    private void key(int[] key) {
+        final int[] P = this.P, S = this.S;
+        int i, n, l = 0, r = 0;
+        long lr;
+
+        for (i = 0; i < P.length; i++)
+            P[i] ^= key[i];
+
+        for (i = 0; i < P.length; i += 2) {
+            lr = encipher(l, r);
+            P[i] = l = (int) (lr >>> 32);
+            P[i + 1] = r = (int) lr;
         }
 
-        for (i = 0; i < slen; i += 2) {
-            encipher(lr, 0);
-            S[i] = lr[0];
-            S[i + 1] = lr[1];
+        // P is constant from here on, keep it in registers
+        final int p0 = P[0], p1 = P[1], p2 = P[2], p3 = P[3], p4 = P[4], p5 = P[5],
+                p6 = P[6], p7 = P[7], p8 = P[8], p9 = P[9], p10 = P[10], p11 = P[11],
+                p12 = P[12], p13 = P[13], p14 = P[14], p15 = P[15], p16 = P[16], p17 = P[17];
+        for (i = 0; i < S.length; i += 2) {
+            l ^= p0;
+            r ^= ((S[l >>> 24] + S[0x100 | ((l >> 16) & 0xff)]) ^ S[0x200 | ((l >> 8) & 0xff)]) + S[0x300 | (l & 0xff)] ^ p1;
+            l ^= ((S[r >>> 24] + S[0x100 | ((r >> 16) & 0xff)]) ^ S[0x200 | ((r >> 8) & 0xff)]) + S[0x300 | (r & 0xff)] ^ p2;
+            r ^= ((S[l >>> 24] + S[0x100 | ((l >> 16) & 0xff)]) ^ S[0x200 | ((l >> 8) & 0xff)]) + S[0x300 | (l & 0xff)] ^ p3;
+            l ^= ((S[r >>> 24] + S[0x100 | ((r >> 16) & 0xff)]) ^ S[0x200 | ((r >> 8) & 0xff)]) + S[0x300 | (r & 0xff)] ^ p4;
+            r ^= ((S[l >>> 24] + S[0x100 | ((l >> 16) & 0xff)]) ^ S[0x200 | ((l >> 8) & 0xff)]) + S[0x300 | (l & 0xff)] ^ p5;
+            l ^= ((S[r >>> 24] + S[0x100 | ((r >> 16) & 0xff)]) ^ S[0x200 | ((r >> 8) & 0xff)]) + S[0x300 | (r & 0xff)] ^ p6;
+            r ^= ((S[l >>> 24] + S[0x100 | ((l >> 16) & 0xff)]) ^ S[0x200 | ((l >> 8) & 0xff)]) + S[0x300 | (l & 0xff)] ^ p7;
+            l ^= ((S[r >>> 24] + S[0x100 | ((r >> 16) & 0xff)]) ^ S[0x200 | ((r >> 8) & 0xff)]) + S[0x300 | (r & 0xff)] ^ p8;
+            r ^= ((S[l >>> 24] + S[0x100 | ((l >> 16) & 0xff)]) ^ S[0x200 | ((l >> 8) & 0xff)]) + S[0x300 | (l & 0xff)] ^ p9;
+            l ^= ((S[r >>> 24] + S[0x100 | ((r >> 16) & 0xff)]) ^ S[0x200 | ((r >> 8) & 0xff)]) + S[0x300 | (r & 0xff)] ^ p10;
+            r ^= ((S[l >>> 24] + S[0x100 | ((l >> 16) & 0xff)]) ^ S[0x200 | ((l >> 8) & 0xff)]) + S[0x300 | (l & 0xff)] ^ p11;
+            l ^= ((S[r >>> 24] + S[0x100 | ((r >> 16) & 0xff)]) ^ S[0x200 | ((r >> 8) & 0xff)]) + S[0x300 | (r & 0xff)] ^ p12;
+            r ^= ((S[l >>> 24] + S[0x100 | ((l >> 16) & 0xff)]) ^ S[0x200 | ((l >> 8) & 0xff)]) + S[0x300 | (l & 0xff)] ^ p13;
+            l ^= ((S[r >>> 24] + S[0x100 | ((r >> 16) & 0xff)]) ^ S[0x200 | ((r >> 8) & 0xff)]) + S[0x300 | (r & 0xff)] ^ p14;
+            r ^= ((S[l >>> 24] + S[0x100 | ((l >> 16) & 0xff)]) ^ S[0x200 | ((l >> 8) & 0xff)]) + S[0x300 | (l & 0xff)] ^ p15;
+            l ^= ((S[r >>> 24] + S[0x100 | ((r >> 16) & 0xff)]) ^ S[0x200 | ((r >> 8) & 0xff)]) + S[0x300 | (r & 0xff)] ^ p16;
+            n = r ^ p17;
+            r = l;
+            l = n;
+            S[i] = l;
+            S[i + 1] = r;
         }
     }
 
@@ -578,33 +608,33 @@ public final class BCrypt {
      * Provos and Mazieres in "A Future-Adaptable Password Scheme"
      * http://www.openbsd.org/papers/bcrypt-paper.ps
      *
-     * @param data salt information
-     * @param key  password information
+     * @param data the words of salt information
+     * @param key  the words of password information, one per P entry
      */
-    private void ekskey(byte[] data, byte[] key) {
-        int i;
-        int[] koffp = {0};
-        int[] doffp = {0};
-        int[] lr = {0, 0};
-        int plen = P.length, slen = S.length;
-
-        for (i = 0; i < plen; i++)
-            P[i] = P[i] ^ streamtoword(key, koffp);
-
-        for (i = 0; i < plen; i += 2) {
-            lr[0] ^= streamtoword(data, doffp);
-            lr[1] ^= streamtoword(data, doffp);
-            encipher(lr, 0);
-            P[i] = lr[0];
-            P[i + 1] = lr[1];
+    private void ekskey(int[] data, int[] key) {
+        final int[] P = this.P, S = this.S;
+        int i, d = 0, l = 0, r = 0;
+        long lr;
+
+        for (i = 0; i < P.length; i++)
+            P[i] ^= key[i];
+
+        for (i = 0; i < P.length; i += 2) {
+            l ^= data[d];
+            r ^= data[d + 1];
+            d = (d + 2) % data.length;
+            lr = encipher(l, r);
+            P[i] = l = (int) (lr >>> 32);
+            P[i + 1] = r = (int) lr;
         }
 
-        for (i = 0; i < slen; i += 2) {
-            lr[0] ^= streamtoword(data, doffp);
-            lr[1] ^= streamtoword(data, doffp);
-            encipher(lr, 0);
-            S[i] = lr[0];
-            S[i + 1] = lr[1];
+        for (i = 0; i < S.length; i += 2) {
+            l ^= data[d];
+            r ^= data[d + 1];
+            d = (d + 2) % data.length;
+            lr = encipher(l, r);
+            S[i] = l = (int) (lr >>> 32);
+            S[i + 1] = r = (int) lr;
         }
     }
 
@@ -621,9 +651,29 @@ public final class BCrypt {
      */
     public byte[] crypt_raw(byte[] password, byte[] salt, int log_rounds,
                             int[] cdata) {
+        byte[] ret = new byte[cdata.length * 4];
+        crypt_raw(password, password.length, salt, log_rounds, cdata, ret);
+        return ret;
+    }
+
+    /**
+     * Perform the central password hashing step in the
+     * bcrypt scheme, writing the result to an existing array
+     *
+     * @param password       the password to hash
+     * @param passwordLength the number of password bytes to use, a zero
+     *                       byte is appended if it exceeds password.length
+     * @param salt           the binary salt to hash with the password
+     * @param log_rounds     the binary logarithm of the number
+     *                       of rounds of hashing to apply
+     * @param cdata          the plaintext to encrypt
+     * @param ret            the array to write the binary hashed password to
+     */
+    private void crypt_raw(byte[] password, int passwordLength, byte[] salt, int log_rounds,
+                           int[] cdata, byte[] ret) {
         int rounds, i, j;
         int clen = cdata.length;
-        byte[] ret;
+        long lr;
 
         if (log_rounds < 4 || log_rounds > 30)
             throw new IllegalArgumentException("Bad number of rounds");
@@ -631,87 +681,100 @@ public final class BCrypt {
         if (salt.length != BCRYPT_SALT_LEN)
             throw new IllegalArgumentException("Bad salt length");
 
+        // the key material is the same on every round, extract it once
+        streamtowords(password, passwordLength, keyWords);
+        streamtowords(salt, salt.length, saltWords);
+        streamtowords(salt, salt.length, saltKeyWords);
+
         init_key();
-        ekskey(salt, password);
+        ekskey(saltWords, keyWords);
+
         for (i = 0; i != rounds; i++) {
-            key(password);
-            key(salt);
+            key(keyWords);
+            key(saltKeyWords);
         }
 
         for (i = 0; i < 64; i++) {
-            for (j = 0; j < (clen >> 1); j++)
-                encipher(cdata, j << 1);
+            for (j = 0; j < clen; j += 2) {
+                lr = encipher(cdata[j], cdata[j + 1]);
+                cdata[j] = (int) (lr >>> 32);
+                cdata[j + 1] = (int) lr;
+            }
         }
 
-        ret = new byte[clen * 4];
         for (i = 0, j = 0; i < clen; i++) {
             ret[j++] = (byte) ((cdata[i] >> 24) & 0xff);
             ret[j++] = (byte) ((cdata[i] >> 16) & 0xff);
             ret[j++] = (byte) ((cdata[i] >> 8) & 0xff);
             ret[j++] = (byte) (cdata[i] & 0xff);
         }
-        return ret;
     }
 
     /**
-     * Hash a password using the OpenBSD bcrypt scheme
+     * Hash a password into the result buffer of this instance
      *
      * @param password the password to hash
      * @param salt     the salt to hash with (perhaps generated
      *                 using BCrypt.gensalt)
-     * @return the hashed password
+     * @return the length of the hashed password in the result buffer
      */
-    public static String hashpw(String password, String salt) {
-        BCrypt B;
-        String real_salt;
-        byte[] passwordb;
-        byte[] saltb;
-        byte[] hashed;
+    private int hash(String password, String salt) {
         char minor = (char) 0;
-        int rounds, off;
-        StringBuilder rs = new StringBuilder();
+        int rounds, off, pos = 0;
 
-        if (salt.charAt(0) != '$' || salt.charAt(1) != '2')
+        if (salt.length() < 3 || salt.charAt(0) != '$' || salt.charAt(1) != '2')
             throw new IllegalArgumentException("Invalid salt version");
         if (salt.charAt(2) == '$')
             off = 3;
         else {
             minor = salt.charAt(2);
-            if (minor != 'a' || salt.charAt(3) != '$')
+            // $2b$ and $2y$ only fix bugs of other implementations, the algorithm is the same
+            if ((minor != 'a' && minor != 'b' && minor != 'y') || salt.charAt(3) != '$')
                 throw new IllegalArgumentException("Invalid salt revision");
             off = 4;
         }
+        if (salt.length() < off + 25)
+            throw new IllegalArgumentException("Invalid salt length");
 
         // Extract number of rounds
         if (salt.charAt(off + 2) > '$')
             throw new IllegalArgumentException("Missing salt rounds");
-        rounds = Integer.parseInt(salt.substring(off, off + 2));
-
-        real_salt = salt.substring(off + 3, off + 25);
-        passwordb = (password + (minor >= 'a' ? "\000" : "")).getBytes(StandardCharsets.UTF_8);
+        char r1 = salt.charAt(off), r2 = salt.charAt(off + 1);
+        if (r1 < '0' || r1 > '9' || r2 < '0' || r2 > '9')
+            throw new IllegalArgumentException("Invalid salt rounds");
+        rounds = (r1 - '0') * 10 + (r2 - '0');
 
-        saltb = decode_base64(real_salt);
+        int saltLength = decode_base64(salt, off + 3, off + 25, saltBytes);
+        byte[] saltb = saltLength == BCRYPT_SALT_LEN ? saltBytes : Arrays.copyOf(saltBytes, saltLength);
+        byte[] passwordb = password.getBytes(StandardCharsets.UTF_8);
 
-        B = new BCrypt();
-        hashed = B.crypt_raw(passwordb, saltb, rounds,
-                bf_crypt_ciphertext.clone());
+        System.arraycopy(bf_crypt_ciphertext, 0, cdata, 0, cdata.length);
+        crypt_raw(passwordb, passwordb.length + (minor >= 'a' ? 1 : 0), saltb, rounds, cdata, hashBytes);
 
-        rs.append("$2");
+        result[pos++] = '$';
+        result[pos++] = '2';
         if (minor >= 'a')
-            rs.append(minor);
-        rs.append("$");
-        if (rounds < 10)
-            rs.append("0");
-        if (rounds > 30) {
-            throw new IllegalArgumentException(
-                    "rounds exceeds maximum (30)");
-        }
-        rs.append(rounds);
-        rs.append("$");
-        rs.append(encode_base64(saltb, saltb.length));
-        rs.append(encode_base64(hashed,
-                bf_crypt_ciphertext.length * 4 - 1));
-        return rs.toString();
+            result[pos++] = minor;
+        result[pos++] = '$';
+        result[pos++] = r1;
+        result[pos++] = r2;
+        result[pos++] = '$';
+        pos = encode_base64(saltb, saltb.length, result, pos);
+        return encode_base64(hashBytes, bf_crypt_ciphertext.length * 4 - 1, result, pos);
+    }
+
+    /**
+     * Hash a password using the OpenBSD bcrypt scheme
+     *
+     * @param password the password to hash
+     * @param salt     the salt to hash with (perhaps generated
+     *                 using BCrypt.gensalt)
+     * @return the hashed password
+     */
+    public static String hashpw(String password, String salt) {
+        BCrypt B = STATE.get();
+        int length = B.hash(password, salt);
+        return new String(B.result, 0, length);
     }
 
     /**
@@ -724,22 +787,23 @@ public final class BCrypt {
      * @return an encoded salt value
      */
     public static String gensalt(int log_rounds, SecureRandom random) {
-        StringBuilder rs = new StringBuilder();
         byte[] rnd = new byte[BCRYPT_SALT_LEN];
+        char[] rs = new char[29];
 
-        random.nextBytes(rnd);
-
-        rs.append("$2a$");
-        if (log_rounds < 10)
-            rs.append("0");
         if (log_rounds > 30) {
             throw new IllegalArgumentException(
                     "log_rounds exceeds maximum (30)");
         }
-        rs.append(log_rounds);
-        rs.append("$");
-        rs.append(encode_base64(rnd, rnd.length));
-        return rs.toString();
+        random.nextBytes(rnd);
+
+        rs[0] = '$';
+        rs[1] = '2';
+        rs[2] = 'a';
+        rs[3] = '$';
+        rs[4] = (char) ('0' + log_rounds / 10);
+        rs[5] = (char) ('0' + log_rounds % 10);
+        rs[6] = '$';
+        return new String(rs, 0, encode_base64(rnd, rnd.length, rs, 7));
     }
 
     /**
@@ -751,7 +815,7 @@ public final class BCrypt {
      * @return an encoded salt value
      */
     public static String gensalt(int log_rounds) {
-        return gensalt(log_rounds, new SecureRandom());
+        return gensalt(log_rounds, RANDOM);
     }
 
     /**
@@ -767,7 +831,7 @@ public final class BCrypt {
 
     /**
      * Check that a plaintext password matches a previously hashed
-     * one
+     * one. The comparison takes the same time wherever the hashes differ.
      *
      * @param plaintext the plaintext password to verify
      * @param hashed    the previously-hashed password
@@ -775,19 +839,16 @@ public final class BCrypt {
      */
     public static boolean checkpw(String plaintext, String hashed) {
         try {
-            byte[] hashed_bytes;
-            byte[] try_bytes;
-            String try_pw = hashpw(plaintext, hashed);
-            hashed_bytes = hashed.getBytes(StandardCharsets.UTF_8);
-            try_bytes = try_pw.getBytes(StandardCharsets.UTF_8);
-            if (hashed_bytes.length != try_bytes.length)
+            BCrypt B = STATE.get();
+            int length = B.hash(plaintext, hashed);
+            if (hashed.length() != length)
                 return false;
-            byte ret = 0;
-            for (int i = 0; i < try_bytes.length; i++)
-                ret |= hashed_bytes[i] ^ try_bytes[i];
+            int ret = 0;
+            for (int i = 0; i < length; i++)
+                ret |= hashed.charAt(i) ^ B.result[i];
             return ret == 0;
         } catch (Exception e) {
         }
         return false;
     }
-}
\ No newline at end of file
+}
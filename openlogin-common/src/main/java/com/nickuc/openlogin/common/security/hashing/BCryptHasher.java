@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.security.hashing;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Hashes passwords with {@link BCrypt}, accepting {@code $2$}, {@code $2a$}, {@code $2b$} and {@code $2y$} hashes.
+ */
+public class BCryptHasher implements PasswordHasher {
+
+    // refuse to verify hashes of a higher cost, each step doubles the time of a login
+    static final int MAX_COST = 20;
+
+    @Getter
+    private final int cost;
+
+    /**
+     * Creates a bcrypt hasher.
+     *
+     * @param cost the log2 of the number of rounds, between 4 and 20
+     */
+    public BCryptHasher(int cost) {
+        if (cost < 4 || cost > MAX_COST) {
+            throw new IllegalArgumentException("Invalid bcrypt cost: " + cost);
+        }
+        this.cost = cost;
+    }
+
+    @Override
+    public String getName() {
+        return "bcrypt";
+    }
+
+    @Override
+    public String getParameters() {
+        return "cost=" + cost;
+    }
+
+    @Override
+    public boolean supports(@NonNull String hash) {
+        return hash.startsWith("$2$") || hash.startsWith("$2a$") || hash.startsWith("$2b$") || hash.startsWith("$2y$");
+    }
+
+    @Override
+    public String hash(@NonNull String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(cost));
+    }
+
+    @Override
+    public boolean verify(@NonNull String password, @NonNull String hash) {
+        int cost = parseCost(hash);
+        if (cost < 4 || cost > MAX_COST) {
+            return false;
+        }
+        try {
+            return BCrypt.checkpw(password, hash);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(@NonNull String hash) {
+        return parseCost(hash) != cost;
+    }
+
+    // the cost of a $2$, $2a$, $2b$ or $2y$ hash, -1 if malformed
+    private static int parseCost(String hash) {
+        if (hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(1) != '2') {
+            return -1;
+        }
+        int off = hash.charAt(2) == '$' ? 3 : 4;
+        if (off == 4 && hash.charAt(3) != '$' || hash.length() < off + 3 || hash.charAt(off + 2) != '$') {
+            return -1;
+        }
+        char high = hash.charAt(off), low = hash.charAt(off + 1);
+        if (high < '0' || high > '9' || low < '0' || low > '9') {
+            return -1;
+        }
+        return (high - '0') * 10 + low - '0';
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.security.hashing;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Measures a hasher on the current machine and raises its work factor as far as a
+ * single verify stays under a latency budget.
+ * <p>
+ * The configured parameters are the minimum, calibration never lowers them. bcrypt scales
+ * its cost, PBKDF2 its iterations and Argon2id its passes. Argon2id memory is kept as
+ * configured, since every hashing thread allocates it.
+ */
+public class HashCalibration {
+
+    private static final String PASSWORD = "calibration-password";
+    private static final int SAMPLES = 3;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final int MAX_BCRYPT_COST = BCryptHasher.MAX_COST;
+    private static final int MAX_PBKDF2_ITERATIONS = 10_000_000;
+    private static final int MAX_ARGON2ID_ITERATIONS = 16;
+
+    private final PasswordHasher minimum;
+    @Getter
+    private final PasswordHasher hasher;
+    @Getter
+    private final int targetMillis;
+    @Getter
+    private final double measuredMillis;
+    @Getter
+    private final boolean restored;
+
+    private HashCalibration(PasswordHasher minimum, PasswordHasher hasher, int targetMillis, double measuredMillis, boolean restored) {
+        this.minimum = minimum;
+        this.hasher = hasher;
+        this.targetMillis = targetMillis;
+        this.measuredMillis = measuredMillis;
+        this.restored = restored;
+    }
+
+    /**
+     * Calibrates a hasher. Blocks while hashing, which may take a few seconds.
+     *
+     * @param minimum      the hasher with the minimum parameters
+     * @param targetMillis the latency budget of a single verify
+     * @return the calibration
+     * @throws IllegalArgumentException if the hasher can't be calibrated
+     */
+    public static HashCalibration run(@NonNull PasswordHasher minimum, int targetMillis) {
+        int work = workOf(minimum);
+        // the first rounds run interpreted, don't let them count
+        measure(minimum);
+        PasswordHasher best = minimum;
+        double time = measure(minimum);
+
+        if (minimum instanceof BCryptHasher) {
+            // every cost step doubles the time
+            while (work < MAX_BCRYPT_COST && time * 2 <= targetMillis) {
+                PasswordHasher next = withWork(minimum, work + 1);
+                double nextTime = measure(next);
+                if (nextTime > targetMillis) {
+                    break;
+                }
+                best = next;
+                time = nextTime;
+                work++;
+            }
+        } else {
+            // the time grows linearly with the work, so estimate from the latest measurement
+            // until an estimate doesn't fit or doesn't improve anymore
+            int estimate = estimate(minimum, work, time, targetMillis);
+            for (int attempt = 0; attempt < MAX_ATTEMPTS && estimate > work; attempt++) {
+                PasswordHasher next = withWork(minimum, estimate);
+                double nextTime = measure(next);
+                if (nextTime <= targetMillis) {
+                    best = next;
+                    time = nextTime;
+                    work = estimate;
+                    estimate = estimate(minimum, work, time, targetMillis);
+                } else {
+                    estimate = Math.min(estimate - 1, estimate(minimum, estimate, nextTime, targetMillis));
+                }
+            }
+        }
+        return new HashCalibration(minimum, best, targetMillis, time, false);
+    }
+
+    /**
+     * Restores a stored calibration, if it was made on a similar machine with the same settings.
+     *
+     * @param minimum      the hasher with the minimum parameters
+     * @param targetMillis the latency budget of a single verify
+     * @param stored       the stored calibration, see {@link #serialize()}
+     * @return the calibration, or null if it has to be calibrated again
+     */
+    @Nullable
+    public static HashCalibration restore(@NonNull PasswordHasher minimum, int targetMillis, @Nullable String stored) {
+        if (stored == null) {
+            return null;
+        }
+        String[] parts = stored.split(";");
+        if (parts.length != 3 || !parts[0].equals(fingerprint(minimum, targetMillis))) {
+            return null;
+        }
+        try {
+            int work = Integer.parseInt(parts[1]);
+            if (work < workOf(minimum)) {
+                return null;
+            }
+            return new HashCalibration(minimum, withWork(minimum, work), targetMillis, Double.parseDouble(parts[2]), true);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Serializes this calibration, to be restored on the next start.
+     *
+     * @return the serialized calibration
+     */
+    public String serialize() {
+        return fingerprint(minimum, targetMillis) + ";" + workOf(hasher) + ";" + measuredMillis;
+    }
+
+    /**
+     * Checks if even the minimum parameters take longer than the budget.
+     *
+     * @return true if a verify takes longer than the budget
+     */
+    public boolean isOverBudget() {
+        return measuredMillis > targetMillis;
+    }
+
+    /**
+     * Gets a one line summary of the calibration.
+     *
+     * @return the calibration status
+     */
+    public String getStatus() {
+        return String.format("Password hashing: %s (%s), %.1fms per verify for a %dms budget (%s)",
+                hasher.getName(), hasher.getParameters(), measuredMillis, targetMillis, restored ? "stored calibration" : "calibrated on startup");
+    }
+
+    // Settings and hardware the calibration depends on
+    private static String fingerprint(PasswordHasher minimum, int targetMillis) {
+        return minimum.getName() + "/" + minimum.getParameters() + "/" + targetMillis + "ms/" +
+                Runtime.getRuntime().availableProcessors() + "/" + System.getProperty("os.arch") + "/" +
+                System.getProperty("java.specification.version");
+    }
+
+    // Median time of a verify, in milliseconds
+    private static double measure(PasswordHasher hasher) {
+        String hash = hasher.hash(PASSWORD);
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            hasher.verify(PASSWORD, hash);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2] / 1_000_000D;
+    }
+
+    private static int workOf(PasswordHasher hasher) {
+        if (hasher instanceof BCryptHasher) {
+            return ((BCryptHasher) hasher).getCost();
+        } else if (hasher instanceof Pbkdf2Hasher) {
+            return ((Pbkdf2Hasher) hasher).getIterations();
+        } else if (hasher instanceof Argon2idHasher) {
+            return ((Argon2idHasher) hasher).getIterations();
+        }
+        throw new IllegalArgumentException("Can't calibrate " + hasher.getName());
+    }
+
+    private static PasswordHasher withWork(PasswordHasher hasher, int work) {
+        if (hasher instanceof BCryptHasher) {
+            return new BCryptHasher(work);
+        } else if (hasher instanceof Pbkdf2Hasher) {
+            return new Pbkdf2Hasher(work);
+        } else if (hasher instanceof Argon2idHasher) {
+            Argon2idHasher argon2id = (Argon2idHasher) hasher;
+            return new Argon2idHasher(argon2id.getMemory(), work, argon2id.getParallelism());
+        }
+        throw new IllegalArgumentException("Can't calibrate " + hasher.getName());
+    }
+
+    // Work expected to take 95% of the budget, PBKDF2 iterations are rounded down to thousands
+    private static int estimate(PasswordHasher hasher, int work, double time, int targetMillis) {
+        int max = hasher instanceof Pbkdf2Hasher ? MAX_PBKDF2_ITERATIONS : MAX_ARGON2ID_ITERATIONS;
+        int estimate = (int) Math.min(max, work * (targetMillis * 0.95D / Math.max(time, 0.001D)));
+        return hasher instanceof Pbkdf2Hasher && estimate >= 1000 ? estimate - estimate % 1000 : estimate;
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.security.hashing;
+
+import lombok.NonNull;
+
+/**
+ * A password hashing algorithm.
+ * <p>
+ * Implementations are immutable and thread safe. Hashes encode their own parameters,
+ * so a hasher verifies hashes created with any parameters of its algorithm.
+ */
+public interface PasswordHasher {
+
+    /**
+     * Gets the algorithm name, as used in the configuration.
+     *
+     * @return the algorithm name
+     */
+    String getName();
+
+    /**
+     * Gets the parameters used for new hashes, for display purposes.
+     *
+     * @return the parameters, e.g. {@code cost=10}
+     */
+    String getParameters();
+
+    /**
+     * Checks if a hash was created by this algorithm.
+     *
+     * @param hash the hashed password
+     * @return true if this hasher can verify the hash
+     */
+    boolean supports(@NonNull String hash);
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password the password to hash
+     * @return the hashed password
+     */
+    String hash(@NonNull String password);
+
+    /**
+     * Checks if a password matches a hash.
+     *
+     * @param password the password to check
+     * @param hash     the hashed password
+     * @return true if the password matches
+     */
+    boolean verify(@NonNull String password, @NonNull String hash);
+
+    /**
+     * Checks if a hash of this algorithm was created with other parameters than the configured ones.
+     *
+     * @param hash the hashed password
+     * @return true if the password should be hashed again
+     */
+    boolean needsRehash(@NonNull String hash);
+
+}
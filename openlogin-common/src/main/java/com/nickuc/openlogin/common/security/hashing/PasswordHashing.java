@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.security.hashing;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The registry of {@link PasswordHasher}s.
+ * <p>
+ * New passwords are hashed with the current hasher, existing hashes are verified by
+ * whichever registered hasher supports them.
+ */
+public class PasswordHashing {
+
+    private final List<PasswordHasher> hashers = new ArrayList<>();
+    @Getter
+    private final PasswordHasher current;
+
+    /**
+     * Creates a registry.
+     *
+     * @param current the hasher used for new passwords
+     * @param others  hashers only used to verify existing hashes
+     */
+    public PasswordHashing(@NonNull PasswordHasher current, @NonNull PasswordHasher... others) {
+        this.current = current;
+        hashers.add(current);
+        for (PasswordHasher other : others) {
+            if (!other.getName().equals(current.getName())) {
+                hashers.add(other);
+            }
+        }
+    }
+
+    /**
+     * Creates a registry with the built-in hashers.
+     *
+     * @param algorithm the algorithm for new passwords: bcrypt, pbkdf2 or argon2id
+     * @param bcrypt    the bcrypt hasher
+     * @param pbkdf2    the PBKDF2 hasher
+     * @param argon2id  the Argon2id hasher
+     * @return the registry
+     * @throws IllegalArgumentException if the algorithm is unknown
+     */
+    public static PasswordHashing of(@NonNull String algorithm, @NonNull BCryptHasher bcrypt,
+                                     @NonNull Pbkdf2Hasher pbkdf2, @NonNull Argon2idHasher argon2id) {
+        PasswordHasher[] hashers = {bcrypt, pbkdf2, argon2id};
+        for (PasswordHasher hasher : hashers) {
+            if (hasher.getName().equalsIgnoreCase(algorithm)) {
+                return new PasswordHashing(hasher, hashers);
+            }
+        }
+        throw new IllegalArgumentException("Unknown hashing algorithm '" + algorithm + "'");
+    }
+
+    /**
+     * Creates a registry with the same hashers but another current one, which replaces
+     * the registered hasher of its algorithm.
+     *
+     * @param current the hasher used for new passwords
+     * @return the registry
+     */
+    public PasswordHashing withCurrent(@NonNull PasswordHasher current) {
+        return new PasswordHashing(current, hashers.toArray(new PasswordHasher[0]));
+    }
+
+    public List<PasswordHasher> getHashers() {
+        return Collections.unmodifiableList(hashers);
+    }
+
+    /**
+     * Finds the hasher of a hash.
+     *
+     * @param hash the hashed password
+     * @return the hasher, or null if no registered hasher supports the hash
+     */
+    public PasswordHasher find(@NonNull String hash) {
+        for (PasswordHasher hasher : hashers) {
+            if (hasher.supports(hash)) {
+                return hasher;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a hash can be verified.
+     *
+     * @param hash the hashed password
+     * @return true if a registered hasher supports the hash
+     */
+    public boolean isSupported(@NonNull String hash) {
+        return find(hash) != null;
+    }
+
+    /**
+     * Hashes a password with the current hasher.
+     *
+     * @param password the password to hash
+     * @return the hashed password
+     */
+    public String hash(@NonNull String password) {
+        return current.hash(password);
+    }
+
+    /**
+     * Checks if a password matches a hash of any registered algorithm.
+     *
+     * @param password the password to check
+     * @param hash     the hashed password
+     * @return true if the password matches
+     * @throws IllegalArgumentException if no registered hasher supports the hash
+     */
+    public boolean verify(@NonNull String password, @NonNull String hash) {
+        PasswordHasher hasher = find(hash);
+        if (hasher == null) {
+            throw new IllegalArgumentException("Unsupported hash format");
+        }
+        return hasher.verify(password, hash);
+    }
+
+    /**
+     * Checks if a hash was not created by the current hasher with its current parameters.
+     *
+     * @param hash the hashed password
+     * @return true if the password should be hashed again
+     */
+    public boolean needsRehash(@NonNull String hash) {
+        return !current.supports(hash) || current.needsRehash(hash);
+    }
+
+}
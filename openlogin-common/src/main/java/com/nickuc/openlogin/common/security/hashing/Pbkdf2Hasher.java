@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.security.hashing;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Hashes passwords with PBKDF2-HMAC-SHA256.
+ * <p>
+ * Hashes use the passlib format: {@code $pbkdf2-sha256$<iterations>$<salt>$<hash>}, with
+ * base64 encoded salt and hash where {@code +} is replaced by {@code .} and padding is omitted.
+ */
+public class Pbkdf2Hasher implements PasswordHasher {
+
+    private static final String PREFIX = "$pbkdf2-sha256$";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    // refuse to verify hashes that would need more iterations than this, a stored hash must not stall a login thread
+    private static final int MAX_ITERATIONS = 10_000_000;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Getter
+    private final int iterations;
+
+    /**
+     * Creates a PBKDF2 hasher.
+     *
+     * @param iterations the number of iterations
+     */
+    public Pbkdf2Hasher(int iterations) {
+        if (iterations < 1 || iterations > MAX_ITERATIONS) {
+            throw new IllegalArgumentException("Invalid PBKDF2 iterations: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String getName() {
+        return "pbkdf2";
+    }
+
+    @Override
+    public String getParameters() {
+        return "iterations=" + iterations;
+    }
+
+    @Override
+    public boolean supports(@NonNull String hash) {
+        return hash.startsWith(PREFIX);
+    }
+
+    @Override
+    public String hash(@NonNull String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        return PREFIX + iterations + "$" + encode(salt) + "$" + encode(derive(password, salt, iterations, HASH_LENGTH));
+    }
+
+    @Override
+    public boolean verify(@NonNull String password, @NonNull String hash) {
+        String[] parts = split(hash);
+        if (parts == null) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[0]);
+            byte[] salt = decode(parts[1]);
+            byte[] expected = decode(parts[2]);
+            if (iterations < 1 || iterations > MAX_ITERATIONS || expected.length == 0) {
+                return false;
+            }
+            return MessageDigest.isEqual(expected, derive(password, salt, iterations, expected.length));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(@NonNull String hash) {
+        String[] parts = split(hash);
+        return parts == null || !parts[0].equals(String.valueOf(iterations));
+    }
+
+    private static String[] split(String hash) {
+        if (!hash.startsWith(PREFIX)) {
+            return null;
+        }
+        String[] parts = hash.substring(PREFIX.length()).split("\\$", -1);
+        return parts.length == 3 ? parts : null;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int length) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getEncoder().withoutPadding().encodeToString(bytes).replace('+', '.');
+    }
+
+    private static byte[] decode(String value) {
+        return Base64.getDecoder().decode(value.replace('.', '+'));
+    }
+
+}
@@ -42,6 +42,7 @@ public enum Messages {
     // delay kick
     DELAY_KICK_LOGIN("delay-kick.login-kick"),
     DELAY_KICK_REGISTER("delay-kick.register-kick"),
+    DELAY_KICK_COUNTDOWN("delay-kick.countdown"),
 
     // successful operations
     PASSWORD_CHANGED("successful-operations.password-changed"),
@@ -54,6 +55,7 @@ public enum Messages {
     FAILED_MANY_TIMES("kick-messages.failed-many-times"),
     INCORRECT_PASSWORD("kick-messages.incorrect-password"),
     INVALID_NICKNAME("kick-messages.invalid-nickname"),
+    SERVER_BUSY("kick-messages.server-busy"),
 
     // error messages
     REGISTRATION_LIMIT("error-messages.registration-limit"),
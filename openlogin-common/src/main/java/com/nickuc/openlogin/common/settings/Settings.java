@@ -45,6 +45,14 @@ public enum Settings {
             "Security.time-to-login",
             45
     ),
+    LOGIN_COUNTDOWN(
+            "Security.login-countdown",
+            true
+    ),
+    FREEZE_MODE(
+            "Security.freeze-mode",
+            "anchor"
+    ),
     INVISIBLE_WHILE_UNAUTHENTICATED(
             "Security.invisible-while-unauthenticated",
             true
@@ -85,9 +93,201 @@ public enum Settings {
             "Security.max-accounts-per-ip",
             3
     ),
+    MAX_ACCOUNTS_PER_SUBNET(
+            "Security.max-accounts-per-subnet",
+            0
+    ),
+    ADDRESS_IPV6_PREFIX_LENGTH(
+            "Security.ipv6-prefix-length",
+            64
+    ),
+    SUBNET_IPV4_PREFIX_LENGTH(
+            "Security.subnet-prefix-length.ipv4",
+            24
+    ),
+    SUBNET_IPV6_PREFIX_LENGTH(
+            "Security.subnet-prefix-length.ipv6",
+            48
+    ),
+    LOGIN_ATTEMPTS_WINDOW(
+            "Security.login-attempts.window",
+            3600
+    ),
+    LOGIN_ATTEMPTS_LOCKOUTS(
+            "Security.login-attempts.lockouts",
+            "300, 900, 3600"
+    ),
+    LOGIN_ATTEMPTS_ADDRESS(
+            "Security.login-attempts.address",
+            5
+    ),
+    LOGIN_ATTEMPTS_SUBNET(
+            "Security.login-attempts.subnet",
+            0
+    ),
+    LOGIN_ATTEMPTS_ACCOUNT(
+            "Security.login-attempts.account",
+            0
+    ),
+    LOGIN_ATTEMPTS_MAX_ENTRIES(
+            "Security.login-attempts.max-entries",
+            100000
+    ),
+    HASHING_THREADS(
+            "Security.hashing.threads",
+            0
+    ),
+    HASHING_QUEUE_SIZE(
+            "Security.hashing.queue-size",
+            64
+    ),
+    HASHING_ALGORITHM(
+            "Security.hashing.algorithm",
+            "bcrypt"
+    ),
+    HASHING_REHASH_ON_LOGIN(
+            "Security.hashing.rehash-on-login",
+            true
+    ),
+    HASHING_CALIBRATION_ENABLED(
+            "Security.hashing.calibration.enabled",
+            true
+    ),
+    HASHING_CALIBRATION_TARGET(
+            "Security.hashing.calibration.target-millis",
+            80
+    ),
+    HASHING_BCRYPT_COST(
+            "Security.hashing.bcrypt.cost",
+            10
+    ),
+    HASHING_PBKDF2_ITERATIONS(
+            "Security.hashing.pbkdf2.iterations",
+            600000
+    ),
+    HASHING_ARGON2ID_MEMORY(
+            "Security.hashing.argon2id.memory",
+            19456
+    ),
+    HASHING_ARGON2ID_ITERATIONS(
+            "Security.hashing.argon2id.iterations",
+            2
+    ),
+    HASHING_ARGON2ID_PARALLELISM(
+            "Security.hashing.argon2id.parallelism",
+            1
+    ),
     SPAWN_BEFORE_LOGIN_RETURN_LAST_LOCATION(
             "Forks.spawn-before-login-return-last-location",
             true
+    ),
+    DATABASE_TYPE(
+            "Database.type",
+            "sqlite-pooled"
+    ),
+    DATABASE_POOL_READERS(
+            "Database.pool.readers",
+            4
+    ),
+    DATABASE_POOL_BUSY_TIMEOUT(
+            "Database.pool.busy-timeout",
+            5000
+    ),
+    DATABASE_POOL_ACQUIRE_TIMEOUT(
+            "Database.pool.acquire-timeout",
+            10000
+    ),
+    DATABASE_POOL_STATEMENT_CACHE_SIZE(
+            "Database.pool.statement-cache-size",
+            32
+    ),
+    DATABASE_REMOTE_HOST(
+            "Database.remote.host",
+            "localhost"
+    ),
+    DATABASE_REMOTE_PORT(
+            "Database.remote.port",
+            0
+    ),
+    DATABASE_REMOTE_DATABASE(
+            "Database.remote.database",
+            "plsjstlogin"
+    ),
+    DATABASE_REMOTE_USERNAME(
+            "Database.remote.username",
+            "root"
+    ),
+    DATABASE_REMOTE_PASSWORD(
+            "Database.remote.password",
+            ""
+    ),
+    DATABASE_REMOTE_PROPERTIES(
+            "Database.remote.properties",
+            ""
+    ),
+    DATABASE_REMOTE_WRITERS(
+            "Database.remote.writers",
+            2
+    ),
+    DATABASE_LOG_COMPACTION_INTERVAL(
+            "Database.log.compaction-interval",
+            300
+    ),
+    DATABASE_EXECUTOR_THREADS(
+            "Database.executor.threads",
+            4
+    ),
+    DATABASE_EXECUTOR_QUEUE_SIZE(
+            "Database.executor.queue-size",
+            1024
+    ),
+    DATABASE_CACHE_MAXIMUM_SIZE(
+            "Database.cache.maximum-size",
+            10000
+    ),
+    DATABASE_CACHE_EXPIRE_AFTER_WRITE(
+            "Database.cache.expire-after-write",
+            1800
+    ),
+    DATABASE_CACHE_EXPIRE_AFTER_ACCESS(
+            "Database.cache.expire-after-access",
+            600
+    ),
+    DATABASE_CACHE_NEGATIVE_EXPIRE(
+            "Database.cache.negative-expire",
+            30
+    ),
+    DATABASE_CACHE_WARM_UP(
+            "Database.cache.warm-up",
+            1000
+    ),
+    DATABASE_CACHE_PREFETCH_ON_LOGIN(
+            "Database.cache.prefetch-on-login",
+            true
+    ),
+    DATABASE_WRITE_BEHIND_BATCH_SIZE(
+            "Database.write-behind.batch-size",
+            256
+    ),
+    DATABASE_WRITE_BEHIND_FLUSH_INTERVAL(
+            "Database.write-behind.flush-interval",
+            1000
+    ),
+    DATABASE_NAME_FILTER_ENABLED(
+            "Database.name-filter.enabled",
+            true
+    ),
+    DATABASE_NAME_FILTER_FALSE_POSITIVE_RATE(
+            "Database.name-filter.false-positive-rate",
+            0.01D
+    ),
+    DATABASE_IMPORT_BATCH_SIZE(
+            "Database.import.batch-size",
+            1000
+    ),
+    DATABASE_IMPORT_PROGRESS_INTERVAL(
+            "Database.import.progress-interval",
+            50000
     );
 
     static final HashMap<String, Object> SETTINGS = new HashMap<>();
@@ -125,6 +325,10 @@ public enum Settings {
         return get(Boolean.class);
     }
 
+    public double asDouble() {
+        return get(Double.class);
+    }
+
     @SuppressWarnings("unchecked")
     private <T> T get(@NonNull Class<T> clasz) {
         if (def != null && !clasz.isAssignableFrom(def.getClass())) {
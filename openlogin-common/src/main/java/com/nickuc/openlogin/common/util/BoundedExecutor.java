@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.util;
+
+import lombok.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A fixed size executor with a bounded queue.
+ * <p>
+ * Once the queue is full new tasks are rejected instead of piling up, the returned
+ * future completes exceptionally with a {@link RejectedExecutionException}.
+ */
+public class BoundedExecutor implements Executor {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    // latency metrics, in nanoseconds
+    private final AtomicLong timedTasks = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong runNanos = new AtomicLong();
+
+    /**
+     * Creates a new executor.
+     *
+     * @param name      the name of the executor, used for thread names
+     * @param threads   the number of worker threads
+     * @param queueSize the maximum number of waiting tasks
+     */
+    public BoundedExecutor(@NonNull String name, int threads, int queueSize) {
+        this.name = name;
+        int size = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), new NamedThreadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs a task on this executor.
+     *
+     * @param supplier the task to run
+     * @param <T>      the result type
+     * @return a future completed with the task result
+     */
+    public <T> CompletableFuture<T> supply(@NonNull Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, this);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        long queued = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                long wait = start - queued;
+                waitNanos.addAndGet(wait);
+                maxWaitNanos.accumulateAndGet(wait, Math::max);
+                try {
+                    command.run();
+                } finally {
+                    runNanos.addAndGet(System.nanoTime() - start);
+                    timedTasks.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting tasks and waits for the queued ones to finish.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of the timeout
+     * @return true if every task finished
+     */
+    public boolean shutdown(long timeout, @NonNull TimeUnit unit) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Gets the average time tasks waited in the queue.
+     *
+     * @return the average wait, in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        long tasks = timedTasks.get();
+        return tasks == 0 ? 0 : waitNanos.get() / 1e6 / tasks;
+    }
+
+    /**
+     * Gets the average time tasks took to run.
+     *
+     * @return the average run time, in milliseconds
+     */
+    public double getAverageRunMillis() {
+        long tasks = timedTasks.get();
+        return tasks == 0 ? 0 : runNanos.get() / 1e6 / tasks;
+    }
+
+    /**
+     * Gets a one line summary of the executor usage.
+     *
+     * @return the executor status
+     */
+    public String getStatus() {
+        return String.format("%s: %d/%d active, %d queued (capacity %d), %d completed, %d rejected, %.1fms avg wait (%.1fms max), %.1fms avg run",
+                name, executor.getActiveCount(), executor.getMaximumPoolSize(), getQueueSize(),
+                getQueueSize() + executor.getQueue().remainingCapacity(), executor.getCompletedTaskCount(), getRejected(),
+                getAverageWaitMillis(), maxWaitNanos.get() / 1e6, getAverageRunMillis());
+    }
+
+    // Daemon thread factory
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private NamedThreadFactory(String name) {
+            this.prefix = "plsjstlogin-" + name + "-";
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.util;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hierarchical timer wheel.
+ * <p>
+ * Timeouts are kept in three wheels of 64 slots, one tick, 64 ticks and 4096 ticks wide.
+ * Scheduling and cancelling are constant time, and a tick only looks at the timeouts of its
+ * own slot: those of the outer wheels move inwards once their slot comes up, so every timeout
+ * is moved at most twice before it runs. Delays above 262144 ticks are cut to that.
+ * <p>
+ * The wheel doesn't have a thread, {@link #advance(long)} has to be called regularly, and tasks
+ * run on the thread that calls it, outside the lock.
+ */
+public class TimerWheel {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 3;
+    private static final long MAX_DELAY_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Timeout[][] wheels = new Timeout[LEVELS][WHEEL_SIZE];
+
+    // last tick that ran
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates a new wheel.
+     *
+     * @param tickMillis the length of a tick, in milliseconds
+     */
+    public TimerWheel(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Invalid tick length: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task  the task to run
+     * @param delay the delay, rounded up to whole ticks
+     * @param unit  the unit of the delay
+     * @return the timeout, to cancel the task
+     */
+    public Timeout schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
+        long deadline = System.currentTimeMillis() + Math.max(0, unit.toMillis(delay));
+        long ticks = (deadline - startMillis + tickMillis - 1) / tickMillis;
+        Timeout timeout = new Timeout(this, task);
+        synchronized (this) {
+            timeout.deadline = Math.min(Math.max(ticks, currentTick + 1), currentTick + MAX_DELAY_TICKS);
+            insert(timeout);
+            size++;
+        }
+        return timeout;
+    }
+
+    /**
+     * Runs every tick up to the given time, with the tasks that are due.
+     *
+     * @param nowMillis the current time, in milliseconds
+     * @return the number of tasks that ran
+     */
+    public int advance(long nowMillis) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        List<Timeout> due = null;
+        synchronized (this) {
+            while (currentTick < targetTick) {
+                long tick = ++currentTick;
+                if ((tick & WHEEL_MASK) == 0) {
+                    if (((tick >>> WHEEL_BITS) & WHEEL_MASK) == 0) {
+                        cascade(2, (int) ((tick >>> (WHEEL_BITS * 2)) & WHEEL_MASK));
+                    }
+                    cascade(1, (int) ((tick >>> WHEEL_BITS) & WHEEL_MASK));
+                }
+
+                int slot = (int) (tick & WHEEL_MASK);
+                Timeout timeout = wheels[0][slot];
+                wheels[0][slot] = null;
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.unlink();
+                    size--;
+                    if (due == null) {
+                        due = new ArrayList<>();
+                    }
+                    due.add(timeout);
+                    timeout = next;
+                }
+            }
+        }
+
+        if (due == null) {
+            return 0;
+        }
+        for (Timeout timeout : due) {
+            try {
+                timeout.task.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return due.size();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // moves the timeouts of an outer slot to the inner wheels
+    private void cascade(int level, int slot) {
+        Timeout timeout = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.unlink();
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    private void insert(Timeout timeout) {
+        long deadline = timeout.deadline;
+        long remaining = deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && remaining >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        Timeout head = wheels[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheels[level][slot] = timeout;
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public static class Timeout {
+
+        private final TimerWheel wheel;
+        private final Runnable task;
+
+        // guarded by the wheel, a timeout is linked while level isn't -1
+        private long deadline;
+        private int level = -1;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimerWheel wheel, Runnable task) {
+            this.wheel = wheel;
+            this.task = task;
+        }
+
+        /**
+         * Cancels the task, if it didn't run yet.
+         *
+         * @return true if the task was cancelled
+         */
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (level == -1) {
+                    return false;
+                }
+                if (prev == null) {
+                    wheel.wheels[level][slot] = next;
+                }
+                unlink();
+                wheel.size--;
+                return true;
+            }
+        }
+
+        public boolean isPending() {
+            synchronized (wheel) {
+                return level != -1;
+            }
+        }
+
+        private void unlink() {
+            if (prev != null) {
+                prev.next = next;
+            }
+            if (next != null) {
+                next.prev = prev;
+            }
+            prev = null;
+            next = null;
+            level = -1;
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays logs whose last record was torn by a crash, the way {@link LogAccountStore#open()} finds them.
+ */
+class LogAccountStoreTest {
+
+    // file header, then payload length, payload checksum and record type of each record
+    private static final int FILE_HEADER = 8;
+    private static final int RECORD_HEADER = 9;
+
+    @TempDir
+    File folder;
+
+    @Test
+    void replaysAnIntactLog() throws SQLException {
+        writeAccounts();
+        LogAccountStore store = open();
+        assertTrue(store.find("alice").isPresent());
+        assertTrue(store.find("bob").isPresent());
+        assertEquals(Optional.of("Carol"), store.find("carol").map(Account::getRealName));
+        assertEquals(2, store.countByAddress("10.0.0.1"));
+        assertEquals(2, store.getStatus().length);
+        store.close();
+    }
+
+    @Test
+    void dropsATruncatedTail() throws SQLException, IOException {
+        int last = writeAccounts();
+        try (RandomAccessFile file = new RandomAccessFile(logFile(), "rw")) {
+            // half of the last record reached the disk
+            file.setLength(last + RECORD_HEADER + recordLength(file, last) / 2);
+        }
+        assertDroppedLastRecord(last);
+    }
+
+    @Test
+    void dropsACorruptedTail() throws SQLException, IOException {
+        int last = writeAccounts();
+        try (RandomAccessFile file = new RandomAccessFile(logFile(), "rw")) {
+            int position = last + RECORD_HEADER + recordLength(file, last) - 1;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+        assertDroppedLastRecord(last);
+    }
+
+    @Test
+    void dropsATailWithAnImpossibleLength() throws SQLException, IOException {
+        int last = writeAccounts();
+        try (RandomAccessFile file = new RandomAccessFile(logFile(), "rw")) {
+            file.seek(last);
+            file.writeInt(Integer.MAX_VALUE);
+        }
+        assertDroppedLastRecord(last);
+    }
+
+    @Test
+    void dropsGarbageAfterTheLastRecord() throws SQLException, IOException {
+        int last = writeAccounts();
+        int end;
+        try (RandomAccessFile file = new RandomAccessFile(logFile(), "rw")) {
+            end = last + RECORD_HEADER + recordLength(file, last);
+            file.seek(end + 100);
+            file.write(new byte[]{1, 2, 3});
+        }
+
+        LogAccountStore store = open();
+        assertTrue(store.find("carol").isPresent());
+        assertTrue(store.getStatus()[2].contains("at byte " + end), Arrays.toString(store.getStatus()));
+        store.close();
+    }
+
+    // the accounts before the torn record are kept, and later writes survive the next replay
+    private void assertDroppedLastRecord(int last) throws SQLException, IOException {
+        LogAccountStore store = open();
+        assertTrue(store.find("alice").isPresent());
+        assertTrue(store.find("bob").isPresent());
+        assertFalse(store.find("carol").isPresent());
+        assertEquals(3, store.getStatus().length);
+        assertTrue(store.getStatus()[2].contains("at byte " + last), Arrays.toString(store.getStatus()));
+        assertEquals(1, store.countByAddress("10.0.0.1"));
+        try (RandomAccessFile file = new RandomAccessFile(logFile(), "r")) {
+            assertEquals(0, recordLength(file, last), "the torn record was not cleared");
+        }
+
+        store.insert(new Account("Dave", "hash", "10.0.0.1", 4, 4));
+        store.close();
+
+        store = open();
+        assertEquals(2, store.getStatus().length);
+        assertTrue(store.find("dave").isPresent());
+        assertFalse(store.find("carol").isPresent());
+        assertEquals(2, store.countByAddress("10.0.0.1"));
+        store.close();
+    }
+
+    // writes three accounts and returns the offset of the last record
+    private int writeAccounts() throws SQLException {
+        LogAccountStore store = open();
+        assertTrue(store.isCreated());
+        store.insert(new Account("Alice", "hash", "10.0.0.1", 1, 1));
+        store.insert(new Account("Bob", "hash", null, 2, 2));
+        store.insert(new Account("Carol", "hash", "10.0.0.1", 3, 3));
+        store.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(logFile(), "r")) {
+            int offset = FILE_HEADER;
+            int last = -1;
+            int length;
+            while ((length = recordLength(file, offset)) > 0) {
+                last = offset;
+                offset += RECORD_HEADER + length;
+            }
+            assertTrue(last > FILE_HEADER);
+            return last;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private LogAccountStore open() throws SQLException {
+        LogAccountStore store = new LogAccountStore(folder, "accounts");
+        store.open();
+        return store;
+    }
+
+    private File logFile() {
+        return new File(folder, "accounts.1.log");
+    }
+
+    private static int recordLength(RandomAccessFile file, int offset) throws IOException {
+        if (offset + 4 > file.length()) {
+            return 0;
+        }
+        file.seek(offset);
+        return file.readInt();
+    }
+
+}
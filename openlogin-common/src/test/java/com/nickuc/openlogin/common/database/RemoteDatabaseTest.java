@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.database;
+
+import com.sobble.pleasejustlogin.common.model.Account;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.JdbcDatabaseContainer;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the schema migrations and every registered statement once on real MySQL, MariaDB and PostgreSQL servers.
+ * <p>
+ * The servers are started with Docker, the tests are skipped where it is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RemoteDatabaseTest {
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+    @Container
+    private static final MariaDBContainer<?> MARIADB = new MariaDBContainer<>("mariadb:10.11");
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRESQL = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Test
+    void mysql() throws SQLException {
+        runEveryStatement(SqlDialect.MYSQL, MYSQL, "");
+    }
+
+    @Test
+    void mysqlRewrittenBatches() throws SQLException {
+        // batches are sent as one statement, without a count per row
+        runEveryStatement(SqlDialect.MYSQL, MYSQL, "rewriteBatchedStatements=true");
+    }
+
+    @Test
+    void mariadb() throws SQLException {
+        // 'mariadb' servers use the MySQL dialect and driver
+        runEveryStatement(SqlDialect.MYSQL, MARIADB, "");
+    }
+
+    @Test
+    void postgresql() throws SQLException {
+        runEveryStatement(SqlDialect.POSTGRESQL, POSTGRESQL, "");
+    }
+
+    @Test
+    void postgresqlRewrittenBatches() throws SQLException {
+        runEveryStatement(SqlDialect.POSTGRESQL, POSTGRESQL, "reWriteBatchedInserts=true");
+    }
+
+    private static void runEveryStatement(SqlDialect dialect, JdbcDatabaseContainer<?> container, String properties) throws SQLException {
+        RecordingDatabase database = new RecordingDatabase(dialect, container, properties);
+        database.openConnection();
+        try {
+            PluginSettings pluginSettings = new PluginSettings(database);
+            SchemaMigrations migrations = new SchemaMigrations(database, pluginSettings);
+            migrations.createTables();
+            migrations.migrate(message -> {
+            });
+            assertEquals(migrations.getLatestVersion(), migrations.getCurrentVersion());
+
+            assertTrue(pluginSettings.set("test", "1"));
+            assertTrue(pluginSettings.set("test", "2"));
+            assertEquals("2", pluginSettings.read("test"));
+
+            SqlAccountStore store = new SqlAccountStore(database);
+            store.insert(new Account("Alice", "hash", "10.0.0.1", 1, 1));
+            assertEquals(Optional.of("Alice"), store.find("alice").map(Account::getRealName));
+            assertEquals(1, store.countByAddress("10.0.0.1"));
+
+            assertTrue(store.insertUnderAddressLimit(new Account("Bob", "hash", "10.0.0.1", 2, 2), 2));
+            assertFalse(store.insertUnderAddressLimit(new Account("Carol", "hash", "10.0.0.1", 3, 3), 2));
+            assertTrue(store.insertUnderAddressLimit(new Account("Dave", "hash", null, 4, 4), 2));
+
+            store.upsert(new Account("ALICE", "new-hash", "10.0.0.2", 5, 5));
+            Account alice = store.find("alice").orElseThrow(AssertionError::new);
+            assertEquals("Alice", alice.getRealName());
+            assertEquals("new-hash", alice.getHashedPassword());
+            assertEquals(1, alice.getRegDate());
+
+            assertFalse(store.insertIfAbsent(new Account("Bob", "hash", null, 6, 6)));
+            assertTrue(store.insertIfAbsent(new Account("Eve", "hash", null, 6, 6)));
+            List<Account> inserted = store.insertAllIfAbsent(Arrays.asList(
+                    new Account("Eve", "hash", null, 7, 7), new Account("Frank", "hash", "10.0.0.3", 7, 7)));
+            assertEquals(Collections.singletonList("Frank"), names(inserted));
+
+            // only the login is written, never the password
+            store.updateAll(Collections.singletonList(new Account("Frank", "old-hash", "10.0.0.4", 8, 7)));
+            Account frank = store.find("frank").orElseThrow(AssertionError::new);
+            assertEquals("hash", frank.getHashedPassword());
+            assertEquals("10.0.0.4", frank.getAddress());
+            assertEquals(8, frank.getLastLogin());
+
+            assertTrue(store.rename("frank", "Francis"));
+            assertFalse(store.rename("bob", "Francis"));
+            assertTrue(store.delete("eve"));
+            assertEquals(4, store.count());
+
+            List<String> names = new ArrayList<>();
+            store.forEachName(names::add);
+            assertEquals(4, names.size());
+            List<String> addresses = new ArrayList<>();
+            store.forEachAddress(addresses::add);
+            assertEquals(3, addresses.size());
+            List<Account> accounts = new ArrayList<>();
+            store.forEachAccount(3, accounts::add);
+            assertEquals(4, accounts.size());
+            List<String> recent = new ArrayList<>();
+            store.forEachRecentName(1, recent::add);
+            assertEquals(Collections.singletonList("francis"), recent);
+
+            assertEquals(database.registered, database.used);
+        } finally {
+            // the next run on the same server starts from an empty schema
+            database.update("DROP TABLE IF EXISTS `openlogin`");
+            database.update("DROP TABLE IF EXISTS `settings`");
+            database.closeConnection();
+        }
+    }
+
+    private static List<String> names(List<Account> accounts) {
+        List<String> names = new ArrayList<>();
+        for (Account account : accounts) {
+            names.add(account.getRealName());
+        }
+        return names;
+    }
+
+    // records which named statements were registered and which were run
+    private static class RecordingDatabase extends PooledRemoteDatabase {
+
+        private final Set<String> registered = new TreeSet<>();
+        private final Set<String> used = Collections.synchronizedSet(new TreeSet<>());
+
+        private RecordingDatabase(SqlDialect dialect, JdbcDatabaseContainer<?> container, String properties) {
+            super(dialect, container.getHost(), container.getFirstMappedPort(), container.getDatabaseName(),
+                    container.getUsername(), container.getPassword(), properties, 2, 2, 10000, 16);
+        }
+
+        @Override
+        public void registerStatement(String name, String command) {
+            registered.add(name);
+            super.registerStatement(name, command);
+        }
+
+        @Override
+        public String getStatement(String name) {
+            used.add(name);
+            return super.getStatement(name);
+        }
+    }
+
+}
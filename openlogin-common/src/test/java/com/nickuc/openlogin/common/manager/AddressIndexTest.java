@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AddressIndexTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void keysIpv6ByPrefixAndIpv4MappedAsIpv4() {
+        assertEquals(AddressIndex.key("2001:db8::1", 32, 64), AddressIndex.key("2001:db8:0:0:ffff::2", 32, 64));
+        assertNotEquals(AddressIndex.key("2001:db8::1", 32, 64), AddressIndex.key("2001:db8:0:1::1", 32, 64));
+        assertEquals(AddressIndex.key("10.0.0.1", 32, 64), AddressIndex.key("::ffff:10.0.0.1", 32, 64));
+        assertEquals(AddressIndex.key("10.0.0.1", 24, 64), AddressIndex.key("10.0.0.200", 24, 64));
+    }
+
+    @Test
+    void subnetLimitReleasesTheAddress() {
+        AddressIndex index = new AddressIndex(64, 24, 48, 2);
+        assertTrue(index.tryReserve("10.0.0.1", 0));
+        assertTrue(index.tryReserve("10.0.0.2", 0));
+        assertFalse(index.tryReserve("10.0.0.3", 0));
+        assertEquals(0, index.count("10.0.0.3"));
+        assertEquals(2, index.countSubnet("10.0.0.3"));
+        assertTrue(index.tryReserve("10.0.1.1", 0));
+    }
+
+    @Test
+    void concurrentReservesNeverExceedTheLimit() throws InterruptedException {
+        AddressIndex index = new AddressIndex(64, 24, 48, 0);
+        AtomicInteger reserved = new AtomicInteger();
+        run(thread -> {
+            for (int i = 0; i < 10_000; i++) {
+                if (index.tryReserve("10.0.0.1", 50)) {
+                    reserved.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(50, reserved.get());
+        assertEquals(50, index.count("10.0.0.1"));
+    }
+
+    @Test
+    void concurrentReservesAndReleasesKeepTheCounts() throws InterruptedException {
+        AddressIndex index = new AddressIndex(64, 24, 48, 0);
+        int addresses = 64;
+        int limit = 4;
+        run(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<String> held = new ArrayList<>();
+            for (int i = 0; i < 200_000; i++) {
+                if (!held.isEmpty() && (held.size() == 32 || random.nextBoolean())) {
+                    index.remove(held.remove(random.nextInt(held.size())));
+                    continue;
+                }
+                String address = "10.0." + random.nextInt(addresses) + ".1";
+                if (index.tryReserve(address, limit)) {
+                    held.add(address);
+                    assertTrue(index.count(address) <= limit);
+                }
+            }
+            for (String address : held) {
+                index.remove(address);
+            }
+        });
+        for (int i = 0; i < addresses; i++) {
+            assertEquals(0, index.count("10.0." + i + ".1"));
+        }
+    }
+
+    @Test
+    void concurrentAddsSurviveResizes() throws InterruptedException {
+        AddressIndex index = new AddressIndex(64, 16, 48, 1_000_000);
+        int perThread = 20_000;
+        run(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                // every thread adds the same addresses, in a different order
+                int address = (i * 7919 + thread * 104_729) % perThread;
+                index.add(address(address));
+                if (i % 3 == 0) {
+                    // released addresses are dropped by the next resize, while others are added
+                    assertTrue(index.tryReserve(address(perThread + address), 0));
+                    index.remove(address(perThread + address));
+                }
+            }
+        });
+        for (int i = 0; i < perThread; i++) {
+            assertEquals(THREADS, index.count(address(i)));
+            assertEquals(0, index.count(address(perThread + i)));
+        }
+        assertEquals(THREADS * perThread, index.countSubnet("10.0.0.0"));
+        assertTrue(index.getStatus().startsWith("Address index: " + perThread + " addresses"), index.getStatus());
+    }
+
+    private static String address(int index) {
+        return "10." + (index >> 16) + "." + (index >> 8 & 0xFF) + "." + (index & 0xFF);
+    }
+
+    // starts the threads together and rethrows the first failure
+    private static void run(Worker worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(thread);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+    }
+
+    private interface Worker {
+
+        void run(int thread) throws Exception;
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.manager;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long WINDOW = 10_000;
+    private static final long KEY = 42;
+
+    private long now = 1_000_000;
+    private final RateLimiter limiter = new RateLimiter(
+            new RateLimiter.Policy(3, WINDOW, new long[]{60_000, 120_000}), 1000, () -> now);
+
+    @Test
+    void locksOutAtTheThreshold() {
+        assertEquals(0, limiter.registerFailure(KEY));
+        assertEquals(0, limiter.registerFailure(KEY));
+        assertEquals(60_000, limiter.registerFailure(KEY));
+        assertEquals(60_000, limiter.getLockout(KEY));
+        // the last lockout is used for every failure after it
+        assertEquals(120_000, limiter.registerFailure(KEY));
+        assertEquals(120_000, limiter.registerFailure(KEY));
+        assertEquals(0, limiter.getLockout(KEY + 1));
+
+        now += 120_000;
+        assertEquals(0, limiter.getLockout(KEY));
+    }
+
+    @Test
+    void countsTheWholePreviousWindowRightAfterTheRollover() {
+        failWithoutLockout(2);
+        now += WINDOW;
+        assertEquals(60_000, limiter.registerFailure(KEY));
+    }
+
+    @Test
+    void weightsThePreviousWindowByItsOverlap() {
+        failWithoutLockout(2);
+        // 75% of the previous window overlaps, 2 failures count as 1
+        now += WINDOW + WINDOW / 4;
+        assertEquals(0, limiter.registerFailure(KEY));
+        assertEquals(60_000, limiter.registerFailure(KEY));
+    }
+
+    @Test
+    void dropsThePreviousWindowAsItSlidesOut() {
+        failWithoutLockout(2);
+        // 40% overlaps, 2 failures count as 0
+        now += WINDOW + WINDOW * 6 / 10;
+        failWithoutLockout(2);
+        assertEquals(60_000, limiter.registerFailure(KEY));
+    }
+
+    @Test
+    void keepsTheWindowsAlignedAcrossRollovers() {
+        failWithoutLockout(2);
+        // the second window starts one length after the first, not at this failure
+        now += WINDOW * 3 / 2;
+        failWithoutLockout(1);
+        // the previous window is now the one with 1 failure, half of it overlaps, which counts as 0
+        now += WINDOW;
+        failWithoutLockout(2);
+        assertEquals(60_000, limiter.registerFailure(KEY));
+    }
+
+    @Test
+    void forgetsWindowsOlderThanTwoLengths() {
+        failWithoutLockout(2);
+        now += 2 * WINDOW;
+        failWithoutLockout(2);
+        assertEquals(60_000, limiter.registerFailure(KEY));
+    }
+
+    @Test
+    void clearsAKey() {
+        failWithoutLockout(2);
+        assertEquals(60_000, limiter.registerFailure(KEY));
+        limiter.clear(KEY);
+        assertEquals(0, limiter.getLockout(KEY));
+        assertEquals(0, limiter.registerFailure(KEY));
+        assertEquals(1, limiter.getLockouts());
+    }
+
+    @Test
+    void neverLocksOutWhenDisabled() {
+        RateLimiter disabled = new RateLimiter(new RateLimiter.Policy(0, WINDOW, new long[]{60_000}), 1000, () -> now);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, disabled.registerFailure(KEY));
+        }
+        assertFalse(disabled.isEnabled());
+        assertEquals(0, disabled.size());
+    }
+
+    // failures that must not lock the key out
+    private void failWithoutLockout(int failures) {
+        for (int i = 0; i < failures; i++) {
+            assertEquals(0, limiter.registerFailure(KEY), "failure " + (i + 1) + " of " + failures);
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 - 2026 - OpenLogin Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.sobble.pleasejustlogin.common.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The wheel reads the clock when it is created and on {@link TimerWheel#schedule}, so ticks are a second long
+ * and delays end half way through a tick: the few milliseconds the test takes don't move a deadline to another tick.
+ */
+class TimerWheelTest {
+
+    private static final long TICK = 1000;
+    private static final int MAX_DELAY_TICKS = (1 << 18) - 1;
+
+    private long start;
+    private TimerWheel wheel;
+    private List<Long> fired;
+
+    @BeforeEach
+    void createWheel() {
+        start = System.currentTimeMillis();
+        wheel = new TimerWheel(TICK);
+        fired = new ArrayList<>();
+    }
+
+    @Test
+    void firesOnTheDeadlineAcrossLevelBoundaries() {
+        // the last and first tick of each level, and deadlines that cascade twice
+        long[] deadlines = {1, 2, 63, 64, 65, 127, 128, 4095, 4096, 4097, 4159, 4160, 8191, 8192, 70000, MAX_DELAY_TICKS};
+        for (long deadline : deadlines) {
+            schedule(deadline);
+        }
+        assertEquals(deadlines.length, wheel.size());
+
+        int next = 0;
+        for (long tick = 1; tick <= MAX_DELAY_TICKS; tick++) {
+            int ran = advanceTo(tick);
+            if (next < deadlines.length && deadlines[next] == tick) {
+                assertEquals(1, ran, "tick " + tick);
+                assertEquals(tick, (long) fired.get(next));
+                next++;
+            } else {
+                assertEquals(0, ran, "tick " + tick);
+            }
+        }
+        assertEquals(deadlines.length, next);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesEverythingDueWhenTicksAreSkipped() {
+        for (long deadline = 1; deadline <= 10000; deadline += 7) {
+            schedule(deadline);
+        }
+        assertEquals(0, advanceTo(0));
+        // one call crosses the boundaries of both outer wheels
+        assertEquals(715, advanceTo(5000));
+        assertEquals(714, advanceTo(10000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelsAfterCascading() {
+        TimerWheel.Timeout cancelled = schedule(4100);
+        TimerWheel.Timeout kept = schedule(4101);
+        // moved from the outer wheel to the inner ones
+        advanceTo(4096);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertFalse(cancelled.isPending());
+        assertEquals(1, wheel.size());
+
+        assertEquals(1, advanceTo(5000));
+        assertFalse(kept.isPending());
+        assertFalse(kept.cancel());
+        assertEquals(1, fired.size());
+        assertEquals(4101, (long) fired.get(0));
+    }
+
+    @Test
+    void cutsLongDelaysToTheMaximum() {
+        schedule(10 * MAX_DELAY_TICKS);
+        assertEquals(0, advanceTo(MAX_DELAY_TICKS - 1));
+        assertEquals(1, advanceTo(MAX_DELAY_TICKS));
+    }
+
+    @Test
+    void runsTheOtherTasksWhenOneFails() {
+        wheel.schedule(() -> {
+            throw new IllegalStateException("expected by the test");
+        }, TICK - TICK / 2, TimeUnit.MILLISECONDS);
+        schedule(1);
+        assertEquals(2, advanceTo(1));
+        assertEquals(1, fired.size());
+    }
+
+    // the task records the deadline it was scheduled for
+    private TimerWheel.Timeout schedule(long deadline) {
+        return wheel.schedule(() -> fired.add(deadline), deadline * TICK - TICK / 2, TimeUnit.MILLISECONDS);
+    }
+
+    private int advanceTo(long tick) {
+        return wheel.advance(start + tick * TICK + TICK / 2);
+    }
+
+}